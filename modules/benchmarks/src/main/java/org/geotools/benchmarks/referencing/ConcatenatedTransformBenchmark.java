@@ -0,0 +1,154 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks.referencing;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.referencing.operation.DefaultMathTransformFactory;
+import org.geotools.referencing.operation.matrix.Matrix3;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.referencing.operation.MathTransform;
+
+/**
+ * Transforms coordinate arrays along the most common map projection pipelines, with and without
+ * the {@link DefaultMathTransformFactory#setFusedTransforms fused transforms}. For example,
+ * {@code java -jar benchmarks.jar ConcatenatedTransformBenchmark -p points=100000} compares
+ * the two on large arrays only.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConcatenatedTransformBenchmark {
+
+    static final double WGS84_MAJOR = 6378137.0;
+
+    static final double WGS84_MINOR = 6356752.314245179;
+
+    @Param({ "utm-to-utm", "geographic-to-lambert", "mercator-to-geographic", "datum-shift" })
+    String pipeline;
+
+    @Param({ "false", "true" })
+    boolean fused;
+
+    @Param({ "1000", "100000" })
+    int points;
+
+    DefaultMathTransformFactory factory;
+
+    MathTransform transform;
+
+    double[] source;
+
+    double[] target;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        factory = new DefaultMathTransformFactory();
+        factory.setFusedTransforms(fused);
+        // areas of validity of the source coordinates, as minx, maxx, miny, maxy
+        double[] area;
+        if ("utm-to-utm".equals(pipeline)) {
+            transform = concatenate(utm(32).inverse(), utm(33));
+            area = new double[] { 300000, 700000, 4500000, 5500000 };
+        } else if ("geographic-to-lambert".equals(pipeline)) {
+            // latitude first geographic coordinates, output in feet
+            MathTransform swap = factory.createAffineTransform(
+                    new Matrix3(0, 1, 0, 1, 0, 0, 0, 0, 1));
+            MathTransform feet = factory.createAffineTransform(
+                    new Matrix3(1 / 0.3048, 0, 0, 0, 1 / 0.3048, 0, 0, 0, 1));
+            MathTransform lambert = projection("Lambert_Conformal_Conic_2SP",
+                    "central_meridian", 3, "latitude_of_origin", 46.5,
+                    "standard_parallel_1", 44, "standard_parallel_2", 49,
+                    "false_easting", 700000, "false_northing", 6600000);
+            transform = concatenate(swap, lambert, feet);
+            area = new double[] { 41, 52, -5, 10 };
+        } else if ("mercator-to-geographic".equals(pipeline)) {
+            MathTransform swap = factory.createAffineTransform(
+                    new Matrix3(0, 1, 0, 1, 0, 0, 0, 0, 1));
+            transform = concatenate(projection("Mercator_1SP").inverse(), swap);
+            area = new double[] { -20000000, 20000000, -15000000, 15000000 };
+        } else if ("datum-shift".equals(pipeline)) {
+            ParameterValueGroup parameters = factory.getDefaultParameters("Abridged_Molodenski");
+            parameters.parameter("dim").setValue(2);
+            parameters.parameter("dx").setValue(-87.0);
+            parameters.parameter("dy").setValue(-98.0);
+            parameters.parameter("dz").setValue(-121.0);
+            parameters.parameter("src_semi_major").setValue(WGS84_MAJOR);
+            parameters.parameter("src_semi_minor").setValue(WGS84_MINOR);
+            parameters.parameter("tgt_semi_major").setValue(6378388.0);
+            parameters.parameter("tgt_semi_minor").setValue(6356911.946127947);
+            MathTransform molodenski = factory.createParameterizedTransform(parameters);
+            transform = concatenate(utm(31).inverse(), molodenski, utm(31));
+            area = new double[] { 300000, 700000, 4500000, 5500000 };
+        } else {
+            throw new IllegalArgumentException("Unknown pipeline " + pipeline);
+        }
+
+        Random random = new Random(0);
+        source = new double[points * 2];
+        for (int i = 0; i < source.length; i += 2) {
+            source[i] = area[0] + random.nextDouble() * (area[1] - area[0]);
+            source[i + 1] = area[2] + random.nextDouble() * (area[3] - area[2]);
+        }
+        target = new double[source.length];
+    }
+
+    MathTransform concatenate(MathTransform... steps) throws Exception {
+        MathTransform result = steps[0];
+        for (int i = 1; i < steps.length; i++) {
+            result = factory.createConcatenatedTransform(result, steps[i]);
+        }
+        return result;
+    }
+
+    MathTransform projection(String name, Object... params) throws Exception {
+        ParameterValueGroup parameters = factory.getDefaultParameters(name);
+        parameters.parameter("semi_major").setValue(WGS84_MAJOR);
+        parameters.parameter("semi_minor").setValue(WGS84_MINOR);
+        for (int i = 0; i < params.length; i += 2) {
+            parameters.parameter((String) params[i]).setValue(((Number) params[i + 1]).doubleValue());
+        }
+        return factory.createParameterizedTransform(parameters);
+    }
+
+    MathTransform utm(int zone) throws Exception {
+        return projection("Transverse_Mercator", "central_meridian", zone * 6 - 183,
+                "scale_factor", 0.9996, "false_easting", 500000);
+    }
+
+    @Benchmark
+    public double[] transform() throws Exception {
+        transform.transform(source, 0, target, 0, points);
+        return target;
+    }
+}
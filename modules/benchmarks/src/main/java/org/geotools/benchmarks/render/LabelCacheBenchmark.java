@@ -0,0 +1,128 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks.render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.renderer.label.LabelCacheImpl;
+import org.geotools.styling.FeatureTypeStyle;
+import org.geotools.styling.Rule;
+import org.geotools.styling.Style;
+import org.geotools.styling.Symbolizer;
+import org.geotools.styling.TextSymbolizer;
+import org.geotools.util.NumberRange;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * Feeds a {@link LabelCacheImpl} with the labels of a whole map and paints them, covering the
+ * grouping, conflict resolution and text painting steps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class LabelCacheBenchmark {
+
+    static final String LAYER_ID = "benchmark";
+
+    static final NumberRange<Double> ALL_SCALES = new NumberRange<Double>(Double.class,
+            Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+
+    @Param({ "256", "1024", "4096" })
+    int size;
+
+    @Param({ "point-label", "line-label" })
+    String style;
+
+    List<SimpleFeature> features;
+
+    List<LiteShape2> shapes;
+
+    List<TextSymbolizer> symbolizers;
+
+    BufferedImage image;
+
+    Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        features = SyntheticData.features(RenderBenchmark.dataset(style));
+        shapes = SyntheticData.screenShapes(features, size);
+        symbolizers = new ArrayList<TextSymbolizer>();
+        Style parsed = RenderBenchmark.style(style);
+        for (FeatureTypeStyle fts : parsed.featureTypeStyles()) {
+            for (Rule rule : fts.rules()) {
+                for (Symbolizer symbolizer : rule.symbolizers()) {
+                    if (symbolizer instanceof TextSymbolizer) {
+                        symbolizers.add((TextSymbolizer) symbolizer);
+                    }
+                }
+            }
+        }
+
+        image = new BufferedImage(size, size, BufferedImage.TYPE_4BYTE_ABGR);
+        graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage label() {
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, size, size);
+        Rectangle area = new Rectangle(size, size);
+        LabelCacheImpl cache = new LabelCacheImpl();
+        cache.start();
+        cache.startLayer(LAYER_ID);
+        for (int i = 0; i < features.size(); i++) {
+            for (TextSymbolizer symbolizer : symbolizers) {
+                cache.put(LAYER_ID, symbolizer, features.get(i), shapes.get(i), ALL_SCALES);
+            }
+        }
+        cache.endLayer(LAYER_ID, graphics, area);
+        cache.end(graphics, area);
+        return image;
+    }
+}
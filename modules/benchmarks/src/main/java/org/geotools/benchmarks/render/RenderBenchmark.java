@@ -0,0 +1,140 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks.render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.filter.function.EnvFunction;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.renderer.lite.StreamingRenderer;
+import org.geotools.styling.SLDParser;
+import org.geotools.styling.Style;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Paints a whole map with {@link StreamingRenderer}, for each combination of style and image size.
+ * The dataset is picked from the style name prefix (point, line or polygon).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+
+    static final int POINTS = 10000;
+
+    static final int LINES = 2000;
+
+    static final int POLYGONS = 2000;
+
+    @Param({ "256", "1024", "4096" })
+    int size;
+
+    @Param({ "point-mark", "point-label", "point-stacker", "line-dash", "line-label",
+            "polygon-fill", "polygon-graphic-fill" })
+    String style;
+
+    MapContent mapContent;
+
+    BufferedImage image;
+
+    Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        SimpleFeatureSource source = dataset(style);
+        mapContent = new MapContent();
+        mapContent.addLayer(new FeatureLayer(source, style(style)));
+        mapContent.getViewport().setBounds(SyntheticData.BOUNDS);
+
+        // used by the rendering transformations, the local values are bound to the thread
+        EnvFunction.setLocalValue("wms_bbox", SyntheticData.BOUNDS);
+        EnvFunction.setLocalValue("wms_width", size);
+        EnvFunction.setLocalValue("wms_height", size);
+
+        image = new BufferedImage(size, size, BufferedImage.TYPE_4BYTE_ABGR);
+        graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graphics.dispose();
+        mapContent.dispose();
+        EnvFunction.clearLocalValues();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, size, size);
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mapContent);
+        renderer.paint(graphics, new Rectangle(size, size), SyntheticData.BOUNDS);
+        return image;
+    }
+
+    /**
+     * Returns the dataset matching the style name prefix
+     */
+    static SimpleFeatureSource dataset(String style) {
+        if (style.startsWith("point")) {
+            return SyntheticData.build(SyntheticData.Type.POINT, POINTS);
+        } else if (style.startsWith("line")) {
+            return SyntheticData.build(SyntheticData.Type.LINE, LINES);
+        } else {
+            return SyntheticData.build(SyntheticData.Type.POLYGON, POLYGONS);
+        }
+    }
+
+    /**
+     * Parses one of the styles shipped along with the benchmarks
+     */
+    static Style style(String name) throws IOException {
+        URL url = RenderBenchmark.class.getResource(name + ".sld");
+        if (url == null) {
+            throw new IllegalArgumentException("Could not find style " + name);
+        }
+        SLDParser parser = new SLDParser(CommonFactoryFinder.getStyleFactory(), url);
+        return parser.readXML()[0];
+    }
+}
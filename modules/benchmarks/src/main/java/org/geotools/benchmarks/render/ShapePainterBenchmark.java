@@ -0,0 +1,123 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks.render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.renderer.lite.StyledShapePainter;
+import org.geotools.renderer.style.SLDStyleFactory;
+import org.geotools.renderer.style.Style2D;
+import org.geotools.styling.FeatureTypeStyle;
+import org.geotools.styling.Rule;
+import org.geotools.styling.Style;
+import org.geotools.styling.Symbolizer;
+import org.geotools.styling.TextSymbolizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * Paints shapes already transformed in screen space with {@link StyledShapePainter}, isolating
+ * the Java2D painting costs from the data access and transformation ones.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ShapePainterBenchmark {
+
+    @Param({ "256", "1024", "4096" })
+    int size;
+
+    @Param({ "point-mark", "line-dash", "polygon-fill", "polygon-graphic-fill" })
+    String style;
+
+    List<LiteShape2> shapes;
+
+    List<Style2D> styles;
+
+    StyledShapePainter painter;
+
+    BufferedImage image;
+
+    Graphics2D graphics;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        List<SimpleFeature> features = SyntheticData.features(RenderBenchmark.dataset(style));
+        List<LiteShape2> screenShapes = SyntheticData.screenShapes(features, size);
+
+        // pair each shape with each of its styles, labels are left to the label cache benchmark
+        SLDStyleFactory factory = new SLDStyleFactory();
+        Style parsed = RenderBenchmark.style(style);
+        shapes = new ArrayList<LiteShape2>();
+        styles = new ArrayList<Style2D>();
+        for (int i = 0; i < features.size(); i++) {
+            for (FeatureTypeStyle fts : parsed.featureTypeStyles()) {
+                for (Rule rule : fts.rules()) {
+                    for (Symbolizer symbolizer : rule.symbolizers()) {
+                        if (!(symbolizer instanceof TextSymbolizer)) {
+                            shapes.add(screenShapes.get(i));
+                            styles.add(factory.createStyle(features.get(i), symbolizer));
+                        }
+                    }
+                }
+            }
+        }
+
+        painter = new StyledShapePainter();
+        image = new BufferedImage(size, size, BufferedImage.TYPE_4BYTE_ABGR);
+        graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                RenderingHints.VALUE_ANTIALIAS_ON);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, size, size);
+        for (int i = 0; i < shapes.size(); i++) {
+            painter.paint(graphics, shapes.get(i), styles.get(i), 1);
+        }
+        return image;
+    }
+}
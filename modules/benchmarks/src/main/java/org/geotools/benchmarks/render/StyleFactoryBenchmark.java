@@ -0,0 +1,87 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks.render;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.renderer.style.SLDStyleFactory;
+import org.geotools.styling.FeatureTypeStyle;
+import org.geotools.styling.Rule;
+import org.geotools.styling.Style;
+import org.geotools.styling.Symbolizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opengis.feature.simple.SimpleFeature;
+
+/**
+ * Turns the symbolizers of a style into {@link org.geotools.renderer.style.Style2D} objects for a
+ * set of features, using a new {@link SLDStyleFactory} at each invocation, as it happens for each
+ * map painted by {@link org.geotools.renderer.lite.StreamingRenderer}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class StyleFactoryBenchmark {
+
+    static final int FEATURES = 1000;
+
+    @Param({ "point-mark", "point-label", "line-dash", "line-label", "polygon-fill",
+            "polygon-graphic-fill" })
+    String style;
+
+    List<SimpleFeature> features;
+
+    List<Symbolizer> symbolizers;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        features = SyntheticData.features(RenderBenchmark.dataset(style)).subList(0, FEATURES);
+        symbolizers = new ArrayList<Symbolizer>();
+        Style parsed = RenderBenchmark.style(style);
+        for (FeatureTypeStyle fts : parsed.featureTypeStyles()) {
+            for (Rule rule : fts.rules()) {
+                symbolizers.addAll(rule.symbolizers());
+            }
+        }
+    }
+
+    @Benchmark
+    public void createStyles(Blackhole blackhole) {
+        SLDStyleFactory factory = new SLDStyleFactory();
+        for (SimpleFeature feature : features) {
+            for (Symbolizer symbolizer : symbolizers) {
+                blackhole.consume(factory.createStyle(feature, symbolizer));
+            }
+        }
+    }
+}
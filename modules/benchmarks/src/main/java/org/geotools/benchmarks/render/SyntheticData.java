@@ -0,0 +1,156 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.benchmarks.render;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.referencing.operation.transform.ProjectiveTransform;
+import org.geotools.renderer.lite.RendererUtilities;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.referencing.operation.MathTransform;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Builds the in memory datasets used by the rendering benchmarks. The contents only depend on the
+ * feature count, the random generator is seeded so that runs are comparable.
+ */
+public class SyntheticData {
+
+    /**
+     * The area covered by the datasets
+     */
+    public static final ReferencedEnvelope BOUNDS = new ReferencedEnvelope(0, 100, 0, 100,
+            DefaultGeographicCRS.WGS84);
+
+    static final long SEED = 20180101;
+
+    static final GeometryFactory GF = new GeometryFactory();
+
+    public enum Type {
+        POINT(Point.class), LINE(LineString.class), POLYGON(Polygon.class);
+
+        final Class<? extends Geometry> binding;
+
+        Type(Class<? extends Geometry> binding) {
+            this.binding = binding;
+        }
+    }
+
+    /**
+     * Builds a feature source with the specified number of random features
+     */
+    public static SimpleFeatureSource build(Type type, int count) {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName(type.name().toLowerCase());
+        tb.add("geom", type.binding, DefaultGeographicCRS.WGS84);
+        tb.add("name", String.class);
+        tb.add("value", Integer.class);
+        SimpleFeatureType schema = tb.buildFeatureType();
+
+        Random random = new Random(SEED);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>(count);
+        for (int i = 0; i < count; i++) {
+            fb.add(geometry(type, random));
+            fb.add("Feature " + i);
+            fb.add(random.nextInt(100));
+            features.add(fb.buildFeature(type.name().toLowerCase() + "." + i));
+        }
+        return DataUtilities.source(new ListFeatureCollection(schema, features));
+    }
+
+    static Geometry geometry(Type type, Random random) {
+        double x = BOUNDS.getMinX() + random.nextDouble() * BOUNDS.getWidth();
+        double y = BOUNDS.getMinY() + random.nextDouble() * BOUNDS.getHeight();
+        switch (type) {
+        case POINT:
+            return GF.createPoint(new Coordinate(x, y));
+        case LINE:
+            // a random walk
+            Coordinate[] path = new Coordinate[20];
+            for (int i = 0; i < path.length; i++) {
+                path[i] = new Coordinate(x, y);
+                x += random.nextDouble() - 0.5;
+                y += random.nextDouble() - 0.5;
+            }
+            return GF.createLineString(path);
+        case POLYGON:
+            // a star shaped polygon
+            Coordinate[] ring = new Coordinate[13];
+            double radius = 0.2 + random.nextDouble();
+            for (int i = 0; i < ring.length - 1; i++) {
+                double angle = Math.PI * 2 * i / (ring.length - 1);
+                double r = radius * (0.6 + random.nextDouble() * 0.4);
+                ring[i] = new Coordinate(x + Math.cos(angle) * r, y + Math.sin(angle) * r);
+            }
+            ring[ring.length - 1] = new Coordinate(ring[0]);
+            return GF.createPolygon(ring);
+        default:
+            throw new IllegalArgumentException("Unsupported type " + type);
+        }
+    }
+
+    /**
+     * Returns the features of the source, in the same order
+     */
+    public static List<SimpleFeature> features(SimpleFeatureSource source) throws IOException {
+        List<SimpleFeature> result = new ArrayList<SimpleFeature>();
+        try (SimpleFeatureIterator it = source.getFeatures().features()) {
+            while (it.hasNext()) {
+                result.add(it.next());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the feature geometries turned into shapes in the screen space of an image of the
+     * specified size covering {@link #BOUNDS}, in the same order as the features
+     */
+    public static List<LiteShape2> screenShapes(List<SimpleFeature> features, int size)
+            throws Exception {
+        AffineTransform worldToScreen = RendererUtilities.worldToScreenTransform(BOUNDS,
+                new Rectangle(size, size));
+        MathTransform mt = ProjectiveTransform.create(worldToScreen);
+        List<LiteShape2> shapes = new ArrayList<LiteShape2>(features.size());
+        for (SimpleFeature feature : features) {
+            shapes.add(new LiteShape2((Geometry) feature.getDefaultGeometry(), mt, null, false));
+        }
+        return shapes;
+    }
+}
@@ -21,6 +21,7 @@ import java.io.StringWriter;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 
 import org.geotools.data.jdbc.FilterToSQL;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -71,6 +72,15 @@ public abstract class BasicSQLDialect extends SQLDialect {
 //            sql.append(value);
 //        }
     }
+
+    /**
+     * Encodes the primary key value as a literal, see {@link #encodeValue(Object, Class, StringBuffer)}
+     */
+    @Override
+    protected void encodeKeysetValue(Object value, Class<?> binding, List<Object> bindings,
+            StringBuffer sql) {
+        encodeValue(value, binding, sql);
+    }
     
     /**
      * Encodes a geometry value in an sql statement.
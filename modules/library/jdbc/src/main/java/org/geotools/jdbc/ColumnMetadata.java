@@ -37,6 +37,8 @@ public class ColumnMetadata {
     boolean nullable;
     /** The native srid */
     Integer srid;
+    /** The geometry dimension, if known */
+    Integer dimension;
     
     public Class getBinding() {
         return binding;
@@ -85,4 +87,12 @@ public class ColumnMetadata {
     public void setSrid(Integer srid) {
         this.srid = srid;
     }
+    
+    public Integer getDimension() {
+        return dimension;
+    }
+    
+    public void setDimension(Integer dimension) {
+        this.dimension = dimension;
+    }
 }
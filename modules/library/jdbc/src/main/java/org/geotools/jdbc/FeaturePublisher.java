@@ -0,0 +1,339 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Publishes the features of a query to subscribers, with backpressure, without blocking the
+ * subscriber threads on the database. The interfaces follow the reactive streams contract of
+ * <code>java.util.concurrent.Flow</code>, so that they can be adapted one to one where that API
+ * is available.
+ * <p>
+ * Each subscription runs the query on its own connection. Features are read ahead into a bounded
+ * buffer by fetch tasks run on the provided executor. A fetch task reads until the buffer is full
+ * or the results are over, then returns its thread, and a new one is scheduled once the
+ * subscriber has consumed half of the buffer. Threads are only busy while the database is
+ * actually being read. The connection stays open until the results are over, the subscription is
+ * cancelled, or a failure occurs.
+ */
+public class FeaturePublisher {
+
+    static final Logger LOGGER = Logging.getLogger(FeaturePublisher.class);
+
+    /**
+     * The default number of features read ahead for each subscription
+     */
+    public static final int DEFAULT_PREFETCH = 256;
+
+    /**
+     * Receives the features, see <code>java.util.concurrent.Flow.Subscriber</code>
+     */
+    public interface Subscriber {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(SimpleFeature feature);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    /**
+     * Controls the flow of features, see <code>java.util.concurrent.Flow.Subscription</code>
+     */
+    public interface Subscription {
+        /**
+         * Asks for n more features, which are delivered as they become available
+         */
+        void request(long n);
+
+        /**
+         * Stops the delivery of features, and releases the database resources
+         */
+        void cancel();
+    }
+
+    final JDBCFeatureSource source;
+
+    final Query query;
+
+    final Executor executor;
+
+    final int prefetch;
+
+    FeaturePublisher(JDBCFeatureSource source, Query query, Executor executor, int prefetch) {
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("The prefetch size must be positive");
+        }
+        this.source = source;
+        this.query = query;
+        this.executor = executor;
+        this.prefetch = prefetch;
+    }
+
+    /**
+     * Subscribes to the features of the query, each subscription runs the query anew
+     */
+    public void subscribe(Subscriber subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("The subscriber cannot be null");
+        }
+        FeatureSubscription subscription = new FeatureSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    class FeatureSubscription implements Subscription, Runnable {
+
+        final Subscriber subscriber;
+
+        final ArrayDeque<SimpleFeature> buffer = new ArrayDeque<SimpleFeature>();
+
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader;
+
+        long demand;
+
+        /**
+         * A fetch task is scheduled or running, and owns the reader
+         */
+        boolean fetching;
+
+        /**
+         * Delivery is running in some thread, the flag below asks it to go round once more
+         */
+        boolean draining;
+
+        boolean missed;
+
+        /**
+         * No more features will be added to the buffer
+         */
+        boolean done;
+
+        Throwable failure;
+
+        boolean cancelled;
+
+        boolean terminated;
+
+        FeatureSubscription(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // rule 3.9 of the reactive streams specification
+                fail(new IllegalArgumentException(
+                        "The number of requested features must be positive"));
+            } else {
+                synchronized (this) {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            FeatureReader<SimpleFeatureType, SimpleFeature> toClose = null;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                buffer.clear();
+                if (!fetching) {
+                    toClose = reader;
+                    reader = null;
+                }
+            }
+            closeSafe(toClose);
+        }
+
+        /**
+         * The fetch task, fills the buffer reading from the database
+         */
+        @Override
+        public void run() {
+            FeatureReader<SimpleFeatureType, SimpleFeature> reader = this.reader;
+            boolean exhausted = false;
+            Throwable error = null;
+            try {
+                if (reader == null) {
+                    reader = source.getReader(query);
+                    this.reader = reader;
+                }
+                while (true) {
+                    synchronized (this) {
+                        if (cancelled || done || buffer.size() >= prefetch) {
+                            break;
+                        }
+                    }
+                    if (!reader.hasNext()) {
+                        exhausted = true;
+                        break;
+                    }
+                    SimpleFeature feature = reader.next();
+                    synchronized (this) {
+                        buffer.add(feature);
+                    }
+                }
+            } catch (Throwable t) {
+                error = t;
+            }
+
+            boolean close;
+            synchronized (this) {
+                fetching = false;
+                close = cancelled || done || exhausted || error != null;
+                if (close) {
+                    this.reader = null;
+                }
+                if (error != null && !cancelled && !done) {
+                    done = true;
+                    buffer.clear();
+                    failure = error;
+                } else if (exhausted) {
+                    done = true;
+                }
+            }
+            if (close) {
+                closeSafe(reader);
+            }
+            drain();
+        }
+
+        /**
+         * Delivers the buffered features as long as there is demand, completes the subscription
+         * when the results are over, and schedules the next fetch as soon as the buffer is half
+         * empty, so that the database is read while the features are delivered. Only one thread
+         * at a time delivers, the others leave a note to go round once more.
+         */
+        void drain() {
+            synchronized (this) {
+                if (draining) {
+                    missed = true;
+                    return;
+                }
+                draining = true;
+            }
+            while (true) {
+                SimpleFeature feature = null;
+                boolean complete = false;
+                Throwable error = null;
+                boolean fetch = false;
+                synchronized (this) {
+                    if (cancelled || terminated) {
+                        draining = false;
+                        return;
+                    }
+                    if (demand > 0 && !buffer.isEmpty()) {
+                        feature = buffer.poll();
+                        demand--;
+                    } else if (buffer.isEmpty() && done) {
+                        terminated = true;
+                        complete = failure == null;
+                        error = failure;
+                    }
+                    if (!done && !fetching && buffer.size() <= prefetch / 2) {
+                        fetching = true;
+                        fetch = true;
+                    }
+                    if (feature == null && !terminated && !fetch) {
+                        if (!missed) {
+                            draining = false;
+                            return;
+                        }
+                        missed = false;
+                    }
+                }
+
+                if (fetch) {
+                    schedule();
+                }
+                try {
+                    if (feature != null) {
+                        subscriber.onNext(feature);
+                    } else if (complete) {
+                        subscriber.onComplete();
+                    } else if (error != null) {
+                        subscriber.onError(error);
+                    }
+                } catch (Throwable t) {
+                    // subscribers are not supposed to throw, consider the subscription cancelled
+                    LOGGER.log(Level.WARNING, "Subscriber failed, cancelling the subscription", t);
+                    cancel();
+                }
+            }
+        }
+
+        void schedule() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    fetching = false;
+                }
+                fail(new IOException("Could not schedule the feature fetch", e));
+                drain();
+            }
+        }
+
+        /**
+         * Terminates the subscription with an error, closing the reader unless a fetch task owns
+         * it, in which case the task will close it
+         */
+        void fail(Throwable error) {
+            FeatureReader<SimpleFeatureType, SimpleFeature> toClose = null;
+            synchronized (this) {
+                if (done || cancelled) {
+                    return;
+                }
+                done = true;
+                buffer.clear();
+                failure = error;
+                if (!fetching) {
+                    toClose = reader;
+                    reader = null;
+                }
+            }
+            closeSafe(toClose);
+        }
+
+        void closeSafe(FeatureReader<SimpleFeatureType, SimpleFeature> reader) {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.FINE, "Failed to close the feature reader", e);
+                }
+            }
+        }
+    }
+}
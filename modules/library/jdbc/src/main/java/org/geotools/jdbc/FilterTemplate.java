@@ -0,0 +1,322 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.filter.spatial.BBOXImpl;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.BinaryLogicOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.MultiValuedFilter.MatchAction;
+import org.opengis.filter.Not;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.PropertyIsNotEqualTo;
+import org.opengis.filter.PropertyIsNull;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.ExpressionVisitor;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.BBOX3D;
+import org.opengis.filter.spatial.Intersects;
+
+/**
+ * Splits a filter into its structure (filter types, property names, flags and literal types) and
+ * the list of its literals, so that filters differing only in their literal values, like the BBOX
+ * of map tiles, can share the same prepared SQL encoding. Only a well known subset of filters is
+ * supported, {@link #build(Filter)} returns null for the others.
+ */
+final class FilterTemplate {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    /**
+     * A literal wrapper, tracking its position in the template, and whether its value was looked
+     * at while the template was being encoded, besides being turned into a prepared statement
+     * parameter (which means the encoding depends on the value, and cannot be reused)
+     */
+    static final class Placeholder implements Literal {
+
+        final int index;
+
+        final Literal literal;
+
+        boolean armed;
+
+        boolean inspected;
+
+        Placeholder(int index, Literal literal) {
+            this.index = index;
+            this.literal = literal;
+        }
+
+        @Override
+        public Object getValue() {
+            touch();
+            return literal.getValue();
+        }
+
+        @Override
+        public Object evaluate(Object object) {
+            touch();
+            return literal.evaluate(object);
+        }
+
+        @Override
+        public <T> T evaluate(Object object, Class<T> context) {
+            touch();
+            return literal.evaluate(object, context);
+        }
+
+        @Override
+        public Object accept(ExpressionVisitor visitor, Object extraData) {
+            return visitor.visit(this, extraData);
+        }
+
+        private void touch() {
+            if (armed) {
+                inspected = true;
+            }
+        }
+
+        @Override
+        public String toString() {
+            touch();
+            return literal.toString();
+        }
+    }
+
+    final StringBuilder structure = new StringBuilder();
+
+    final List<Literal> literals = new ArrayList<Literal>();
+
+    List<Placeholder> placeholders;
+
+    private FilterTemplate(boolean duplicate) {
+        if (duplicate) {
+            placeholders = new ArrayList<Placeholder>();
+        }
+    }
+
+    /**
+     * Returns the template of the filter, or null if the filter contains anything but logic
+     * operators, comparisons, null checks, BBOX and intersects between property names and
+     * literals
+     */
+    static FilterTemplate build(Filter filter) {
+        FilterTemplate template = new FilterTemplate(false);
+        if (template.filter(filter) == null) {
+            return null;
+        }
+        return template;
+    }
+
+    /**
+     * The filter structure, equal for all filters differing only in their literal values
+     */
+    String getStructure() {
+        return structure.toString();
+    }
+
+    /**
+     * The filter literals, in the order the placeholders are numbered
+     */
+    List<Literal> getLiterals() {
+        return literals;
+    }
+
+    /**
+     * Returns a copy of the filter whose literals are replaced by placeholders, armed to track
+     * any access to their values
+     */
+    Filter toPlaceholders(Filter filter) {
+        FilterTemplate copy = new FilterTemplate(true);
+        Filter result = copy.filter(filter);
+        placeholders = copy.placeholders;
+        for (Placeholder placeholder : placeholders) {
+            placeholder.armed = true;
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if any placeholder value was looked at while encoding
+     */
+    boolean isInspected() {
+        for (Placeholder placeholder : placeholders) {
+            if (placeholder.inspected) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Filter filter(Filter filter) {
+        if (filter == Filter.INCLUDE || filter == Filter.EXCLUDE) {
+            structure.append(filter == Filter.INCLUDE ? "INCLUDE" : "EXCLUDE");
+            return filter;
+        } else if (filter instanceof BinaryLogicOperator) {
+            structure.append(filter instanceof And ? "And(" : "Or(");
+            List<Filter> children = new ArrayList<Filter>();
+            for (Filter child : ((BinaryLogicOperator) filter).getChildren()) {
+                Filter copy = filter(child);
+                if (copy == null) {
+                    return null;
+                }
+                children.add(copy);
+                structure.append(",");
+            }
+            structure.append(")");
+            if (placeholders == null) {
+                return filter;
+            }
+            return filter instanceof And ? FF.and(children) : FF.or(children);
+        } else if (filter instanceof Not) {
+            structure.append("Not(");
+            Filter copy = filter(((Not) filter).getFilter());
+            if (copy == null) {
+                return null;
+            }
+            structure.append(")");
+            return placeholders == null ? filter : FF.not(copy);
+        } else if (filter instanceof BinaryComparisonOperator) {
+            return comparison((BinaryComparisonOperator) filter);
+        } else if (filter instanceof PropertyIsBetween) {
+            PropertyIsBetween between = (PropertyIsBetween) filter;
+            structure.append("Between[").append(between.getMatchAction()).append("](");
+            Expression expression = expression(between.getExpression());
+            Expression lower = expression(between.getLowerBoundary());
+            Expression upper = expression(between.getUpperBoundary());
+            if (expression == null || lower == null || upper == null) {
+                return null;
+            }
+            structure.append(")");
+            if (placeholders == null) {
+                return filter;
+            }
+            return FF.between(expression, lower, upper, between.getMatchAction());
+        } else if (filter instanceof PropertyIsNull) {
+            structure.append("IsNull(");
+            Expression expression = expression(((PropertyIsNull) filter).getExpression());
+            if (expression == null) {
+                return null;
+            }
+            structure.append(")");
+            return placeholders == null ? filter : FF.isNull(expression);
+        } else if ((filter instanceof BBOX && !(filter instanceof BBOX3D))
+                || filter instanceof Intersects) {
+            // BBOX3D is encoded from its bounds, not from the literal
+            boolean bbox = filter instanceof BBOX;
+            MatchAction matchAction = bbox ? ((BBOX) filter).getMatchAction()
+                    : ((Intersects) filter).getMatchAction();
+            structure.append(bbox ? "BBOX[" : "Intersects[").append(matchAction).append("](");
+            Expression e1 = expression(bbox ? ((BBOX) filter).getExpression1()
+                    : ((Intersects) filter).getExpression1());
+            Expression e2 = expression(bbox ? ((BBOX) filter).getExpression2()
+                    : ((Intersects) filter).getExpression2());
+            if (e1 == null || e2 == null) {
+                return null;
+            }
+            structure.append(")");
+            if (placeholders == null) {
+                return filter;
+            }
+            return bbox ? new BBOXImpl(e1, e2, matchAction) : FF.intersects(e1, e2, matchAction);
+        }
+
+        return null;
+    }
+
+    private Filter comparison(BinaryComparisonOperator filter) {
+        String name;
+        if (filter instanceof PropertyIsEqualTo) {
+            name = "EqualTo";
+        } else if (filter instanceof PropertyIsNotEqualTo) {
+            name = "NotEqualTo";
+        } else if (filter instanceof PropertyIsLessThan) {
+            name = "LessThan";
+        } else if (filter instanceof PropertyIsLessThanOrEqualTo) {
+            name = "LessThanOrEqualTo";
+        } else if (filter instanceof PropertyIsGreaterThan) {
+            name = "GreaterThan";
+        } else if (filter instanceof PropertyIsGreaterThanOrEqualTo) {
+            name = "GreaterThanOrEqualTo";
+        } else {
+            return null;
+        }
+        boolean matchCase = filter.isMatchingCase();
+        MatchAction matchAction = filter.getMatchAction();
+        structure.append(name).append("[").append(matchCase).append(",").append(matchAction)
+                .append("](");
+        Expression e1 = expression(filter.getExpression1());
+        Expression e2 = expression(filter.getExpression2());
+        if (e1 == null || e2 == null) {
+            return null;
+        }
+        structure.append(")");
+        if (placeholders == null) {
+            return filter;
+        }
+
+        if (filter instanceof PropertyIsEqualTo) {
+            return FF.equal(e1, e2, matchCase, matchAction);
+        } else if (filter instanceof PropertyIsNotEqualTo) {
+            return FF.notEqual(e1, e2, matchCase, matchAction);
+        } else if (filter instanceof PropertyIsLessThan) {
+            return FF.less(e1, e2, matchCase, matchAction);
+        } else if (filter instanceof PropertyIsLessThanOrEqualTo) {
+            return FF.lessOrEqual(e1, e2, matchCase, matchAction);
+        } else if (filter instanceof PropertyIsGreaterThan) {
+            return FF.greater(e1, e2, matchCase, matchAction);
+        } else {
+            return FF.greaterOrEqual(e1, e2, matchCase, matchAction);
+        }
+    }
+
+    private Expression expression(Expression expression) {
+        if (expression instanceof PropertyName) {
+            String name = ((PropertyName) expression).getPropertyName();
+            structure.append("[").append(name.length()).append(":").append(name).append("]");
+            return expression;
+        } else if (expression instanceof Literal) {
+            Literal literal = (Literal) expression;
+            Object value = literal.getValue();
+            structure.append("?").append(value == null ? "null" : value.getClass().getName())
+                    .append(",");
+            int index = literals.size();
+            literals.add(literal);
+            if (placeholders == null) {
+                return literal;
+            }
+            Placeholder placeholder = new Placeholder(index, literal);
+            placeholders.add(placeholder);
+            return placeholder;
+        }
+
+        return null;
+    }
+}
@@ -45,7 +45,10 @@ import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.visitor.CountVisitor;
 import org.geotools.feature.visitor.GroupByVisitor;
 import org.geotools.feature.visitor.LimitingVisitor;
+import org.geotools.feature.visitor.MedianVisitor;
+import org.geotools.feature.visitor.QuantileListVisitor;
 import org.geotools.filter.FilterCapabilities;
+import org.geotools.filter.visitor.ExpressionTypeVisitor;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.JoinInfo.JoinPart;
 import org.geotools.referencing.CRS;
@@ -94,6 +97,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -297,6 +301,13 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected int batchInsertSize = 1;
 
+    /**
+     * The number of feature updates and deletes to bufferize in the update feature writers, in
+     * order to send them in batches. By default 1, for the same reasons as
+     * {@link #batchInsertSize}.
+     */
+    protected int batchUpdateSize = 1;
+
     /**
      * flag controlling whether primary key columns of a table are exposed via the 
      * feature type.
@@ -321,6 +332,21 @@ public final class JDBCDataStore extends ContentDataStore
 
     protected JDBCCallbackFactory callbackFactory = JDBCCallbackFactory.NULL;
 
+    /**
+     * Remembers where paged queries ended, null if keyset pagination is disabled
+     */
+    volatile KeysetPagination keysetPagination;
+
+    /**
+     * Caches the prepared statement encoding of filters, null if disabled
+     */
+    volatile PreparedFilterCache preparedFilterCache;
+
+    /**
+     * Caches the table metadata, null if disabled
+     */
+    volatile MetadataCache metadataCache;
+
     private volatile NamePatternEscaping namePatternEscaping;
 
     public JDBCDataStore() {
@@ -474,6 +500,28 @@ public final class JDBCDataStore extends ContentDataStore
         this.batchInsertSize = batchInsertSize;
     }
 
+    /**
+     * @return the number of features to bufferize while updating or removing features with a
+     *         writer, in order to do batch updates and deletes.
+     */
+    public int getBatchUpdateSize() {
+        return batchUpdateSize;
+    }
+
+    /**
+     * Set the number of features to bufferize while updating or removing features with a writer,
+     * in order to do batch updates and deletes.
+     *
+     * Warning: as for {@link #setBatchInsertSize(int)}, when changing this value from its default
+     * of 1 the changes are sent to the database only when the buffer is full or the writer is
+     * closed, and the feature updated and removed events are delayed until then.
+     *
+     * @param batchUpdateSize
+     */
+    public void setBatchUpdateSize(int batchUpdateSize) {
+        this.batchUpdateSize = batchUpdateSize;
+    }
+
     /**
      * Determines if the datastore creates feature types which include those columns / attributes
      * which compose the primary key.
@@ -492,6 +540,177 @@ public final class JDBCDataStore extends ContentDataStore
         }
         this.exposePrimaryKeyColumns = exposePrimaryKeyColumns;
     }
+
+    /**
+     * Returns true if paged queries sorted on the primary key are run as seeks past the last key
+     * of the previous page, when possible, instead of using an offset.
+     */
+    public boolean isKeysetPaginationEnabled() {
+        return keysetPagination != null;
+    }
+
+    /**
+     * Enables keyset pagination: the store remembers the primary key of the last feature returned
+     * by paged queries, and runs the queries for the following pages as
+     * <code>WHERE pk &gt; :last</code> seeks, whose cost does not grow with the offset. Requires a
+     * dialect supporting {@link SQLDialect#isKeysetPaginationSupported()}. Pages are computed
+     * against the data as it was when the previous page was read, rather than counting rows.
+     */
+    public void setKeysetPaginationEnabled(boolean enabled) {
+        if (enabled && keysetPagination == null) {
+            keysetPagination = new KeysetPagination();
+        } else if (!enabled) {
+            keysetPagination = null;
+        }
+    }
+
+    /**
+     * Returns true if the prepared statement encoding of filters is cached and reused for filters
+     * differing only in their literal values
+     */
+    public boolean isPreparedFilterCacheEnabled() {
+        return preparedFilterCache != null;
+    }
+
+    /**
+     * Enables the caching of the prepared statement encoding of filters: queries whose filter
+     * differs only in the literal values (e.g., the BBOX of map tiles) reuse the SQL generated
+     * for the first one, binding the new values, which also allows the connection pool to reuse
+     * the pooled prepared statements. Has effect only with a {@link PreparedStatementSQLDialect}.
+     */
+    public void setPreparedFilterCacheEnabled(boolean enabled) {
+        if (enabled && preparedFilterCache == null) {
+            preparedFilterCache = new PreparedFilterCache();
+        } else if (!enabled) {
+            preparedFilterCache = null;
+        }
+    }
+
+    /**
+     * Returns the prepared filter cache, providing hit and miss statistics, or null if the cache
+     * is not enabled
+     */
+    public PreparedFilterCache getPreparedFilterCache() {
+        return preparedFilterCache;
+    }
+
+    /**
+     * Returns the cache of the table metadata, or null if the metadata is always read from the
+     * database
+     */
+    public MetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Sets the cache of the table metadata (columns, geometry SRIDs and dimensions, primary keys
+     * and indexes). A persistent cache allows to open the store and build its feature types
+     * without going back to the database catalogs. Use null to disable caching.
+     */
+    public void setMetadataCache(MetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    /**
+     * Loads the columns of all the tables in the store into the metadata cache, with a single
+     * catalog lookup for the columns, and, if the dialect supports it, a single query for the
+     * geometry types, SRIDs and dimensions (see
+     * {@link SQLDialect#getGeometryColumnMetadata(Connection, String)}). The primary keys and
+     * indexes are still looked up, and cached, as the tables are used. A metadata cache is
+     * created if missing.
+     */
+    public void loadMetadataCache() throws IOException {
+        MetadataCache cache = metadataCache;
+        if (cache == null) {
+            cache = new MetadataCache();
+            metadataCache = cache;
+        }
+
+        Set<String> typeNames = new HashSet<String>();
+        for (Name name : getNames()) {
+            if (!virtualTables.containsKey(name.getLocalPart())) {
+                typeNames.add(name.getLocalPart());
+            }
+        }
+
+        Connection cx = createConnection();
+        ResultSet columns = null;
+        try {
+            Map<String, Map<String, ColumnMetadata>> geometries = dialect
+                    .getGeometryColumnMetadata(cx, databaseSchema);
+            Map<String, List<ColumnMetadata>> tables = new HashMap<String, List<ColumnMetadata>>();
+            Map<String, Map<String, Integer>> srids = new HashMap<String, Map<String, Integer>>();
+            Map<String, Map<String, Integer>> dimensions = new HashMap<String, Map<String, Integer>>();
+
+            DatabaseMetaData metaData = cx.getMetaData();
+            columns = metaData.getColumns(cx.getCatalog(),
+                    escapeNamePattern(metaData, databaseSchema), "%", "%");
+            if (fetchSize > 0) {
+                columns.setFetchSize(fetchSize);
+            }
+            while (columns.next()) {
+                String tableName = columns.getString("TABLE_NAME");
+                if (!typeNames.contains(tableName)) {
+                    continue;
+                }
+                List<ColumnMetadata> tableColumns = tables.get(tableName);
+                if (tableColumns == null) {
+                    tableColumns = new ArrayList<ColumnMetadata>();
+                    tables.put(tableName, tableColumns);
+                    srids.put(tableName, new HashMap<String, Integer>());
+                    dimensions.put(tableName, new HashMap<String, Integer>());
+                }
+
+                ColumnMetadata column = new ColumnMetadata();
+                column.name = columns.getString("COLUMN_NAME");
+                column.typeName = columns.getString("TYPE_NAME");
+                column.sqlType = columns.getInt("DATA_TYPE");
+                column.nullable = "YES".equalsIgnoreCase(columns.getString("IS_NULLABLE"));
+                ColumnMetadata geometry = null;
+                if (geometries != null && geometries.get(tableName) != null) {
+                    geometry = geometries.get(tableName).get(column.name);
+                }
+                if (geometry != null) {
+                    // no need to look up the geometry type column by column
+                    column.binding = geometry.binding;
+                    if (geometry.srid != null) {
+                        srids.get(tableName).put(column.name, geometry.srid);
+                    }
+                    if (geometry.dimension != null) {
+                        dimensions.get(tableName).put(column.name, geometry.dimension);
+                    }
+                } else {
+                    column.binding = dialect.getMapping(columns, cx);
+                    if (column.sqlType == Types.DISTINCT) {
+                        dialect.handleUserDefinedType(columns, column, cx);
+                    }
+                }
+                tableColumns.add(column);
+            }
+
+            for (Map.Entry<String, List<ColumnMetadata>> entry : tables.entrySet()) {
+                String tableName = entry.getKey();
+                cache.putColumns(tableName, entry.getValue(), srids.get(tableName),
+                        dimensions.get(tableName));
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to load the table metadata", e);
+        } finally {
+            closeSafe(columns);
+            closeSafe(cx);
+        }
+        cache.save();
+    }
+
+    /**
+     * Forgets the paging positions of a table, called when the store modifies it
+     */
+    void clearKeysetPositions(SimpleFeatureType featureType) {
+        KeysetPagination pagination = keysetPagination;
+        if (pagination != null) {
+            pagination.clear(featureType.getTypeName());
+        }
+    }
     
     /**
      * The dialect the datastore uses to generate sql statements in order to
@@ -819,6 +1038,9 @@ public final class JDBCDataStore extends ContentDataStore
             }
 
             dialect.postCreateTable(databaseSchema, featureType, cx);
+            if (metadataCache != null) {
+                metadataCache.invalidate(featureType.getTypeName());
+            }
         } catch (Exception e) {
             String msg = "Error occurred creating table";
             throw (IOException) new IOException(msg).initCause(e);
@@ -864,6 +1086,9 @@ public final class JDBCDataStore extends ContentDataStore
 
             dialect.postDropTable(databaseSchema, featureType, cx);
             removeEntry(typeName);
+            if (metadataCache != null) {
+                metadataCache.invalidate(typeName.getLocalPart());
+            }
         }
         catch(Exception e) {
             String msg = "Error occurred dropping table";
@@ -1128,6 +1353,9 @@ public final class JDBCDataStore extends ContentDataStore
                                 }
                                 pkey = new PrimaryKey(tableName, kcols);
                             }
+                        } else if (metadataCache != null
+                                && (pkey = metadataCache.getPrimaryKey(tableName)) != null) {
+                            // found in the cache
                         } else {
                             try {
                                 pkey = primaryKeyFinder.getPrimaryKey(this, databaseSchema, tableName, cx);
@@ -1142,6 +1370,9 @@ public final class JDBCDataStore extends ContentDataStore
     
                                 pkey = new NullPrimaryKey( tableName );
                             }
+                            if (metadataCache != null) {
+                                metadataCache.putPrimaryKey(tableName, pkey);
+                            }
                         }
                         
                         state.setPrimaryKey(pkey);
@@ -1314,6 +1545,16 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected ReferencedEnvelope getBounds(SimpleFeatureType featureType, Query query, Connection cx)
             throws IOException {
+        return getBounds(featureType, query, cx, true);
+    }
+
+    /**
+     * Returns the bounds of the features for a particular feature type / table, optionally
+     * skipping the {@link SQLDialect#getOptimizedBounds(String, SimpleFeatureType, Connection)
+     * optimized bounds}, which might be estimated and not contain all the features
+     */
+    ReferencedEnvelope getBounds(SimpleFeatureType featureType, Query query, Connection cx,
+            boolean optimized) throws IOException {
 
         // handle geometryless case by returning an emtpy envelope
         if (featureType.getGeometryDescriptor() == null)
@@ -1325,7 +1566,7 @@ public final class JDBCDataStore extends ContentDataStore
                 .getCoordinateReferenceSystem());
         try {
             // try optimized bounds computation only if we're targeting the entire table
-            if (isFullBoundsQuery(query, featureType)) {
+            if (optimized && isFullBoundsQuery(query, featureType)) {
                 List<ReferencedEnvelope> result = dialect.getOptimizedBounds(databaseSchema,
                         featureType, cx);
                 if (result != null && !result.isEmpty()) {
@@ -1463,6 +1704,10 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected Object getAggregateValue(FeatureVisitor visitor, SimpleFeatureType featureType, Query query, Connection cx)
             throws IOException {
+        // quantiles need all the values, the database can sort them and leave the rest out
+        if (visitor instanceof QuantileListVisitor) {
+            return getQuantileValues((QuantileListVisitor) visitor, featureType, query, cx);
+        }
         // check if group by is supported by the underlying store
         if (isGroupByVisitor(visitor) && 
                 (!dialect.isGroupBySupported() || !isSupportedGroupBy((GroupByVisitor) visitor))) {
@@ -1481,6 +1726,10 @@ public final class JDBCDataStore extends ContentDataStore
             if (aggregateExpression != null && !fullySupports(aggregateExpression)) {
                 return null;
             }
+            // SQL percentiles interpolate numbers, the visitor also handles strings and dates
+            if (isMedianVisitor(visitor) && !isNumeric(aggregateExpression, featureType)) {
+                return null;
+            }
         }
         
         // if the visitor is limiting the result to a given start - max, we will
@@ -1541,6 +1790,53 @@ public final class JDBCDataStore extends ContentDataStore
         }
     }
 
+    /**
+     * Reads the sorted, non null values of the quantile visitor expression and sets them in the
+     * visitor
+     *
+     * @return the values, or null if the visit cannot be optimized
+     */
+    Object getQuantileValues(QuantileListVisitor visitor, SimpleFeatureType featureType,
+            Query query, Connection cx) throws IOException {
+        Expression expression = visitor.getExpression();
+        if (!dialect.isQuantileListSupported() || !query.getJoins().isEmpty()
+                || !query.isMaxFeaturesUnlimited()
+                || (query.getStartIndex() != null && query.getStartIndex() > 0)
+                || expression == null || !fullySupports(expression)) {
+            return null;
+        }
+
+        try {
+            List<Object> values = new ArrayList<Object>();
+            Statement st = null;
+            ResultSet rs = null;
+            try {
+                if (dialect instanceof PreparedStatementSQLDialect) {
+                    st = selectValuesSQLPS(expression, featureType, query, cx);
+                    rs = ((PreparedStatement) st).executeQuery();
+                } else {
+                    String sql = selectValuesSQL(expression, featureType, query);
+                    LOGGER.fine(sql);
+
+                    st = cx.createStatement();
+                    st.setFetchSize(fetchSize);
+                    rs = st.executeQuery(sql);
+                }
+                while (rs.next()) {
+                    values.add(rs.getObject(1));
+                }
+            } finally {
+                closeSafe(rs);
+                closeSafe(st);
+            }
+
+            visitor.setValue(values);
+            return values;
+        } catch (SQLException e) {
+            throw (IOException) new IOException().initCause(e);
+        }
+    }
+
     /**
      * Checks if the groupBy is a supported one, that is, if it's possible to turn to SQL the
      * various {@link Expression} it's using
@@ -1601,6 +1897,24 @@ public final class JDBCDataStore extends ContentDataStore
         return isGroupByVisitor(visitor) && ((GroupByVisitor) visitor).getAggregateVisitor() instanceof CountVisitor;
     }
 
+    /**
+     * Helper method that checks if the visitor is a median visitor, or a group by using one
+     */
+    protected boolean isMedianVisitor(FeatureVisitor visitor) {
+        if (visitor instanceof MedianVisitor) {
+            return true;
+        }
+        return isGroupByVisitor(visitor) && ((GroupByVisitor) visitor).getAggregateVisitor() instanceof MedianVisitor;
+    }
+
+    /**
+     * Returns true if the expression is known to return numbers
+     */
+    private boolean isNumeric(Expression expression, SimpleFeatureType featureType) {
+        Object binding = expression.accept(new ExpressionTypeVisitor(featureType), null);
+        return binding instanceof Class && Number.class.isAssignableFrom((Class) binding);
+    }
+
     /**
      * Helper method the checks if a feature visitor is a group by visitor,
      *
@@ -1715,10 +2029,15 @@ public final class JDBCDataStore extends ContentDataStore
                 }
 
                 if (s == null) {
+                    // prefer a single argument setter accepting the result as is
                     for (Method m : visitor.getClass().getMethods()) {
-                        if ("setValue".equals(m.getName())) {
-                            s = m;
-                            break;
+                        if ("setValue".equals(m.getName()) && m.getParameterTypes().length == 1) {
+                            if (m.getParameterTypes()[0].isInstance(result)) {
+                                s = m;
+                                break;
+                            } else if (s == null) {
+                                s = m;
+                            }
                         }
                     }
                 }
@@ -1763,6 +2082,7 @@ public final class JDBCDataStore extends ContentDataStore
     protected void insert(Collection<? extends SimpleFeature> features, SimpleFeatureType featureType, Connection cx)
         throws IOException {
         PrimaryKey key = getPrimaryKey(featureType);
+        clearKeysetPositions(featureType);
 
         // we do this in a synchronized block because we need to do two queries,
         // first to figure out what the id will be, then the insert statement
@@ -1981,6 +2301,7 @@ public final class JDBCDataStore extends ContentDataStore
 
             return;
         }
+        clearKeysetPositions(featureType);
 
         // grab primary key
         PrimaryKey key = null;
@@ -2039,6 +2360,166 @@ public final class JDBCDataStore extends ContentDataStore
         }
     }
 
+    /**
+     * Updates a batch of features identified by their feature ids, each with its own changed
+     * attributes and values. The updates changing the same attributes share a single statement,
+     * executed as a JDBC batch, sparing a round trip per feature.
+     */
+    protected void update(SimpleFeatureType featureType, List<String> fids,
+            List<AttributeDescriptor[]> attributes, List<Object[]> values, Connection cx)
+            throws IOException, SQLException {
+        PrimaryKey key = getPrimaryKey(featureType);
+        if (key.getColumns().isEmpty() || fids.size() == 1) {
+            for (int i = 0; i < fids.size(); i++) {
+                update(featureType, attributes.get(i), values.get(i),
+                        filterFactory.id(Collections.singleton(filterFactory.featureId(fids
+                                .get(i)))), cx);
+            }
+            return;
+        }
+        clearKeysetPositions(featureType);
+        Set<String> pkColumnNames = getColumnNames(key);
+
+        // group the updates by the statement they need
+        Map<List<Object>, List<Integer>> groups = new LinkedHashMap<List<Object>, List<Integer>>();
+        for (int i = 0; i < fids.size(); i++) {
+            List<Object> group = new ArrayList<Object>();
+            AttributeDescriptor[] atts = attributes.get(i);
+            for (int j = 0; j < atts.length; j++) {
+                if (pkColumnNames.contains(atts[j].getLocalName())) {
+                    continue;
+                }
+                group.add(atts[j].getLocalName());
+                if (atts[j] instanceof GeometryDescriptor) {
+                    Object value = values.get(i)[j];
+                    group.add(value == null ? null : value.getClass());
+                }
+            }
+            if (group.isEmpty()) {
+                throw new IllegalArgumentException("Illegal update, must include at least one "
+                        + "non primary key column, all primary key columns are ignored.");
+            }
+            List<Integer> members = groups.get(group);
+            if (members == null) {
+                members = new ArrayList<Integer>();
+                groups.put(group, members);
+            }
+            members.add(i);
+        }
+
+        for (List<Integer> members : groups.values()) {
+            if (dialect instanceof PreparedStatementSQLDialect) {
+                updateBatchPS(featureType, key, pkColumnNames, members, fids, attributes, values,
+                        cx);
+            } else {
+                Statement st = cx.createStatement();
+                try {
+                    ((BasicSQLDialect) dialect).onUpdate(st, cx, featureType);
+                    for (Integer i : members) {
+                        Filter filter = filterFactory.id(Collections.singleton(filterFactory
+                                .featureId(fids.get(i))));
+                        String sql = updateSQL(featureType, attributes.get(i), values.get(i),
+                                filter, pkColumnNames);
+                        LOGGER.log(Level.FINE, "Updating feature: {0}", sql);
+                        st.addBatch(sql);
+                    }
+                    st.executeBatch();
+                } finally {
+                    closeSafe(st);
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a group of updates changing the same attributes with a single prepared statement,
+     * locating the features by primary key
+     */
+    private void updateBatchPS(SimpleFeatureType featureType, PrimaryKey key,
+            Set<String> pkColumnNames, List<Integer> members, List<String> fids,
+            List<AttributeDescriptor[]> attributes, List<Object[]> values, Connection cx)
+            throws IOException, SQLException {
+        PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
+        int first = members.get(0);
+        AttributeDescriptor[] atts = attributes.get(first);
+
+        StringBuffer sql = new StringBuffer();
+        sql.append("UPDATE ");
+        encodeTableName(featureType.getTypeName(), sql, null);
+        sql.append(" SET ");
+        for (int i = 0; i < atts.length; i++) {
+            String attName = atts[i].getLocalName();
+            if (pkColumnNames.contains(attName)) {
+                continue;
+            }
+            dialect.encodeColumnName(attName, sql);
+            sql.append(" = ");
+            if (atts[i] instanceof GeometryDescriptor) {
+                Geometry geometry = (Geometry) values.get(first)[i];
+                dialect.prepareGeometryValue(geometry, getDescriptorDimension(atts[i]),
+                        getDescriptorSRID(atts[i]), atts[i].getType().getBinding(), sql);
+            } else {
+                sql.append("?");
+            }
+            sql.append(",");
+        }
+        sql.setLength(sql.length() - 1);
+        sql.append(" WHERE ");
+        for (PrimaryKeyColumn column : key.getColumns()) {
+            dialect.encodeColumnName(column.getName(), sql);
+            sql.append(" = ? AND ");
+        }
+        sql.setLength(sql.length() - 5);
+
+        LOGGER.log(Level.FINE, "Updating features with prepared statement batch: {0}", sql);
+        PreparedStatement ps = cx.prepareStatement(sql.toString());
+        try {
+            for (Integer member : members) {
+                // same non primary key attributes, in the same order, as the first member
+                AttributeDescriptor[] memberAttributes = attributes.get(member);
+                Object[] memberValues = values.get(member);
+                int j = 1;
+                for (int i = 0; i < memberAttributes.length; i++) {
+                    AttributeDescriptor att = memberAttributes[i];
+                    if (pkColumnNames.contains(att.getLocalName())) {
+                        continue;
+                    }
+                    Class binding = att.getType().getBinding();
+                    if (Geometry.class.isAssignableFrom(binding)) {
+                        dialect.setGeometryValue((Geometry) memberValues[i],
+                                getDescriptorDimension(att), getDescriptorSRID(att), binding, ps,
+                                j);
+                    } else {
+                        dialect.setValue(memberValues[i], binding, ps, j, cx);
+                    }
+                    j++;
+                }
+                List<Object> keyValues = decodeFID(key, fids.get(member), false);
+                for (int k = 0; k < keyValues.size(); k++) {
+                    dialect.setValue(keyValues.get(k), key.getColumns().get(k).getType(), ps, j++,
+                            cx);
+                }
+                dialect.onUpdate(ps, cx, featureType);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } finally {
+            closeSafe(ps);
+        }
+    }
+
+    /**
+     * Deletes a batch of features identified by their feature ids, with a single statement
+     */
+    protected void delete(SimpleFeatureType featureType, Collection<String> fids, Connection cx)
+            throws IOException {
+        Set<FeatureId> ids = new LinkedHashSet<FeatureId>();
+        for (String fid : fids) {
+            ids.add(filterFactory.featureId(fid));
+        }
+        delete(featureType, filterFactory.id(ids), cx);
+    }
+
     /**
      * Deletes an existing feature in the database for a particular feature type / fid.
      */
@@ -2053,6 +2534,7 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected void delete(SimpleFeatureType featureType, Filter filter, Connection cx)
         throws IOException {
+        clearKeysetPositions(featureType);
         
         Statement st = null;
         try {
@@ -3339,6 +3821,16 @@ public final class JDBCDataStore extends ContentDataStore
      *            sort conditions
      */
     protected String selectSQL(SimpleFeatureType featureType, Query query) throws IOException, SQLException {
+        return selectSQL(featureType, query, null, null);
+    }
+
+    /**
+     * Generates a 'SELECT p1, p2, ... FROM ... WHERE ...' statement, seeking past the specified
+     * primary key values if not null (see {@link #setKeysetPaginationEnabled(boolean)}) and
+     * reading only the specified partition, if not null
+     */
+    String selectSQL(SimpleFeatureType featureType, Query query, List<Object> lastKey,
+            ReadPartition partition) throws IOException, SQLException {
         StringBuffer sql = new StringBuffer();
         sql.append("SELECT ");
 
@@ -3360,6 +3852,10 @@ public final class JDBCDataStore extends ContentDataStore
             filter(featureType, filter, sql);
         }
 
+        // seek past the previous page, restrict to the partition
+        encodeExtraPredicates(featureType, filter != null && !Filter.INCLUDE.equals(filter),
+                lastKey, partition, new ArrayList<Object>(), sql);
+
         //sorting
         sort(featureType, query.getSortBy(), null, sql);
         
@@ -3372,6 +3868,53 @@ public final class JDBCDataStore extends ContentDataStore
         return sql.toString();
     }
 
+    /**
+     * Appends the keyset pagination and partition predicates, if any, to the where clause
+     */
+    void encodeExtraPredicates(SimpleFeatureType featureType, boolean where, List<Object> lastKey,
+            ReadPartition partition, List<Object> bindings, StringBuffer sql) throws IOException {
+        if (lastKey != null) {
+            sql.append(where ? " AND " : " WHERE ");
+            dialect.encodeKeysetPredicate(null, getPrimaryKey(featureType), lastKey, bindings,
+                    sql);
+            where = true;
+        }
+        if (partition != null) {
+            sql.append(where ? " AND " : " WHERE ");
+            sql.append("(");
+            partition.encode(this, featureType, null, bindings, sql);
+            sql.append(")");
+        }
+    }
+
+    /**
+     * Returns the minimum and maximum value of a primary key column, null if the table is empty
+     */
+    Number[] getPrimaryKeyRange(SimpleFeatureType featureType, PrimaryKeyColumn column,
+            Hints hints, Connection cx) throws IOException, SQLException {
+        StringBuffer sql = new StringBuffer("SELECT MIN(");
+        dialect.encodeColumnName(null, column.getName(), sql);
+        sql.append("), MAX(");
+        dialect.encodeColumnName(null, column.getName(), sql);
+        sql.append(") FROM ");
+        encodeTableName(featureType.getTypeName(), sql, hints);
+        LOGGER.fine(sql.toString());
+
+        Statement st = null;
+        ResultSet rs = null;
+        try {
+            st = cx.createStatement();
+            rs = st.executeQuery(sql.toString());
+            rs.next();
+            Number min = (Number) rs.getObject(1);
+            Number max = (Number) rs.getObject(2);
+            return min == null || max == null ? null : new Number[] { min, max };
+        } finally {
+            closeSafe(rs);
+            closeSafe(st);
+        }
+    }
+
     private void applySearchHints(SimpleFeatureType featureType, Query query, StringBuffer sql) {
         // we can apply search hints only on real tables
         if(virtualTables.containsKey(featureType.getTypeName())) {
@@ -3473,6 +4016,17 @@ public final class JDBCDataStore extends ContentDataStore
 
     FilterToSQL filter(SimpleFeatureType featureType, Filter filter, StringBuffer sql) throws IOException {
         SimpleFeatureType fullSchema = getSchema(featureType.getTypeName());
+        PreparedFilterCache cache = preparedFilterCache;
+        if (cache != null && dialect instanceof PreparedStatementSQLDialect) {
+            try {
+                FilterToSQL toSQL = cache.encode(this, fullSchema, filter, sql);
+                if (toSQL != null) {
+                    return toSQL;
+                }
+            } catch (FilterToSQLException e) {
+                throw new RuntimeException(e);
+            }
+        }
         FilterToSQL toSQL = getFilterToSQL(fullSchema);
         return filter(featureType, filter, sql, toSQL);
     }
@@ -3557,6 +4111,17 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected PreparedStatement selectSQLPS( SimpleFeatureType featureType, Query query, Connection cx )
         throws SQLException, IOException {
+        return selectSQLPS(featureType, query, null, null, cx);
+    }
+
+    /**
+     * Generates a 'SELECT p1, p2, ... FROM ... WHERE ...' prepared statement, seeking past the
+     * specified primary key values if not null (see {@link #setKeysetPaginationEnabled(boolean)})
+     * and reading only the specified partition, if not null
+     */
+    PreparedStatement selectSQLPS(SimpleFeatureType featureType, Query query,
+            List<Object> lastKey, ReadPartition partition, Connection cx)
+            throws SQLException, IOException {
         
         StringBuffer sql = new StringBuffer();
         sql.append("SELECT ");
@@ -3579,6 +4144,10 @@ public final class JDBCDataStore extends ContentDataStore
             toSQL = (PreparedFilterToSQL) filter(featureType, filter, sql);
         }
 
+        // seek past the previous page, restrict to the partition
+        List<Object> keyValues = new ArrayList<Object>();
+        encodeExtraPredicates(featureType, toSQL != null, lastKey, partition, keyValues, sql);
+
         //sorting
         sort(featureType, query.getSortBy(), null, sql);
         
@@ -3592,9 +4161,16 @@ public final class JDBCDataStore extends ContentDataStore
         PreparedStatement ps = cx.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
         ps.setFetchSize(fetchSize);
         
+        int offset = 0;
         if ( toSQL != null ) {
             setPreparedFilterValues( ps, toSQL, 0, cx );
+            offset = toSQL.getLiteralValues().size();
         } 
+        for (int i = 0; i < keyValues.size(); i++) {
+            Object value = keyValues.get(i);
+            ((PreparedStatementSQLDialect) dialect).setValue(value,
+                    value != null ? value.getClass() : Object.class, ps, offset + i + 1, cx);
+        }
         
         return ps;
     }
@@ -3986,7 +4562,7 @@ public final class JDBCDataStore extends ContentDataStore
                 if ("count".equals(function)) {
                     sql2.append("count(*)");
                 } else {
-                    sql2.append(function).append("(").append("gt_agg_src").append(")");
+                    dialect.encodeAggregateFunctionCall(function, "gt_agg_src", sql2);
                 }
             } else {
                 encodeFunction(function, expr, sql2, filterToSQL);
@@ -4055,17 +4631,188 @@ public final class JDBCDataStore extends ContentDataStore
 
     
     protected void encodeFunction(String function,  Expression expression, StringBuffer sql, FilterToSQL filterToSQL) {
-        sql.append(function).append("(");
         if (expression == null) {
-            sql.append("*");
+            sql.append(function).append("(*)");
         } else {
             try {
-                sql.append(filterToSQL.encodeToString(expression));
+                dialect.encodeAggregateFunctionCall(function,
+                        filterToSQL.encodeToString(expression), sql);
             } catch (FilterToSQLException e) {
                 throw new RuntimeException(e);
             }
         }
-        sql.append(")");
+    }
+
+    /**
+     * Generates a 'SELECT expression FROM ... ORDER BY 1' sql statement, reading the sorted, non
+     * null values of the expression
+     */
+    protected String selectValuesSQL(Expression expression, SimpleFeatureType featureType,
+            Query query) throws SQLException, IOException {
+        StringBuffer sql = new StringBuffer();
+        doSelectValuesSQL(expression, featureType, query, sql);
+        return sql.toString();
+    }
+
+    /**
+     * Generates a 'SELECT expression FROM ... ORDER BY 1' prepared statement, reading the sorted,
+     * non null values of the expression
+     */
+    protected PreparedStatement selectValuesSQLPS(Expression expression,
+            SimpleFeatureType featureType, Query query, Connection cx)
+            throws SQLException, IOException {
+        StringBuffer sql = new StringBuffer();
+        List<FilterToSQL> toSQL = doSelectValuesSQL(expression, featureType, query, sql);
+
+        LOGGER.fine(sql.toString());
+
+        PreparedStatement ps = cx.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(fetchSize);
+
+        setPreparedFilterValues(ps, toSQL, cx);
+
+        return ps;
+    }
+
+    /**
+     * Helper method to factor out some commonalities between selectValuesSQL, and
+     * selectValuesSQLPS
+     */
+    List<FilterToSQL> doSelectValuesSQL(Expression expression, SimpleFeatureType featureType,
+            Query query, StringBuffer sql) throws SQLException, IOException {
+        List<FilterToSQL> toSQL = new ArrayList<FilterToSQL>();
+        FilterToSQL filterToSQL = getFilterToSQL(featureType);
+        sql.append("SELECT ");
+        try {
+            sql.append(filterToSQL.encodeToString(expression));
+        } catch (FilterToSQLException e) {
+            throw new RuntimeException(e);
+        }
+        toSQL.add(filterToSQL);
+        sql.append(" FROM ");
+        encodeTableName(featureType.getTypeName(), sql, query.getHints());
+
+        Filter filter = FF2.not(FF2.isNull(expression));
+        if (query.getFilter() != null && !Filter.INCLUDE.equals(query.getFilter())) {
+            filter = FF2.and(query.getFilter(), filter);
+        }
+        sql.append(" WHERE ");
+        toSQL.add(filter(featureType, filter, sql));
+        sql.append(" ORDER BY 1");
+
+        return toSQL;
+    }
+
+    /**
+     * Builds a Mapbox Vector Tile out of the features of the query in the database, with a single
+     * layer named after the feature type, holding the default geometry and the non geometric
+     * attributes of the query. The query filter must be fully encodable in SQL.
+     *
+     * @param srid The native srid of the default geometry
+     * @param tileSrid The srid of the tile bounds
+     * @return The encoded tile, an empty array if no feature falls in the tile
+     */
+    byte[] getVectorTile(SimpleFeatureType featureType, Query query, int srid, int tileSrid,
+            Envelope tile, int extent, int buffer, Connection cx) throws IOException {
+        try {
+            Statement st = null;
+            ResultSet rs = null;
+            try {
+                if (dialect instanceof PreparedStatementSQLDialect) {
+                    st = selectVectorTileSQLPS(featureType, query, srid, tileSrid, tile, extent,
+                            buffer, cx);
+                    rs = ((PreparedStatement) st).executeQuery();
+                } else {
+                    String sql = selectVectorTileSQL(featureType, query, srid, tileSrid, tile,
+                            extent, buffer);
+                    LOGGER.fine(sql);
+
+                    st = cx.createStatement();
+                    rs = st.executeQuery(sql);
+                }
+                byte[] result = rs.next() ? rs.getBytes(1) : null;
+                return result == null ? new byte[0] : result;
+            } finally {
+                closeSafe(rs);
+                closeSafe(st);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to build the vector tile", e);
+        }
+    }
+
+    /**
+     * Generates the statement building a vector tile in the database
+     */
+    protected String selectVectorTileSQL(SimpleFeatureType featureType, Query query, int srid,
+            int tileSrid, Envelope tile, int extent, int buffer) throws SQLException,
+            IOException {
+        StringBuffer sql = new StringBuffer();
+        doSelectVectorTileSQL(featureType, query, srid, tileSrid, tile, extent, buffer, sql);
+        return sql.toString();
+    }
+
+    /**
+     * Generates the prepared statement building a vector tile in the database
+     */
+    protected PreparedStatement selectVectorTileSQLPS(SimpleFeatureType featureType, Query query,
+            int srid, int tileSrid, Envelope tile, int extent, int buffer, Connection cx)
+            throws SQLException, IOException {
+        StringBuffer sql = new StringBuffer();
+        List<FilterToSQL> toSQL = doSelectVectorTileSQL(featureType, query, srid, tileSrid, tile,
+                extent, buffer, sql);
+
+        LOGGER.fine(sql.toString());
+
+        PreparedStatement ps = cx.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        setPreparedFilterValues(ps, toSQL, cx);
+
+        return ps;
+    }
+
+    /**
+     * Helper method to factor out some commonalities between selectVectorTileSQL, and
+     * selectVectorTileSQLPS
+     */
+    List<FilterToSQL> doSelectVectorTileSQL(SimpleFeatureType featureType, Query query, int srid,
+            int tileSrid, Envelope tile, int extent, int buffer, StringBuffer sql)
+            throws SQLException, IOException {
+        GeometryDescriptor geometry = featureType.getGeometryDescriptor();
+        List<String> names = query.getPropertyNames() == Query.ALL_NAMES ? null
+                : Arrays.asList(query.getPropertyNames());
+
+        StringBuffer inner = new StringBuffer("SELECT ");
+        dialect.encodeVectorTileGeometry(geometry, srid, tileSrid, tile, extent, buffer, inner);
+        inner.append(" AS ");
+        dialect.encodeColumnName(null, geometry.getLocalName(), inner);
+        for (AttributeDescriptor att : featureType.getAttributeDescriptors()) {
+            if (att instanceof GeometryDescriptor
+                    || (names != null && !names.contains(att.getLocalName()))) {
+                continue;
+            }
+            inner.append(", ");
+            dialect.encodeColumnName(null, att.getLocalName(), inner);
+        }
+        inner.append(" FROM ");
+        encodeTableName(featureType.getTypeName(), inner, query.getHints());
+
+        List<FilterToSQL> toSQL = new ArrayList<FilterToSQL>();
+        Filter filter = query.getFilter();
+        if (filter != null && !Filter.INCLUDE.equals(filter)) {
+            inner.append(" WHERE ");
+            toSQL.add(filter(featureType, filter, inner));
+        }
+
+        sql.append("SELECT ");
+        dialect.encodeVectorTileAggregate("gt_tile", featureType.getTypeName(),
+                geometry.getLocalName(), extent, sql);
+        sql.append(" FROM (").append(inner).append(") gt_tile WHERE ");
+        dialect.encodeColumnName("gt_tile", geometry.getLocalName(), sql);
+        sql.append(" IS NOT NULL");
+
+        return toSQL;
     }
 
     /**
@@ -4798,6 +5545,13 @@ public final class JDBCDataStore extends ContentDataStore
     
     public void dispose() {
         super.dispose();
+        if (metadataCache != null) {
+            try {
+                metadataCache.save();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not save the metadata cache", e);
+            }
+        }
         if(dataSource != null && dataSource instanceof ManageableDataSource) {
             try {
                 ManageableDataSource mds = (ManageableDataSource) dataSource; 
@@ -4914,6 +5668,7 @@ public final class JDBCDataStore extends ContentDataStore
         try {
             cx = getConnection(Transaction.AUTO_COMMIT);
             dialect.createIndex(cx, schema, databaseSchema, index);
+            invalidateIndexes(index.typeName);
         } catch (SQLException e) {
             throw new IOException("Failed to create index", e);
         } finally {
@@ -4935,6 +5690,7 @@ public final class JDBCDataStore extends ContentDataStore
         try {
             cx = getConnection(Transaction.AUTO_COMMIT);
             dialect.dropIndex(cx, schema, databaseSchema, indexName);
+            invalidateIndexes(typeName);
         } catch (SQLException e) {
             throw new IOException("Failed to create index", e);
         } finally {
@@ -4942,6 +5698,13 @@ public final class JDBCDataStore extends ContentDataStore
         }
     }
     
+    void invalidateIndexes(String typeName) {
+        MetadataCache cache = metadataCache;
+        if (cache != null) {
+            cache.invalidateIndexes(typeName);
+        }
+    }
+
     /**
      * Lists all indexes associated to the given feature type
      * @param typeName Name of the type for which indexes are searched. It's mandatory 
@@ -4951,10 +5714,22 @@ public final class JDBCDataStore extends ContentDataStore
         // just to ensure we have the type name specified
         getSchema(typeName);
         
+        MetadataCache cache = virtualTables.containsKey(typeName) ? null : metadataCache;
+        if (cache != null) {
+            List<Index> indexes = cache.getIndexes(typeName);
+            if (indexes != null) {
+                return indexes;
+            }
+        }
+
         Connection cx = null;
         try {
             cx = getConnection(Transaction.AUTO_COMMIT);
-            return dialect.getIndexes(cx, databaseSchema, typeName);
+            List<Index> indexes = dialect.getIndexes(cx, databaseSchema, typeName);
+            if (cache != null) {
+                cache.putIndexes(typeName, indexes);
+            }
+            return indexes;
         } catch (SQLException e) {
             throw new IOException("Failed to create index", e);
         } finally {
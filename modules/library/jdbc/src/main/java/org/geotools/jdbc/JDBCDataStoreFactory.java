@@ -16,6 +16,7 @@
  */
 package org.geotools.jdbc;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collections;
@@ -23,6 +24,8 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.sql.DataSource;
 
@@ -38,6 +41,7 @@ import org.geotools.factory.FactoryRegistry;
 import org.geotools.factory.FactoryRegistryException;
 import org.geotools.feature.type.FeatureTypeFactoryImpl;
 import org.geotools.util.SimpleInternationalString;
+import org.geotools.util.logging.Logging;
 
 import com.vividsolutions.jts.geom.GeometryFactory;
 
@@ -56,6 +60,8 @@ import com.vividsolutions.jts.geom.GeometryFactory;
  */
 public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
     
+    static final Logger LOGGER = Logging.getLogger(JDBCDataStoreFactory.class);
+    
     /** parameter for database type */
     public static final Param DBTYPE = new Param("dbtype", String.class, "Type", true, null,
             Collections.singletonMap(Parameter.LEVEL, "program"));
@@ -107,6 +113,11 @@ public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
     public static final Param BATCH_INSERT_SIZE = new Param("Batch insert size", Integer.class,
             "Number of records inserted in the same batch (default, 1). For optimal performance, set to 100.", false, 1);
 
+    /** number of updates and deletes sent to the database in the same batch */
+    public static final Param BATCH_UPDATE_SIZE = new Param("Batch update size", Integer.class,
+            "Number of records updated or deleted in the same batch by feature writers (default, 1). "
+                    + "For optimal performance, set to 100.", false, 1);
+
     /** Maximum amount of time the pool will wait when trying to grab a new connection **/
     public static final Param MAXWAIT = new Param("Connection timeout", Integer.class,
             "number of seconds the connection pool will wait before timing out attempting to get a new connection (default, 20 seconds)", false, 20);
@@ -136,10 +147,20 @@ public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
             "Maximum number of prepared statements kept open and cached for each connection in the pool. " +
             "Set to 0 to have unbounded caching, to -1 to disable caching", false, 50);
     
+    /** Cache the prepared statement encoding of filters (this param is exposed only by factories supporting prepared statements **/
+    public static final Param PREPARED_FILTER_CACHE = new Param("Cache prepared filters", Boolean.class,
+            "Reuse the SQL generated for filters differing only in their values, binding the new values " +
+            "to the same prepared statement", false, false);
+    
     /** expose primary key columns as attributes */
     public static final Param EXPOSE_PK = new Param("Expose primary keys", Boolean.class, "Expose primary key columns as " +
     		"attributes of the feature type", false, false);
     
+    /** seek on the primary key when paging */
+    public static final Param KEYSET_PAGINATION = new Param("Keyset pagination", Boolean.class,
+            "Read the pages following a previous one by seeking past its last primary key value, "
+                    + "instead of skipping rows with an offset", false, false);
+    
     /** SQL executed when the session begins */
     public static final Param SQL_ON_BORROW = new Param("Session startup SQL", String.class, 
             "SQL statement executed when the connection is grabbed from the pool", false, null, 
@@ -238,6 +259,11 @@ public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
             dataStore.setBatchInsertSize(batchInsertSize);
         }
 
+        Integer batchUpdateSize = (Integer) BATCH_UPDATE_SIZE.lookUp(params);
+        if (batchUpdateSize != null && batchUpdateSize > 0) {
+            dataStore.setBatchUpdateSize(batchUpdateSize);
+        }
+
         // namespace
         String namespace = (String) NAMESPACE.lookUp(params);
 
@@ -276,6 +302,25 @@ public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
             dataStore.setExposePrimaryKeyColumns(exposePk);
         }
         
+        // keyset pagination
+        Boolean keysetPagination = (Boolean) KEYSET_PAGINATION.lookUp(params);
+        if(keysetPagination != null) {
+            dataStore.setKeysetPaginationEnabled(keysetPagination);
+        }
+        
+        // prepared filter caching
+        Boolean preparedFilterCache = (Boolean) PREPARED_FILTER_CACHE.lookUp(params);
+        if(preparedFilterCache != null) {
+            dataStore.setPreparedFilterCacheEnabled(preparedFilterCache);
+        }
+        
+        // table metadata caching
+        File metadataCacheFile = (File) METADATA_CACHE_FILE.lookUp(params);
+        if(metadataCacheFile != null) {
+            dataStore.setMetadataCache(new MetadataCache(metadataCacheFile,
+                    getMetadataCacheIdentity(params)));
+        }
+        
         // session startup and teardown
         String sqlOnBorrow = (String) SQL_ON_BORROW.lookUp(params);
         String sqlOnRelease = (String) SQL_ON_RELEASE.lookUp(params);
@@ -305,6 +350,20 @@ public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
         if( result.getDataSource() == null ){
             throw new IOException("JDBC Connection not available with provided parameters");
         }
+        
+        // bulk metadata load, once the subclass is done configuring the store
+        Boolean bulkLoad = (Boolean) METADATA_BULK_LOAD.lookUp(params);
+        if(Boolean.TRUE.equals(bulkLoad)) {
+            MetadataCache cache = result.getMetadataCache();
+            if(cache == null || cache.size() == 0) {
+                try {
+                    result.loadMetadataCache();
+                } catch(IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to bulk load the table metadata, "
+                            + "it will be read table by table", e);
+                }
+            }
+        }
         return result;
     }
 
@@ -375,10 +434,14 @@ public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
         parameters.put(PASSWD.key, PASSWD);
         parameters.put(NAMESPACE.key, NAMESPACE);
         parameters.put(EXPOSE_PK.key, EXPOSE_PK);
+        parameters.put(KEYSET_PAGINATION.key, KEYSET_PAGINATION);
+        parameters.put(METADATA_CACHE_FILE.key, METADATA_CACHE_FILE);
+        parameters.put(METADATA_BULK_LOAD.key, METADATA_BULK_LOAD);
         parameters.put(MAXCONN.key, MAXCONN);
         parameters.put(MINCONN.key, MINCONN);
         parameters.put(FETCHSIZE.key, FETCHSIZE);
         parameters.put(BATCH_INSERT_SIZE.key, BATCH_INSERT_SIZE);
+        parameters.put(BATCH_UPDATE_SIZE.key, BATCH_UPDATE_SIZE);
         parameters.put(MAXWAIT.key, MAXWAIT);
         if(getValidationQuery() != null)
             parameters.put(VALIDATECONN.key, VALIDATECONN);
@@ -571,6 +634,14 @@ public abstract class JDBCDataStoreFactory implements DataStoreFactorySpi {
      */
     protected abstract String getValidationQuery();
 
+    /**
+     * Returns a string identifying the database and schema the store connects to, used to make
+     * sure a persisted metadata cache is not used against a different database
+     */
+    protected String getMetadataCacheIdentity(Map params) throws IOException {
+        return getJDBCUrl(params) + ";" + USER.lookUp(params) + ";" + SCHEMA.lookUp(params);
+    }
+
     /**
      * Builds up the JDBC url in a jdbc:<database>://<host>:<port>/<dbname>
      * Override if you need a different setup
@@ -17,6 +17,7 @@
 package org.geotools.jdbc;
 
 import java.io.IOException;
+import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
@@ -27,8 +28,14 @@ import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,6 +50,7 @@ import org.geotools.data.ReTypeFeatureReader;
 import org.geotools.data.Transaction;
 import org.geotools.data.store.ContentEntry;
 import org.geotools.data.store.ContentFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.factory.Hints;
 import org.geotools.factory.Hints.Key;
 import org.geotools.feature.AttributeTypeBuilder;
@@ -53,20 +61,28 @@ import org.geotools.feature.visitor.NearestVisitor;
 import org.geotools.filter.FilterAttributeExtractor;
 import org.geotools.filter.visitor.PostPreProcessFilterSplittingVisitor;
 import org.geotools.filter.visitor.SimplifyingFilterVisitor;
+import org.geotools.geometry.jts.JTS;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
+import org.geotools.util.Converters;
 import org.geotools.util.logging.Logging;
 import org.opengis.feature.Association;
 import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory;
+import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.expression.Expression;
 import org.opengis.filter.expression.PropertyName;
+import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
 
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 
 /**
@@ -205,11 +221,18 @@ public class JDBCFeatureSource extends ContentFeatureSource {
             DatabaseMetaData metaData = cx.getMetaData();
             // get metadata about columns from database
             List<ColumnMetadata> columns;
+            MetadataCache cache = virtualTable == null ? getDataStore().getMetadataCache() : null;
+            // tracks if anything was read from the database, and needs to be cached
+            boolean lookedUp = true;
             if (virtualTable != null) {
                 columns = getColumnMetadata(cx, virtualTable, dialect, getDataStore());
+            } else if (cache != null && (columns = cache.getColumns(tableName)) != null) {
+                lookedUp = false;
             } else {
                 columns = getColumnMetadata(cx, databaseSchema, tableName, dialect);
             }
+            Map<String, Integer> srids = new HashMap<String, Integer>();
+            Map<String, Integer> dimensions = new HashMap<String, Integer>();
 
             for (ColumnMetadata column : columns) {
                 String name = column.name;
@@ -309,9 +332,13 @@ public class JDBCFeatureSource extends ContentFeatureSource {
                     try {
                         if(virtualTable != null) {
                             srid = virtualTable.getNativeSrid(name);
+                        } else if (cache != null && cache.hasSRID(tableName, name)) {
+                            srid = cache.getSRID(tableName, name);
                         } else {
                             srid = dialect.getGeometrySRID(databaseSchema, tableName, name, cx);
+                            lookedUp = true;
                         }
+                        srids.put(name, srid);
                         if(srid != null)
                             crs = dialect.createCRS(srid, cx);
                     } catch (Exception e) {
@@ -323,11 +350,17 @@ public class JDBCFeatureSource extends ContentFeatureSource {
                     // compute the dimension too
                     int dimension = 2;
                     try {
+                        Integer cachedDimension = cache != null ? cache.getDimension(tableName,
+                                name) : null;
                         if(virtualTable != null) {
                             dimension = virtualTable.getDimension(name);
+                        } else if (cachedDimension != null) {
+                            dimension = cachedDimension;
                         } else {
                             dimension = dialect.getGeometryDimension(databaseSchema, tableName, name, cx);
+                            lookedUp = true;
                         }
+                        dimensions.put(name, dimension);
                     } catch(Exception e) {
                         String msg = "Error occured determing dimension for " + tableName + "."
                                 + name;
@@ -358,6 +391,11 @@ public class JDBCFeatureSource extends ContentFeatureSource {
                 tb.add(att);
             }
 
+            // remember the metadata of plain tables, unless it all came from the cache
+            if (cache != null && lookedUp) {
+                cache.putColumns(tableName, columns, srids, dimensions);
+            }
+
             //build the final type
             SimpleFeatureType ft = tb.buildFeatureType();
             
@@ -583,6 +621,26 @@ public class JDBCFeatureSource extends ContentFeatureSource {
             preQuery.setMaxFeatures(Integer.MAX_VALUE);
         }
 
+        // partitioned reads
+        ReadPartition partition = (ReadPartition) query.getHints().get(ReadPartition.PARTITION);
+        if (partition != null && !query.getJoins().isEmpty()) {
+            throw new IllegalArgumentException("Partitioned reads do not support joins");
+        }
+
+        // see if the page can be read by seeking past the end of the previous one
+        KeysetPagination pagination = getKeysetPagination(query, postFilterRequired);
+        KeysetPagination.Key pageStart = null;
+        List<Object> lastKey = null;
+        if (pagination != null) {
+            pageStart = KeysetPagination.key(getSchema().getTypeName(), preQuery);
+            if (pageStart.getOffset() > 0) {
+                lastKey = pagination.get(pageStart);
+                if (lastKey != null) {
+                    preQuery.setStartIndex(null);
+                }
+            }
+        }
+
         // Build the feature type returned by this query. Also build an eventual extra feature type
         // containing the attributes we might need in order to evaluate the post filter
         SimpleFeatureType[] types = 
@@ -607,15 +665,19 @@ public class JDBCFeatureSource extends ContentFeatureSource {
             if (query.getJoins().isEmpty()) {
                 //regular query
                 if ( dialect instanceof PreparedStatementSQLDialect ) {
-                    PreparedStatement ps = getDataStore().selectSQLPS(querySchema, preQuery, cx);
+                    PreparedStatement ps = getDataStore().selectSQLPS(querySchema, preQuery, lastKey, partition, cx);
                     reader = new JDBCFeatureReader( ps, cx, this, querySchema, query );
                 } else {
                     //build up a statement for the content
-                    String sql = getDataStore().selectSQL(querySchema, preQuery);
+                    String sql = getDataStore().selectSQL(querySchema, preQuery, lastKey, partition);
                     getDataStore().getLogger().fine(sql);
         
                     reader = new JDBCFeatureReader( sql, cx, this, querySchema, query );
                 }
+                
+                if (pagination != null) {
+                    reader = pagination.record(reader, pageStart, getPrimaryKey());
+                }
             }
             else {
                 JoinInfo join = JoinInfo.create(preQuery, this);
@@ -674,6 +736,359 @@ public class JDBCFeatureSource extends ContentFeatureSource {
         return reader;
     }
 
+    /**
+     * Splits the query in about the specified number of partitions, that can be read in parallel,
+     * each on its own connection, using {@link #getReader(Query, ReadPartition)}. The query cannot
+     * be sorted, paged or joined, and the feature source must not be in a transaction. Fewer
+     * partitions are returned when the table is too small to be split as requested.
+     */
+    public List<ReadPartition> getPartitions(Query query, int count, ReadPartition.Strategy strategy)
+            throws IOException {
+        checkPartitionable(query);
+        if (count < 1) {
+            throw new IllegalArgumentException("The number of partitions must be positive");
+        }
+        SQLDialect dialect = getDataStore().getSQLDialect();
+        Connection cx = getDataStore().getConnection(getState());
+        try {
+            switch (strategy) {
+            case PRIMARY_KEY:
+                return getKeyPartitions(query, count, cx);
+            case PHYSICAL:
+                if (!dialect.isPhysicalPartitioningSupported()
+                        || getDataStore().getVirtualTables().containsKey(entry.getTypeName())) {
+                    throw new IOException("Physical partitioning is not supported by this table");
+                }
+                return getPhysicalPartitions(count, cx);
+            case SPATIAL_GRID:
+                if (!dialect.isGridPartitioningSupported()) {
+                    throw new IOException("Spatial grid partitioning is not supported by this store");
+                }
+                return getGridPartitions(query, count, cx);
+            default:
+                throw new IllegalArgumentException("Unknown partitioning strategy " + strategy);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to compute the table partitions", e);
+        } finally {
+            getDataStore().releaseConnection(cx, getState());
+        }
+    }
+
+    List<ReadPartition> getKeyPartitions(Query query, int count, Connection cx)
+            throws IOException, SQLException {
+        List<PrimaryKeyColumn> columns = getPrimaryKey().getColumns();
+        if (columns.size() != 1 || !isIntegral(columns.get(0).getType())) {
+            throw new IOException("Primary key partitioning needs a single column integral key");
+        }
+        PrimaryKeyColumn column = columns.get(0);
+        Number[] range = getDataStore().getPrimaryKeyRange(getSchema(), column, query.getHints(),
+                cx);
+        if (range == null) {
+            return Collections.singletonList(new ReadPartition(ReadPartition.Strategy.PRIMARY_KEY,
+                    0, 1, null, null));
+        }
+        BigInteger min = new BigInteger(range[0].toString());
+        BigInteger span = new BigInteger(range[1].toString()).subtract(min).add(BigInteger.ONE);
+        int n = span.min(BigInteger.valueOf(count)).intValue();
+        BigInteger[] qr = span.divideAndRemainder(BigInteger.valueOf(n));
+        BigInteger step = qr[1].signum() == 0 ? qr[0] : qr[0].add(BigInteger.ONE);
+        List<ReadPartition> result = new ArrayList<ReadPartition>(n);
+        for (int i = 0; i < n; i++) {
+            // the first and last ranges are open, keys might have been added since
+            Object lower = i == 0 ? null : Converters.convert(
+                    min.add(step.multiply(BigInteger.valueOf(i))), column.getType());
+            Object upper = i == n - 1 ? null : Converters.convert(
+                    min.add(step.multiply(BigInteger.valueOf(i + 1))), column.getType());
+            result.add(new ReadPartition(ReadPartition.Strategy.PRIMARY_KEY, i, n, lower, upper));
+        }
+        return result;
+    }
+
+    boolean isIntegral(Class<?> type) {
+        return Short.class.equals(type) || Integer.class.equals(type) || Long.class.equals(type)
+                || BigInteger.class.equals(type);
+    }
+
+    List<ReadPartition> getPhysicalPartitions(int count, Connection cx) throws SQLException {
+        Long pages = getDataStore().getSQLDialect().getPhysicalPageCount(
+                getDataStore().getDatabaseSchema(), entry.getTypeName(), cx);
+        if (pages == null || pages <= 1) {
+            return Collections.singletonList(new ReadPartition(ReadPartition.Strategy.PHYSICAL, 0,
+                    1, null, null));
+        }
+        int n = (int) Math.min(count, pages);
+        long step = (pages + n - 1) / n;
+        List<ReadPartition> result = new ArrayList<ReadPartition>(n);
+        for (int i = 0; i < n; i++) {
+            Long lower = i == 0 ? null : i * step;
+            Long upper = i == n - 1 ? null : (i + 1) * step;
+            result.add(new ReadPartition(ReadPartition.Strategy.PHYSICAL, i, n, lower, upper));
+        }
+        return result;
+    }
+
+    List<ReadPartition> getGridPartitions(Query query, int count, Connection cx)
+            throws IOException {
+        GeometryDescriptor geometry = getSchema().getGeometryDescriptor();
+        if (geometry == null) {
+            throw new IOException("Spatial grid partitioning needs a geometry attribute");
+        }
+        String name = geometry.getLocalName();
+        // the grid must contain all the features, estimated bounds are not good enough
+        DefaultQuery boundsQuery = new DefaultQuery(query);
+        boundsQuery.setFilter(splitFilter(query.getFilter())[0]);
+        ReferencedEnvelope bounds = getDataStore().getBounds(getSchema(), boundsQuery, cx, false);
+        List<ReadPartition> result = new ArrayList<ReadPartition>();
+        if (bounds != null && !bounds.isNull()) {
+            int cols = (int) Math.ceil(Math.sqrt(count));
+            int rows = (int) Math.ceil(count / (double) cols);
+            if (bounds.getWidth() == 0) {
+                cols = 1;
+            }
+            if (bounds.getHeight() == 0) {
+                rows = 1;
+            }
+            int n = cols * rows + 1;
+            for (int r = 0; r < rows; r++) {
+                double y0 = bounds.getMinY() + bounds.getHeight() * r / rows;
+                double y1 = r == rows - 1 ? bounds.getMaxY()
+                        : bounds.getMinY() + bounds.getHeight() * (r + 1) / rows;
+                for (int c = 0; c < cols; c++) {
+                    double x0 = bounds.getMinX() + bounds.getWidth() * c / cols;
+                    double x1 = c == cols - 1 ? bounds.getMaxX()
+                            : bounds.getMinX() + bounds.getWidth() * (c + 1) / cols;
+                    result.add(new ReadPartition(result.size(), n, name, new Envelope(x0, x1,
+                            y0, y1), c == cols - 1, r == rows - 1));
+                }
+            }
+        }
+        // the features without a geometry
+        result.add(new ReadPartition(result.size(), result.size() + 1, name, null, true, true));
+        return result;
+    }
+
+    /**
+     * Returns a reader for the features of the query in the specified partition
+     * 
+     * @see #getPartitions(Query, int, ReadPartition.Strategy)
+     */
+    public FeatureReader<SimpleFeatureType, SimpleFeature> getReader(Query query,
+            ReadPartition partition) throws IOException {
+        checkPartitionable(query);
+        Query partitionQuery = new Query(query);
+        Hints hints = new Hints(query.getHints());
+        hints.put(ReadPartition.PARTITION, partition);
+        partitionQuery.setHints(hints);
+        return getReader(partitionQuery);
+    }
+
+    /**
+     * Returns a reader merging the features of the query partitions, read in parallel on the
+     * provided executor, in no particular order. Each running partition holds a connection from
+     * the pool, the executor should have fewer threads than the pool has connections.
+     * 
+     * @see #getPartitions(Query, int, ReadPartition.Strategy)
+     */
+    public FeatureReader<SimpleFeatureType, SimpleFeature> getPartitionedReader(Query query,
+            int count, ReadPartition.Strategy strategy, ExecutorService executor)
+            throws IOException {
+        List<ReadPartition> partitions = getPartitions(query, count, strategy);
+        return new PartitionedFeatureReader(this, query, partitions, executor,
+                PartitionedFeatureReader.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Returns a publisher of the features of the query, read ahead on the provided executor with
+     * backpressure, so that the subscribers do not block on the database. Each subscription runs
+     * the query on its own connection, holding it until the results are over or the subscription
+     * is cancelled.
+     */
+    public FeaturePublisher getFeaturesAsync(Query query, Executor executor) {
+        return getFeaturesAsync(query, executor, FeaturePublisher.DEFAULT_PREFETCH);
+    }
+
+    /**
+     * Returns a publisher of the features of the query, reading ahead at most the specified
+     * number of features for each subscription
+     * 
+     * @see #getFeaturesAsync(Query, Executor)
+     */
+    public FeaturePublisher getFeaturesAsync(Query query, Executor executor, int prefetch) {
+        if (getState().getTransaction() != Transaction.AUTO_COMMIT) {
+            throw new IllegalStateException(
+                    "Asynchronous reads use their own connections, they cannot run in a transaction");
+        }
+        return new FeaturePublisher(this, query, executor, prefetch);
+    }
+
+    /**
+     * Returns the features of the query as a Mapbox Vector Tile with a single layer, named after
+     * the feature type, holding the default geometry and the non geometric attributes of the
+     * query. The tile is built in the database when the dialect supports it and the query can be
+     * fully encoded in SQL, otherwise the features are read and encoded by a
+     * {@link VectorTileEncoder}. Geometries are reprojected if the tile bounds are in a different
+     * coordinate reference system than the native one.
+     * 
+     * @param query The query, its filter is combined with the tile bounds
+     * @param tile The tile bounds
+     * @param extent The tile size in tile coordinates, see {@link VectorTileEncoder#DEFAULT_EXTENT}
+     * @param buffer The clipping buffer around the tile, in tile coordinates, see
+     *        {@link VectorTileEncoder#DEFAULT_BUFFER}
+     * @return The encoded tile, an empty array if no feature falls in the tile
+     */
+    public byte[] getVectorTile(Query query, ReferencedEnvelope tile, int extent, int buffer)
+            throws IOException {
+        GeometryDescriptor geometry = getSchema().getGeometryDescriptor();
+        if (geometry == null) {
+            throw new IOException("Vector tiles need a geometry attribute");
+        }
+        if (!query.getJoins().isEmpty()) {
+            throw new IllegalArgumentException("Vector tiles do not support joins");
+        }
+        CoordinateReferenceSystem nativeCRS = geometry.getCoordinateReferenceSystem();
+        CoordinateReferenceSystem tileCRS = tile.getCoordinateReferenceSystem();
+        boolean reproject = nativeCRS != null && tileCRS != null
+                && !CRS.equalsIgnoreMetadata(nativeCRS, tileCRS);
+
+        // the features intersecting the buffered tile
+        ReferencedEnvelope area = new ReferencedEnvelope(
+                VectorTileEncoder.getClipBounds(tile, extent, buffer),
+                reproject ? tileCRS : nativeCRS);
+        if (reproject) {
+            try {
+                area = area.transform(nativeCRS, true);
+            } catch (Exception e) {
+                throw new IOException("Failed to reproject the tile bounds", e);
+            }
+        }
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+        Filter filter = ff.bbox(ff.property(geometry.getLocalName()), area);
+        if (query.getFilter() != null && !Filter.INCLUDE.equals(query.getFilter())) {
+            filter = ff.and(query.getFilter(), filter);
+        }
+        List<String> attributes = new ArrayList<String>();
+        for (AttributeDescriptor ad : getSchema().getAttributeDescriptors()) {
+            if (!(ad instanceof GeometryDescriptor) && (query.getPropertyNames() == Query.ALL_NAMES
+                    || Arrays.asList(query.getPropertyNames()).contains(ad.getLocalName()))) {
+                attributes.add(ad.getLocalName());
+            }
+        }
+        List<String> properties = new ArrayList<String>(attributes);
+        properties.add(geometry.getLocalName());
+        Query tileQuery = new Query(query);
+        tileQuery.setFilter(filter);
+        tileQuery.setPropertyNames(properties);
+        tileQuery.setCoordinateSystemReproject(null);
+
+        if (isVectorTileEncodable(tileQuery)) {
+            Integer srid = (Integer) geometry.getUserData().get(JDBCDataStore.JDBC_NATIVE_SRID);
+            Integer tileSrid = srid;
+            if (reproject) {
+                try {
+                    tileSrid = CRS.lookupEpsgCode(tileCRS, false);
+                } catch (Exception e) {
+                    getDataStore().getLogger().log(Level.FINE,
+                            "Could not find the tile bounds srid", e);
+                    tileSrid = null;
+                }
+            }
+            if (srid != null && tileSrid != null) {
+                Connection cx = getDataStore().getConnection(getState());
+                try {
+                    return getDataStore().getVectorTile(getSchema(), tileQuery, srid, tileSrid,
+                            tile, extent, buffer, cx);
+                } finally {
+                    getDataStore().releaseConnection(cx, getState());
+                }
+            }
+        }
+
+        // encode in memory
+        VectorTileEncoder encoder = new VectorTileEncoder(tile, extent, buffer);
+        MathTransform transform = null;
+        if (reproject) {
+            try {
+                transform = CRS.findMathTransform(nativeCRS, tileCRS, true);
+            } catch (FactoryException e) {
+                throw new IOException("Failed to reproject the features into the tile", e);
+            }
+        }
+        FeatureReader<SimpleFeatureType, SimpleFeature> reader = getReader(tileQuery);
+        try {
+            Map<String, Object> values = new LinkedHashMap<String, Object>();
+            while (reader.hasNext()) {
+                SimpleFeature feature = reader.next();
+                Geometry g = (Geometry) feature.getAttribute(geometry.getLocalName());
+                if (g == null) {
+                    continue;
+                }
+                if (transform != null) {
+                    g = JTS.transform(g, transform);
+                }
+                values.clear();
+                for (String attribute : attributes) {
+                    values.put(attribute, feature.getAttribute(attribute));
+                }
+                encoder.addFeature(getSchema().getTypeName(), g, values);
+            }
+        } catch (TransformException e) {
+            throw new IOException("Failed to reproject the features into the tile", e);
+        } finally {
+            reader.close();
+        }
+        return encoder.encode();
+    }
+
+    /**
+     * Returns true if the tile query can be turned into a single SQL statement building the tile
+     */
+    boolean isVectorTileEncodable(Query query) {
+        SQLDialect dialect = getDataStore().getSQLDialect();
+        if (!dialect.isVectorTileSupported()
+                || (query.getStartIndex() != null && query.getStartIndex() > 0)
+                || query.getMaxFeatures() < Integer.MAX_VALUE) {
+            return false;
+        }
+        Filter[] split = dialect.splitFilter(query.getFilter(), getSchema());
+        return split[1] == null || Filter.INCLUDE.equals(split[1]);
+    }
+
+    void checkPartitionable(Query query) {
+        if ((query.getStartIndex() != null && query.getStartIndex() > 0)
+                || query.getMaxFeatures() < Integer.MAX_VALUE
+                || (query.getSortBy() != null && query.getSortBy().length > 0)) {
+            throw new IllegalArgumentException("Partitioned reads cannot be sorted or paged");
+        }
+        if (!query.getJoins().isEmpty()) {
+            throw new IllegalArgumentException("Partitioned reads do not support joins");
+        }
+        if (getState().getTransaction() != Transaction.AUTO_COMMIT) {
+            throw new IllegalStateException(
+                    "Partitioned reads use several connections, they cannot run in a transaction");
+        }
+    }
+
+    /**
+     * Returns the store paging positions if the query reads a page that can be located by seeking
+     * on the primary key, null otherwise
+     */
+    KeysetPagination getKeysetPagination(Query query, boolean postFilterRequired) {
+        KeysetPagination pagination = getDataStore().keysetPagination;
+        SQLDialect dialect = getDataStore().getSQLDialect();
+        if (pagination == null || postFilterRequired || !query.getJoins().isEmpty()
+                || getState().getTransaction() != Transaction.AUTO_COMMIT
+                || !dialect.isKeysetPaginationSupported() || !dialect.isLimitOffsetSupported()) {
+            return null;
+        }
+        boolean paged = (query.getStartIndex() != null && query.getStartIndex() > 0)
+                || query.getMaxFeatures() < Integer.MAX_VALUE;
+        if (!paged || !KeysetPagination.isKeysetSortable(getPrimaryKey(), query.getSortBy())) {
+            return null;
+        }
+        return pagination;
+    }
+
     SimpleFeatureType[] buildQueryAndReturnFeatureTypes(SimpleFeatureType featureType, 
         String[] propertyNames, Filter filter) {
 
@@ -22,7 +22,10 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import org.geotools.data.FeatureEvent;
 import org.geotools.data.FeatureReader;
@@ -154,6 +157,53 @@ public final class JDBCFeatureStore extends ContentFeatureStore {
         return delegate.getPrimaryKey();
     }
 
+    /**
+     * @see JDBCFeatureSource#getPartitions(Query, int, ReadPartition.Strategy)
+     */
+    public List<ReadPartition> getPartitions(Query query, int count, ReadPartition.Strategy strategy)
+            throws IOException {
+        return delegate.getPartitions(query, count, strategy);
+    }
+
+    /**
+     * @see JDBCFeatureSource#getReader(Query, ReadPartition)
+     */
+    public FeatureReader<SimpleFeatureType, SimpleFeature> getReader(Query query,
+            ReadPartition partition) throws IOException {
+        return delegate.getReader(query, partition);
+    }
+
+    /**
+     * @see JDBCFeatureSource#getPartitionedReader(Query, int, ReadPartition.Strategy, ExecutorService)
+     */
+    public FeatureReader<SimpleFeatureType, SimpleFeature> getPartitionedReader(Query query,
+            int count, ReadPartition.Strategy strategy, ExecutorService executor)
+            throws IOException {
+        return delegate.getPartitionedReader(query, count, strategy, executor);
+    }
+
+    /**
+     * @see JDBCFeatureSource#getFeaturesAsync(Query, Executor)
+     */
+    public FeaturePublisher getFeaturesAsync(Query query, Executor executor) {
+        return delegate.getFeaturesAsync(query, executor);
+    }
+
+    /**
+     * @see JDBCFeatureSource#getFeaturesAsync(Query, Executor, int)
+     */
+    public FeaturePublisher getFeaturesAsync(Query query, Executor executor, int prefetch) {
+        return delegate.getFeaturesAsync(query, executor, prefetch);
+    }
+
+    /**
+     * @see JDBCFeatureSource#getVectorTile(Query, ReferencedEnvelope, int, int)
+     */
+    public byte[] getVectorTile(Query query, ReferencedEnvelope tile, int extent, int buffer)
+            throws IOException {
+        return delegate.getVectorTile(query, tile, extent, buffer);
+    }
+
     /**
      * Sets the flag which will expose columns which compose a tables identifying or primary key,
      * through feature type attributes. 
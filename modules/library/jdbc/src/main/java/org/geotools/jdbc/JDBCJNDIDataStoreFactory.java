@@ -89,6 +89,14 @@ public abstract class JDBCJNDIDataStoreFactory extends JDBCDataStoreFactory {
         return null;
     }
 
+    /**
+     * Override using the JNDI name, as there is no jdbc url
+     */
+    @Override
+    protected String getMetadataCacheIdentity(Map params) throws IOException {
+        return JNDI_REFNAME.lookUp(params) + ";" + SCHEMA.lookUp(params);
+    }
+
     /**
      * Override to create the datasource from the external JNDI conection.
      */
@@ -158,7 +166,11 @@ public abstract class JDBCJNDIDataStoreFactory extends JDBCDataStoreFactory {
         parameters.put(NAMESPACE.key, NAMESPACE);
         parameters.put(FETCHSIZE.key, FETCHSIZE);
         parameters.put(BATCH_INSERT_SIZE.key, BATCH_INSERT_SIZE);
+        parameters.put(BATCH_UPDATE_SIZE.key, BATCH_UPDATE_SIZE);
         parameters.put(EXPOSE_PK.key, EXPOSE_PK);
+        parameters.put(KEYSET_PAGINATION.key, KEYSET_PAGINATION);
+        parameters.put(METADATA_CACHE_FILE.key, METADATA_CACHE_FILE);
+        parameters.put(METADATA_BULK_LOAD.key, METADATA_BULK_LOAD);
         parameters.put(PK_METADATA_TABLE.key, PK_METADATA_TABLE);
         parameters.put(SQL_ON_BORROW.key, SQL_ON_BORROW);
         parameters.put(SQL_ON_RELEASE.key, SQL_ON_RELEASE);
@@ -30,6 +30,7 @@ import org.geotools.data.Query;
 import org.geotools.data.store.ContentEntry;
 import org.geotools.data.store.ContentState;
 import org.geotools.factory.Hints;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -46,6 +47,28 @@ public class JDBCUpdateFeatureWriter extends JDBCFeatureReader implements
 
     ResultSetFeature last;
     ReferencedEnvelope lastBounds;
+
+    /**
+     * Number of changes accumulated before sending them to the database,
+     * see {@link JDBCDataStore#getBatchUpdateSize()}
+     */
+    final int batchSize;
+
+    /**
+     * Pending updates, as parallel lists of fids, changed attributes and their values, plus the
+     * feature copies and original bounds used for the notifications, if anyone is listening
+     */
+    final List<String> updatedFids = new ArrayList<String>();
+    final List<AttributeDescriptor[]> updatedAttributes = new ArrayList<AttributeDescriptor[]>();
+    final List<Object[]> updatedValues = new ArrayList<Object[]>();
+    final List<SimpleFeature> updatedFeatures = new ArrayList<SimpleFeature>();
+    final List<ReferencedEnvelope> updatedBounds = new ArrayList<ReferencedEnvelope>();
+
+    /**
+     * Pending deletes, and the feature copies used for the notifications
+     */
+    final List<String> removedFids = new ArrayList<String>();
+    final List<SimpleFeature> removedFeatures = new ArrayList<SimpleFeature>();
     
     public JDBCUpdateFeatureWriter(String sql, Connection cx,
             JDBCFeatureSource featureSource, Query query) throws SQLException, IOException {
@@ -53,6 +76,7 @@ public class JDBCUpdateFeatureWriter extends JDBCFeatureReader implements
         super(sql, cx, featureSource, featureSource.getSchema(), query);
         md = rs.getMetaData();
         last = new ResultSetFeature( rs, cx );
+        batchSize = dataStore.getBatchUpdateSize();
     }
     
     public JDBCUpdateFeatureWriter(PreparedStatement ps, Connection cx,
@@ -61,6 +85,7 @@ public class JDBCUpdateFeatureWriter extends JDBCFeatureReader implements
         super(ps, cx, featureSource, featureSource.getSchema(), query);
         md = rs.getMetaData();
         last = new ResultSetFeature( rs, ps.getConnection());
+        batchSize = dataStore.getBatchUpdateSize();
     }
 
     public SimpleFeature next() throws IOException, IllegalArgumentException,
@@ -85,12 +110,24 @@ public class JDBCUpdateFeatureWriter extends JDBCFeatureReader implements
     }
     
     public void remove() throws IOException {
+        ContentEntry entry = featureSource.getEntry();
+        ContentState state = entry.getState( this.tx );
+        if (batchSize > 1) {
+            // the feature is reused for the next row, keep a copy around for the notification
+            removedFids.add(last.getID());
+            if (state.hasListener()) {
+                removedFeatures.add(SimpleFeatureBuilder.copy(last));
+            }
+            if (getPendingCount() >= batchSize) {
+                flush();
+            }
+            return;
+        }
+
         try {
             dataStore.delete(featureType, last.getID(), st.getConnection());
             
             // issue notification
-            ContentEntry entry = featureSource.getEntry();
-            ContentState state = entry.getState( this.tx );
             if( state.hasListener() ){
                 state.fireFeatureRemoved( featureSource, last );
             }
@@ -105,10 +142,6 @@ public class JDBCUpdateFeatureWriter extends JDBCFeatureReader implements
             PrimaryKey key = dataStore.getPrimaryKey(featureType);
             String fid = dataStore.encodeFID(key, rs);
 
-            Id filter = dataStore.getFilterFactory()
-                                 .id(Collections.singleton(dataStore.getFilterFactory()
-                                                                    .featureId(fid)));
-
             //figure out which attributes changed
             List<AttributeDescriptor> changed = new ArrayList<AttributeDescriptor>();
             List<Object> values = new ArrayList<Object>();
@@ -120,12 +153,34 @@ public class JDBCUpdateFeatureWriter extends JDBCFeatureReader implements
                 }
             }
 
+            ContentEntry entry = featureSource.getEntry();
+            ContentState state = entry.getState( this.tx );
+            if (batchSize > 1) {
+                if (changed.isEmpty()) {
+                    // nothing to update, same as the unbatched case
+                    return;
+                }
+                updatedFids.add(fid);
+                updatedAttributes.add(changed.toArray(new AttributeDescriptor[changed.size()]));
+                updatedValues.add(values.toArray());
+                if (state.hasListener()) {
+                    updatedFeatures.add(SimpleFeatureBuilder.copy(last));
+                    updatedBounds.add(lastBounds);
+                }
+                if (getPendingCount() >= batchSize) {
+                    flush();
+                }
+                return;
+            }
+
+            Id filter = dataStore.getFilterFactory()
+                                 .id(Collections.singleton(dataStore.getFilterFactory()
+                                                                    .featureId(fid)));
+
             // do the write
             dataStore.update(featureType, changed, values, filter, st.getConnection());
             
             // issue notification
-            ContentEntry entry = featureSource.getEntry();
-            ContentState state = entry.getState( this.tx );
             if( state.hasListener() ){
                 state.fireFeatureUpdated( featureSource, last, lastBounds );
             }
@@ -134,11 +189,55 @@ public class JDBCUpdateFeatureWriter extends JDBCFeatureReader implements
         }
     }
 
+    int getPendingCount() {
+        return updatedFids.size() + removedFids.size();
+    }
+
+    /**
+     * Sends the pending updates and deletes to the database, and issues the notifications
+     */
+    void flush() throws IOException {
+        if (getPendingCount() == 0) {
+            return;
+        }
+        try {
+            ContentState state = featureSource.getEntry().getState(this.tx);
+            if (!updatedFids.isEmpty()) {
+                dataStore.update(featureType, updatedFids, updatedAttributes, updatedValues,
+                        st.getConnection());
+                for (int i = 0; i < updatedFeatures.size(); i++) {
+                    state.fireFeatureUpdated(featureSource, updatedFeatures.get(i),
+                            updatedBounds.get(i));
+                }
+            }
+            if (!removedFids.isEmpty()) {
+                dataStore.delete(featureType, removedFids, st.getConnection());
+                for (SimpleFeature removed : removedFeatures) {
+                    state.fireFeatureRemoved(featureSource, removed);
+                }
+            }
+        } catch (SQLException e) {
+            throw (IOException) new IOException().initCause(e);
+        } finally {
+            updatedFids.clear();
+            updatedAttributes.clear();
+            updatedValues.clear();
+            updatedFeatures.clear();
+            updatedBounds.clear();
+            removedFids.clear();
+            removedFeatures.clear();
+        }
+    }
+
     public void close() throws IOException {
-        super.close();
-        if ( last != null ) {
-            last.close();
-            last = null;    
+        try {
+            flush();
+        } finally {
+            super.close();
+            if ( last != null ) {
+                last.close();
+                last = null;    
+            }
         }
     }
 }
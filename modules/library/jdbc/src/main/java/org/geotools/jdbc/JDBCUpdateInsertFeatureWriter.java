@@ -55,7 +55,8 @@ public class JDBCUpdateInsertFeatureWriter extends JDBCUpdateFeatureWriter {
         //check parent
         boolean hasNext = super.hasNext();
         if ( !hasNext ) {
-            //update phase is up, switch to insert mode
+            //update phase is up, send the pending changes and switch to insert mode
+            flush();
             inserter = new JDBCInsertFeatureWriter( this );
             return inserter.hasNext();
         }
@@ -0,0 +1,305 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.DelegatingFeatureReader;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.factory.Hints;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
+
+/**
+ * Remembers the primary key of the last feature returned by paged queries, so that a request for
+ * the following page can be turned from a <code>LIMIT/OFFSET</code> query, whose cost grows with
+ * the offset, into a <code>WHERE pk &gt; :last LIMIT</code> seek on the primary key index.
+ * <p>
+ * Positions are remembered per table, filter, virtual table parameters and absolute offset, a page
+ * is served with a seek only if a previous query ended exactly where it starts. The cache is
+ * bounded and forgets the least recently used positions first, positions of a table are dropped
+ * whenever the store modifies it.
+ */
+final class KeysetPagination {
+
+    static final Logger LOGGER = Logging.getLogger(KeysetPagination.class);
+
+    /**
+     * The default number of page positions remembered
+     */
+    static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    /**
+     * Identifies a position in the result of a query
+     */
+    static final class Key {
+        final Object[] parts;
+
+        final int hash;
+
+        Key(String typeName, Filter filter, Object parameters, int offset) {
+            this.parts = new Object[] { typeName, filter, parameters, offset };
+            this.hash = Arrays.hashCode(parts);
+        }
+
+        String getTypeName() {
+            return (String) parts[0];
+        }
+
+        int getOffset() {
+            return (Integer) parts[3];
+        }
+
+        Key atOffset(int offset) {
+            return new Key((String) parts[0], (Filter) parts[1], parts[2], offset);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && Arrays.equals(parts, other.parts);
+        }
+
+        @Override
+        public String toString() {
+            return "Key" + Arrays.toString(parts);
+        }
+    }
+
+    final int maxEntries;
+
+    final LinkedHashMap<Key, List<Object>> positions = new LinkedHashMap<Key, List<Object>>(64,
+            0.75f, true);
+
+    long seeks;
+
+    long misses;
+
+    KeysetPagination() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    KeysetPagination(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("The number of positions must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns true if the query can be paged by seeking on the primary key: the primary key must
+     * be known, its values must survive the round trip through the feature id, and the query must
+     * be sorted on the primary key, in ascending order. Queries without a sort are not ordered in
+     * SQL, the natural order is added only when they have a start index
+     */
+    static boolean isKeysetSortable(PrimaryKey key, SortBy[] sort) {
+        List<PrimaryKeyColumn> columns = key.getColumns();
+        if (key instanceof NullPrimaryKey || columns.isEmpty()) {
+            return false;
+        }
+        if (columns.size() > 1) {
+            // multi column fids are split on dots, only numbers are safe
+            for (PrimaryKeyColumn column : columns) {
+                if (!Number.class.isAssignableFrom(column.getType())) {
+                    return false;
+                }
+            }
+        }
+        if (sort == null || sort.length == 0) {
+            return false;
+        }
+        if (sort.length == 1 && SortBy.NATURAL_ORDER.equals(sort[0])) {
+            return true;
+        }
+        if (sort.length != columns.size()) {
+            return false;
+        }
+        for (int i = 0; i < sort.length; i++) {
+            if (sort[i].getPropertyName() == null
+                    || sort[i].getSortOrder() == SortOrder.DESCENDING
+                    || !columns.get(i).getName().equals(sort[i].getPropertyName().getPropertyName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the key for the position the query starts at
+     */
+    static Key key(String typeName, Query query) {
+        int offset = query.getStartIndex() != null ? query.getStartIndex() : 0;
+        Object parameters = query.getHints().get(Hints.VIRTUAL_TABLE_PARAMETERS);
+        return new Key(typeName, query.getFilter(), parameters, offset);
+    }
+
+    /**
+     * Returns the primary key values of the feature preceding the position, or null if unknown
+     */
+    synchronized List<Object> get(Key key) {
+        List<Object> last = positions.get(key);
+        if (last == null) {
+            misses++;
+        } else {
+            seeks++;
+        }
+        return last;
+    }
+
+    synchronized void put(Key key, List<Object> last) {
+        positions.put(key, last);
+        if (positions.size() > maxEntries) {
+            Iterator<Key> it = positions.keySet().iterator();
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Forgets all the positions of the specified table
+     */
+    synchronized void clear(String typeName) {
+        for (Iterator<Key> it = positions.keySet().iterator(); it.hasNext();) {
+            if (it.next().getTypeName().equals(typeName)) {
+                it.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        positions.clear();
+        seeks = 0;
+        misses = 0;
+    }
+
+    synchronized int size() {
+        return positions.size();
+    }
+
+    /**
+     * The number of paged queries that have been turned into seeks
+     */
+    synchronized long getSeeks() {
+        return seeks;
+    }
+
+    /**
+     * The number of paged queries that had to use an offset
+     */
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Wraps the reader so that the key of the last feature read gets remembered as the start of
+     * the next page
+     */
+    FeatureReader<SimpleFeatureType, SimpleFeature> record(
+            FeatureReader<SimpleFeatureType, SimpleFeature> reader, Key start, PrimaryKey pkey) {
+        return new RecordingReader(reader, start, pkey);
+    }
+
+    class RecordingReader implements DelegatingFeatureReader<SimpleFeatureType, SimpleFeature> {
+
+        FeatureReader<SimpleFeatureType, SimpleFeature> delegate;
+
+        Key start;
+
+        PrimaryKey pkey;
+
+        String prefix;
+
+        String lastId;
+
+        int count;
+
+        RecordingReader(FeatureReader<SimpleFeatureType, SimpleFeature> delegate, Key start,
+                PrimaryKey pkey) {
+            this.delegate = delegate;
+            this.start = start;
+            this.pkey = pkey;
+            this.prefix = delegate.getFeatureType().getTypeName() + ".";
+        }
+
+        @Override
+        public FeatureReader<SimpleFeatureType, SimpleFeature> getDelegate() {
+            return delegate;
+        }
+
+        @Override
+        public SimpleFeatureType getFeatureType() {
+            return delegate.getFeatureType();
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public SimpleFeature next() throws IOException, IllegalArgumentException,
+                NoSuchElementException {
+            SimpleFeature feature = delegate.next();
+            lastId = feature.getID();
+            count++;
+            return feature;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                delegate.close();
+            } finally {
+                if (lastId != null) {
+                    if (lastId.startsWith(prefix)) {
+                        lastId = lastId.substring(prefix.length());
+                    }
+                    try {
+                        List<Object> last = JDBCDataStore.decodeFID(pkey, lastId, true);
+                        put(start.atOffset(start.getOffset() + count), last);
+                    } catch (IllegalArgumentException e) {
+                        LOGGER.log(Level.FINE, "Could not decode the last feature id, "
+                                + "the next page will use an offset", e);
+                    }
+                }
+            }
+        }
+    }
+}
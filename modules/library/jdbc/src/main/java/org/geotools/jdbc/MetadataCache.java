@@ -0,0 +1,482 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * Caches the database metadata the store needs to build its feature types, that is, the table
+ * columns, the geometry SRIDs and dimensions, the primary keys and the indexes, so that they are
+ * not looked up again, one catalog query at a time, every time a store is opened.
+ * <p>
+ * The cache can be persisted in a properties file, written by {@link #save()} and when the store
+ * is disposed, and read back when the cache is created. The file carries a format version and the
+ * identity of the store, it is ignored if either does not match. The cache is not aware of schema
+ * changes made outside of the store, use {@link #invalidate(String)} or {@link #clear()} after
+ * altering the tables. Virtual tables are never cached.
+ */
+public class MetadataCache {
+
+    static final Logger LOGGER = Logging.getLogger(MetadataCache.class);
+
+    /**
+     * The version of the persisted format, files with a different version are ignored
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The metadata of a table, each part is null until looked up
+     */
+    static final class TableMetadata {
+        List<ColumnMetadata> columns;
+
+        /**
+         * The native SRID of the geometry columns, a column mapped to null has no known SRID,
+         * a column not in the map has not been looked up
+         */
+        Map<String, Integer> srids;
+
+        Map<String, Integer> dimensions;
+
+        PrimaryKey primaryKey;
+
+        List<Index> indexes;
+    }
+
+    final File file;
+
+    final String identity;
+
+    final Map<String, TableMetadata> tables = new LinkedHashMap<String, TableMetadata>();
+
+    boolean dirty;
+
+    long hits;
+
+    long misses;
+
+    /**
+     * Builds an in memory cache
+     */
+    public MetadataCache() {
+        this(null, null);
+    }
+
+    /**
+     * Builds a cache persisted in the specified file, loading its current contents, if any.
+     * 
+     * @param file The file the cache is persisted into, or null for an in memory cache
+     * @param identity Identifies the store the metadata belongs to (e.g., its connection URL and
+     *        schema), a file written for a different identity is ignored
+     */
+    public MetadataCache(File file, String identity) {
+        this.file = file;
+        this.identity = identity == null ? "" : identity;
+        if (file != null && file.exists()) {
+            try {
+                read();
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Could not read the metadata cache " + file
+                        + ", ignoring it", e);
+                tables.clear();
+            }
+        }
+    }
+
+    /**
+     * The file the cache is persisted into, or null
+     */
+    public File getFile() {
+        return file;
+    }
+
+    synchronized List<ColumnMetadata> getColumns(String tableName) {
+        TableMetadata table = tables.get(tableName);
+        if (table == null || table.columns == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return table.columns;
+    }
+
+    /**
+     * Returns true if the SRID of the column is cached, the SRID itself might be null
+     */
+    synchronized boolean hasSRID(String tableName, String columnName) {
+        TableMetadata table = tables.get(tableName);
+        return table != null && table.srids != null && table.srids.containsKey(columnName);
+    }
+
+    synchronized Integer getSRID(String tableName, String columnName) {
+        TableMetadata table = tables.get(tableName);
+        if (table == null || table.srids == null) {
+            return null;
+        }
+        return table.srids.get(columnName);
+    }
+
+    synchronized Integer getDimension(String tableName, String columnName) {
+        TableMetadata table = tables.get(tableName);
+        if (table == null || table.dimensions == null) {
+            return null;
+        }
+        return table.dimensions.get(columnName);
+    }
+
+    /**
+     * Caches the columns of a table, along with the SRIDs and dimensions of its geometry columns
+     */
+    synchronized void putColumns(String tableName, List<ColumnMetadata> columns,
+            Map<String, Integer> srids, Map<String, Integer> dimensions) {
+        TableMetadata table = table(tableName);
+        table.columns = columns;
+        table.srids = srids;
+        table.dimensions = dimensions;
+        dirty = true;
+    }
+
+    synchronized PrimaryKey getPrimaryKey(String tableName) {
+        TableMetadata table = tables.get(tableName);
+        if (table == null || table.primaryKey == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return table.primaryKey;
+    }
+
+    synchronized void putPrimaryKey(String tableName, PrimaryKey primaryKey) {
+        if (!isPersistable(primaryKey)) {
+            return;
+        }
+        table(tableName).primaryKey = primaryKey;
+        dirty = true;
+    }
+
+    synchronized List<Index> getIndexes(String tableName) {
+        TableMetadata table = tables.get(tableName);
+        if (table == null || table.indexes == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return new ArrayList<Index>(table.indexes);
+    }
+
+    synchronized void putIndexes(String tableName, List<Index> indexes) {
+        for (Index index : indexes) {
+            if (index.getHints() != null && !index.getHints().isEmpty()) {
+                // dialect specific information, not persisted
+                return;
+            }
+        }
+        table(tableName).indexes = new ArrayList<Index>(indexes);
+        dirty = true;
+    }
+
+    private TableMetadata table(String tableName) {
+        TableMetadata table = tables.get(tableName);
+        if (table == null) {
+            table = new TableMetadata();
+            tables.put(tableName, table);
+        }
+        return table;
+    }
+
+    /**
+     * Only the primary key types known to the store are cached, dialect specific ones might carry
+     * more information than the cache knows about
+     */
+    static boolean isPersistable(PrimaryKey primaryKey) {
+        if (primaryKey.getClass() != PrimaryKey.class
+                && primaryKey.getClass() != NullPrimaryKey.class) {
+            return false;
+        }
+        for (PrimaryKeyColumn column : primaryKey.getColumns()) {
+            Class<?> c = column.getClass();
+            if ((c != AutoGeneratedPrimaryKeyColumn.class && c != SequencedPrimaryKeyColumn.class
+                    && c != NonIncrementingPrimaryKeyColumn.class) || column.getType() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forgets the metadata of the specified table, to be called after the table structure changed
+     */
+    public synchronized void invalidate(String tableName) {
+        if (tables.remove(tableName) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Forgets the metadata of the specified table indexes
+     */
+    synchronized void invalidateIndexes(String tableName) {
+        TableMetadata table = tables.get(tableName);
+        if (table != null && table.indexes != null) {
+            table.indexes = null;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Forgets all the cached metadata, and resets the statistics
+     */
+    public synchronized void clear() {
+        tables.clear();
+        hits = 0;
+        misses = 0;
+        dirty = true;
+    }
+
+    /**
+     * The number of tables in the cache
+     */
+    public synchronized int size() {
+        return tables.size();
+    }
+
+    /**
+     * The number of metadata lookups served by the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * The number of metadata lookups that had to go to the database
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Writes the cache to its file, if any, and if it changed since it was last read or written
+     */
+    public synchronized void save() throws IOException {
+        if (file == null || !dirty) {
+            return;
+        }
+        Properties props = new Properties();
+        props.setProperty("version", String.valueOf(VERSION));
+        props.setProperty("identity", identity);
+        props.setProperty("tables", String.valueOf(tables.size()));
+        int t = 0;
+        for (Map.Entry<String, TableMetadata> entry : tables.entrySet()) {
+            String prefix = "t" + t + ".";
+            props.setProperty(prefix + "name", entry.getKey());
+            write(props, prefix, entry.getValue());
+            t++;
+        }
+
+        // write to a temporary file first, so that a failure does not leave a broken cache behind
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (OutputStream os = new FileOutputStream(temp)) {
+            props.store(os, "JDBC store metadata cache");
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not replace the metadata cache " + file);
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not write the metadata cache " + file);
+        }
+        dirty = false;
+    }
+
+    private void write(Properties props, String prefix, TableMetadata table) {
+        if (table.columns != null) {
+            props.setProperty(prefix + "columns", String.valueOf(table.columns.size()));
+            for (int i = 0; i < table.columns.size(); i++) {
+                ColumnMetadata column = table.columns.get(i);
+                String cp = prefix + "column." + i + ".";
+                props.setProperty(cp + "name", column.name);
+                props.setProperty(cp + "typeName", column.typeName == null ? "" : column.typeName);
+                props.setProperty(cp + "sqlType", String.valueOf(column.sqlType));
+                props.setProperty(cp + "nullable", String.valueOf(column.nullable));
+                if (column.binding != null) {
+                    props.setProperty(cp + "binding", column.binding.getName());
+                }
+                if (table.srids != null && table.srids.containsKey(column.name)) {
+                    Integer srid = table.srids.get(column.name);
+                    props.setProperty(cp + "srid", srid == null ? "" : String.valueOf(srid));
+                }
+                if (table.dimensions != null && table.dimensions.get(column.name) != null) {
+                    props.setProperty(cp + "dimension",
+                            String.valueOf(table.dimensions.get(column.name)));
+                }
+            }
+        }
+        if (table.primaryKey != null) {
+            List<PrimaryKeyColumn> columns = table.primaryKey.getColumns();
+            props.setProperty(prefix + "pk", String.valueOf(columns.size()));
+            for (int i = 0; i < columns.size(); i++) {
+                PrimaryKeyColumn column = columns.get(i);
+                String cp = prefix + "pk." + i + ".";
+                props.setProperty(cp + "name", column.getName());
+                props.setProperty(cp + "type", column.getType().getName());
+                if (column instanceof AutoGeneratedPrimaryKeyColumn) {
+                    props.setProperty(cp + "kind", "auto");
+                } else if (column instanceof SequencedPrimaryKeyColumn) {
+                    props.setProperty(cp + "kind", "sequence");
+                    props.setProperty(cp + "sequence",
+                            ((SequencedPrimaryKeyColumn) column).getSequenceName());
+                } else {
+                    props.setProperty(cp + "kind", "plain");
+                }
+            }
+        }
+        if (table.indexes != null) {
+            props.setProperty(prefix + "indexes", String.valueOf(table.indexes.size()));
+            for (int i = 0; i < table.indexes.size(); i++) {
+                Index index = table.indexes.get(i);
+                String ip = prefix + "index." + i + ".";
+                props.setProperty(ip + "name", index.getIndexName());
+                props.setProperty(ip + "unique", String.valueOf(index.isUnique()));
+                List<String> attributes = index.getAttributes();
+                props.setProperty(ip + "attributes", String.valueOf(attributes.size()));
+                for (int j = 0; j < attributes.size(); j++) {
+                    props.setProperty(ip + "attribute." + j, attributes.get(j));
+                }
+            }
+        }
+    }
+
+    private void read() throws IOException {
+        Properties props = new Properties();
+        try (InputStream is = new FileInputStream(file)) {
+            props.load(is);
+        }
+        if (!String.valueOf(VERSION).equals(props.getProperty("version"))
+                || !identity.equals(props.getProperty("identity"))) {
+            LOGGER.info("The metadata cache " + file + " belongs to a different store or version, "
+                    + "ignoring it");
+            dirty = true;
+            return;
+        }
+        int count = Integer.parseInt(props.getProperty("tables"));
+        for (int t = 0; t < count; t++) {
+            String prefix = "t" + t + ".";
+            String name = props.getProperty(prefix + "name");
+            try {
+                tables.put(name, read(props, prefix, name));
+            } catch (ClassNotFoundException e) {
+                // the table will be looked up again
+                LOGGER.log(Level.FINE, "Could not read the cached metadata of " + name, e);
+                dirty = true;
+            }
+        }
+    }
+
+    private TableMetadata read(Properties props, String prefix, String tableName)
+            throws ClassNotFoundException {
+        TableMetadata table = new TableMetadata();
+        String columns = props.getProperty(prefix + "columns");
+        if (columns != null) {
+            table.columns = new ArrayList<ColumnMetadata>();
+            table.srids = new HashMap<String, Integer>();
+            table.dimensions = new HashMap<String, Integer>();
+            for (int i = 0; i < Integer.parseInt(columns); i++) {
+                String cp = prefix + "column." + i + ".";
+                ColumnMetadata column = new ColumnMetadata();
+                column.name = props.getProperty(cp + "name");
+                String typeName = props.getProperty(cp + "typeName");
+                column.typeName = typeName.isEmpty() ? null : typeName;
+                column.sqlType = Integer.parseInt(props.getProperty(cp + "sqlType"));
+                column.nullable = Boolean.parseBoolean(props.getProperty(cp + "nullable"));
+                String binding = props.getProperty(cp + "binding");
+                if (binding != null) {
+                    column.binding = loadClass(binding);
+                }
+                String srid = props.getProperty(cp + "srid");
+                if (srid != null) {
+                    table.srids.put(column.name, srid.isEmpty() ? null : Integer.valueOf(srid));
+                }
+                String dimension = props.getProperty(cp + "dimension");
+                if (dimension != null) {
+                    table.dimensions.put(column.name, Integer.valueOf(dimension));
+                }
+                table.columns.add(column);
+            }
+        }
+        String pk = props.getProperty(prefix + "pk");
+        if (pk != null) {
+            List<PrimaryKeyColumn> pkColumns = new ArrayList<PrimaryKeyColumn>();
+            for (int i = 0; i < Integer.parseInt(pk); i++) {
+                String cp = prefix + "pk." + i + ".";
+                String name = props.getProperty(cp + "name");
+                Class<?> type = loadClass(props.getProperty(cp + "type"));
+                String kind = props.getProperty(cp + "kind");
+                if ("auto".equals(kind)) {
+                    pkColumns.add(new AutoGeneratedPrimaryKeyColumn(name, type));
+                } else if ("sequence".equals(kind)) {
+                    pkColumns.add(new SequencedPrimaryKeyColumn(name, type,
+                            props.getProperty(cp + "sequence")));
+                } else {
+                    pkColumns.add(new NonIncrementingPrimaryKeyColumn(name, type));
+                }
+            }
+            table.primaryKey = pkColumns.isEmpty() ? new NullPrimaryKey(tableName)
+                    : new PrimaryKey(tableName, pkColumns);
+        }
+        String indexes = props.getProperty(prefix + "indexes");
+        if (indexes != null) {
+            table.indexes = new ArrayList<Index>();
+            for (int i = 0; i < Integer.parseInt(indexes); i++) {
+                String ip = prefix + "index." + i + ".";
+                String[] attributes = new String[Integer.parseInt(props.getProperty(ip
+                        + "attributes"))];
+                for (int j = 0; j < attributes.length; j++) {
+                    attributes[j] = props.getProperty(ip + "attribute." + j);
+                }
+                table.indexes.add(new Index(tableName, props.getProperty(ip + "name"),
+                        Boolean.parseBoolean(props.getProperty(ip + "unique")), attributes));
+            }
+        }
+        return table;
+    }
+
+    static Class<?> loadClass(String name) throws ClassNotFoundException {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader != null) {
+            try {
+                return Class.forName(name, false, loader);
+            } catch (ClassNotFoundException e) {
+                // fall back on our own class loader
+            }
+        }
+        return Class.forName(name, false, MetadataCache.class.getClassLoader());
+    }
+}
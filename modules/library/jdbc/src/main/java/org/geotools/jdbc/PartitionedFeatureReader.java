@@ -0,0 +1,201 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Reads the partitions of a query in parallel, each on its own connection, and merges the
+ * features into a single reader, in no particular order. The partition readers run on the
+ * provided executor and hand over the features through a bounded queue, so that a slow consumer
+ * does not force the whole table into memory.
+ */
+class PartitionedFeatureReader implements FeatureReader<SimpleFeatureType, SimpleFeature> {
+
+    static final Logger LOGGER = Logging.getLogger(PartitionedFeatureReader.class);
+
+    static final int DEFAULT_BUFFER_SIZE = 1000;
+
+    static final Object END = new Object();
+
+    /**
+     * Wraps an exception thrown while reading a partition, to be rethrown by the consumer
+     */
+    static class Failure {
+        final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    final JDBCFeatureSource source;
+
+    final Query query;
+
+    final BlockingQueue<Object> queue;
+
+    final SimpleFeatureType featureType;
+
+    final int partitions;
+
+    int finished;
+
+    Object next;
+
+    volatile boolean closed;
+
+    PartitionedFeatureReader(JDBCFeatureSource source, Query query,
+            List<ReadPartition> partitions, ExecutorService executor, int bufferSize)
+            throws IOException {
+        this.source = source;
+        this.query = query;
+        this.queue = new ArrayBlockingQueue<Object>(bufferSize);
+        this.partitions = partitions.size();
+
+        // the first partition is opened right away to know the returned feature type
+        final FeatureReader<SimpleFeatureType, SimpleFeature> first = source.getReader(query,
+                partitions.get(0));
+        this.featureType = first.getFeatureType();
+        try {
+            executor.execute(() -> read(first, null));
+            for (final ReadPartition partition : partitions.subList(1, partitions.size())) {
+                executor.execute(() -> read(null, partition));
+            }
+        } catch (RejectedExecutionException e) {
+            close();
+            throw new IOException("Could not schedule the partition reads", e);
+        }
+    }
+
+    /**
+     * Reads a partition into the queue, opening the reader if not already available
+     */
+    void read(FeatureReader<SimpleFeatureType, SimpleFeature> reader, ReadPartition partition) {
+        if (closed) {
+            closeSafe(reader);
+            return;
+        }
+        try {
+            if (reader == null) {
+                reader = source.getReader(query, partition);
+            }
+            while (!closed && reader.hasNext()) {
+                if (!offer(reader.next())) {
+                    return;
+                }
+            }
+            offer(END);
+        } catch (Throwable t) {
+            offer(new Failure(t));
+        } finally {
+            closeSafe(reader);
+        }
+    }
+
+    void closeSafe(FeatureReader<SimpleFeatureType, SimpleFeature> reader) {
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to close the partition reader", e);
+            }
+        }
+    }
+
+    /**
+     * Adds to the queue, waiting for room until the reader is closed
+     */
+    private boolean offer(Object item) {
+        try {
+            while (!closed) {
+                if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public SimpleFeatureType getFeatureType() {
+        return featureType;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        if (closed) {
+            throw new IOException("Reader already closed");
+        }
+        while (next == null && finished < partitions) {
+            Object item;
+            try {
+                item = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for features", e);
+            }
+            if (item == END) {
+                finished++;
+            } else if (item instanceof Failure) {
+                finished = partitions;
+                throw new IOException("Failed to read a partition", ((Failure) item).cause);
+            } else {
+                next = item;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public SimpleFeature next() throws IOException, IllegalArgumentException,
+            NoSuchElementException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more features in this reader, you should call "
+                    + "hasNext() to check for feature availability");
+        }
+        SimpleFeature result = (SimpleFeature) next;
+        next = null;
+        return result;
+    }
+
+    /**
+     * Stops the partition reads still running, each closes its own reader and connection
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        queue.clear();
+    }
+}
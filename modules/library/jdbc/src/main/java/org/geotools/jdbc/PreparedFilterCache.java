@@ -0,0 +1,280 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.geotools.data.jdbc.FilterToSQLException;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+/**
+ * Caches the prepared statement encoding of filters, keyed by the filter structure, so that
+ * queries differing only in their literal values (e.g. the BBOX of map tiles, or an attribute
+ * compared against different values) reuse the same SQL and only bind their values. Besides
+ * skipping the filter encoding, this makes the generated SQL stable, so that the prepared
+ * statements pooled by the connection pool get reused.
+ * <p>
+ * Only filters made of logic operators, comparisons, null checks, BBOX and intersects between
+ * attributes and literals are cached. An encoding looking at the literal values (e.g., to clip a
+ * geography BBOX, or to inline values in the SQL) is detected and the filter structure is marked
+ * as not cacheable.
+ */
+public final class PreparedFilterCache {
+
+    /**
+     * The default number of filter structures cached
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    /**
+     * Identifies a filter structure against a table
+     */
+    static final class Key {
+        final Object[] parts;
+
+        final int hash;
+
+        Key(String typeName, String structure) {
+            this.parts = new Object[] { typeName, structure };
+            this.hash = Arrays.hashCode(parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && Arrays.equals(parts, other.parts);
+        }
+
+        @Override
+        public String toString() {
+            return "Key" + Arrays.toString(parts);
+        }
+    }
+
+    /**
+     * The SQL encoding of a filter structure, along with the information needed to bind the
+     * values of another filter with the same structure
+     */
+    static final class Encoding {
+        final SimpleFeatureType schema;
+
+        final String sql;
+
+        /**
+         * The template literal providing each prepared statement parameter
+         */
+        final int[] placeholders;
+
+        /**
+         * The type each literal was evaluated against
+         */
+        final Class[] targets;
+
+        /**
+         * The class of the evaluated literals, values of a different class might need a different
+         * encoding
+         */
+        final Class[] valueClasses;
+
+        final Integer[] SRIDs;
+
+        final Integer[] dimensions;
+
+        private Encoding() {
+            this.schema = null;
+            this.sql = null;
+            this.placeholders = new int[0];
+            this.targets = new Class[0];
+            this.valueClasses = new Class[0];
+            this.SRIDs = new Integer[0];
+            this.dimensions = new Integer[0];
+        }
+
+        Encoding(SimpleFeatureType schema, String sql, PreparedFilterToSQL toSQL) {
+            this.schema = schema;
+            this.sql = sql;
+            int size = toSQL.getLiteralValues().size();
+            this.placeholders = new int[size];
+            this.targets = new Class[size];
+            this.valueClasses = new Class[size];
+            this.SRIDs = new Integer[size];
+            this.dimensions = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                placeholders[i] = toSQL.placeholders.get(i);
+                targets[i] = toSQL.placeholderTargets.get(i);
+                Object value = toSQL.getLiteralValues().get(i);
+                valueClasses[i] = value != null ? value.getClass() : null;
+                SRIDs[i] = toSQL.getSRIDs().get(i);
+                dimensions[i] = toSQL.getDimensions().get(i);
+            }
+        }
+    }
+
+    /**
+     * Marks the filter structures whose encoding depends on the literal values
+     */
+    static final Encoding UNCACHEABLE = new Encoding();
+
+    final int maxEntries;
+
+    final LinkedHashMap<Key, Encoding> encodings = new LinkedHashMap<Key, Encoding>(64, 0.75f,
+            true);
+
+    long hits;
+
+    long misses;
+
+    long uncacheable;
+
+    public PreparedFilterCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Builds a cache holding at most the specified number of filter structures
+     *
+     * @param maxEntries
+     */
+    public PreparedFilterCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("The cache size must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Appends the encoding of the filter to the SQL, reusing the cached one if possible, and
+     * returns the encoder holding the values to be bound. Returns null, without touching the SQL,
+     * if the filter cannot be encoded from the cache, in which case it has to be encoded the
+     * usual way.
+     */
+    PreparedFilterToSQL encode(JDBCDataStore store, SimpleFeatureType schema, Filter filter,
+            StringBuffer sql) throws FilterToSQLException {
+        FilterTemplate template = FilterTemplate.build(filter);
+        if (template == null) {
+            synchronized (this) {
+                uncacheable++;
+            }
+            return null;
+        }
+
+        Key key = new Key(schema.getTypeName(), template.getStructure());
+        Encoding encoding;
+        synchronized (this) {
+            encoding = encodings.get(key);
+            if (encoding == UNCACHEABLE) {
+                uncacheable++;
+                return null;
+            }
+        }
+        if (encoding != null && encoding.schema == schema) {
+            PreparedFilterToSQL toSQL = store.createPreparedFilterToSQL(schema);
+            if (toSQL.bind(encoding, template.getLiterals())) {
+                synchronized (this) {
+                    hits++;
+                }
+                sql.append(encoding.sql);
+                return toSQL;
+            }
+        }
+
+        // encode the filter with placeholders, checking the encoding does not depend on values
+        PreparedFilterToSQL toSQL = store.createPreparedFilterToSQL(schema);
+        toSQL.setInline(true);
+        Filter placeholders = template.toPlaceholders(filter);
+        String encoded = " " + toSQL.encodeToString(placeholders);
+        boolean cacheable = !template.isInspected()
+                && toSQL.placeholders.size() == toSQL.getLiteralValues().size()
+                && !toSQL.placeholders.contains(-1);
+        synchronized (this) {
+            misses++;
+            if (cacheable) {
+                put(key, new Encoding(schema, encoded, toSQL));
+            } else {
+                put(key, UNCACHEABLE);
+            }
+        }
+        if (!cacheable) {
+            return null;
+        }
+        sql.append(encoded);
+        return toSQL;
+    }
+
+    private void put(Key key, Encoding encoding) {
+        encodings.put(key, encoding);
+        if (encodings.size() > maxEntries) {
+            Iterator<Key> it = encodings.keySet().iterator();
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Removes all the encodings from the cache, and resets the statistics
+     */
+    public synchronized void clear() {
+        encodings.clear();
+        hits = 0;
+        misses = 0;
+        uncacheable = 0;
+    }
+
+    /**
+     * The number of filter structures in the cache
+     */
+    public synchronized int size() {
+        return encodings.size();
+    }
+
+    /**
+     * The number of filters encoded by reusing a cached encoding
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * The number of filters whose structure had to be encoded
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The number of filters that could not be encoded from the cache, because of their
+     * structure, or because their encoding depends on the literal values
+     */
+    public synchronized long getUncacheable() {
+        return uncacheable;
+    }
+}
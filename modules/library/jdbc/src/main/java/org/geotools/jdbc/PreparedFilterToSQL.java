@@ -57,6 +57,13 @@ public class PreparedFilterToSQL extends FilterToSQL {
     protected PreparedStatementSQLDialect dialect;
     boolean prepareEnabled = true;
     
+    /**
+     * For each literal value, the index of the {@link FilterTemplate} placeholder it comes from,
+     * or -1, and the target type it was evaluated against
+     */
+    List<Integer> placeholders = new ArrayList<Integer>();
+    List<Class> placeholderTargets = new ArrayList<Class>();
+    
     /**
      * Default constructor
      * @deprecated Use {@link PreparedFilterToSQL(PreparedStatementSQLDialect)} instead
@@ -96,8 +103,20 @@ public class PreparedFilterToSQL extends FilterToSQL {
         if(!prepareEnabled)
             return super.visit(expression, context);
         
+        // track the placeholders of filter templates, unwrapping them so that
+        // the evaluation below is not mistaken for a value dependent encoding
+        Class target = context instanceof Class ? (Class) context : null;
+        if (expression instanceof FilterTemplate.Placeholder) {
+            FilterTemplate.Placeholder placeholder = (FilterTemplate.Placeholder) expression;
+            placeholders.add(placeholder.index);
+            expression = placeholder.literal;
+        } else {
+            placeholders.add(-1);
+        }
+        placeholderTargets.add(target);
+        
         // evaluate the literal and store it for later
-        Object literalValue = evaluateLiteral( expression, (context instanceof Class ? (Class) context : null) );
+        Object literalValue = evaluateLiteral( expression, target );
         literalValues.add(literalValue);
         SRIDs.add(currentSRID);
         dimensions.add(currentDimension);
@@ -197,6 +216,27 @@ public class PreparedFilterToSQL extends FilterToSQL {
         return extraData;
     }
     
+    /**
+     * Fills the literal values with the ones of a filter sharing the structure of the one 
+     * encoded by the cached encoding, returns false if the values cannot be used with the 
+     * cached SQL (e.g., they convert to a different type)
+     */
+    boolean bind(PreparedFilterCache.Encoding encoding, List<Literal> literals) {
+        for (int i = 0; i < encoding.placeholders.length; i++) {
+            Literal literal = literals.get(encoding.placeholders[i]);
+            Object value = evaluateLiteral(literal, encoding.targets[i]);
+            Class valueClass = value != null ? value.getClass() : null;
+            if (valueClass != encoding.valueClasses[i]) {
+                return false;
+            }
+            literalValues.add(value);
+            literalTypes.add(encoding.targets[i] != null ? encoding.targets[i] : valueClass);
+            SRIDs.add(encoding.SRIDs[i]);
+            dimensions.add(encoding.dimensions[i]);
+        }
+        return true;
+    }
+    
     public List<Object> getLiteralValues() {
         return literalValues;
     }
@@ -0,0 +1,167 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.geotools.factory.Hints;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.GeometryDescriptor;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A slice of a table, read with its own query and connection, see
+ * {@link JDBCFeatureSource#getPartitions(org.geotools.data.Query, int, Strategy)}. The partitions
+ * of a table do not overlap and together cover all of its rows.
+ */
+public final class ReadPartition {
+
+    /**
+     * How the table is split
+     */
+    public enum Strategy {
+        /**
+         * Ranges of values of a single column, integral primary key
+         */
+        PRIMARY_KEY,
+        /**
+         * Ranges of the database pages storing the table, see
+         * {@link SQLDialect#getPhysicalPageCount(String, String, java.sql.Connection)}
+         */
+        PHYSICAL,
+        /**
+         * Cells of a regular grid over the bounds of the default geometry, each feature falls in
+         * the cell containing the lower left corner of its envelope, features without geometry
+         * in an extra partition
+         */
+        SPATIAL_GRID
+    }
+
+    /**
+     * Query hint used to pass the partition to the feature source
+     */
+    static final Hints.Key PARTITION = new Hints.Key(ReadPartition.class);
+
+    final Strategy strategy;
+
+    final int index;
+
+    final int count;
+
+    /**
+     * Inclusive lower bound, or null if open, for the range strategies
+     */
+    final Object lower;
+
+    /**
+     * Exclusive upper bound, or null if open, for the range strategies
+     */
+    final Object upper;
+
+    /**
+     * The geometry attribute, for the spatial grid
+     */
+    final String geometryName;
+
+    /**
+     * The grid cell, null for the partition of the features without a geometry
+     */
+    final Envelope cell;
+
+    final boolean lastColumn;
+
+    final boolean lastRow;
+
+    ReadPartition(Strategy strategy, int index, int count, Object lower, Object upper) {
+        this(strategy, index, count, lower, upper, null, null, false, false);
+    }
+
+    ReadPartition(int index, int count, String geometryName, Envelope cell, boolean lastColumn,
+            boolean lastRow) {
+        this(Strategy.SPATIAL_GRID, index, count, null, null, geometryName, cell, lastColumn,
+                lastRow);
+    }
+
+    private ReadPartition(Strategy strategy, int index, int count, Object lower, Object upper,
+            String geometryName, Envelope cell, boolean lastColumn, boolean lastRow) {
+        this.strategy = strategy;
+        this.index = index;
+        this.count = count;
+        this.lower = lower;
+        this.upper = upper;
+        this.geometryName = geometryName;
+        this.cell = cell;
+        this.lastColumn = lastColumn;
+        this.lastRow = lastRow;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * The position of this partition in the list of the table partitions
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * The number of partitions the table has been split into
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Encodes the predicate selecting the rows of this partition
+     */
+    void encode(JDBCDataStore store, SimpleFeatureType featureType, String prefix,
+            List<Object> bindings, StringBuffer sql) throws IOException {
+        SQLDialect dialect = store.getSQLDialect();
+        switch (strategy) {
+        case PRIMARY_KEY:
+            PrimaryKeyColumn column = store.getPrimaryKey(featureType).getColumns().get(0);
+            dialect.encodeKeyRangePredicate(prefix, column, lower, upper, bindings, sql);
+            break;
+        case PHYSICAL:
+            dialect.encodePhysicalRangePredicate(prefix, (Long) lower, (Long) upper, sql);
+            break;
+        case SPATIAL_GRID:
+            SimpleFeatureType schema = store.getSchema(featureType.getTypeName());
+            GeometryDescriptor geometry = (GeometryDescriptor) schema.getDescriptor(geometryName);
+            Integer srid = (Integer) geometry.getUserData().get(JDBCDataStore.JDBC_NATIVE_SRID);
+            dialect.encodeGridCellPredicate(prefix, geometry, srid != null ? srid : -1, cell,
+                    lastColumn, lastRow, sql);
+            break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ReadPartition[").append(strategy).append(" ")
+                .append(index + 1).append("/").append(count);
+        if (strategy == Strategy.SPATIAL_GRID) {
+            sb.append(", ").append(cell != null ? cell : "no geometry");
+        } else {
+            sb.append(", [").append(lower).append(", ").append(upper).append(")");
+        }
+        return sb.append("]").toString();
+    }
+}
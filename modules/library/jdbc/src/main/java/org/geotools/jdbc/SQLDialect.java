@@ -38,9 +38,13 @@ import java.util.logging.Logger;
 import org.geotools.data.Join.Type;
 import org.geotools.data.Query;
 import org.geotools.factory.Hints;
+import org.geotools.feature.visitor.AverageVisitor;
 import org.geotools.feature.visitor.CountVisitor;
 import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MedianVisitor;
 import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.QuantileListVisitor;
+import org.geotools.feature.visitor.StandardDeviationVisitor;
 import org.geotools.feature.visitor.SumVisitor;
 import org.geotools.feature.visitor.UniqueVisitor;
 import org.geotools.filter.FilterCapabilities;
@@ -379,7 +383,9 @@ public abstract class SQLDialect {
      * <li>{@link MinVisitor} -> "min" <li>
      * <li>{@link SumVisitor} -> "sum" <li>
      *  </ul>
-     *  Subclasses should extend (not override) to provide additional functions.
+     *  Subclasses should extend (not override) to provide additional functions, the store
+     *  also knows how to set the results of {@link AverageVisitor}, {@link MedianVisitor} (numeric
+     *  expressions only) and {@link StandardDeviationVisitor}, both standalone and grouped.
      * </p>
      */
     public void registerAggregateFunctions(Map<Class<? extends FeatureVisitor>,String> aggregates) {
@@ -390,6 +396,29 @@ public abstract class SQLDialect {
         aggregates.put( MaxVisitor.class, "max");
         aggregates.put( SumVisitor.class, "sum");
     }
+
+    /**
+     * Encodes the call to an aggregate function registered in
+     * {@link #registerAggregateFunctions(Map)} over an already encoded expression. The default
+     * implementation writes <code>function(expression)</code>, dialects registering functions
+     * with a different syntax (e.g., ordered set aggregates such as percentiles) should override.
+     *
+     * @param function The function name, as registered
+     * @param expression The encoded aggregation source
+     * @param sql The buffer to append to
+     */
+    public void encodeAggregateFunctionCall(String function, String expression, StringBuffer sql) {
+        sql.append(function).append("(").append(expression).append(")");
+    }
+
+    /**
+     * Returns true if the dialect can read the sorted values of an expression to compute a
+     * {@link QuantileListVisitor} classification, sparing the transfer of all the other
+     * attributes and the sort in memory. Defaults to false.
+     */
+    public boolean isQuantileListSupported() {
+        return false;
+    }
     
     /**
      * Register the dialect mappings between Geotools FilterFunction names and database
@@ -617,6 +646,25 @@ public abstract class SQLDialect {
         return 2;
     }
     
+    /**
+     * Returns the metadata of all the registered geometry columns in the schema, read with a
+     * single catalog query, as a map from table name to column name to the column metadata. The
+     * metadata provides the geometry binding, the native srid and the dimension, when known.
+     * Used to bulk load the {@link MetadataCache}, returns <code>null</code> by default, meaning
+     * the geometry columns are looked up one by one.
+     * <p>
+     * This method is given a direct connection to the database. The connection
+     * must not be closed. However any statements or result sets instantiated
+     * from the connection must be closed.
+     * </p>
+     * @param cx The database connection.
+     * @param schemaName The database schema, could be <code>null</code>.
+     */
+    public Map<String, Map<String, ColumnMetadata>> getGeometryColumnMetadata(Connection cx,
+            String schemaName) throws SQLException {
+        return null;
+    }
+    
     /**
      * Turns the specified srid into a {@link CoordinateReferenceSystem}, or returns <code>null</code> if not possible.
      * <p>
@@ -1262,6 +1310,217 @@ public abstract class SQLDialect {
     public void applyLimitOffset(StringBuffer sql, int limit, int offset) {
         throw new UnsupportedOperationException("Ovveride this method when isLimitOffsetSupported returns true");
     }
+
+    /**
+     * Returns true if this dialect can page through a table by seeking on its primary key, that is,
+     * if it can encode {@link #encodeKeysetPredicate} and the primary key comparison can use an
+     * index. Used by the data store when keyset pagination is enabled.
+     */
+    public boolean isKeysetPaginationSupported() {
+        return false;
+    }
+
+    /**
+     * Encodes a predicate selecting the rows whose primary key follows the last key of the
+     * previous page, comparing the key columns in order. The default implementation expands the
+     * comparison into <code>k1 &gt; v1 OR (k1 = v1 AND k2 &gt; v2) ...</code>, databases supporting
+     * row value comparisons can override it to emit <code>(k1, k2) &gt; (v1, v2)</code> instead.
+     *
+     * @param prefix The table alias, or null
+     * @param key The primary key
+     * @param lastKey The values of the primary key of the last row of the previous page
+     * @param bindings The values to be bound to the prepared statement, see
+     *        {@link #encodeKeysetValue(Object, Class, List, StringBuffer)}
+     * @param sql The buffer to append the predicate to
+     */
+    public void encodeKeysetPredicate(String prefix, PrimaryKey key, List<Object> lastKey,
+            List<Object> bindings, StringBuffer sql) {
+        List<PrimaryKeyColumn> columns = key.getColumns();
+        sql.append("(");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(" OR ");
+            }
+            sql.append("(");
+            for (int j = 0; j < i; j++) {
+                encodeColumnName(prefix, columns.get(j).getName(), sql);
+                sql.append(" = ");
+                encodeKeysetValue(lastKey.get(j), columns.get(j).getType(), bindings, sql);
+                sql.append(" AND ");
+            }
+            encodeColumnName(prefix, columns.get(i).getName(), sql);
+            sql.append(" > ");
+            encodeKeysetValue(lastKey.get(i), columns.get(i).getType(), bindings, sql);
+            sql.append(")");
+        }
+        sql.append(")");
+    }
+
+    /**
+     * Encodes the keyset pagination predicate as a row value comparison,
+     * <code>(k1, k2) &gt; (v1, v2)</code>, for databases supporting it, see
+     * {@link #encodeKeysetPredicate(String, PrimaryKey, List, List, StringBuffer)}
+     */
+    protected void encodeKeysetRowComparison(String prefix, PrimaryKey key, List<Object> lastKey,
+            List<Object> bindings, StringBuffer sql) {
+        List<PrimaryKeyColumn> columns = key.getColumns();
+        sql.append("(");
+        for (int i = 0; i < columns.size(); i++) {
+            encodeColumnName(prefix, columns.get(i).getName(), sql);
+            sql.append(i < columns.size() - 1 ? ", " : ") > (");
+        }
+        for (int i = 0; i < columns.size(); i++) {
+            encodeKeysetValue(lastKey.get(i), columns.get(i).getType(), bindings, sql);
+            sql.append(i < columns.size() - 1 ? ", " : ")");
+        }
+    }
+
+    /**
+     * Encodes the predicate selecting the rows of a {@link ReadPartition.Strategy#PRIMARY_KEY}
+     * partition, whose key falls between the specified bounds. Either bound can be null, meaning
+     * the range is open on that side.
+     *
+     * @param prefix The table alias, or null
+     * @param column The primary key column, of integral type
+     * @param lower The inclusive lower bound, or null
+     * @param upper The exclusive upper bound, or null
+     * @param bindings The values to be bound to the prepared statement
+     * @param sql The buffer to append the predicate to
+     */
+    public void encodeKeyRangePredicate(String prefix, PrimaryKeyColumn column, Object lower,
+            Object upper, List<Object> bindings, StringBuffer sql) {
+        if (lower == null && upper == null) {
+            sql.append("1 = 1");
+            return;
+        }
+        if (lower != null) {
+            encodeColumnName(prefix, column.getName(), sql);
+            sql.append(" >= ");
+            encodeKeysetValue(lower, column.getType(), bindings, sql);
+        }
+        if (upper != null) {
+            if (lower != null) {
+                sql.append(" AND ");
+            }
+            encodeColumnName(prefix, column.getName(), sql);
+            sql.append(" < ");
+            encodeKeysetValue(upper, column.getType(), bindings, sql);
+        }
+    }
+
+    /**
+     * Returns true if this dialect can split a table in ranges of the pages storing it, see
+     * {@link #getPhysicalPageCount(String, String, Connection)} and
+     * {@link #encodePhysicalRangePredicate(String, Long, Long, StringBuffer)}
+     */
+    public boolean isPhysicalPartitioningSupported() {
+        return false;
+    }
+
+    /**
+     * Returns the number of pages storing the table, or null if unknown
+     */
+    public Long getPhysicalPageCount(String schemaName, String tableName, Connection cx)
+            throws SQLException {
+        return null;
+    }
+
+    /**
+     * Encodes the predicate selecting the rows stored in the specified range of pages
+     *
+     * @param prefix The table alias, or null
+     * @param firstPage The first page, inclusive, or null if the range is open
+     * @param lastPage The last page, exclusive, or null if the range is open
+     * @param sql The buffer to append the predicate to
+     */
+    public void encodePhysicalRangePredicate(String prefix, Long firstPage, Long lastPage,
+            StringBuffer sql) {
+        throw new UnsupportedOperationException(
+                "Override this method when isPhysicalPartitioningSupported returns true");
+    }
+
+    /**
+     * Returns true if this dialect can select the features falling in a cell of a regular grid,
+     * see {@link #encodeGridCellPredicate}
+     */
+    public boolean isGridPartitioningSupported() {
+        return false;
+    }
+
+    /**
+     * Encodes the predicate selecting the features whose envelope lower left corner falls in the
+     * specified grid cell. The cells are closed on the lower sides and open on the upper ones,
+     * but for the last column and row, so that each feature falls in exactly one cell.
+     *
+     * @param prefix The table alias, or null
+     * @param geometry The geometry attribute
+     * @param srid The native srid of the geometry attribute, or -1 if unknown
+     * @param cell The grid cell, or null to select the features without a geometry
+     * @param lastColumn True if the cell is in the last grid column
+     * @param lastRow True if the cell is in the last grid row
+     * @param sql The buffer to append the predicate to
+     */
+    public void encodeGridCellPredicate(String prefix, GeometryDescriptor geometry, int srid,
+            Envelope cell, boolean lastColumn, boolean lastRow, StringBuffer sql) {
+        throw new UnsupportedOperationException(
+                "Override this method when isGridPartitioningSupported returns true");
+    }
+
+    /**
+     * Returns true if this dialect can build Mapbox Vector Tiles in the database, see
+     * {@link #encodeVectorTileGeometry} and {@link #encodeVectorTileAggregate}
+     */
+    public boolean isVectorTileSupported() {
+        return false;
+    }
+
+    /**
+     * Encodes the expression clipping a geometry on the tile bounds, expanded by the buffer, and
+     * moving it into the tile coordinate space. The expression must return null for the
+     * geometries that collapse or fall outside of the tile.
+     *
+     * @param geometry The geometry attribute
+     * @param srid The native srid of the geometry attribute
+     * @param tileSrid The srid of the tile bounds, the geometries must be reprojected if it
+     *        differs from the native one
+     * @param tile The tile bounds
+     * @param extent The tile size in tile coordinates
+     * @param buffer The clipping buffer around the tile, in tile coordinates
+     * @param sql The buffer to append the expression to
+     */
+    public void encodeVectorTileGeometry(GeometryDescriptor geometry, int srid, int tileSrid,
+            Envelope tile, int extent, int buffer, StringBuffer sql) {
+        throw new UnsupportedOperationException(
+                "Override this method when isVectorTileSupported returns true");
+    }
+
+    /**
+     * Encodes the aggregate building a vector tile layer out of the rows of a sub query, each
+     * row holding the tile geometry, as encoded by {@link #encodeVectorTileGeometry}, and the
+     * feature attributes.
+     *
+     * @param alias The sub query alias
+     * @param layerName The name of the tile layer
+     * @param geometryColumn The name of the tile geometry column in the sub query
+     * @param extent The tile size in tile coordinates
+     * @param sql The buffer to append the aggregate to
+     */
+    public void encodeVectorTileAggregate(String alias, String layerName, String geometryColumn,
+            int extent, StringBuffer sql) {
+        throw new UnsupportedOperationException(
+                "Override this method when isVectorTileSupported returns true");
+    }
+
+    /**
+     * Encodes a primary key value in the keyset pagination and key range predicates. The default implementation
+     * writes a parameter placeholder and adds the value to the bindings, dialects not using
+     * prepared statements encode the value as a literal instead.
+     */
+    protected void encodeKeysetValue(Object value, Class<?> binding, List<Object> bindings,
+            StringBuffer sql) {
+        bindings.add(value);
+        sql.append("?");
+    }
     
     /**
      * Add hints to the JDBC Feature Source. A subclass 
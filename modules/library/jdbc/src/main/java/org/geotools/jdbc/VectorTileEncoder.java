@@ -0,0 +1,465 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.geometry.jts.GeometryClipper;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Encodes features as a Mapbox Vector Tile (version 2 of the specification), the same way
+ * PostGIS ST_AsMVTGeom and ST_AsMVT do: geometries are clipped on the tile bounds, expanded by
+ * a buffer, moved into the tile integer coordinate space, with the y axis pointing down, and
+ * written along with their attributes in the protocol buffers format.
+ * <p>
+ * Used by {@link JDBCFeatureSource#getVectorTile} when the database cannot build the tile
+ * itself. Geometries must be expressed in the same coordinate reference system as the tile
+ * bounds. The encoder is not thread safe.
+ */
+public class VectorTileEncoder {
+
+    /**
+     * The default tile extent, in tile coordinates
+     */
+    public static final int DEFAULT_EXTENT = 4096;
+
+    /**
+     * The default clipping buffer around the tile, in tile coordinates
+     */
+    public static final int DEFAULT_BUFFER = 256;
+
+    static final int VERSION = 2;
+
+    static final int MOVE_TO = 1;
+
+    static final int LINE_TO = 2;
+
+    static final int CLOSE_PATH = 7;
+
+    static final int POINT = 1;
+
+    static final int LINESTRING = 2;
+
+    static final int POLYGON = 3;
+
+    /**
+     * A layer, with its features and the dictionaries of the attribute keys and values
+     */
+    static final class Layer {
+        final String name;
+
+        final List<byte[]> features = new ArrayList<byte[]>();
+
+        final Map<String, Integer> keys = new LinkedHashMap<String, Integer>();
+
+        final Map<Object, Integer> values = new LinkedHashMap<Object, Integer>();
+
+        Layer(String name) {
+            this.name = name;
+        }
+    }
+
+    final Envelope tile;
+
+    final int extent;
+
+    final GeometryClipper clipper;
+
+    final double scaleX;
+
+    final double scaleY;
+
+    final Map<String, Layer> layers = new LinkedHashMap<String, Layer>();
+
+    /**
+     * Builds an encoder with the {@link #DEFAULT_EXTENT} and {@link #DEFAULT_BUFFER}
+     */
+    public VectorTileEncoder(Envelope tile) {
+        this(tile, DEFAULT_EXTENT, DEFAULT_BUFFER);
+    }
+
+    /**
+     * Builds an encoder for the specified tile
+     * 
+     * @param tile The tile bounds
+     * @param extent The tile size in tile coordinates
+     * @param buffer The size of the area around the tile where the geometries are kept, in tile
+     *        coordinates
+     */
+    public VectorTileEncoder(Envelope tile, int extent, int buffer) {
+        if (tile == null || tile.isNull() || tile.getWidth() <= 0 || tile.getHeight() <= 0) {
+            throw new IllegalArgumentException("The tile bounds must have a positive area");
+        }
+        if (extent <= 0 || buffer < 0) {
+            throw new IllegalArgumentException(
+                    "The tile extent must be positive and the buffer not negative");
+        }
+        this.tile = tile;
+        this.extent = extent;
+        this.scaleX = extent / tile.getWidth();
+        this.scaleY = extent / tile.getHeight();
+        this.clipper = new GeometryClipper(getClipBounds(tile, extent, buffer));
+    }
+
+    /**
+     * Returns the tile bounds expanded by the buffer, the buffer being expressed in tile
+     * coordinates
+     */
+    static Envelope getClipBounds(Envelope tile, int extent, int buffer) {
+        Envelope bounds = new Envelope(tile);
+        bounds.expandBy(buffer * tile.getWidth() / extent, buffer * tile.getHeight() / extent);
+        return bounds;
+    }
+
+    /**
+     * Adds a feature to the specified layer, the layer is created if missing. Features whose
+     * geometry falls outside of the buffered tile, or collapses once moved to tile coordinates,
+     * are skipped. Null attribute values are omitted, values other than strings, numbers and
+     * booleans are written as strings.
+     * 
+     * @return true if the feature was added to the tile
+     */
+    public boolean addFeature(String layerName, Geometry geometry, Map<String, ?> attributes) {
+        Geometry clipped = clipper.clipSafe(geometry, false, 0);
+        if (clipped == null || clipped.isEmpty()) {
+            return false;
+        }
+        if (clipped.getClass() == GeometryCollection.class) {
+            // a tile feature has a single geometry type, split the collection
+            boolean added = false;
+            for (int i = 0; i < clipped.getNumGeometries(); i++) {
+                added |= addFeature(layerName, clipped.getGeometryN(i), attributes);
+            }
+            return added;
+        }
+
+        List<Integer> commands = new ArrayList<Integer>();
+        int type = encodeGeometry(clipped, commands);
+        if (type == 0) {
+            return false;
+        }
+
+        Layer layer = layers.get(layerName);
+        if (layer == null) {
+            layer = new Layer(layerName);
+            layers.put(layerName, layer);
+        }
+        List<Integer> tags = new ArrayList<Integer>();
+        if (attributes != null) {
+            for (Map.Entry<String, ?> entry : attributes.entrySet()) {
+                Object value = normalize(entry.getValue());
+                if (value == null) {
+                    continue;
+                }
+                tags.add(index(layer.keys, entry.getKey()));
+                tags.add(index(layer.values, value));
+            }
+        }
+
+        Output feature = new Output();
+        if (!tags.isEmpty()) {
+            feature.writePacked(2, tags);
+        }
+        feature.writeVarint(3, type);
+        feature.writePacked(4, commands);
+        layer.features.add(feature.toByteArray());
+        return true;
+    }
+
+    private static <T> int index(Map<T, Integer> dictionary, T item) {
+        Integer index = dictionary.get(item);
+        if (index == null) {
+            index = dictionary.size();
+            dictionary.put(item, index);
+        }
+        return index;
+    }
+
+    /**
+     * Maps the attribute values to the types the format can represent
+     */
+    static Object normalize(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean
+                || value instanceof Double || value instanceof Float) {
+            return value;
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            return ((Number) value).longValue();
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+            return ((BigInteger) value).longValue();
+        } else if (value instanceof BigDecimal || value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return value.toString();
+    }
+
+    /**
+     * Encodes the geometry commands, returns the geometry type, or 0 if the geometry collapsed
+     */
+    int encodeGeometry(Geometry geometry, List<Integer> commands) {
+        int[] cursor = new int[2];
+        if (geometry instanceof Point || geometry instanceof MultiPoint) {
+            List<int[]> points = new ArrayList<int[]>();
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                Coordinate c = geometry.getGeometryN(i).getCoordinate();
+                if (c != null) {
+                    points.add(toTile(c.x, c.y));
+                }
+            }
+            if (points.isEmpty()) {
+                return 0;
+            }
+            commands.add(command(MOVE_TO, points.size()));
+            for (int[] point : points) {
+                moveCursor(point, cursor, commands);
+            }
+            return POINT;
+        } else if (geometry instanceof LineString || geometry instanceof MultiLineString) {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                LineString line = (LineString) geometry.getGeometryN(i);
+                List<int[]> points = toTile(line.getCoordinateSequence());
+                if (points.size() >= 2) {
+                    encodePath(points, false, cursor, commands);
+                }
+            }
+            return commands.isEmpty() ? 0 : LINESTRING;
+        } else if (geometry instanceof Polygon || geometry instanceof MultiPolygon) {
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                Polygon polygon = (Polygon) geometry.getGeometryN(i);
+                List<int[]> shell = toRing(polygon.getExteriorRing(), true);
+                if (shell == null) {
+                    continue;
+                }
+                encodePath(shell, true, cursor, commands);
+                for (int j = 0; j < polygon.getNumInteriorRing(); j++) {
+                    List<int[]> hole = toRing(polygon.getInteriorRingN(j), false);
+                    if (hole != null) {
+                        encodePath(hole, true, cursor, commands);
+                    }
+                }
+            }
+            return commands.isEmpty() ? 0 : POLYGON;
+        }
+        return 0;
+    }
+
+    /**
+     * Moves a ring to tile coordinates, without the closing point, and with the winding order
+     * the format requires (exterior rings have a positive area, holes a negative one). Returns
+     * null if the ring collapsed.
+     */
+    List<int[]> toRing(LineString ring, boolean exterior) {
+        List<int[]> points = toTile(ring.getCoordinateSequence());
+        if (points.size() > 1 && equals(points.get(0), points.get(points.size() - 1))) {
+            points.remove(points.size() - 1);
+        }
+        if (points.size() < 3) {
+            return null;
+        }
+        long area = 0;
+        for (int i = 0; i < points.size(); i++) {
+            int[] p1 = points.get(i);
+            int[] p2 = points.get((i + 1) % points.size());
+            area += (long) p1[0] * p2[1] - (long) p2[0] * p1[1];
+        }
+        if (area == 0) {
+            return null;
+        }
+        if ((area > 0) != exterior) {
+            // reverse, keeping the same start point
+            List<int[]> reversed = new ArrayList<int[]>(points.size());
+            reversed.add(points.get(0));
+            for (int i = points.size() - 1; i > 0; i--) {
+                reversed.add(points.get(i));
+            }
+            points = reversed;
+        }
+        return points;
+    }
+
+    void encodePath(List<int[]> points, boolean closed, int[] cursor, List<Integer> commands) {
+        commands.add(command(MOVE_TO, 1));
+        moveCursor(points.get(0), cursor, commands);
+        commands.add(command(LINE_TO, points.size() - 1));
+        for (int i = 1; i < points.size(); i++) {
+            moveCursor(points.get(i), cursor, commands);
+        }
+        if (closed) {
+            commands.add(command(CLOSE_PATH, 1));
+        }
+    }
+
+    private static void moveCursor(int[] point, int[] cursor, List<Integer> commands) {
+        commands.add(zigZag(point[0] - cursor[0]));
+        commands.add(zigZag(point[1] - cursor[1]));
+        cursor[0] = point[0];
+        cursor[1] = point[1];
+    }
+
+    /**
+     * Moves the coordinates to tile space, removing the consecutive duplicates
+     */
+    List<int[]> toTile(CoordinateSequence cs) {
+        List<int[]> points = new ArrayList<int[]>(cs.size());
+        int[] last = null;
+        for (int i = 0; i < cs.size(); i++) {
+            int[] point = toTile(cs.getX(i), cs.getY(i));
+            if (last == null || !equals(last, point)) {
+                points.add(point);
+                last = point;
+            }
+        }
+        return points;
+    }
+
+    int[] toTile(double x, double y) {
+        return new int[] { (int) Math.round((x - tile.getMinX()) * scaleX),
+                (int) Math.round((tile.getMaxY() - y) * scaleY) };
+    }
+
+    private static boolean equals(int[] p1, int[] p2) {
+        return p1[0] == p2[0] && p1[1] == p2[1];
+    }
+
+    static int command(int id, int count) {
+        return (id & 0x7) | (count << 3);
+    }
+
+    static int zigZag(int n) {
+        return (n << 1) ^ (n >> 31);
+    }
+
+    /**
+     * Returns true if no feature has been added to the tile
+     */
+    public boolean isEmpty() {
+        return layers.isEmpty();
+    }
+
+    /**
+     * Returns the encoded tile, an empty array if no feature was added
+     */
+    public byte[] encode() {
+        Output tileOutput = new Output();
+        for (Layer layer : layers.values()) {
+            Output output = new Output();
+            output.writeVarint(15, VERSION);
+            output.writeString(1, layer.name);
+            for (byte[] feature : layer.features) {
+                output.writeBytes(2, feature);
+            }
+            for (String key : layer.keys.keySet()) {
+                output.writeString(3, key);
+            }
+            for (Object value : layer.values.keySet()) {
+                output.writeBytes(4, encodeValue(value));
+            }
+            output.writeVarint(5, extent);
+            tileOutput.writeBytes(3, output.toByteArray());
+        }
+        return tileOutput.toByteArray();
+    }
+
+    static byte[] encodeValue(Object value) {
+        Output output = new Output();
+        if (value instanceof String) {
+            output.writeString(1, (String) value);
+        } else if (value instanceof Float) {
+            output.writeTag(2, 5);
+            int bits = Float.floatToIntBits((Float) value);
+            for (int i = 0; i < 4; i++) {
+                output.write((bits >>> (8 * i)) & 0xFF);
+            }
+        } else if (value instanceof Double) {
+            output.writeTag(3, 1);
+            long bits = Double.doubleToLongBits((Double) value);
+            for (int i = 0; i < 8; i++) {
+                output.write((int) ((bits >>> (8 * i)) & 0xFF));
+            }
+        } else if (value instanceof Long) {
+            long l = (Long) value;
+            if (l >= 0) {
+                output.writeVarint(5, l);
+            } else {
+                output.writeVarint(6, (l << 1) ^ (l >> 63));
+            }
+        } else {
+            output.writeVarint(7, ((Boolean) value) ? 1 : 0);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Minimal protocol buffers writer
+     */
+    static final class Output extends ByteArrayOutputStream {
+
+        void writeTag(int field, int wireType) {
+            writeRawVarint((field << 3) | wireType);
+        }
+
+        void writeRawVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeVarint(int field, long value) {
+            writeTag(field, 0);
+            writeRawVarint(value);
+        }
+
+        void writeBytes(int field, byte[] bytes) {
+            writeTag(field, 2);
+            writeRawVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeString(int field, String value) {
+            writeBytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void writePacked(int field, List<Integer> values) {
+            Output packed = new Output();
+            for (Integer value : values) {
+                packed.writeRawVarint(value & 0xFFFFFFFFL);
+            }
+            writeBytes(field, packed.toByteArray());
+        }
+    }
+}
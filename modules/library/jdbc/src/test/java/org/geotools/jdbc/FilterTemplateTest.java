@@ -0,0 +1,87 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.junit.Test;
+import org.opengis.filter.And;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.spatial.BBOX;
+
+public class FilterTemplateTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2(null);
+
+    @Test
+    public void testSameStructure() {
+        FilterTemplate t1 = FilterTemplate.build(FF.bbox("geom", 0, 0, 10, 10, "EPSG:4326"));
+        FilterTemplate t2 = FilterTemplate.build(FF.bbox("geom", 5, 5, 20, 20, "EPSG:4326"));
+        assertNotNull(t1);
+        assertEquals(t1.getStructure(), t2.getStructure());
+        assertEquals(1, t2.getLiterals().size());
+
+        // different property, operator or literal type make for a different structure
+        FilterTemplate t3 = FilterTemplate.build(FF.bbox("the_geom", 0, 0, 10, 10, "EPSG:4326"));
+        assertNotEquals(t1.getStructure(), t3.getStructure());
+        FilterTemplate t4 = FilterTemplate.build(FF.equals(FF.property("a"), FF.literal(1)));
+        FilterTemplate t5 = FilterTemplate.build(FF.less(FF.property("a"), FF.literal(1)));
+        FilterTemplate t6 = FilterTemplate.build(FF.equals(FF.property("a"), FF.literal("1")));
+        assertNotEquals(t4.getStructure(), t5.getStructure());
+        assertNotEquals(t4.getStructure(), t6.getStructure());
+        FilterTemplate t7 = FilterTemplate.build(FF.equals(FF.property("a"), FF.literal(2)));
+        assertEquals(t4.getStructure(), t7.getStructure());
+    }
+
+    @Test
+    public void testUnsupported() {
+        assertNull(FilterTemplate.build(FF.like(FF.property("a"), "abc*")));
+        assertNull(FilterTemplate.build(FF.and(FF.equals(FF.property("a"), FF.literal(1)),
+                FF.id(FF.featureId("t.1")))));
+        assertNull(FilterTemplate.build(FF.equals(FF.function("strToUpperCase",
+                FF.property("a")), FF.literal("A"))));
+    }
+
+    @Test
+    public void testPlaceholders() {
+        Filter filter = FF.and(FF.bbox("geom", 0, 0, 10, 10, "EPSG:4326"),
+                FF.equals(FF.property("a"), FF.literal(1)));
+        FilterTemplate template = FilterTemplate.build(filter);
+        List<Literal> literals = template.getLiterals();
+        assertEquals(2, literals.size());
+
+        And copy = (And) template.toPlaceholders(filter);
+        BBOX bbox = (BBOX) copy.getChildren().get(0);
+        FilterTemplate.Placeholder p0 = (FilterTemplate.Placeholder) bbox.getExpression2();
+        PropertyIsEqualTo equal = (PropertyIsEqualTo) copy.getChildren().get(1);
+        FilterTemplate.Placeholder p1 = (FilterTemplate.Placeholder) equal.getExpression2();
+        assertEquals(0, p0.index);
+        assertEquals(1, p1.index);
+        assertSame(literals.get(1), p1.literal);
+        assertFalse(template.isInspected());
+
+        // looking at a value marks the encoding as value dependent
+        assertEquals(1, p1.getValue());
+        assertTrue(template.isInspected());
+    }
+}
@@ -25,11 +25,15 @@ import java.util.Set;
 
 import org.geotools.data.Query;
 import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.visitor.AverageVisitor;
 import org.geotools.feature.visitor.GroupByVisitor;
 import org.geotools.feature.visitor.GroupByVisitorBuilder;
 import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MedianVisitor;
 import org.geotools.feature.visitor.MinVisitor;
 import org.geotools.feature.visitor.NearestVisitor;
+import org.geotools.feature.visitor.QuantileListVisitor;
+import org.geotools.feature.visitor.StandardDeviationVisitor;
 import org.geotools.feature.visitor.SumAreaVisitor;
 import org.geotools.feature.visitor.SumVisitor;
 import org.geotools.feature.visitor.UniqueVisitor;
@@ -426,6 +430,173 @@ public abstract class JDBCAggregateFunctionOnlineTest extends JDBCTestSupport {
         assertEquals("two", result.iterator().next());
     }
     
+    class MyAverageVisitor extends AverageVisitor {
+
+        public MyAverageVisitor(Expression expr) throws IllegalFilterException {
+            super(expr);
+        }
+
+        public void visit(Feature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+        public void visit(SimpleFeature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+
+    }
+
+    public void testAverage() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("doubleProperty") );
+
+        AverageVisitor v = new MyAverageVisitor(p);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        assertEquals(visited, !dataStore.getAggregateFunctions().containsKey(AverageVisitor.class));
+        assertEquals( 1.1, v.getResult().toDouble(), 0.01 );
+    }
+
+    public void testAverageWithGroupBy() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+
+        GroupByVisitor v = new GroupByVisitorBuilder()
+            .withAggregateAttribute(ff.property(aname("doubleProperty")))
+            .withAggregateVisitor("Average")
+            .withGroupByAttributes(Collections.singleton(aname("stringProperty")), dataStore.getSchema(tname("ft1")))
+            .build();
+
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        Map results = v.getResult().toMap();
+        assertEquals(3, results.size());
+        assertEquals( 1.1, Converters.convert(results.get(Arrays.asList("one")), Double.class), 0.01);
+        assertEquals( 2.2, Converters.convert(results.get(Arrays.asList("two")), Double.class), 0.01);
+    }
+
+    class MyStandardDeviationVisitor extends StandardDeviationVisitor {
+
+        public MyStandardDeviationVisitor(Expression expr) throws IllegalFilterException {
+            super(expr);
+        }
+
+        public void visit(Feature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+        public void visit(SimpleFeature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+
+    }
+
+    public void testStandardDeviation() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("doubleProperty") );
+
+        StandardDeviationVisitor v = new MyStandardDeviationVisitor(p);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        assertEquals(visited, !dataStore.getAggregateFunctions().containsKey(StandardDeviationVisitor.class));
+        assertEquals( 0.898, v.getResult().toDouble(), 0.01 );
+    }
+
+    class MyMedianVisitor extends MedianVisitor {
+
+        public MyMedianVisitor(Expression expr) throws IllegalFilterException {
+            super(expr);
+        }
+
+        public void visit(Feature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+        public void visit(SimpleFeature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+
+    }
+
+    public void testMedian() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("doubleProperty") );
+
+        MedianVisitor v = new MyMedianVisitor(p);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        assertEquals(visited, !dataStore.getAggregateFunctions().containsKey(MedianVisitor.class));
+        assertEquals( 1.1, v.getResult().toDouble(), 0.01 );
+    }
+
+    public void testMedianEvenCount() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("doubleProperty") );
+        Filter f = ff.greater(ff.property(aname("doubleProperty")), ff.literal(1));
+        Query q = new Query(tname("ft1"), f);
+
+        MedianVisitor v = new MyMedianVisitor(p);
+        dataStore.getFeatureSource(tname("ft1")).accepts(q, v, null);
+        // the two middle values are averaged
+        assertEquals( 1.65, v.getResult().toDouble(), 0.01 );
+    }
+
+    public void testMedianString() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("stringProperty") );
+
+        // not numeric, cannot be turned into a percentile
+        MedianVisitor v = new MyMedianVisitor(p);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        assertTrue(visited);
+        assertEquals( "two", v.getResult().getValue() );
+    }
+
+    class MyQuantileListVisitor extends QuantileListVisitor {
+
+        public MyQuantileListVisitor(Expression expr, int bins) {
+            super(expr, bins);
+        }
+
+        public void visit(Feature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+        public void visit(SimpleFeature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+
+    }
+
+    public void testQuantileList() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("doubleProperty") );
+
+        QuantileListVisitor v = new MyQuantileListVisitor(p, 2);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        assertEquals(visited, !dataStore.getSQLDialect().isQuantileListSupported());
+        List[] bins = (List[]) v.getResult().getValue();
+        assertEquals(2, bins.length);
+        assertEquals(2, bins[0].size());
+        assertEquals( 0.0, Converters.convert(bins[0].get(0), Double.class), 0.01);
+        assertEquals( 1.1, Converters.convert(bins[0].get(1), Double.class), 0.01);
+        assertEquals(1, bins[1].size());
+        assertEquals( 2.2, Converters.convert(bins[1].get(0), Double.class), 0.01);
+    }
+
+    public void testQuantileListWithFilter() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property( aname("doubleProperty") );
+        Filter f = ff.less(ff.property(aname("doubleProperty")), ff.literal(2));
+        Query q = new Query(tname("ft1"), f);
+
+        QuantileListVisitor v = new MyQuantileListVisitor(p, 2);
+        dataStore.getFeatureSource(tname("ft1")).accepts(q, v, null);
+        List[] bins = (List[]) v.getResult().getValue();
+        assertEquals(2, bins.length);
+        assertEquals( 0.0, Converters.convert(bins[0].get(0), Double.class), 0.01);
+        assertEquals( 1.1, Converters.convert(bins[1].get(0), Double.class), 0.01);
+    }
+
     class MyNearestVisitor extends NearestVisitor {
 
         public MyNearestVisitor(Expression expr, Object valueToMatch) {
@@ -0,0 +1,159 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.FeatureEvent.Type;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+public abstract class JDBCBatchUpdateOnlineTest extends JDBCTestSupport {
+
+    JDBCFeatureStore featureStore;
+
+    @Override
+    protected void connect() throws Exception {
+        super.connect();
+        dataStore.setBatchUpdateSize(2);
+        featureStore = (JDBCFeatureStore) dataStore.getFeatureSource(tname("ft1"));
+    }
+
+    public void testBatchUpdate() throws Exception {
+        FeatureEventWatcher watcher = new FeatureEventWatcher();
+        featureStore.addFeatureListener(watcher);
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer = dataStore
+                .getFeatureWriter(tname("ft1"), Transaction.AUTO_COMMIT)) {
+            while (writer.hasNext()) {
+                SimpleFeature feature = writer.next();
+                int i = ((Number) feature.getAttribute(aname("intProperty"))).intValue();
+                feature.setAttribute(aname("stringProperty"), "updated" + i);
+                if (i == 2) {
+                    // a different set of attributes, goes in its own statement
+                    feature.setAttribute(aname("geometry"),
+                            new GeometryFactory().createPoint(new Coordinate(5, 5)));
+                }
+                writer.write();
+            }
+        }
+        assertEquals(3, watcher.count);
+        assertEquals(Type.CHANGED, watcher.type);
+
+        Map<Integer, SimpleFeature> features = readFeatures();
+        assertEquals(3, features.size());
+        for (Map.Entry<Integer, SimpleFeature> entry : features.entrySet()) {
+            assertEquals("updated" + entry.getKey(),
+                    entry.getValue().getAttribute(aname("stringProperty")));
+        }
+        assertEquals(new Coordinate(5, 5),
+                ((Point) features.get(2).getDefaultGeometry())
+                        .getCoordinate());
+    }
+
+    public void testBatchRemove() throws Exception {
+        FeatureEventWatcher watcher = new FeatureEventWatcher();
+        featureStore.addFeatureListener(watcher);
+        FilterFactory ff = dataStore.getFilterFactory();
+        Filter filter = ff.greaterOrEqual(ff.property(aname("intProperty")), ff.literal(1));
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer = dataStore
+                .getFeatureWriter(tname("ft1"), filter, Transaction.AUTO_COMMIT)) {
+            while (writer.hasNext()) {
+                writer.next();
+                writer.remove();
+            }
+        }
+        assertEquals(2, watcher.count);
+        assertEquals(Type.REMOVED, watcher.type);
+
+        Map<Integer, SimpleFeature> features = readFeatures();
+        assertEquals(1, features.size());
+        assertTrue(features.containsKey(0));
+    }
+
+    public void testMixedInTransaction() throws Exception {
+        try (Transaction t = new DefaultTransaction()) {
+            try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer = dataStore
+                    .getFeatureWriter(tname("ft1"), t)) {
+                while (writer.hasNext()) {
+                    SimpleFeature feature = writer.next();
+                    int i = ((Number) feature.getAttribute(aname("intProperty"))).intValue();
+                    if (i == 1) {
+                        writer.remove();
+                    } else {
+                        feature.setAttribute(aname("doubleProperty"), 10d + i);
+                        writer.write();
+                    }
+                }
+            }
+            // not visible outside of the transaction before the commit
+            assertEquals(3, featureStore.getCount(null));
+            t.commit();
+        }
+
+        Map<Integer, SimpleFeature> features = readFeatures();
+        assertEquals(2, features.size());
+        assertEquals(10d, ((Number) features.get(0).getAttribute(aname("doubleProperty")))
+                .doubleValue(), 0d);
+        assertEquals(12d, ((Number) features.get(2).getAttribute(aname("doubleProperty")))
+                .doubleValue(), 0d);
+    }
+
+    public void testUpdateThenAppend() throws Exception {
+        try (FeatureWriter<SimpleFeatureType, SimpleFeature> writer = dataStore
+                .getFeatureWriter(tname("ft1"), Transaction.AUTO_COMMIT)) {
+            while (writer.hasNext()) {
+                SimpleFeature feature = writer.next();
+                feature.setAttribute(aname("stringProperty"), "updated");
+                writer.write();
+            }
+            // the pending updates are sent before switching to inserts
+            SimpleFeature feature = writer.next();
+            feature.setAttribute(aname("intProperty"), 3);
+            feature.setAttribute(aname("stringProperty"), "three");
+            feature.setAttribute(aname("geometry"),
+                    new GeometryFactory().createPoint(new Coordinate(3, 3)));
+            writer.write();
+        }
+        Map<Integer, SimpleFeature> features = readFeatures();
+        assertEquals(4, features.size());
+        assertEquals("updated", features.get(2).getAttribute(aname("stringProperty")));
+        assertEquals("three", features.get(3).getAttribute(aname("stringProperty")));
+    }
+
+    Map<Integer, SimpleFeature> readFeatures() throws Exception {
+        Map<Integer, SimpleFeature> result = new HashMap<Integer, SimpleFeature>();
+        try (SimpleFeatureIterator it = featureStore.getFeatures().features()) {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                result.put(((Number) feature.getAttribute(aname("intProperty"))).intValue(),
+                        feature);
+            }
+        }
+        return result;
+    }
+}
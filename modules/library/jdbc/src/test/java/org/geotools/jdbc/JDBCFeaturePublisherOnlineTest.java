@@ -0,0 +1,210 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.FilterFactory;
+
+public abstract class JDBCFeaturePublisherOnlineTest extends JDBCTestSupport {
+
+    JDBCFeatureStore featureSource;
+
+    ExecutorService executor;
+
+    @Override
+    protected void connect() throws Exception {
+        super.connect();
+        featureSource = (JDBCFeatureStore) dataStore.getFeatureSource(tname("ft1"));
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @Override
+    protected void disconnect() throws Exception {
+        executor.shutdown();
+        super.disconnect();
+    }
+
+    /**
+     * Collects the features, requesting a fixed number at a time
+     */
+    static class CollectingSubscriber implements FeaturePublisher.Subscriber {
+
+        final long batch;
+
+        final List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        FeaturePublisher.Subscription subscription;
+
+        Throwable error;
+
+        boolean completed;
+
+        int received;
+
+        CollectingSubscriber(long batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void onSubscribe(FeaturePublisher.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(batch);
+        }
+
+        @Override
+        public void onNext(SimpleFeature feature) {
+            features.add(feature);
+            if (++received == batch) {
+                received = 0;
+                subscription.request(batch);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            latch.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            latch.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    public void testPublishAll() throws Exception {
+        CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+        featureSource.getFeaturesAsync(Query.ALL, executor).subscribe(subscriber);
+        subscriber.await();
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+        assertEquals(3, subscriber.features.size());
+    }
+
+    public void testPublishBackpressure() throws Exception {
+        // one feature at a time, with a buffer smaller than the results
+        CollectingSubscriber subscriber = new CollectingSubscriber(1);
+        featureSource.getFeaturesAsync(Query.ALL, executor, 2).subscribe(subscriber);
+        subscriber.await();
+        assertTrue(subscriber.completed);
+        assertEquals(3, subscriber.features.size());
+    }
+
+    public void testReadAhead() throws Exception {
+        final AtomicInteger fetches = new AtomicInteger();
+        final CountDownLatch secondFetch = new CountDownLatch(1);
+        Executor counting = r -> executor.execute(() -> {
+            if (fetches.incrementAndGet() == 2) {
+                secondFetch.countDown();
+            }
+            r.run();
+        });
+        final List<Boolean> fetchedWhileConsuming = new ArrayList<Boolean>();
+        CollectingSubscriber subscriber = new CollectingSubscriber(1) {
+            @Override
+            public void onNext(SimpleFeature feature) {
+                if (features.isEmpty()) {
+                    // the first batch is still being consumed, the next fetch should start anyway
+                    try {
+                        fetchedWhileConsuming.add(secondFetch.await(10, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        fetchedWhileConsuming.add(false);
+                    }
+                }
+                super.onNext(feature);
+            }
+        };
+        // a batch of two features, out of three
+        featureSource.getFeaturesAsync(Query.ALL, counting, 2).subscribe(subscriber);
+        subscriber.await();
+        assertTrue(subscriber.completed);
+        assertEquals(3, subscriber.features.size());
+        assertEquals(Arrays.asList(true), fetchedWhileConsuming);
+    }
+
+    public void testPublishFiltered() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        Query query = new Query(tname("ft1"), ff.greater(ff.property(aname("intProperty")),
+                ff.literal(0)));
+        CollectingSubscriber subscriber = new CollectingSubscriber(1);
+        // run the fetch tasks in the calling thread
+        featureSource.getFeaturesAsync(query, Runnable::run).subscribe(subscriber);
+        subscriber.await();
+        assertEquals(2, subscriber.features.size());
+    }
+
+    public void testCancel() throws Exception {
+        final CountDownLatch received = new CountDownLatch(1);
+        CollectingSubscriber subscriber = new CollectingSubscriber(1) {
+            @Override
+            public void onNext(SimpleFeature feature) {
+                features.add(feature);
+                subscription.cancel();
+                received.countDown();
+            }
+        };
+        featureSource.getFeaturesAsync(Query.ALL, executor).subscribe(subscriber);
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        // give a chance to any rogue delivery
+        Thread.sleep(100);
+        assertEquals(1, subscriber.features.size());
+        assertFalse(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    public void testInvalidRequest() throws Exception {
+        CollectingSubscriber subscriber = new CollectingSubscriber(0);
+        featureSource.getFeaturesAsync(Query.ALL, executor).subscribe(subscriber);
+        subscriber.await();
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(subscriber.features.isEmpty());
+    }
+
+    public void testTransaction() throws Exception {
+        try (Transaction t = new DefaultTransaction()) {
+            featureSource.setTransaction(t);
+            try {
+                featureSource.getFeaturesAsync(Query.ALL, executor);
+                fail("Asynchronous reads should not be allowed in a transaction");
+            } catch (IllegalStateException e) {
+                // fine
+            } finally {
+                featureSource.setTransaction(Transaction.AUTO_COMMIT);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
+
+public abstract class JDBCKeysetPaginationOnlineTest extends JDBCTestSupport {
+
+    JDBCFeatureStore featureSource;
+
+    @Override
+    protected void connect() throws Exception {
+        super.connect();
+        dataStore.setKeysetPaginationEnabled(true);
+        featureSource = (JDBCFeatureStore) dataStore.getFeatureSource(tname("ft1"));
+    }
+
+    KeysetPagination pagination() {
+        return dataStore.keysetPagination;
+    }
+
+    public void testPagesSeek() throws Exception {
+        List<Integer> values = new ArrayList<Integer>();
+        for (int i = 0; i < 3; i++) {
+            values.addAll(readPage(Filter.INCLUDE, null, i, 1));
+        }
+        assertEquals(3, values.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Integer.valueOf(i), values.get(i));
+        }
+        // the first page has no previous one, the others seek past it
+        assertEquals(2, pagination().getSeeks());
+        assertEquals(0, readPage(Filter.INCLUDE, null, 3, 1).size());
+        assertEquals(3, pagination().getSeeks());
+    }
+
+    public void testPagesSeekFiltered() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        Filter filter = ff.greater(ff.property(aname("intProperty")), ff.literal(0));
+        assertEquals(1, readPage(filter, null, 0, 1).get(0).intValue());
+        assertEquals(2, readPage(filter, null, 1, 1).get(0).intValue());
+        assertEquals(1, pagination().getSeeks());
+        // a different filter does not share the positions
+        assertEquals(2, readPage(Filter.INCLUDE, null, 2, 1).get(0).intValue());
+        assertEquals(1, pagination().getSeeks());
+    }
+
+    public void testUnknownPageUsesOffset() throws Exception {
+        assertEquals(2, readPage(Filter.INCLUDE, null, 2, 1).get(0).intValue());
+        assertEquals(0, pagination().getSeeks());
+        assertEquals(1, pagination().getMisses());
+    }
+
+    public void testUnsortedFirstPageNotRecorded() throws Exception {
+        // no start index, no sort: the query is not ordered on the primary key
+        assertEquals(1, readPage(Filter.INCLUDE, null, null, 1).size());
+        assertEquals(0, pagination().size());
+        // so the next page cannot seek past it
+        assertEquals(1, readPage(Filter.INCLUDE, null, 1, 1).get(0).intValue());
+        assertEquals(0, pagination().getSeeks());
+        assertEquals(2, readPage(Filter.INCLUDE, null, 2, 1).get(0).intValue());
+        assertEquals(1, pagination().getSeeks());
+    }
+
+    public void testOtherSortUsesOffset() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        SortBy[] sort = new SortBy[] {
+                ff.sort(aname("intProperty"), SortOrder.DESCENDING) };
+        assertEquals(2, readPage(Filter.INCLUDE, sort, 0, 1).get(0).intValue());
+        assertEquals(1, readPage(Filter.INCLUDE, sort, 1, 1).get(0).intValue());
+        assertEquals(0, pagination().getSeeks());
+        assertEquals(0, pagination().size());
+    }
+
+    public void testPositionsClearedOnWrite() throws Exception {
+        readPage(Filter.INCLUDE, null, 0, 1);
+        assertEquals(1, pagination().size());
+        FilterFactory ff = dataStore.getFilterFactory();
+        featureSource.removeFeatures(ff.equals(ff.property(aname("intProperty")), ff.literal(0)));
+        assertEquals(0, pagination().size());
+        assertEquals(2, readPage(Filter.INCLUDE, null, 1, 1).get(0).intValue());
+    }
+
+    List<Integer> readPage(Filter filter, SortBy[] sort, Integer startIndex, int maxFeatures)
+            throws Exception {
+        Query q = new Query(featureSource.getSchema().getTypeName(), filter);
+        q.setSortBy(sort);
+        q.setStartIndex(startIndex);
+        q.setMaxFeatures(maxFeatures);
+        List<Integer> values = new ArrayList<Integer>();
+        try (SimpleFeatureIterator it = featureSource.getFeatures(q).features()) {
+            while (it.hasNext()) {
+                SimpleFeature f = it.next();
+                values.add(((Number) f.getAttribute(aname("intProperty"))).intValue());
+            }
+        }
+        return values;
+    }
+}
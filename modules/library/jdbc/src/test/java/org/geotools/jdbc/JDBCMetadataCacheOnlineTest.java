@@ -0,0 +1,86 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.io.File;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.feature.NameImpl;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public abstract class JDBCMetadataCacheOnlineTest extends JDBCTestSupport {
+
+    File file;
+
+    @Override
+    protected void connect() throws Exception {
+        super.connect();
+        file = File.createTempFile("metadata", ".properties");
+        file.delete();
+    }
+
+    @Override
+    protected void disconnect() throws Exception {
+        super.disconnect();
+        file.delete();
+    }
+
+    public void testCacheFeatureType() throws Exception {
+        MetadataCache cache = new MetadataCache(file, "test");
+        dataStore.setMetadataCache(cache);
+        SimpleFeatureType expected = dataStore.getSchema(tname("ft1"));
+        assertEquals(1, cache.size());
+        assertNotNull(cache.getColumns(tname("ft1")));
+        cache.save();
+        assertTrue(file.exists());
+
+        // rebuild the feature type from a cache read back from disk
+        MetadataCache read = new MetadataCache(file, "test");
+        dataStore.setMetadataCache(read);
+        dataStore.getEntry(new NameImpl(dataStore.getNamespaceURI(), tname("ft1"))).dispose();
+        SimpleFeatureType actual = dataStore.getSchema(tname("ft1"));
+        assertTrue(read.getHits() > 0);
+        assertEquals(0, read.getMisses());
+        assertFeatureTypesEqual(expected, actual);
+        assertEquals(DataUtilities.encodeType(expected), DataUtilities.encodeType(actual));
+        assertEquals(3, dataStore.getFeatureSource(tname("ft1")).getCount(null));
+    }
+
+    public void testLoadMetadata() throws Exception {
+        SimpleFeatureType expected = dataStore.getSchema(tname("ft1"));
+        dataStore.getEntry(new NameImpl(dataStore.getNamespaceURI(), tname("ft1"))).dispose();
+
+        MetadataCache cache = new MetadataCache(file, "test");
+        dataStore.setMetadataCache(cache);
+        dataStore.loadMetadataCache();
+        assertTrue(file.exists());
+        assertTrue(cache.size() >= dataStore.getTypeNames().length);
+        assertNotNull(cache.getColumns(tname("ft1")));
+
+        SimpleFeatureType actual = dataStore.getSchema(tname("ft1"));
+        assertFeatureTypesEqual(expected, actual);
+    }
+
+    public void testInvalidate() throws Exception {
+        MetadataCache cache = new MetadataCache();
+        dataStore.setMetadataCache(cache);
+        dataStore.getSchema(tname("ft1"));
+        assertEquals(1, cache.size());
+        cache.invalidate(tname("ft1"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.sort.SortBy;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public abstract class JDBCPartitionedReadOnlineTest extends JDBCTestSupport {
+
+    JDBCFeatureStore featureSource;
+
+    ExecutorService executor;
+
+    @Override
+    protected void connect() throws Exception {
+        super.connect();
+        featureSource = (JDBCFeatureStore) dataStore.getFeatureSource(tname("ft1"));
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @Override
+    protected void disconnect() throws Exception {
+        executor.shutdown();
+        super.disconnect();
+    }
+
+    public void testKeyPartitions() throws Exception {
+        List<ReadPartition> partitions = featureSource.getPartitions(Query.ALL, 2,
+                ReadPartition.Strategy.PRIMARY_KEY);
+        assertEquals(2, partitions.size());
+        assertEquals(3, readPartitions(Query.ALL, partitions).size());
+    }
+
+    public void testKeyPartitionsSmallTable() throws Exception {
+        List<ReadPartition> partitions = featureSource.getPartitions(Query.ALL, 10,
+                ReadPartition.Strategy.PRIMARY_KEY);
+        assertEquals(3, partitions.size());
+        assertEquals(3, readPartitions(Query.ALL, partitions).size());
+    }
+
+    public void testPhysicalPartitions() throws Exception {
+        if (!dataStore.getSQLDialect().isPhysicalPartitioningSupported()) {
+            return;
+        }
+        List<ReadPartition> partitions = featureSource.getPartitions(Query.ALL, 4,
+                ReadPartition.Strategy.PHYSICAL);
+        assertEquals(3, readPartitions(Query.ALL, partitions).size());
+    }
+
+    public void testGridPartitions() throws Exception {
+        if (!dataStore.getSQLDialect().isGridPartitioningSupported()) {
+            return;
+        }
+        List<ReadPartition> partitions = featureSource.getPartitions(Query.ALL, 4,
+                ReadPartition.Strategy.SPATIAL_GRID);
+        // 2x2 grid, plus the features without a geometry
+        assertEquals(5, partitions.size());
+        assertEquals(3, readPartitions(Query.ALL, partitions).size());
+    }
+
+    public void testGridPartitionsOutsideEstimatedBounds() throws Exception {
+        if (!dataStore.getSQLDialect().isGridPartitioningSupported()) {
+            return;
+        }
+        // the table statistics, if used to estimate the bounds, do not know about it yet
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureSource.getSchema());
+        b.set(aname("intProperty"), Integer.valueOf(3));
+        b.set(aname("geometry"), new GeometryFactory().createPoint(new Coordinate(1000, 1000)));
+        featureSource.addFeatures(DataUtilities.collection(b.buildFeature(null)));
+
+        List<ReadPartition> partitions = featureSource.getPartitions(Query.ALL, 4,
+                ReadPartition.Strategy.SPATIAL_GRID);
+        assertEquals(4, readPartitions(Query.ALL, partitions).size());
+    }
+
+    public void testPartitionedReader() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        Filter filter = ff.greater(ff.property(aname("intProperty")), ff.literal(0));
+        Query query = new Query(featureSource.getSchema().getTypeName(), filter);
+        Set<String> fids = new HashSet<String>();
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> reader = featureSource
+                .getPartitionedReader(query, 3, ReadPartition.Strategy.PRIMARY_KEY, executor)) {
+            while (reader.hasNext()) {
+                SimpleFeature feature = reader.next();
+                assertTrue(((Number) feature.getAttribute(aname("intProperty"))).intValue() > 0);
+                assertTrue(fids.add(feature.getID()));
+            }
+        }
+        assertEquals(2, fids.size());
+    }
+
+    public void testEarlyClose() throws Exception {
+        try (FeatureReader<SimpleFeatureType, SimpleFeature> reader = featureSource
+                .getPartitionedReader(Query.ALL, 3, ReadPartition.Strategy.PRIMARY_KEY, executor)) {
+            assertTrue(reader.hasNext());
+            assertNotNull(reader.next());
+        }
+        // the partitions release their connections, the store is still usable
+        assertEquals(3, featureSource.getCount(Query.ALL));
+    }
+
+    public void testInvalidQueries() throws Exception {
+        Query sorted = new Query(featureSource.getSchema().getTypeName());
+        sorted.setSortBy(new SortBy[] { SortBy.NATURAL_ORDER });
+        try {
+            featureSource.getPartitions(sorted, 2, ReadPartition.Strategy.PRIMARY_KEY);
+            fail("Sorted queries cannot be partitioned");
+        } catch (IllegalArgumentException e) {
+            // fine
+        }
+
+        Query paged = new Query(featureSource.getSchema().getTypeName());
+        paged.setMaxFeatures(1);
+        try {
+            featureSource.getPartitions(paged, 2, ReadPartition.Strategy.PRIMARY_KEY);
+            fail("Paged queries cannot be partitioned");
+        } catch (IllegalArgumentException e) {
+            // fine
+        }
+    }
+
+    public void testTransactionRejected() throws Exception {
+        try (Transaction t = new DefaultTransaction()) {
+            featureSource.setTransaction(t);
+            try {
+                featureSource.getPartitions(Query.ALL, 2, ReadPartition.Strategy.PRIMARY_KEY);
+                fail("Partitioned reads cannot run in a transaction");
+            } catch (IllegalStateException e) {
+                // fine
+            } finally {
+                featureSource.setTransaction(Transaction.AUTO_COMMIT);
+            }
+        }
+    }
+
+    Set<String> readPartitions(Query query, List<ReadPartition> partitions) throws Exception {
+        Set<String> fids = new HashSet<String>();
+        for (ReadPartition partition : partitions) {
+            try (FeatureReader<SimpleFeatureType, SimpleFeature> reader = featureSource
+                    .getReader(query, partition)) {
+                while (reader.hasNext()) {
+                    assertTrue("Duplicate feature in " + partition,
+                            fids.add(reader.next().getID()));
+                }
+            }
+        }
+        return fids;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+public abstract class JDBCPreparedFilterCacheOnlineTest extends JDBCTestSupport {
+
+    JDBCFeatureStore featureSource;
+
+    @Override
+    protected void connect() throws Exception {
+        super.connect();
+        dataStore.setPreparedFilterCacheEnabled(true);
+        featureSource = (JDBCFeatureStore) dataStore.getFeatureSource(tname("ft1"));
+    }
+
+    public void testReuseEncoding() throws Exception {
+        FilterFactory2 ff = (FilterFactory2) dataStore.getFilterFactory();
+        PreparedFilterCache cache = dataStore.getPreparedFilterCache();
+        Filter f1 = ff.bbox(aname("geometry"), -1, -1, 1.5, 1.5, "EPSG:4326");
+        Filter f2 = ff.bbox(aname("geometry"), 0.5, 0.5, 2.5, 2.5, "EPSG:4326");
+        assertEquals(2, count(f1));
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getHits());
+        assertEquals(2, count(f2));
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.size());
+    }
+
+    public void testReuseComparison() throws Exception {
+        FilterFactory2 ff = (FilterFactory2) dataStore.getFilterFactory();
+        PreparedFilterCache cache = dataStore.getPreparedFilterCache();
+        for (int i = 0; i < 3; i++) {
+            Filter filter = ff.and(ff.greaterOrEqual(ff.property(aname("intProperty")),
+                    ff.literal(i)), ff.less(ff.property(aname("doubleProperty")), ff.literal(5d)));
+            assertEquals(3 - i, count(filter));
+        }
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+    }
+
+    public void testUncacheable() throws Exception {
+        FilterFactory2 ff = (FilterFactory2) dataStore.getFilterFactory();
+        PreparedFilterCache cache = dataStore.getPreparedFilterCache();
+        Filter filter = ff.like(ff.property(aname("stringProperty")), "t*");
+        assertEquals(1, count(filter));
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+        assertEquals(1, cache.getUncacheable());
+    }
+
+    int count(Filter filter) throws Exception {
+        // go through the reader, counting might run a separate aggregate query
+        int count = 0;
+        try (SimpleFeatureIterator it = featureSource.getFeatures(new Query(tname("ft1"), filter))
+                .features()) {
+            while (it.hasNext()) {
+                it.next();
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.Map;
+
+import org.geotools.data.Query;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.jdbc.VectorTileEncoderTest.Feature;
+import org.geotools.jdbc.VectorTileEncoderTest.Layer;
+import org.geotools.referencing.CRS;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+
+public abstract class JDBCVectorTileOnlineTest extends JDBCTestSupport {
+
+    JDBCFeatureStore featureSource;
+
+    @Override
+    protected void connect() throws Exception {
+        super.connect();
+        featureSource = (JDBCFeatureStore) dataStore.getFeatureSource(tname("ft1"));
+    }
+
+    public void testTile() throws Exception {
+        ReferencedEnvelope tile = new ReferencedEnvelope(-0.5, 1.5, -0.5, 1.5,
+                CRS.decode("EPSG:4326", true));
+        Query query = new Query(tname("ft1"), Filter.INCLUDE,
+                new String[] { aname("stringProperty") });
+        byte[] bytes = featureSource.getVectorTile(query, tile, 4096, 0);
+
+        Map<String, Layer> layers = VectorTileEncoderTest.decode(bytes);
+        Layer layer = layers.get(tname("ft1"));
+        assertNotNull(layer);
+        assertEquals(4096, layer.extent);
+        assertEquals(2, layer.features.size());
+        for (Feature feature : layer.features) {
+            assertEquals(VectorTileEncoder.POINT, feature.type);
+            Map<String, Object> attributes = feature.attributes(layer);
+            assertEquals(1, attributes.size());
+            Object value = attributes.get(aname("stringProperty"));
+            assertTrue("zero".equals(value) || "one".equals(value));
+        }
+    }
+
+    public void testFilteredTile() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        ReferencedEnvelope tile = new ReferencedEnvelope(-0.5, 2.5, -0.5, 2.5,
+                CRS.decode("EPSG:4326", true));
+        Query query = new Query(tname("ft1"), ff.greater(ff.property(aname("intProperty")),
+                ff.literal(0)));
+        byte[] bytes = featureSource.getVectorTile(query, tile, 4096, 256);
+        Layer layer = VectorTileEncoderTest.decode(bytes).get(tname("ft1"));
+        assertEquals(2, layer.features.size());
+        // all non geometric attributes are included
+        assertEquals(3, layer.features.get(0).attributes(layer).size());
+    }
+
+    public void testEmptyTile() throws Exception {
+        ReferencedEnvelope tile = new ReferencedEnvelope(10, 20, 10, 20,
+                CRS.decode("EPSG:4326", true));
+        byte[] bytes = featureSource.getVectorTile(Query.ALL, tile, 4096, 0);
+        assertTrue(VectorTileEncoderTest.decode(bytes).isEmpty());
+    }
+
+    public void testTileMatchesJavaEncoding() throws Exception {
+        ReferencedEnvelope tile = new ReferencedEnvelope(-0.5, 2.5, -0.5, 2.5,
+                CRS.decode("EPSG:4326", true));
+        Query query = new Query(tname("ft1"), Filter.INCLUDE,
+                new String[] { aname("intProperty") });
+        Layer layer = VectorTileEncoderTest.decode(
+                featureSource.getVectorTile(query, tile, 256, 0)).get(tname("ft1"));
+
+        // paging is not pushed down, forces the in memory encoding
+        query.setMaxFeatures(100);
+        Layer fallback = VectorTileEncoderTest.decode(
+                featureSource.getVectorTile(query, tile, 256, 0)).get(tname("ft1"));
+        assertEquals(layer.features.size(), fallback.features.size());
+        for (int i = 0; i < layer.features.size(); i++) {
+            Feature expected = findByAttributes(fallback,
+                    layer.features.get(i).attributes(layer));
+            assertEquals(expected.geometry, layer.features.get(i).geometry);
+        }
+    }
+
+    Feature findByAttributes(Layer layer, Map<String, Object> attributes) {
+        for (Feature feature : layer.features) {
+            if (feature.attributes(layer).toString().equals(attributes.toString())) {
+                return feature;
+            }
+        }
+        fail("Could not find a feature with attributes " + attributes);
+        return null;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.junit.Test;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
+
+public class KeysetPaginationTest {
+
+    static final FilterFactory FF = CommonFactoryFinder.getFilterFactory(null);
+
+    PrimaryKey key(PrimaryKeyColumn... columns) {
+        return new PrimaryKey("t", Arrays.asList(columns));
+    }
+
+    @Test
+    public void testSortable() {
+        PrimaryKey single = key(new NonIncrementingPrimaryKeyColumn("id", String.class));
+        // without a sort the SQL is not ordered on the primary key
+        assertFalse(KeysetPagination.isKeysetSortable(single, null));
+        assertFalse(KeysetPagination.isKeysetSortable(single, new SortBy[0]));
+        assertTrue(KeysetPagination.isKeysetSortable(single,
+                new SortBy[] { SortBy.NATURAL_ORDER }));
+        assertTrue(KeysetPagination.isKeysetSortable(single,
+                new SortBy[] { FF.sort("id", SortOrder.ASCENDING) }));
+        assertFalse(KeysetPagination.isKeysetSortable(single,
+                new SortBy[] { SortBy.REVERSE_ORDER }));
+        assertFalse(KeysetPagination.isKeysetSortable(single,
+                new SortBy[] { FF.sort("id", SortOrder.DESCENDING) }));
+        assertFalse(KeysetPagination.isKeysetSortable(single,
+                new SortBy[] { FF.sort("name", SortOrder.ASCENDING) }));
+        assertFalse(KeysetPagination.isKeysetSortable(new NullPrimaryKey("t"), null));
+
+        PrimaryKey numbers = key(new NonIncrementingPrimaryKeyColumn("a", Integer.class),
+                new NonIncrementingPrimaryKeyColumn("b", Long.class));
+        assertTrue(KeysetPagination.isKeysetSortable(numbers, new SortBy[] {
+                FF.sort("a", SortOrder.ASCENDING), FF.sort("b", SortOrder.ASCENDING) }));
+        assertFalse(KeysetPagination.isKeysetSortable(numbers, new SortBy[] {
+                FF.sort("b", SortOrder.ASCENDING), FF.sort("a", SortOrder.ASCENDING) }));
+        // strings might contain the fid separator
+        PrimaryKey mixed = key(new NonIncrementingPrimaryKeyColumn("a", Integer.class),
+                new NonIncrementingPrimaryKeyColumn("b", String.class));
+        assertFalse(KeysetPagination.isKeysetSortable(mixed, null));
+    }
+
+    @Test
+    public void testPositions() {
+        KeysetPagination pagination = new KeysetPagination(2);
+        List<Object> last = Collections.<Object> singletonList(10);
+        KeysetPagination.Key k1 = new KeysetPagination.Key("a", Filter.INCLUDE, null, 10);
+        pagination.put(k1, last);
+        assertEquals(last, pagination.get(new KeysetPagination.Key("a", Filter.INCLUDE, null, 10)));
+        assertNull(pagination.get(k1.atOffset(20)));
+        assertNull(pagination.get(new KeysetPagination.Key("a", Filter.EXCLUDE, null, 10)));
+        assertEquals(1, pagination.getSeeks());
+        assertEquals(2, pagination.getMisses());
+
+        // least recently used goes first
+        pagination.put(new KeysetPagination.Key("b", Filter.INCLUDE, null, 10), last);
+        pagination.get(k1);
+        pagination.put(new KeysetPagination.Key("c", Filter.INCLUDE, null, 10), last);
+        assertEquals(2, pagination.size());
+        assertNotNull(pagination.get(k1));
+
+        pagination.clear("a");
+        assertEquals(1, pagination.size());
+        assertNull(pagination.get(k1));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.vividsolutions.jts.geom.Point;
+
+public class MetadataCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        File file = new File(folder.getRoot(), "metadata.properties");
+        MetadataCache cache = new MetadataCache(file, "db;schema");
+        populate(cache);
+        cache.save();
+        assertTrue(file.exists());
+
+        MetadataCache read = new MetadataCache(file, "db;schema");
+        assertEquals(1, read.size());
+        List<ColumnMetadata> columns = read.getColumns("roads");
+        assertEquals(2, columns.size());
+        assertEquals("fid", columns.get(0).getName());
+        assertEquals(Integer.class, columns.get(0).getBinding());
+        assertFalse(columns.get(0).isNullable());
+        assertEquals("geom", columns.get(1).getName());
+        assertEquals(Point.class, columns.get(1).getBinding());
+        assertEquals("geometry", columns.get(1).getTypeName());
+        assertTrue(read.hasSRID("roads", "geom"));
+        assertEquals(Integer.valueOf(4326), read.getSRID("roads", "geom"));
+        assertEquals(Integer.valueOf(3), read.getDimension("roads", "geom"));
+        assertFalse(read.hasSRID("roads", "fid"));
+
+        PrimaryKey pk = read.getPrimaryKey("roads");
+        assertEquals(1, pk.getColumns().size());
+        assertTrue(pk.getColumns().get(0) instanceof SequencedPrimaryKeyColumn);
+        assertEquals("roads_seq",
+                ((SequencedPrimaryKeyColumn) pk.getColumns().get(0)).getSequenceName());
+
+        List<Index> indexes = read.getIndexes("roads");
+        assertEquals(1, indexes.size());
+        assertEquals("roads_fid_idx", indexes.get(0).getIndexName());
+        assertTrue(indexes.get(0).isUnique());
+        assertEquals(Arrays.asList("fid"), indexes.get(0).getAttributes());
+    }
+
+    @Test
+    public void testIdentityMismatch() throws Exception {
+        File file = new File(folder.getRoot(), "metadata.properties");
+        MetadataCache cache = new MetadataCache(file, "db;schema");
+        populate(cache);
+        cache.save();
+
+        MetadataCache other = new MetadataCache(file, "db;otherSchema");
+        assertEquals(0, other.size());
+        assertNull(other.getColumns("roads"));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        File file = new File(folder.getRoot(), "metadata.properties");
+        MetadataCache cache = new MetadataCache(file, "db");
+        populate(cache);
+        cache.invalidateIndexes("roads");
+        assertNull(cache.getIndexes("roads"));
+        assertNotNull(cache.getColumns("roads"));
+        cache.invalidate("roads");
+        assertNull(cache.getColumns("roads"));
+        cache.save();
+        assertEquals(0, new MetadataCache(file, "db").size());
+    }
+
+    @Test
+    public void testNotPersistablePrimaryKey() throws Exception {
+        MetadataCache cache = new MetadataCache();
+        PrimaryKeyColumn column = new NonIncrementingPrimaryKeyColumn("fid", Integer.class) {
+        };
+        cache.putPrimaryKey("roads", new PrimaryKey("roads", Collections.singletonList(column)));
+        assertNull(cache.getPrimaryKey("roads"));
+
+        cache.putPrimaryKey("roads", new NullPrimaryKey("roads"));
+        assertTrue(cache.getPrimaryKey("roads") instanceof NullPrimaryKey);
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    void populate(MetadataCache cache) {
+        ColumnMetadata fid = new ColumnMetadata();
+        fid.name = "fid";
+        fid.typeName = "int4";
+        fid.sqlType = Types.INTEGER;
+        fid.binding = Integer.class;
+        ColumnMetadata geom = new ColumnMetadata();
+        geom.name = "geom";
+        geom.typeName = "geometry";
+        geom.sqlType = Types.OTHER;
+        geom.nullable = true;
+        geom.binding = Point.class;
+        Map<String, Integer> srids = new HashMap<String, Integer>();
+        srids.put("geom", 4326);
+        Map<String, Integer> dimensions = new HashMap<String, Integer>();
+        dimensions.put("geom", 3);
+        cache.putColumns("roads", Arrays.asList(fid, geom), srids, dimensions);
+
+        PrimaryKeyColumn pkColumn = new SequencedPrimaryKeyColumn("fid", Integer.class,
+                "roads_seq");
+        cache.putPrimaryKey("roads", new PrimaryKey("roads", Collections.singletonList(pkColumn)));
+        cache.putIndexes("roads",
+                Collections.singletonList(new Index("roads", "roads_fid_idx", true, "fid")));
+    }
+}
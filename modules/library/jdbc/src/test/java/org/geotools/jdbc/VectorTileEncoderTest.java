@@ -0,0 +1,315 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class VectorTileEncoderTest {
+
+    static final Envelope TILE = new Envelope(0, 10, 0, 10);
+
+    WKTReader reader = new WKTReader();
+
+    @Test
+    public void testPoint() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder(TILE, 100, 10);
+        Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+        attributes.put("name", "first");
+        attributes.put("count", 3);
+        attributes.put("missing", null);
+        assertTrue(encoder.addFeature("points", reader.read("POINT(1 2)"), attributes));
+        attributes.put("name", "second");
+        attributes.put("count", -1L);
+        assertTrue(encoder.addFeature("points", reader.read("POINT(5 5)"), attributes));
+        // outside of the buffered tile
+        assertFalse(encoder.addFeature("points", reader.read("POINT(20 20)"), attributes));
+
+        Map<String, Layer> layers = decode(encoder.encode());
+        Layer layer = layers.get("points");
+        assertEquals(100, layer.extent);
+        assertEquals(2, layer.features.size());
+        assertEquals(Arrays.asList("name", "count"), layer.keys);
+
+        Feature first = layer.features.get(0);
+        assertEquals(VectorTileEncoder.POINT, first.type);
+        // moveTo(1), then (10, 80) zig zag encoded, y points down
+        assertEquals(Arrays.asList(9, 20, 160), first.geometry);
+        assertEquals("first", first.attributes(layer).get("name"));
+        assertEquals(3L, first.attributes(layer).get("count"));
+        assertFalse(first.attributes(layer).containsKey("missing"));
+        Feature second = layer.features.get(1);
+        assertEquals(-1L, second.attributes(layer).get("count"));
+    }
+
+    @Test
+    public void testValueDictionary() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder(TILE);
+        Map<String, Object> attributes = new HashMap<String, Object>();
+        attributes.put("flag", true);
+        attributes.put("value", 1.5);
+        encoder.addFeature("points", reader.read("POINT(1 1)"), attributes);
+        encoder.addFeature("points", reader.read("POINT(2 2)"), attributes);
+        Layer layer = decode(encoder.encode()).get("points");
+        assertEquals(2, layer.values.size());
+        assertTrue(layer.values.contains(Boolean.TRUE));
+        assertTrue(layer.values.contains(1.5d));
+        assertEquals(layer.features.get(0).tags, layer.features.get(1).tags);
+    }
+
+    @Test
+    public void testLineClipped() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder(TILE, 10, 0);
+        assertTrue(encoder.addFeature("lines", reader.read("LINESTRING(-5 5, 5 5, 5 20)"), null));
+        Feature feature = decode(encoder.encode()).get("lines").features.get(0);
+        assertEquals(VectorTileEncoder.LINESTRING, feature.type);
+        // moveTo(0,5), lineTo(+5,0), lineTo(0,-5)
+        assertEquals(Arrays.asList(9, 0, 10, 18, 10, 0, 0, 9), feature.geometry);
+    }
+
+    @Test
+    public void testPolygonWinding() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder(TILE, 10, 0);
+        // counter clockwise in map space, becomes clockwise with the y axis pointing down
+        assertTrue(encoder.addFeature("polygons",
+                reader.read("POLYGON((1 1, 9 1, 9 9, 1 9, 1 1), (3 3, 3 7, 7 7, 7 3, 3 3))"),
+                null));
+        Feature feature = decode(encoder.encode()).get("polygons").features.get(0);
+        assertEquals(VectorTileEncoder.POLYGON, feature.type);
+        List<List<int[]>> rings = rings(feature.geometry);
+        assertEquals(2, rings.size());
+        assertTrue(area(rings.get(0)) > 0);
+        assertTrue(area(rings.get(1)) < 0);
+    }
+
+    @Test
+    public void testCollapsed() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder(TILE, 10, 0);
+        assertFalse(encoder.addFeature("polygons",
+                reader.read("POLYGON((1 1, 1.1 1, 1.1 1.1, 1 1.1, 1 1))"), null));
+        assertFalse(encoder.addFeature("lines", reader.read("LINESTRING(1 1, 1.1 1.1)"), null));
+        assertTrue(encoder.isEmpty());
+        assertEquals(0, encoder.encode().length);
+    }
+
+    static long area(List<int[]> ring) {
+        long area = 0;
+        for (int i = 0; i < ring.size(); i++) {
+            int[] p1 = ring.get(i);
+            int[] p2 = ring.get((i + 1) % ring.size());
+            area += (long) p1[0] * p2[1] - (long) p2[0] * p1[1];
+        }
+        return area;
+    }
+
+    /**
+     * Decodes the geometry commands into paths of absolute tile coordinates
+     */
+    static List<List<int[]>> rings(List<Integer> geometry) {
+        List<List<int[]>> paths = new ArrayList<List<int[]>>();
+        List<int[]> path = null;
+        int x = 0, y = 0;
+        int i = 0;
+        while (i < geometry.size()) {
+            int command = geometry.get(i++);
+            int id = command & 0x7;
+            int count = command >> 3;
+            if (id == VectorTileEncoder.CLOSE_PATH) {
+                continue;
+            }
+            if (id == VectorTileEncoder.MOVE_TO) {
+                path = new ArrayList<int[]>();
+                paths.add(path);
+            }
+            for (int j = 0; j < count; j++) {
+                x += unZigZag(geometry.get(i++));
+                y += unZigZag(geometry.get(i++));
+                path.add(new int[] { x, y });
+            }
+        }
+        return paths;
+    }
+
+    static int unZigZag(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    static class Layer {
+        String name;
+
+        int extent;
+
+        List<Feature> features = new ArrayList<Feature>();
+
+        List<String> keys = new ArrayList<String>();
+
+        List<Object> values = new ArrayList<Object>();
+    }
+
+    static class Feature {
+        int type;
+
+        List<Integer> tags = new ArrayList<Integer>();
+
+        List<Integer> geometry = new ArrayList<Integer>();
+
+        Map<String, Object> attributes(Layer layer) {
+            Map<String, Object> result = new HashMap<String, Object>();
+            for (int i = 0; i < tags.size(); i += 2) {
+                result.put(layer.keys.get(tags.get(i)), layer.values.get(tags.get(i + 1)));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Decodes a tile, just enough to check the encoder output
+     */
+    static Map<String, Layer> decode(byte[] tile) {
+        Map<String, Layer> layers = new LinkedHashMap<String, Layer>();
+        ByteBuffer bb = ByteBuffer.wrap(tile);
+        while (bb.hasRemaining()) {
+            int tag = (int) readVarint(bb);
+            assertEquals((3 << 3) | 2, tag);
+            Layer layer = decodeLayer(readBytes(bb));
+            layers.put(layer.name, layer);
+        }
+        return layers;
+    }
+
+    static Layer decodeLayer(ByteBuffer bb) {
+        Layer layer = new Layer();
+        while (bb.hasRemaining()) {
+            int tag = (int) readVarint(bb);
+            switch (tag >> 3) {
+            case 1:
+                layer.name = readString(bb);
+                break;
+            case 2:
+                layer.features.add(decodeFeature(readBytes(bb)));
+                break;
+            case 3:
+                layer.keys.add(readString(bb));
+                break;
+            case 4:
+                layer.values.add(decodeValue(readBytes(bb)));
+                break;
+            case 5:
+                layer.extent = (int) readVarint(bb);
+                break;
+            case 15:
+                assertEquals(2, readVarint(bb));
+                break;
+            default:
+                fail("Unexpected layer field " + (tag >> 3));
+            }
+        }
+        return layer;
+    }
+
+    static Feature decodeFeature(ByteBuffer bb) {
+        Feature feature = new Feature();
+        while (bb.hasRemaining()) {
+            int tag = (int) readVarint(bb);
+            switch (tag >> 3) {
+            case 2:
+                feature.tags = readPacked(readBytes(bb));
+                break;
+            case 3:
+                feature.type = (int) readVarint(bb);
+                break;
+            case 4:
+                feature.geometry = readPacked(readBytes(bb));
+                break;
+            default:
+                fail("Unexpected feature field " + (tag >> 3));
+            }
+        }
+        return feature;
+    }
+
+    static Object decodeValue(ByteBuffer bb) {
+        int tag = (int) readVarint(bb);
+        switch (tag >> 3) {
+        case 1:
+            return readString(bb);
+        case 2:
+            return bb.order(ByteOrder.LITTLE_ENDIAN).getFloat();
+        case 3:
+            return bb.order(ByteOrder.LITTLE_ENDIAN).getDouble();
+        case 4:
+        case 5:
+            return readVarint(bb);
+        case 6:
+            long n = readVarint(bb);
+            return (n >>> 1) ^ -(n & 1);
+        case 7:
+            return readVarint(bb) != 0;
+        default:
+            throw new IllegalArgumentException("Unexpected value field " + (tag >> 3));
+        }
+    }
+
+    static long readVarint(ByteBuffer bb) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bb.get();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    static ByteBuffer readBytes(ByteBuffer bb) {
+        int length = (int) readVarint(bb);
+        ByteBuffer slice = bb.slice();
+        slice.limit(length);
+        bb.position(bb.position() + length);
+        return slice;
+    }
+
+    static String readString(ByteBuffer bb) {
+        ByteBuffer bytes = readBytes(bb);
+        byte[] array = new byte[bytes.remaining()];
+        bytes.get(array);
+        return new String(array, StandardCharsets.UTF_8);
+    }
+
+    static List<Integer> readPacked(ByteBuffer bb) {
+        List<Integer> values = new ArrayList<Integer>();
+        while (bb.hasRemaining()) {
+            values.add((int) readVarint(bb));
+        }
+        return values;
+    }
+}
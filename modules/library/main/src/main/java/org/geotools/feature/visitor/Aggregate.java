@@ -43,7 +43,15 @@ public enum Aggregate {
 
         @Override
         public CalcResult wrap(Expression aggregateAttribute, Object value) {
-            return new AverageVisitor.AverageResult( value );
+            if (value == null) {
+                return AbstractCalcResult.NULL_RESULT;
+            } else if (value instanceof AverageVisitor.AverageStrategy) {
+                return new AverageVisitor.AverageResult( value );
+            }
+            // a plain average, as computed by a store
+            AverageVisitor visitor = new AverageVisitor(aggregateAttribute);
+            visitor.setValue(value);
+            return visitor.getResult();
         }
     },
     COUNT {
@@ -97,8 +97,10 @@ public class QuantileListVisitor implements FeatureCalc {
         visit((org.opengis.feature.Feature)feature);
     }
     public void visit(org.opengis.feature.Feature feature) {
-        Object value = expr.evaluate(feature);
+        add(expr.evaluate(feature));
+    }
 
+    private void add(Object value) {
         if (value == null) {
 			countNull++; // increment the null count
 			return; // don't store this value
@@ -116,6 +118,27 @@ public class QuantileListVisitor implements FeatureCalc {
 		items.add(value);
 	}
 	
+    public Expression getExpression() {
+        return expr;
+    }
+
+    /**
+     * Sets the values to be binned, as read by an optimized data source. Nulls and NaNs are
+     * skipped as in a normal visit, the values are going to be sorted anyways, but the sort is
+     * cheap if they already are.
+     *
+     * @param values
+     */
+    public void setValue(List values) {
+        this.count = 0;
+        this.items = new ArrayList(values.size());
+        this.countNull = 0;
+        this.countNaN = 0;
+        for (Object value : values) {
+            add(value);
+        }
+    }
+
 	public void reset(int bins) {
 		this.bins = bins;
 		this.count = 0;
@@ -20,6 +20,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.util.Converters;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.filter.expression.Expression;
 
@@ -67,6 +68,11 @@ public class StandardDeviationVisitor implements FeatureCalc, FeatureAttributeVi
     int count = 0;
     double mean = 0;
     double m2 = 0;
+    /**
+     * The standard deviation computed by an optimized data source, if any (when set, it takes
+     * priority over the rolling computation)
+     */
+    Result optimized;
 
     /**
      * Constructor left for backwards compatibility. The current algorithm uses
@@ -100,6 +106,9 @@ public class StandardDeviationVisitor implements FeatureCalc, FeatureAttributeVi
     }
 
     public CalcResult getResult() {
+        if (optimized != null) {
+            return optimized;
+        }
         if (count == 0) {
             return CalcResult.NULL_RESULT;
         }
@@ -138,8 +147,23 @@ public class StandardDeviationVisitor implements FeatureCalc, FeatureAttributeVi
 	    this.countNaN = 0;
 	    this.m2 = 0;
 	    this.mean = 0;
+	    this.optimized = null;
 	}
 
+    /**
+     * Sets the standard deviation computed by an optimized data source. The mean and the null/NaN
+     * counts are not available in this case
+     *
+     * @param deviation
+     */
+    public void setValue(Object deviation) {
+        reset();
+        Double value = Converters.convert(deviation, Double.class);
+        if (value != null) {
+            optimized = new Result(value);
+        }
+    }
+
     /** mean value generated when calcualting standard deviation */
     public double getMean() {
         return mean;
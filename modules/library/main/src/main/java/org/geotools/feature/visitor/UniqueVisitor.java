@@ -96,7 +96,12 @@ public class UniqueVisitor implements FeatureCalc, FeatureAttributeVisitor, Limi
         set = createNewSet(Collections.EMPTY_LIST);
     }
 
-
+    /**
+     * Returns true if the unique values are returned in the order they were first seen
+     */
+    public boolean isPreserveOrder() {
+        return preserveOrder;
+    }
 
     @Override
     public int getStartIndex() {
@@ -21,6 +21,8 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.junit.Assert.*;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -307,6 +309,19 @@ public class GroupByVisitorTest {
 
     }
 
+    @Test
+    public void testOptimizedAverage() {
+        // stores computing averages return plain numbers
+        GroupByVisitor visitor = buildVisitor("energy_consumption", "Average", new String[]{"building_type"});
+        visitor.setValue(Arrays.asList(
+                new GroupByVisitor.GroupByRawResult(Arrays.<Object>asList("SCHOOL"), new BigDecimal("30")),
+                new GroupByVisitor.GroupByRawResult(Arrays.<Object>asList("HOUSE"), 5.0)));
+        checkResults(visitor.getResult(), new Object[][]{
+                new Object[]{"SCHOOL", 30.0},
+                new Object[]{"HOUSE", 5.0}
+        });
+    }
+
     private void testVisitor(String aggregateAttribute, String aggregateVisitor,
                              String groupByAttribute, Object[][] expectedResults) throws Exception {
         testVisitor(aggregateAttribute, aggregateVisitor, new String[]{groupByAttribute}, expectedResults);
@@ -18,6 +18,7 @@ package org.geotools.feature.visitor;
 
 import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -516,6 +517,19 @@ public class VisitorCalculationTest extends DataTestCase {
         assertSame(result, result.merge(emptyVisitor.getResult()));
     }
 
+    public void testQuantileListSetValue() throws Exception {
+        FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
+        QuantileListVisitor visitor = new QuantileListVisitor(factory.property("value"), 2);
+        // nulls and NaNs are skipped as in a visit
+        visitor.setValue(Arrays.asList(1d, 2d, null, 3d, Double.NaN));
+        List[] qResult = (List[]) visitor.getResult().getValue();
+        assertEquals(2, qResult.length);
+        assertEquals(Arrays.asList(1d, 2d), qResult[0]);
+        assertEquals(Arrays.asList(3d), qResult[1]);
+        assertEquals(1, visitor.getNullCount());
+        assertEquals(1, visitor.getNaNCount());
+    }
+
     public void testStandardDeviation() throws Exception {
     	FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
     	Expression expr = factory.property(ft3.getDescriptor(0).getLocalName());
@@ -541,6 +555,15 @@ public class VisitorCalculationTest extends DataTestCase {
         assertSame(result, result.merge(emptyVisitor.getResult()));
     }
     
+    public void testStandardDeviationSetValue() throws Exception {
+        FilterFactory factory = CommonFactoryFinder.getFilterFactory(null);
+        StandardDeviationVisitor visitor = new StandardDeviationVisitor(factory.property("value"));
+        visitor.setValue(new BigDecimal("28.86"));
+        assertEquals(28.86, visitor.getResult().toDouble(), 0d);
+        visitor.reset();
+        assertEquals(CalcResult.NULL_RESULT, visitor.getResult());
+    }
+
     //try merging a count and sum to get an average, both count+sum and sum+count 
     public void testCountSumMerge() throws IllegalFilterException, IOException {
         CountVisitor countVisitor = new CountVisitor();
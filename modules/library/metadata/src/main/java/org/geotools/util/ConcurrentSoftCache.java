@@ -0,0 +1,189 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A cache retaining its values by {@linkplain SoftReference soft references}, meant for hot
+ * paths looking up the same few objects from many threads. Lookups never block: they read a
+ * {@link ConcurrentHashMap} and update striped counters, while the values released by the
+ * garbage collector are purged on insertion. Two threads missing the same key at the same time
+ * may both create the value, {@link #putIfAbsent} makes sure they end up using the same one.
+ * <p>
+ * Unlike {@link SoftValueHashMap} no entry is retained by hard reference, the garbage collector
+ * keeps the recently used soft references alive longer anyway. The cache keeps track of its
+ * hits, misses and evictions (values released by the garbage collector).
+ *
+ * @param <K> The type of keys in the cache.
+ * @param <V> The type of values in the cache.
+ *
+ * @since 20.0
+ */
+public final class ConcurrentSoftCache<K, V> {
+
+    /**
+     * A soft reference remembering its key, to purge the entry once the value is released
+     */
+    private static final class Entry<K, V> extends SoftReference<V> {
+        final K key;
+
+        Entry(final K key, final V value, final ReferenceQueue<? super V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+
+    private final ConcurrentMap<K, Entry<K, V>> entries = new ConcurrentHashMap<K, Entry<K, V>>();
+
+    private final ReferenceQueue<V> released = new ReferenceQueue<V>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Returns the value cached for the specified key, or {@code null} if none was cached or it
+     * has been released by the garbage collector.
+     *
+     * @param key The key, not {@code null}
+     * @return The cached value, or {@code null}
+     */
+    public V get(final K key) {
+        final Entry<K, V> entry = entries.get(key);
+        if (entry != null) {
+            final V value = entry.get();
+            if (value != null) {
+                hits.increment();
+                return value;
+            }
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Caches the value, unless another one is already cached for the same key.
+     *
+     * @param key The key, not {@code null}
+     * @param value The value, not {@code null}
+     * @return The value cached for the key, either the existing one or the specified one
+     */
+    public V putIfAbsent(final K key, final V value) {
+        if (value == null) {
+            throw new NullPointerException("The cached values cannot be null");
+        }
+        purge();
+        final Entry<K, V> entry = new Entry<K, V>(key, value, released);
+        while (true) {
+            final Entry<K, V> previous = entries.putIfAbsent(key, entry);
+            if (previous == null) {
+                return value;
+            }
+            final V existing = previous.get();
+            if (existing != null) {
+                return existing;
+            }
+            if (entries.replace(key, previous, entry)) {
+                evictions.increment();
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Removes the entries whose values have been released by the garbage collector
+     */
+    @SuppressWarnings("unchecked")
+    private void purge() {
+        Reference<? extends V> reference;
+        while ((reference = released.poll()) != null) {
+            final Entry<K, V> entry = (Entry<K, V>) reference;
+            if (entries.remove(entry.key, entry)) {
+                evictions.increment();
+            }
+        }
+    }
+
+    /**
+     * Removes the value cached for the specified key, if any
+     */
+    public void remove(final K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all the entries, the statistics are preserved
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Returns the number of entries, including the ones whose value has been released by the
+     * garbage collector but not purged yet
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The number of lookups that found a cached value
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * The number of lookups that did not find a cached value
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * The number of values released by the garbage collector and removed from the cache
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Resets the hits, misses and evictions counters
+     */
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentSoftCache[size=" + size() + ", hits=" + getHits() + ", misses="
+                + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+}
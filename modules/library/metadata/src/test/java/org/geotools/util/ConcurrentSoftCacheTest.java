@@ -0,0 +1,104 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link ConcurrentSoftCache}.
+ */
+public final class ConcurrentSoftCacheTest {
+
+    @Test
+    public void testGetPut() {
+        ConcurrentSoftCache<String, Object> cache = new ConcurrentSoftCache<String, Object>();
+        assertNull(cache.get("a"));
+        Object a = new Object();
+        assertSame(a, cache.putIfAbsent("a", a));
+        // the first value wins
+        assertSame(a, cache.putIfAbsent("a", new Object()));
+        assertSame(a, cache.get("a"));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+
+        cache.remove("a");
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.getMisses());
+        cache.putIfAbsent("b", new Object());
+        cache.clear();
+        assertEquals(0, cache.size());
+
+        cache.resetStatistics();
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getMisses());
+    }
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        final ConcurrentSoftCache<Integer, Object> cache =
+                new ConcurrentSoftCache<Integer, Object>();
+        final int keys = 10;
+        final int lookups = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Object[]>> futures = new ArrayList<Future<Object[]>>();
+            for (int t = 0; t < 16; t++) {
+                futures.add(executor.submit(new Callable<Object[]>() {
+                    public Object[] call() throws Exception {
+                        Object[] seen = new Object[keys];
+                        for (int i = 0; i < lookups; i++) {
+                            Integer key = i % keys;
+                            Object value = cache.get(key);
+                            if (value == null) {
+                                value = cache.putIfAbsent(key, new Object());
+                            }
+                            if (seen[key] == null) {
+                                seen[key] = value;
+                            }
+                        }
+                        return seen;
+                    }
+                }));
+            }
+            Object[] expected = futures.get(0).get();
+            for (Future<Object[]> future : futures) {
+                Object[] seen = future.get();
+                for (int i = 0; i < keys; i++) {
+                    // everybody uses the same instances (values are strongly referenced here)
+                    assertSame(expected[i], seen[i]);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(16 * lookups, cache.getHits() + cache.getMisses());
+        assertEquals(keys, cache.size());
+    }
+}
@@ -43,8 +43,10 @@ import org.geotools.resources.CRSUtilities;
 import org.geotools.resources.geometry.XRectangle2D;
 import org.geotools.resources.i18n.ErrorKeys;
 import org.geotools.resources.i18n.Errors;
+import org.geotools.util.ConcurrentSoftCache;
 import org.geotools.util.GenericName;
 import org.geotools.util.UnsupportedImplementationException;
+import org.geotools.util.Utilities;
 import org.geotools.util.Version;
 import org.geotools.util.logging.Logging;
 import org.opengis.geometry.DirectPosition;
@@ -203,6 +205,58 @@ public final class CRS {
      */
     private static volatile CoordinateOperationFactory lenientFactory;
 
+    /**
+     * The CRS returned by {@link #decode(String, boolean)}, keyed by code and axis order flag.
+     * Lookups in this cache do not block, unlike the ones in the authority factories.
+     */
+    private static final ConcurrentSoftCache<CacheKey, CoordinateReferenceSystem> decoded =
+            new ConcurrentSoftCache<CacheKey, CoordinateReferenceSystem>();
+
+    /**
+     * The math transforms returned by {@link #findMathTransform(CoordinateReferenceSystem,
+     * CoordinateReferenceSystem, boolean)}, keyed by source CRS, target CRS and lenient flag.
+     */
+    private static final ConcurrentSoftCache<CacheKey, MathTransform> transforms =
+            new ConcurrentSoftCache<CacheKey, MathTransform>();
+
+    /**
+     * The key of the {@link #decoded} and {@link #transforms} caches. Objects are compared
+     * using strict equality, as the metadata are part of the cached objects.
+     */
+    private static final class CacheKey {
+        private final Object first, second;
+
+        private final boolean flag;
+
+        private final int hash;
+
+        CacheKey(final Object first, final Object second, final boolean flag) {
+            this.first = first;
+            this.second = second;
+            this.flag = flag;
+            this.hash = Utilities.hash(flag, Utilities.hash(second, Utilities.hash(first, 0)));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (object == this) {
+                return true;
+            }
+            if (object instanceof CacheKey) {
+                final CacheKey that = (CacheKey) object;
+                return this.hash == that.hash && this.flag == that.flag
+                        && Utilities.equals(this.first, that.first)
+                        && Utilities.equals(this.second, that.second);
+            }
+            return false;
+        }
+    }
+
     /**
      * Registers a listener automatically invoked when the system-wide configuration changed.
      */
@@ -215,6 +269,8 @@ public final class CRS {
                     strictFactory  = null;
                     lenientFactory = null;
                 }
+                decoded.clear();
+                transforms.clear();
             }
         });
     }
@@ -522,7 +578,24 @@ public final class CRS {
         // @deprecated: 'toUpperCase()' is required only for epsg-wkt.
         // Remove after we deleted the epsg-wkt module.
         code = code.trim().toUpperCase();
-        return getAuthorityFactory(longitudeFirst).createCoordinateReferenceSystem(code);
+        final CacheKey key = new CacheKey(code, null, longitudeFirst);
+        CoordinateReferenceSystem crs = decoded.get(key);
+        if (crs == null) {
+            crs = getAuthorityFactory(longitudeFirst).createCoordinateReferenceSystem(code);
+            crs = decoded.putIfAbsent(key, crs);
+        }
+        return crs;
+    }
+
+    /**
+     * Returns the cache of the coordinate reference systems returned by
+     * {@link #decode(String, boolean) decode}, mostly to inspect its hits, misses and evictions.
+     * The cache is cleared by {@link #reset} and when the system-wide configuration changes.
+     *
+     * @since 20.0
+     */
+    public static ConcurrentSoftCache<?, CoordinateReferenceSystem> getDecodeCache() {
+        return decoded;
     }
 
     /**
@@ -1202,12 +1275,31 @@ search:             if (DefaultCoordinateSystemAxis.isCompassDirection(axis.getD
                                                   boolean lenient)
             throws FactoryException
     {
+        final CacheKey key = new CacheKey(sourceCRS, targetCRS, lenient);
+        MathTransform transform = transforms.get(key);
+        if (transform != null) {
+            return transform;
+        }
         if (equalsIgnoreMetadata(sourceCRS, targetCRS)) {
             // Slight optimization in order to avoid the overhead of loading the full referencing engine.
-            return IdentityTransform.create(sourceCRS.getCoordinateSystem().getDimension());
+            transform = IdentityTransform.create(sourceCRS.getCoordinateSystem().getDimension());
+        } else {
+            CoordinateOperationFactory operationFactory = getCoordinateOperationFactory(lenient);
+            transform = operationFactory.createOperation(sourceCRS, targetCRS).getMathTransform();
         }
-        CoordinateOperationFactory operationFactory = getCoordinateOperationFactory(lenient);
-        return operationFactory.createOperation(sourceCRS, targetCRS).getMathTransform();
+        return transforms.putIfAbsent(key, transform);
+    }
+
+    /**
+     * Returns the cache of the math transforms returned by {@link #findMathTransform(
+     * CoordinateReferenceSystem, CoordinateReferenceSystem, boolean) findMathTransform}, mostly
+     * to inspect its hits, misses and evictions. The cache is cleared by {@link #reset} and when
+     * the system-wide configuration changes.
+     *
+     * @since 20.0
+     */
+    public static ConcurrentSoftCache<?, MathTransform> getTransformCache() {
+        return transforms;
     }
 
     /**
@@ -2010,6 +2102,8 @@ search:             if (DefaultCoordinateSystemAxis.isCompassDirection(axis.getD
         xyFactory = null;
         strictFactory = null;
         lenientFactory = null;
+        decoded.clear();
+        transforms.clear();
     }
     
     /**
@@ -16,13 +16,12 @@
  */
 package org.geotools.referencing.operation;
 
-import java.util.Map;
 import java.util.Set;
 
 import org.geotools.factory.BufferedFactory;
 import org.geotools.factory.Hints;
 import org.geotools.referencing.ReferencingFactoryFinder;
-import org.geotools.util.SoftValueHashMap;
+import org.geotools.util.ConcurrentSoftCache;
 import org.geotools.util.Utilities;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
@@ -125,10 +124,11 @@ public class BufferedCoordinateOperationFactory extends AbstractCoordinateOperat
     /**
      * The pool of cached transformations. This map can not be static, because the values may
      * be different for the same ({@code sourceCRS}, {@code targetCRS}) pair dependending of
-     * hint values like {@link Hints#LENIENT_DATUM_SHIFT}.
+     * hint values like {@link Hints#LENIENT_DATUM_SHIFT}. Lookups do not block, so that many
+     * threads can share the same few operations.
      */
-    private final Map<CRSPair, CoordinateOperation> pool =
-            new SoftValueHashMap<CRSPair, CoordinateOperation>();
+    private final ConcurrentSoftCache<CRSPair, CoordinateOperation> pool =
+            new ConcurrentSoftCache<CRSPair, CoordinateOperation>();
 
     /**
      * Creates a buffered factory wrapping the {@linkplain AuthorityBackedFactory default one}.
@@ -256,10 +256,39 @@ public class BufferedCoordinateOperationFactory extends AbstractCoordinateOperat
         op = pool.get(key);
         if (op == null) {
             op = getBackingFactory().createOperation(sourceCRS, targetCRS);
-            pool.put(key, op);
+            op = pool.putIfAbsent(key, op);
         }
         return op;
     }
+
+    /**
+     * Returns the number of {@link #createOperation(CoordinateReferenceSystem,
+     * CoordinateReferenceSystem) createOperation} calls answered by the cache.
+     *
+     * @since 20.0
+     */
+    public long getCacheHits() {
+        return pool.getHits();
+    }
+
+    /**
+     * Returns the number of {@link #createOperation(CoordinateReferenceSystem,
+     * CoordinateReferenceSystem) createOperation} calls delegated to the backing factory.
+     *
+     * @since 20.0
+     */
+    public long getCacheMisses() {
+        return pool.getMisses();
+    }
+
+    /**
+     * Returns the number of cached operations released by the garbage collector.
+     *
+     * @since 20.0
+     */
+    public long getCacheEvictions() {
+        return pool.getEvictions();
+    }
     
     /**
      * Returns all available operations for conversion or transformation between two coordinate reference systems. The operation creation is delegated
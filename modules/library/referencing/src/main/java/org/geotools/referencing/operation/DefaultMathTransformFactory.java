@@ -55,6 +55,7 @@ import org.geotools.referencing.AbstractIdentifiedObject;
 import org.geotools.referencing.cs.AbstractCS;
 import org.geotools.referencing.factory.ReferencingFactory;
 import org.geotools.referencing.operation.matrix.MatrixFactory;
+import org.geotools.referencing.operation.projection.FusedProjectionTransform;
 import org.geotools.referencing.operation.transform.ConcatenatedTransform;
 import org.geotools.referencing.operation.transform.PassThroughTransform;
 import org.geotools.referencing.operation.transform.ProjectiveTransform;
@@ -118,6 +119,13 @@ public class DefaultMathTransformFactory extends ReferencingFactory implements M
      */
     private static final Hints HINTS = null;
 
+    /**
+     * The system property enabling {@linkplain #setFusedTransforms fused transforms} by default.
+     *
+     * @since 20.0
+     */
+    public static final String FUSED_TRANSFORMS = "org.geotools.referencing.fusedTransforms";
+
     /**
      * The object to use for parsing <cite>Well-Known Text</cite> (WKT) strings.
      * Will be created only when first needed.
@@ -146,6 +154,11 @@ public class DefaultMathTransformFactory extends ReferencingFactory implements M
      */
     private final FactoryRegistry registry;
 
+    /**
+     * Whether concatenations including map projections are fused.
+     */
+    private volatile boolean fusedTransforms = Boolean.getBoolean(FUSED_TRANSFORMS);
+
     /**
      * Constructs a default {@link MathTransform math transform} factory.
      */
@@ -523,14 +536,43 @@ public class DefaultMathTransformFactory extends ReferencingFactory implements M
     {
         MathTransform tr;
         try {
-            tr = ConcatenatedTransform.create(transform1, transform2);
+            tr = ConcatenatedTransform.create(FusedProjectionTransform.unwrap(transform1),
+                                              FusedProjectionTransform.unwrap(transform2));
         } catch (IllegalArgumentException exception) {
             throw new FactoryException(exception);
         }
+        if (fusedTransforms) {
+            tr = FusedProjectionTransform.create(tr);
+        }
         tr = pool.unique(tr);
         return tr;
     }
 
+    /**
+     * Returns {@code true} if the concatenations including map projections are fused.
+     *
+     * @see #setFusedTransforms
+     * @since 20.0
+     */
+    public boolean isFusedTransforms() {
+        return fusedTransforms;
+    }
+
+    /**
+     * Sets whether the two dimensional concatenations including map projections should be
+     * fused, that is, transform coordinate arrays in as few passes as possible, with the affine
+     * steps folded in the map projections normalization, and the coordinates kept in radians
+     * between the inverse of a projection and the next projection. The fused transforms skip
+     * the map projection range checks and assertions. The default value is {@code false},
+     * unless the {@value #FUSED_TRANSFORMS} system property is set to {@code true}.
+     *
+     * @see FusedProjectionTransform
+     * @since 20.0
+     */
+    public void setFusedTransforms(final boolean fusedTransforms) {
+        this.fusedTransforms = fusedTransforms;
+    }
+
     /**
      * Creates a transform which passes through a subset of ordinates to another transform.
      * This allows transforms to operate on a subset of ordinates. For example, if you have
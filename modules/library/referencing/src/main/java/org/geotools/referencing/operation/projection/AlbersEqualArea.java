@@ -267,6 +267,87 @@ public class AlbersEqualArea extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place the packed (<var>&lambda;</var>,<var>&phi;</var>) coordinates.
+     * This is the bulk version of {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected int transformNormalized(final double[] pts, final int offset, final int numPts) {
+        int failures = 0;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            final double x = pts[i] * n;
+            double rho;
+            if (isSpherical) {
+                rho = c - n*2 * sin(pts[i+1]);
+            } else {
+                rho = c - n * qsfn(sin(pts[i+1]));
+            }
+            if (rho < 0.0) {
+                if (rho > -EPSILON) {
+                    rho = 0.0;
+                } else {
+                    pts[i]   = Double.NaN;
+                    pts[i+1] = Double.NaN;
+                    failures++;
+                    continue;
+                }
+            }
+            rho = sqrt(rho) / n;
+            pts[i+1] = rho0 - rho * cos(x);
+            pts[i]   =        rho * sin(x);
+        }
+        return failures;
+    }
+
+    /**
+     * Transforms in place the packed (<var>x</var>,<var>y</var>) coordinates.
+     * This is the bulk version of {@link #inverseTransformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected int inverseTransformNormalized(final double[] pts, final int offset, final int numPts) {
+        int failures = 0;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            double x = pts[i];
+            double y = rho0 - pts[i+1];
+            double rho = hypot(x, y);
+            if (rho > EPSILON) {
+                if (n < 0.0) {
+                    rho = -rho;
+                    x   = -x;
+                    y   = -y;
+                }
+                x = atan2(x, y) / n;
+                y = rho * n;
+                if (isSpherical) {
+                    y = (c - y * y) / (n*2);
+                    if (abs(y) <= 1.0){
+                        y = asin(y);
+                    }
+                    else {
+                        y = (y < 0.0) ? -PI/2.0 : PI/2.0;
+                    }
+                } else {
+                    y = (c - y*y) / n;
+                    if (abs(ec - abs(y)) > EPSILON) {
+                        y = phi1OrNaN(y);
+                        if (Double.isNaN(y) && excentricity >= EPSILON) {
+                            x = Double.NaN;
+                            failures++;
+                        }
+                    } else {
+                        y = (y < 0.0) ? -PI/2.0 : PI/2.0;
+                    }
+                }
+            } else {
+                x = 0.0;
+                y = n > 0.0 ? PI/2.0 : - PI/2.0;
+            }
+            pts[i]   = x;
+            pts[i+1] = y;
+        }
+        return failures;
+    }
+
     /**
      * Iteratively solves equation (3-16) from Snyder.
      *
@@ -274,6 +355,18 @@ public class AlbersEqualArea extends MapProjection {
      * @return the latitude
      */
     private double phi1(final double qs) throws ProjectionException {
+        final double phi = phi1OrNaN(qs);
+        if (Double.isNaN(phi) && excentricity >= EPSILON) {
+            throw new ProjectionException(ErrorKeys.NO_CONVERGENCE);
+        }
+        return phi;
+    }
+
+    /**
+     * Same as {@link #phi1(double)}, but returns {@link Double#NaN} instead of throwing an
+     * exception when the iteration does not converge. Used by the bulk transforms.
+     */
+    private double phi1OrNaN(final double qs) {
         final double tone_es = 1 - excentricitySquared;
         double phi = asin(0.5 * qs);
         if (excentricity < EPSILON) {
@@ -291,7 +384,7 @@ public class AlbersEqualArea extends MapProjection {
                 return phi;
             }
         }
-        throw new ProjectionException(ErrorKeys.NO_CONVERGENCE);
+        return Double.NaN;
     }
 
     /**
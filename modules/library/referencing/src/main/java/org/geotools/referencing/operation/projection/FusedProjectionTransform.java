@@ -0,0 +1,442 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.projection;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.referencing.operation.LinearTransform;
+import org.geotools.referencing.operation.transform.AbstractMathTransform;
+import org.geotools.referencing.operation.transform.ConcatenatedTransform;
+import org.geotools.referencing.wkt.Formatter;
+import org.geotools.resources.i18n.ErrorKeys;
+import org.geotools.util.Utilities;
+import org.opengis.geometry.DirectPosition;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * A two dimensional {@linkplain ConcatenatedTransform concatenated transform} made of map
+ * projections, affine transforms and possibly a geographic transform (e.g. a datum shift) in
+ * the middle, that transforms coordinate arrays with as few passes as possible:
+ * <ul>
+ *   <li>the affine transforms before and after a projection are folded in the projection
+ *       normalization (degrees to radians, central meridian, scale, false easting and
+ *       northing), so that each of them costs one pass over the array at most;</li>
+ *   <li>between the inverse of a projection and another projection, the coordinates are kept
+ *       normalized in radians, only the longitudes are shifted between the central meridians;</li>
+ *   <li>the map projections use their bulk
+ *       {@linkplain MapProjection#transformNormalized(double[], int, int) array methods}.</li>
+ * </ul>
+ * Only the array transforms are fused, single points are transformed by the original
+ * concatenated transform. The map projections range checks and assertions are not run on
+ * arrays. Instances are created by
+ * {@link org.geotools.referencing.operation.DefaultMathTransformFactory} when
+ * {@linkplain org.geotools.referencing.operation.DefaultMathTransformFactory#setFusedTransforms
+ * fused transforms} are enabled.
+ *
+ * @since 20.0
+ */
+public final class FusedProjectionTransform extends AbstractMathTransform
+        implements MathTransform2D, Serializable {
+
+    private static final long serialVersionUID = -1726419534826397611L;
+
+    /**
+     * The concatenated transform this object is equivalent to.
+     */
+    private final MathTransform2D original;
+
+    /**
+     * The projection inverted at the beginning of the chain, or {@code null}.
+     */
+    private final MapProjection source;
+
+    /**
+     * The geographic transform between the projections, working in decimal degrees,
+     * or {@code null}.
+     */
+    private final MathTransform middle;
+
+    /**
+     * The projection applied at the end of the chain, or {@code null}.
+     */
+    private final MapProjection target;
+
+    /**
+     * The affine transform applied to the source coordinates, with the normalization of the
+     * first projection folded in. May be {@code null} if it is the identity.
+     */
+    private final AffineTransform head;
+
+    /**
+     * The affine transform applied after the first projection, or {@code null}.
+     */
+    private final AffineTransform between;
+
+    /**
+     * The affine transform moving the coordinates in the second projection normalized space,
+     * or {@code null}.
+     */
+    private final AffineTransform before;
+
+    /**
+     * The affine transform applied to the target coordinates, with the denormalization of the
+     * last projection folded in. May be {@code null} if it is the identity.
+     */
+    private final AffineTransform tail;
+
+    /**
+     * The inverse transform, created when first needed.
+     */
+    private transient MathTransform2D inverse;
+
+    private FusedProjectionTransform(final MathTransform2D original, final AffineTransform pre,
+            final MapProjection source, final MathTransform middle, final MapProjection target,
+            final AffineTransform post) {
+        this.original = original;
+        this.source = source;
+        this.middle = middle;
+        this.target = target;
+        AffineTransform head = pre;
+        AffineTransform between = null;
+        AffineTransform before = null;
+        AffineTransform tail = post;
+        if (source != null) {
+            head = concatenate(inverseDenormalization(source), pre);
+            if (middle == null && target != null) {
+                // stay in radians, just move from a central meridian to the other
+                between = AffineTransform.getTranslateInstance(-target.centralMeridian, 0);
+            } else {
+                between = AffineTransform.getScaleInstance(180 / Math.PI, 180 / Math.PI);
+                if (middle == null) {
+                    between = concatenate(post, between);
+                    tail = null;
+                }
+            }
+        }
+        if (target != null) {
+            if (source == null && middle == null) {
+                head = concatenate(normalization(target), pre);
+            } else if (middle != null) {
+                before = normalization(target);
+            }
+            tail = concatenate(post, denormalization(target));
+        }
+        this.head = identityToNull(head);
+        this.between = between;
+        this.before = before;
+        this.tail = identityToNull(tail);
+    }
+
+    /**
+     * Returns a fused version of the given transform, or the transform itself if it does not
+     * include a map projection and can't be fused.
+     */
+    public static MathTransform create(final MathTransform transform) {
+        if (!(transform instanceof ConcatenatedTransform) || !(transform instanceof MathTransform2D)
+                || transform.getSourceDimensions() != 2 || transform.getTargetDimensions() != 2) {
+            return transform;
+        }
+        final List<MathTransform> steps = new ArrayList<MathTransform>();
+        addSteps(steps, transform);
+        int start = 0;
+        int end = steps.size();
+        AffineTransform pre = toAffine(steps.get(start));
+        if (pre != null) {
+            start++;
+        }
+        AffineTransform post = end > start ? toAffine(steps.get(end - 1)) : null;
+        if (post != null) {
+            end--;
+        }
+        MapProjection source = null;
+        if (start < end) {
+            source = MapProjection.inverseOf(steps.get(start));
+            if (source != null) {
+                start++;
+            }
+        }
+        MapProjection target = null;
+        if (start < end && steps.get(end - 1) instanceof MapProjection) {
+            target = (MapProjection) steps.get(--end);
+        }
+        if (source == null && target == null) {
+            return transform;
+        }
+        MathTransform middle = null;
+        for (int i = start; i < end; i++) {
+            middle = (middle == null) ? steps.get(i) : ConcatenatedTransform.create(middle, steps.get(i));
+        }
+        if (middle != null && (middle.getSourceDimensions() != 2 || middle.getTargetDimensions() != 2)) {
+            return transform;
+        }
+        if (pre == null) {
+            pre = new AffineTransform();
+        }
+        if (post == null) {
+            post = new AffineTransform();
+        }
+        return new FusedProjectionTransform((MathTransform2D) transform, pre, source, middle,
+                target, post);
+    }
+
+    /**
+     * Returns the concatenated transform wrapped by the given transform if it is a fused one, or
+     * the transform itself otherwise
+     */
+    public static MathTransform unwrap(final MathTransform transform) {
+        if (transform instanceof FusedProjectionTransform) {
+            return ((FusedProjectionTransform) transform).original;
+        }
+        return transform;
+    }
+
+    /**
+     * Flattens the concatenated transforms into the list of their steps
+     */
+    private static void addSteps(final List<MathTransform> steps, final MathTransform transform) {
+        if (transform instanceof ConcatenatedTransform) {
+            final ConcatenatedTransform concat = (ConcatenatedTransform) transform;
+            addSteps(steps, concat.transform1);
+            addSteps(steps, concat.transform2);
+        } else if (transform instanceof FusedProjectionTransform) {
+            addSteps(steps, ((FusedProjectionTransform) transform).original);
+        } else {
+            steps.add(transform);
+        }
+    }
+
+    /**
+     * Returns the given step as a Java2D affine transform, or {@code null} if it is not a two
+     * dimensional affine transform
+     */
+    private static AffineTransform toAffine(final MathTransform step) {
+        if (step.getSourceDimensions() != 2 || step.getTargetDimensions() != 2) {
+            return null;
+        }
+        if (step instanceof AffineTransform) {
+            return new AffineTransform((AffineTransform) step);
+        }
+        if (step instanceof LinearTransform) {
+            final Matrix m = ((LinearTransform) step).getMatrix();
+            if (m.getElement(2, 0) == 0 && m.getElement(2, 1) == 0 && m.getElement(2, 2) == 1) {
+                return new AffineTransform(m.getElement(0, 0), m.getElement(1, 0),
+                        m.getElement(0, 1), m.getElement(1, 1),
+                        m.getElement(0, 2), m.getElement(1, 2));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The affine part of the projection input normalization: degrees to radians and central
+     * meridian removal (the longitude rolling is done separately)
+     */
+    private static AffineTransform normalization(final MapProjection projection) {
+        final double toRadians = Math.PI / 180;
+        return new AffineTransform(toRadians, 0, 0, toRadians, -projection.centralMeridian, 0);
+    }
+
+    /**
+     * The projection output denormalization: global scale, false easting and false northing
+     */
+    private static AffineTransform denormalization(final MapProjection projection) {
+        final double scale = projection.globalScale;
+        return new AffineTransform(scale, 0, 0, scale, projection.falseEasting,
+                projection.falseNorthing);
+    }
+
+    /**
+     * The inverse of {@link #denormalization}
+     */
+    private static AffineTransform inverseDenormalization(final MapProjection projection) {
+        final double scale = projection.globalScale;
+        return new AffineTransform(1 / scale, 0, 0, 1 / scale, -projection.falseEasting / scale,
+                -projection.falseNorthing / scale);
+    }
+
+    /**
+     * Returns the transform applying {@code first}, then {@code second}
+     */
+    private static AffineTransform concatenate(final AffineTransform second,
+            final AffineTransform first) {
+        final AffineTransform result = new AffineTransform(second);
+        result.concatenate(first);
+        return result;
+    }
+
+    private static AffineTransform identityToNull(final AffineTransform at) {
+        return (at == null || at.isIdentity()) ? null : at;
+    }
+
+    @Override
+    public int getSourceDimensions() {
+        return 2;
+    }
+
+    @Override
+    public int getTargetDimensions() {
+        return 2;
+    }
+
+    /**
+     * Transforms the coordinates array, one pass for each fused step.
+     *
+     * @throws ProjectionException if a point can't be transformed. This method transforms every
+     *         point even if some of them can't be transformed, the non-transformable points are
+     *         set to {@link Double#NaN}.
+     */
+    @Override
+    public void transform(final double[] srcPts, final int srcOff, final double[] dstPts,
+            final int dstOff, final int numPts) throws TransformException {
+        if (numPts <= 0) {
+            return;
+        }
+        System.arraycopy(srcPts, srcOff, dstPts, dstOff, 2 * numPts);
+        int failures = 0;
+        if (source != null) {
+            applyAffine(dstPts, dstOff, numPts, 0, head, false);
+            failures += source.inverseTransformNormalized(dstPts, dstOff, numPts);
+            applyAffine(dstPts, dstOff, numPts, source.centralMeridian, between,
+                    middle == null && target != null && target.centralMeridian != 0);
+        } else if (middle != null) {
+            applyAffine(dstPts, dstOff, numPts, 0, head, false);
+        }
+        if (middle != null) {
+            middle.transform(dstPts, dstOff, dstPts, dstOff, numPts);
+        }
+        if (target != null) {
+            if (source == null && middle == null) {
+                applyAffine(dstPts, dstOff, numPts, 0, head, target.centralMeridian != 0);
+            } else if (middle != null) {
+                applyAffine(dstPts, dstOff, numPts, 0, before, target.centralMeridian != 0);
+            }
+            failures += target.transformNormalized(dstPts, dstOff, numPts);
+        }
+        applyAffine(dstPts, dstOff, numPts, 0, tail, false);
+        if (failures != 0) {
+            throw new ProjectionException(ErrorKeys.CANT_TRANSFORM_VALID_POINTS);
+        }
+    }
+
+    /**
+     * Applies an affine transform in place, in a single pass. Before the affine transform, the
+     * longitudes are shifted and rolled if {@code shift} is not zero. After the affine transform
+     * the longitudes are rolled if {@code roll} is true. See
+     * {@link MapProjection#transform(Point2D, Point2D)} for the reason why the longitudes are
+     * rolled only when a central meridian is set.
+     */
+    private static void applyAffine(final double[] pts, final int offset, final int numPts,
+            final double shift, final AffineTransform at, final boolean roll) {
+        if (at == null && shift == 0 && !roll) {
+            return;
+        }
+        final double m00, m01, m02, m10, m11, m12;
+        if (at != null) {
+            m00 = at.getScaleX();
+            m01 = at.getShearX();
+            m02 = at.getTranslateX();
+            m10 = at.getShearY();
+            m11 = at.getScaleY();
+            m12 = at.getTranslateY();
+        } else {
+            m00 = m11 = 1;
+            m01 = m02 = m10 = m12 = 0;
+        }
+        for (int i = offset, end = offset + 2 * numPts; i < end; i += 2) {
+            double x = pts[i];
+            final double y = pts[i + 1];
+            if (shift != 0) {
+                x = rollLongitude(x + shift);
+            }
+            final double tx = m00 * x + m01 * y + m02;
+            pts[i + 1] = m10 * x + m11 * y + m12;
+            pts[i] = roll ? rollLongitude(tx) : tx;
+        }
+    }
+
+    @Override
+    public Point2D transform(final Point2D ptSrc, final Point2D ptDst) throws TransformException {
+        return original.transform(ptSrc, ptDst);
+    }
+
+    @Override
+    public DirectPosition transform(final DirectPosition ptSrc, final DirectPosition ptDst)
+            throws TransformException {
+        return original.transform(ptSrc, ptDst);
+    }
+
+    @Override
+    public Matrix derivative(final Point2D point) throws TransformException {
+        return original.derivative(point);
+    }
+
+    @Override
+    public Matrix derivative(final DirectPosition point) throws TransformException {
+        return original.derivative(point);
+    }
+
+    @Override
+    public boolean isIdentity() {
+        return false;
+    }
+
+    @Override
+    public MathTransform2D inverse() throws NoninvertibleTransformException {
+        // No synchronization, not a big deal if two instances are created
+        if (inverse == null) {
+            inverse = (MathTransform2D) create(original.inverse());
+        }
+        return inverse;
+    }
+
+    @Override
+    public int hashCode() {
+        return ~original.hashCode();
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        if (object == this) {
+            return true;
+        }
+        if (object instanceof FusedProjectionTransform) {
+            return Utilities.equals(original, ((FusedProjectionTransform) object).original);
+        }
+        return false;
+    }
+
+    /**
+     * Formats the steps of the original transform, the fusion is an implementation detail
+     */
+    @Override
+    protected String formatWKT(final Formatter formatter) {
+        final List<MathTransform> steps = new ArrayList<MathTransform>();
+        addSteps(steps, original);
+        for (MathTransform step : steps) {
+            formatter.append(step);
+        }
+        return "CONCAT_MT";
+    }
+}
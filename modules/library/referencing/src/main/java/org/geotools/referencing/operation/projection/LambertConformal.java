@@ -280,6 +280,76 @@ public abstract class LambertConformal extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place the packed (<var>&lambda;</var>,<var>&phi;</var>) coordinates.
+     * This is the bulk version of {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected int transformNormalized(final double[] pts, final int offset, final int numPts) {
+        int failures = 0;
+        final double shift = belgium ? BELGE_A : 0;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            final double y = pts[i+1];
+            final double rho;
+            // Snyder p. 108
+            if (abs(abs(y) - PI/2) < EPSILON) {
+                if (y*n <= 0) {
+                    pts[i]   = Double.NaN;
+                    pts[i+1] = Double.NaN;
+                    failures++;
+                    continue;
+                }
+                rho = 0;
+            } else if (isSpherical) {
+                rho = F * pow(tan(PI/4 + 0.5*y), -n);
+            } else {
+                rho = F * pow(tsfn(y, sin(y)), n);
+            }
+            final double x = pts[i]*n - shift;
+            pts[i+1] = rho0 - rho * cos(x);
+            pts[i]   =        rho * sin(x);
+        }
+        return failures;
+    }
+
+    /**
+     * Transforms in place the packed (<var>x</var>,<var>y</var>) coordinates.
+     * This is the bulk version of {@link #inverseTransformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected int inverseTransformNormalized(final double[] pts, final int offset, final int numPts) {
+        int failures = 0;
+        final double shift = belgium ? BELGE_A : 0;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            double x = pts[i];
+            double y = rho0 - pts[i+1];
+            double rho = hypot(x, y);  // Zero when the latitude is 90 degrees.
+            if (rho > EPSILON) {
+                if (n < 0) {
+                    rho = -rho;
+                    x = -x;
+                    y = -y;
+                }
+                x = (atan2(x, y) + shift)/n;
+                if (isSpherical) {
+                    y = 2.0 * atan(pow(F/rho, 1.0/n)) - PI/2;
+                } else {
+                    y = cphi2OrNaN(pow(rho/F, 1.0/n));
+                    if (Double.isNaN(y)) {
+                        x = Double.NaN;
+                        failures++;
+                    }
+                }
+            } else {
+                x = 0.0;
+                y = n < 0 ? -(PI/2) : (PI/2);
+            }
+            pts[i]   = x;
+            pts[i+1] = y;
+        }
+        return failures;
+    }
+
     /**
      * Returns a hash value for this projection.
      */
@@ -24,6 +24,7 @@ import static java.lang.Math.*;
 
 import java.awt.geom.Point2D;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -50,6 +51,7 @@ import org.opengis.parameter.ParameterDescriptor;
 import org.opengis.parameter.ParameterDescriptorGroup;
 import org.opengis.parameter.ParameterNotFoundException;
 import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.MathTransform2D;
 import org.opengis.referencing.operation.NoninvertibleTransformException;
 import org.opengis.referencing.operation.Projection;
@@ -859,6 +861,72 @@ public abstract class MapProjection extends AbstractMathTransform
     protected abstract Point2D transformNormalized(double lambda, double phi, final Point2D ptDst)
             throws ProjectionException;
 
+    /**
+     * Transforms in place a packed array of (<var>&lambda;</var>,<var>&phi;</var>) coordinates,
+     * in radians and with the {@link #centralMeridian} already removed, into coordinates on a
+     * unit sphere or ellipse. This is the bulk counterpart of
+     * {@link #transformNormalized(double, double, Point2D)}: the points that can't be transformed
+     * are set to {@link Double#NaN} and counted, instead of throwing an exception.
+     * <p>
+     * The default implementation invokes the single point method for every point. Subclasses
+     * can override it with a tight loop over the array, free of allocations and method calls,
+     * that the JIT compiler optimizes much better. Subclasses overriding the single point methods
+     * must override the bulk ones as well.
+     *
+     * @param pts    The packed (<var>&lambda;</var>,<var>&phi;</var>) coordinates.
+     * @param offset The index of the first coordinate in the array.
+     * @param numPts The number of points to transform.
+     * @return The number of points that could not be transformed.
+     *
+     * @since 20.0
+     */
+    protected int transformNormalized(final double[] pts, final int offset, final int numPts) {
+        final Point2D.Double point = new Point2D.Double();
+        int failures = 0;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            try {
+                final Point2D result = transformNormalized(pts[i], pts[i+1], point);
+                pts[i]   = result.getX();
+                pts[i+1] = result.getY();
+            } catch (ProjectionException exception) {
+                pts[i]   = Double.NaN;
+                pts[i+1] = Double.NaN;
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Transforms in place a packed array of (<var>x</var>,<var>y</var>) coordinates on a unit
+     * sphere or ellipse into (<var>&lambda;</var>,<var>&phi;</var>) coordinates in radians. This
+     * is the bulk counterpart of {@link #inverseTransformNormalized(double, double, Point2D)},
+     * see {@link #transformNormalized(double[], int, int)} for details.
+     *
+     * @param pts    The packed (<var>x</var>,<var>y</var>) coordinates.
+     * @param offset The index of the first coordinate in the array.
+     * @param numPts The number of points to transform.
+     * @return The number of points that could not be transformed.
+     *
+     * @since 20.0
+     */
+    protected int inverseTransformNormalized(final double[] pts, final int offset, final int numPts) {
+        final Point2D.Double point = new Point2D.Double();
+        int failures = 0;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            try {
+                final Point2D result = inverseTransformNormalized(pts[i], pts[i+1], point);
+                pts[i]   = result.getX();
+                pts[i+1] = result.getY();
+            } catch (ProjectionException exception) {
+                pts[i]   = Double.NaN;
+                pts[i+1] = Double.NaN;
+                failures++;
+            }
+        }
+        return failures;
+    }
+
     /**
      * Transforms the specified {@code ptSrc} and stores the result in {@code ptDst}.
      * <p>
@@ -911,48 +979,75 @@ public abstract class MapProjection extends AbstractMathTransform
      *
      * @throws ProjectionException if a point can't be transformed. This method tries to transform
      *         every points even if some of them can't be transformed. Non-transformable points will
-     *         have value {@link Double#NaN}. If more than one point can't be transformed, then this
-     *         exception may be about an arbitrary point.
+     *         have value {@link Double#NaN}.
+     *
+     * @see #transformAll(double[], int, double[], int, int)
      */
-    public final void transform(final double[] srcPts, int srcOff,
-                                final double[] dstPts, int dstOff, int numPts)
+    public final void transform(final double[] srcPts, final int srcOff,
+                                final double[] dstPts, final int dstOff, final int numPts)
             throws ProjectionException
     {
-        /*
-         * Vérifie s'il faudra parcourir le tableau en sens inverse.
-         * Ce sera le cas si les tableaux source et destination se
-         * chevauchent et que la destination est après la source.
-         */
-        final boolean reverse = (srcPts == dstPts && srcOff < dstOff &&
-                                 srcOff + (2*numPts) > dstOff);
-        if (reverse) {
-            srcOff += 2*numPts;
-            dstOff += 2*numPts;
+        if (transformAll(srcPts, srcOff, dstPts, dstOff, numPts) != 0) {
+            throw new ProjectionException(ErrorKeys.CANT_TRANSFORM_VALID_POINTS);
         }
-        final Point2D.Double point = new Point2D.Double();
-        ProjectionException firstException = null;
-        while (--numPts >= 0) {
-            try {
-                point.x = srcPts[srcOff++];
-                point.y = srcPts[srcOff++];
-                transform(point, point);
-                dstPts[dstOff++] = point.x;
-                dstPts[dstOff++] = point.y;
-            } catch (ProjectionException exception) {
-                dstPts[dstOff++] = Double.NaN;
-                dstPts[dstOff++] = Double.NaN;
-                if (firstException == null) {
-                    firstException = exception;
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values, without throwing exceptions.
+     * Ordinates must be (<var>longitude</var>,<var>latitude</var>) pairs in decimal degrees.
+     * The points that can't be transformed are set to {@link Double#NaN} and counted in the
+     * returned value, so that callers transforming large arrays can decide what to do with
+     * them without paying for an exception per point.
+     * <p>
+     * The coordinates are copied in the destination array, and then normalized, projected and
+     * scaled in place, one pass over the whole array at a time, using the
+     * {@link #transformNormalized(double[], int, int)} bulk method.
+     *
+     * @return The number of points that could not be transformed.
+     *
+     * @since 20.0
+     */
+    public final int transformAll(final double[] srcPts, final int srcOff,
+                                  final double[] dstPts, final int dstOff, final int numPts)
+    {
+        if (numPts <= 0) {
+            return 0;
+        }
+        final double[] original = copyForAssertions(srcPts, srcOff, numPts);
+        // arraycopy takes care of overlapping source and destination
+        System.arraycopy(srcPts, srcOff, dstPts, dstOff, 2*numPts);
+        final int end = dstOff + 2*numPts;
+        if (verifyCoordinateRanges()) {
+            for (int i=dstOff; i<end; i+=2) {
+                if (verifyGeographicRanges(this, dstPts[i], dstPts[i+1])) {
+                    warningLogged();
+                    break;
                 }
             }
-            if (reverse) {
-                srcOff -= 4;
-                dstOff -= 4;
+        }
+        /*
+         * See transform(Point2D, Point2D) for the reason why the longitude is
+         * rolled only when a rotation is applied.
+         */
+        if (centralMeridian != 0) {
+            for (int i=dstOff; i<end; i+=2) {
+                dstPts[i]   = rollLongitude(toRadians(dstPts[i]) - centralMeridian);
+                dstPts[i+1] = toRadians(dstPts[i+1]);
+            }
+        } else {
+            for (int i=dstOff; i<end; i++) {
+                dstPts[i] = toRadians(dstPts[i]);
             }
         }
-        if (firstException != null) {
-            throw firstException;
+        int failures = transformNormalized(dstPts, dstOff, numPts);
+        for (int i=dstOff; i<end; i+=2) {
+            dstPts[i]   = globalScale*dstPts[i]   + falseEasting;
+            dstPts[i+1] = globalScale*dstPts[i+1] + falseNorthing;
+        }
+        if (original != null) {
+            failures += checkReciprocal(original, dstPts, dstOff, numPts, true);
         }
+        return failures;
     }
 
     /**
@@ -1077,49 +1172,61 @@ public abstract class MapProjection extends AbstractMathTransform
          *
          * @throws ProjectionException if a point can't be transformed. This method tries
          *         to transform every points even if some of them can't be transformed.
-         *         Non-transformable points will have value {@link Double#NaN}. If more
-         *         than one point can't be transformed, then this exception may be about
-         *         an arbitrary point.
+         *         Non-transformable points will have value {@link Double#NaN}.
          */
-        public final void transform(final double[] src,  int srcOffset,
-                                    final double[] dest, int dstOffset, int numPts)
+        public final void transform(final double[] src,  final int srcOffset,
+                                    final double[] dest, final int dstOffset, final int numPts)
                 throws TransformException
         {
+            if (transformAll(src, srcOffset, dest, dstOffset, numPts) != 0) {
+                throw new ProjectionException(ErrorKeys.CANT_TRANSFORM_VALID_POINTS);
+            }
+        }
+
+        /**
+         * Inverse transforms a list of coordinate point ordinal values, without throwing
+         * exceptions. See {@link MapProjection#inverseTransformAll}.
+         */
+        final int transformAll(final double[] src,  final int srcOffset,
+                               final double[] dest, final int dstOffset, final int numPts)
+        {
+            if (numPts <= 0) {
+                return 0;
+            }
+            final double[] original = copyForAssertions(src, srcOffset, numPts);
+            System.arraycopy(src, srcOffset, dest, dstOffset, 2*numPts);
+            final int end = dstOffset + 2*numPts;
+            for (int i=dstOffset; i<end; i+=2) {
+                dest[i]   = (dest[i]   - falseEasting ) / globalScale;
+                dest[i+1] = (dest[i+1] - falseNorthing) / globalScale;
+            }
+            int failures = inverseTransformNormalized(dest, dstOffset, numPts);
             /*
-             * Vérifie s'il faudra parcourir le tableau en sens inverse.
-             * Ce sera le cas si les tableaux source et destination se
-             * chevauchent et que la destination est après la source.
+             * See transform(Point2D, Point2D) for the reason why the longitude is
+             * rolled only when a rotation is applied.
              */
-            final boolean reverse = (src==dest && srcOffset<dstOffset &&
-                                     srcOffset+(2*numPts) > dstOffset);
-            if (reverse) {
-                srcOffset += 2*numPts;
-                dstOffset += 2*numPts;
+            if (centralMeridian != 0) {
+                for (int i=dstOffset; i<end; i+=2) {
+                    dest[i]   = toDegrees(rollLongitude(dest[i] + centralMeridian));
+                    dest[i+1] = toDegrees(dest[i+1]);
+                }
+            } else {
+                for (int i=dstOffset; i<end; i++) {
+                    dest[i] = toDegrees(dest[i]);
+                }
             }
-            final Point2D.Double point = new Point2D.Double();
-            ProjectionException firstException = null;
-            while (--numPts>=0) {
-                try {
-                    point.x = src[srcOffset++];
-                    point.y = src[srcOffset++];
-                    transform(point, point);
-                    dest[dstOffset++] = point.x;
-                    dest[dstOffset++] = point.y;
-                } catch (ProjectionException exception) {
-                    dest[dstOffset++] = Double.NaN;
-                    dest[dstOffset++] = Double.NaN;
-                    if (firstException == null) {
-                        firstException = exception;
+            if (verifyCoordinateRanges()) {
+                for (int i=dstOffset; i<end; i+=2) {
+                    if (verifyGeographicRanges(this, dest[i], dest[i+1])) {
+                        warningLogged();
+                        break;
                     }
                 }
-                if (reverse) {
-                    srcOffset -= 4;
-                    dstOffset -= 4;
-                }
             }
-            if (firstException != null) {
-                throw firstException;
+            if (original != null) {
+                failures += checkReciprocal(original, dest, dstOffset, numPts, false);
             }
+            return failures;
         }
 
         /**
@@ -1178,6 +1285,78 @@ public abstract class MapProjection extends AbstractMathTransform
         }
     }
 
+    /**
+     * Inverse transforms a list of coordinate point ordinal values, without throwing exceptions.
+     * Ordinates must be (<var>x</var>,<var>y</var>) pairs in metres. The points that can't be
+     * transformed are set to {@link Double#NaN} and counted in the returned value.
+     *
+     * @return The number of points that could not be transformed.
+     * @throws NoninvertibleTransformException if this projection is not invertible.
+     *
+     * @see #transformAll(double[], int, double[], int, int)
+     * @since 20.0
+     */
+    public final int inverseTransformAll(final double[] srcPts, final int srcOff,
+                                         final double[] dstPts, final int dstOff, final int numPts)
+            throws NoninvertibleTransformException
+    {
+        return ((Inverse) inverse()).transformAll(srcPts, srcOff, dstPts, dstOff, numPts);
+    }
+
+    /**
+     * Returns the map projection which the given transform is the inverse of, or {@code null}
+     * if the given transform is not the inverse of a map projection.
+     */
+    static MapProjection inverseOf(final MathTransform transform) {
+        if (transform instanceof Inverse) {
+            return (MapProjection) ((Inverse) transform).inverse();
+        }
+        return null;
+    }
+
+    /**
+     * Returns a copy of the source points if assertions are enabled and the bulk transforms
+     * results need to be checked with {@link #checkReciprocal}, or {@code null} otherwise.
+     */
+    final double[] copyForAssertions(final double[] srcPts, final int srcOff, final int numPts) {
+        boolean assertions = false;
+        assert assertions = true;
+        if (!assertions || !invertible || SKIP_SANITY_CHECKS) {
+            return null;
+        }
+        return Arrays.copyOfRange(srcPts, srcOff, srcOff + 2*numPts);
+    }
+
+    /**
+     * Bulk version of {@link #checkReciprocal(Point2D, Point2D, boolean)}, the points failing
+     * the check are set to {@link Double#NaN} like the single point transforms would do when
+     * invoked from an array transform.
+     *
+     * @return The number of points that failed the check.
+     */
+    private int checkReciprocal(final double[] source, final double[] target, final int offset,
+            final int numPts, final boolean inverse)
+    {
+        int failures = 0;
+        final Point2D.Double expected = new Point2D.Double();
+        for (int i=0; i<numPts; i++) {
+            final int t = offset + 2*i;
+            if (Double.isNaN(target[t]) || Double.isNaN(target[t+1])) {
+                continue;
+            }
+            expected.x = source[2*i];
+            expected.y = source[2*i + 1];
+            try {
+                checkReciprocal(new Point2D.Double(target[t], target[t+1]), expected, inverse);
+            } catch (ProjectionException exception) {
+                target[t]   = Double.NaN;
+                target[t+1] = Double.NaN;
+                failures++;
+            }
+        }
+        return failures;
+    }
+
     /**
      * Returns the inverse of this map projection.
      */
@@ -1327,6 +1506,18 @@ public abstract class MapProjection extends AbstractMathTransform
      * Iteratively solve equation (7-9) from Snyder.
      */
     final double cphi2(final double ts) throws ProjectionException {
+        final double phi = cphi2OrNaN(ts);
+        if (Double.isNaN(phi)) {
+            throw new ProjectionException(ErrorKeys.NO_CONVERGENCE);
+        }
+        return phi;
+    }
+
+    /**
+     * Same as {@link #cphi2(double)}, but returns {@link Double#NaN} instead of throwing an
+     * exception when the iteration does not converge. Used by the bulk transforms.
+     */
+    final double cphi2OrNaN(final double ts) {
         final double eccnth = 0.5 * excentricity;
         double phi = (PI/2) - 2.0 * atan(ts);
         for (int i=0; i<MAXIMUM_ITERATIONS; i++) {
@@ -1337,7 +1528,7 @@ public abstract class MapProjection extends AbstractMathTransform
                 return phi;
             }
         }
-        throw new ProjectionException(ErrorKeys.NO_CONVERGENCE);
+        return Double.NaN;
     }
 
     /**
@@ -1391,12 +1582,24 @@ public abstract class MapProjection extends AbstractMathTransform
      * @throws ProjectionException if the itteration does not converge.
      */
     protected final double inv_mlfn(double arg) throws ProjectionException {
+        final double phi = inv_mlfnOrNaN(arg);
+        if (Double.isNaN(phi)) {
+            throw new ProjectionException(Errors.format(ErrorKeys.NO_CONVERGENCE));
+        }
+        return phi;
+    }
+
+    /**
+     * Same as {@link #inv_mlfn(double)}, but returns {@link Double#NaN} instead of throwing an
+     * exception when the iteration does not converge. Used by the bulk transforms.
+     */
+    final double inv_mlfnOrNaN(double arg) {
         double s, t, phi, k = 1.0/(1.0 - excentricitySquared);
         int i;
         phi = arg;
         for (i=MAXIMUM_ITERATIONS; true;) { // rarely goes over 5 iterations
             if (--i < 0) {
-                throw new ProjectionException(Errors.format(ErrorKeys.NO_CONVERGENCE));
+                return Double.NaN;
             }
             s = Math.sin(phi);
             t = 1.0 - excentricitySquared * s * s;
@@ -171,6 +171,44 @@ public abstract class Mercator extends MapProjection {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place the packed (<var>&lambda;</var>,<var>&phi;</var>) coordinates.
+     * This is the bulk version of {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected int transformNormalized(final double[] pts, final int offset, final int numPts) {
+        int failures = 0;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            final double y = pts[i+1];
+            if (abs(y) > (PI/2 - EPSILON)) {
+                pts[i]   = Double.NaN;
+                pts[i+1] = Double.NaN;
+                failures++;
+            } else {
+                pts[i+1] = -log(tsfn(y, sin(y)));
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Transforms in place the packed (<var>x</var>,<var>y</var>) coordinates.
+     * This is the bulk version of {@link #inverseTransformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected int inverseTransformNormalized(final double[] pts, final int offset, final int numPts) {
+        int failures = 0;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            final double y = cphi2OrNaN(exp(-pts[i+1]));
+            if (Double.isNaN(y)) {
+                pts[i] = Double.NaN;
+                failures++;
+            }
+            pts[i+1] = y;
+        }
+        return failures;
+    }
+
 
     /**
      * Provides the transform equations for the spherical case of the Mercator projection.
@@ -241,6 +279,40 @@ public abstract class Mercator extends MapProjection {
             }
             return new Point2D.Double(x,y);
         }
+
+        /**
+         * Transforms in place the packed (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+         * using equations for a sphere.
+         */
+        @Override
+        protected int transformNormalized(final double[] pts, final int offset, final int numPts) {
+            int failures = 0;
+            for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+                final double y = pts[i+1];
+                if (abs(y) > (PI/2 - EPSILON)) {
+                    pts[i]   = Double.NaN;
+                    pts[i+1] = Double.NaN;
+                    failures++;
+                } else {
+                    pts[i+1] = log(tan(PI/4 + 0.5*y));
+                }
+            }
+            return failures;
+        }
+
+        /**
+         * Transforms in place the packed (<var>x</var>,<var>y</var>) coordinates
+         * using equations for a sphere.
+         */
+        @Override
+        protected int inverseTransformNormalized(final double[] pts, final int offset,
+                final int numPts)
+        {
+            for (int i=offset+1, end=offset + 2*numPts; i<end; i+=2) {
+                pts[i] = PI/2 - 2.0*atan(exp(-pts[i]));
+            }
+            return 0;
+        }
     }
 
 
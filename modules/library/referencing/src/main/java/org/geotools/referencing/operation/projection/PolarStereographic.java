@@ -236,6 +236,63 @@ public class PolarStereographic extends Stereographic {
         return new Point2D.Double(x,y);
     }
 
+    /**
+     * Transforms in place the packed (<var>&lambda;</var>,<var>&phi;</var>) coordinates.
+     * This is the bulk version of {@link #transformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected int transformNormalized(final double[] pts, final int offset, final int numPts) {
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            final double x = pts[i];
+            final double y = pts[i+1];
+            final double sinlat = sin(y);
+            if (southPole) {
+                final double rho = k0 * tsfn(-y, -sinlat);
+                pts[i]   = rho * sin(x);
+                pts[i+1] = rho * cos(x);
+            } else {
+                final double rho = k0 * tsfn(y, sinlat);
+                pts[i]   =  rho * sin(x);
+                pts[i+1] = -rho * cos(x);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Transforms in place the packed (<var>x</var>,<var>y</var>) coordinates.
+     * This is the bulk version of {@link #inverseTransformNormalized(double, double, Point2D)}.
+     */
+    @Override
+    protected int inverseTransformNormalized(final double[] pts, final int offset, final int numPts) {
+        int failures = 0;
+        final double halfe = excentricity/2.0;
+        for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+            final double x = pts[i];
+            final double y = southPole ? -pts[i+1] : pts[i+1];
+            final double rho = hypot(x, y);
+            final double t = rho/k0;
+            double phi0 = 0;
+            pts[i]   = Double.NaN;
+            pts[i+1] = Double.NaN;
+            for (int j=MAXIMUM_ITERATIONS;;) {
+                final double esinphi = excentricity * sin(phi0);
+                final double phi = (PI/2) - 2.0*atan(t*pow((1-esinphi)/(1+esinphi), halfe));
+                if (abs(phi-phi0) < ITERATION_TOLERANCE) {
+                    pts[i]   = (abs(rho) < EPSILON) ? 0.0 : atan2(x, -y);
+                    pts[i+1] = (southPole) ? -phi : phi;
+                    break;
+                }
+                phi0 = phi;
+                if (--j < 0) {
+                    failures++;
+                    break;
+                }
+            }
+        }
+        return failures;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -397,6 +454,67 @@ public class PolarStereographic extends Stereographic {
             }
             return new Point2D.Double(x,y);
         }
+
+        /**
+         * Transforms in place the packed (<var>&lambda;</var>,<var>&phi;</var>) coordinates
+         * using equations for a sphere.
+         */
+        @Override
+        protected int transformNormalized(final double[] pts, final int offset, final int numPts) {
+            int failures = 0;
+            for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+                final double x = pts[i];
+                final double y = pts[i+1];
+                final double coslat = cos(y);
+                final double sinlat = sin(y);
+                if (southPole) {
+                    if (abs(1 - sinlat) < EPSILON) {
+                        pts[i]   = Double.NaN;
+                        pts[i+1] = Double.NaN;
+                        failures++;
+                    } else {
+                        final double f = k0 * coslat / (1-sinlat); // (21-12)
+                        pts[i]   = f * sin(x); // (21-9)
+                        pts[i+1] = f * cos(x); // (21-10)
+                    }
+                } else {
+                    if (abs(1 + sinlat) < EPSILON) {
+                        pts[i]   = Double.NaN;
+                        pts[i+1] = Double.NaN;
+                        failures++;
+                    } else {
+                        final double f = k0 * coslat / (1+sinlat); // (21-8)
+                        pts[i]   =  f * sin(x); // (21-5)
+                        pts[i+1] = -f * cos(x); // (21-6)
+                    }
+                }
+            }
+            return failures;
+        }
+
+        /**
+         * Transforms in place the packed (<var>x</var>,<var>y</var>) coordinates
+         * using equations for a sphere.
+         */
+        @Override
+        protected int inverseTransformNormalized(final double[] pts, final int offset,
+                final int numPts)
+        {
+            for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+                final double x = pts[i];
+                final double y = southPole ? pts[i+1] : -pts[i+1];
+                final double rho = hypot(x, y);
+                // (20-17) call atan2(x,y) to properly deal with y==0
+                pts[i] = (abs(x)<EPSILON && abs(y)<EPSILON) ? 0.0 : atan2(x, y);
+                if (abs(rho) < EPSILON) {
+                    pts[i+1] = latitudeOfOrigin;
+                } else {
+                    final double cosc = cos(2.0 * atan(rho/k0));
+                    pts[i+1] = (southPole) ? asin(-cosc) : asin(cosc); // (20-14) with phi1=90
+                }
+            }
+            return 0;
+        }
     }
 
     /**
@@ -511,6 +629,31 @@ public class PolarStereographic extends Stereographic {
             }
             return new Point2D.Double(x,y);
         }
+
+        /**
+         * Transforms in place the packed (<var>x</var>,<var>y</var>) coordinates
+         * using the series equations.
+         */
+        @Override
+        protected int inverseTransformNormalized(final double[] pts, final int offset,
+                final int numPts)
+        {
+            final double scale = sqrt(pow(1+excentricity, 1+excentricity)*
+                                      pow(1-excentricity, 1-excentricity)) / 2;
+            for (int i=offset, end=offset + 2*numPts; i<end; i+=2) {
+                final double x = pts[i];
+                final double y = southPole ? -pts[i+1] : pts[i+1];
+                final double rho = hypot(x, y);
+                final double chi = PI/2 - 2*atan((rho/k0) * scale);
+                pts[i] = (abs(rho) < EPSILON) ? 0.0 : atan2(x, -y);
+                // See Snyde P. 19, "Computation of Series"
+                final double sin2chi = sin(2.0 * chi);
+                final double cos2chi = cos(2.0 * chi);
+                final double phi = chi + sin2chi*(A + cos2chi*(B + cos2chi*(C + D*cos2chi)));
+                pts[i+1] = (southPole) ? -phi : phi;
+            }
+            return 0;
+        }
     }
 
 
@@ -0,0 +1,378 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.transform;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.referencing.operation.LinearTransform;
+import org.geotools.referencing.wkt.Formatter;
+import org.geotools.util.Utilities;
+import org.geotools.util.logging.Logging;
+import org.opengis.geometry.DirectPosition;
+import org.opengis.geometry.Envelope;
+import org.opengis.geometry.MismatchedDimensionException;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * Approximates a two dimensional {@link MathTransform} with a bilinear interpolation over a
+ * regular grid of exactly transformed points, in the spirit of the {@link WarpBuilder} grids, but
+ * usable wherever a {@link MathTransform2D} is (e.g., in vector reprojection and rendering).
+ * <p>
+ * The grid covers a domain of the source space, and is refined by halving its cells along the
+ * axis showing the largest errors, until the interpolated points are within the tolerance from
+ * the exact ones (checked on a lattice four times denser than the grid). Points outside of the
+ * domain are transformed exactly, as are the {@linkplain #derivative derivatives} and the
+ * {@linkplain #inverse inverse} transform.
+ *
+ * @since 20.0
+ */
+public class ApproximatedTransform2D extends AbstractMathTransform implements MathTransform2D,
+        Serializable {
+
+    private static final long serialVersionUID = -2547935263710294728L;
+
+    static final Logger LOGGER = Logging.getLogger(ApproximatedTransform2D.class);
+
+    /**
+     * The default maximum number of cells in the grid
+     */
+    public static final int DEFAULT_MAX_CELLS = 4096;
+
+    /**
+     * The number of intervals each cell side is split into when checking the interpolation
+     * errors
+     */
+    static final int CHECKS = 4;
+
+    /**
+     * Flags for the errors found along grid rows, that is, while interpolating along the x axis
+     */
+    static final int X_ERRORS = 1;
+
+    /**
+     * Flags for the errors found along grid columns, that is, while interpolating along the y
+     * axis
+     */
+    static final int Y_ERRORS = 2;
+
+    /**
+     * The transform being approximated
+     */
+    final MathTransform2D transform;
+
+    /**
+     * The tolerance the grid has been built with
+     */
+    final double tolerance;
+
+    /**
+     * The origin of the grid and the size of its cells, in source coordinates
+     */
+    final double minX, minY, cellWidth, cellHeight;
+
+    /**
+     * The number of cells along the two axes
+     */
+    final int cols, rows;
+
+    /**
+     * The transformed grid points, as (x,y) pairs, row by row
+     */
+    final double[] grid;
+
+    private ApproximatedTransform2D(MathTransform2D transform, double tolerance, double minX,
+            double minY, double cellWidth, double cellHeight, int cols, int rows, double[] grid) {
+        this.transform = transform;
+        this.tolerance = tolerance;
+        this.minX = minX;
+        this.minY = minY;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.cols = cols;
+        this.rows = rows;
+        this.grid = grid;
+    }
+
+    /**
+     * Approximates the transform in the specified domain, using a grid of at most
+     * {@link #DEFAULT_MAX_CELLS} cells.
+     *
+     * @see #create(MathTransform2D, Envelope, double, int)
+     */
+    public static MathTransform2D create(MathTransform2D transform, Envelope domain,
+            double tolerance) {
+        return create(transform, domain, tolerance, DEFAULT_MAX_CELLS);
+    }
+
+    /**
+     * Approximates the transform in the specified domain. The original transform is returned as
+     * is if it is linear, if the tolerance is not positive, or if no grid with at most
+     * {@code maxCells} cells can approximate it within tolerance (e.g., because the domain
+     * crosses a singularity, or points that cannot be transformed).
+     *
+     * @param transform The transform to be approximated
+     * @param domain The area of the source space where the approximation will be used
+     * @param tolerance The maximum distance between the approximated and exact points, in
+     *        target units
+     * @param maxCells The maximum number of cells in the grid
+     * @return The approximated transform, or the original one
+     */
+    public static MathTransform2D create(MathTransform2D transform, Envelope domain,
+            double tolerance, int maxCells) {
+        ensureNonNull("transform", transform);
+        ensureNonNull("domain", domain);
+        if (domain.getDimension() != 2) {
+            throw new MismatchedDimensionException(
+                    "The domain should be two dimensional, but has " + domain.getDimension()
+                            + " dimensions");
+        }
+        final double minX = domain.getMinimum(0);
+        final double minY = domain.getMinimum(1);
+        final double width = domain.getMaximum(0) - minX;
+        final double height = domain.getMaximum(1) - minY;
+        if (!(width > 0 && height > 0) || Double.isInfinite(width) || Double.isInfinite(height)) {
+            throw new IllegalArgumentException("The domain is empty or infinite: " + domain);
+        }
+        if (tolerance <= 0 || transform instanceof LinearTransform
+                || transform instanceof AffineTransform) {
+            return transform;
+        }
+
+        int cols = 1;
+        int rows = 1;
+        try {
+            while (cols * rows <= maxCells) {
+                final double cellWidth = width / cols;
+                final double cellHeight = height / rows;
+                final double[] grid = new double[(cols + 1) * (rows + 1) * 2];
+                for (int j = 0, k = 0; j <= rows; j++) {
+                    for (int i = 0; i <= cols; i++) {
+                        grid[k++] = minX + i * cellWidth;
+                        grid[k++] = minY + j * cellHeight;
+                    }
+                }
+                transform.transform(grid, 0, grid, 0, grid.length / 2);
+                for (double ordinate : grid) {
+                    if (Double.isNaN(ordinate) || Double.isInfinite(ordinate)) {
+                        LOGGER.log(Level.FINE, "Cannot approximate {0}, some grid points "
+                                + "cannot be transformed", transform);
+                        return transform;
+                    }
+                }
+
+                ApproximatedTransform2D candidate = new ApproximatedTransform2D(transform,
+                        tolerance, minX, minY, cellWidth, cellHeight, cols, rows, grid);
+                int errors = candidate.checkErrors();
+                if (errors == 0) {
+                    LOGGER.log(Level.FINE, "Approximating {0} with a {1} x {2} grid",
+                            new Object[] { transform, cols, rows });
+                    return candidate;
+                }
+                if ((errors & X_ERRORS) != 0) {
+                    cols *= 2;
+                }
+                if ((errors & Y_ERRORS) != 0) {
+                    rows *= 2;
+                }
+            }
+        } catch (TransformException e) {
+            LOGGER.log(Level.FINE, "Cannot approximate " + transform, e);
+            return transform;
+        }
+        LOGGER.log(Level.FINE, "Cannot approximate {0} within {1} with at most {2} cells",
+                new Object[] { transform, tolerance, maxCells });
+        return transform;
+    }
+
+    /**
+     * Compares the interpolated and exact points on a lattice denser than the grid, returning a
+     * combination of {@link #X_ERRORS} and {@link #Y_ERRORS} telling along which axes the grid
+     * should be refined (points inside the cells report both).
+     */
+    private int checkErrors() throws TransformException {
+        final double maxDistanceSquared = tolerance * tolerance;
+        final int n = cols * CHECKS + 1;
+        final double[] exact = new double[n * 2];
+        final double[] interpolated = new double[2];
+        int errors = 0;
+        for (int j = 0; j <= rows * CHECKS; j++) {
+            final double y = minY + j * cellHeight / CHECKS;
+            for (int i = 0; i < n; i++) {
+                exact[i * 2] = minX + i * cellWidth / CHECKS;
+                exact[i * 2 + 1] = y;
+            }
+            transform.transform(exact, 0, exact, 0, n);
+            for (int i = 0; i < n; i++) {
+                final boolean onColumn = i % CHECKS == 0;
+                final boolean onRow = j % CHECKS == 0;
+                if (onColumn && onRow) {
+                    // a grid point, exact by construction
+                    continue;
+                }
+                interpolate((double) i / CHECKS, (double) j / CHECKS, interpolated, 0);
+                final double dx = interpolated[0] - exact[i * 2];
+                final double dy = interpolated[1] - exact[i * 2 + 1];
+                if (!(dx * dx + dy * dy <= maxDistanceSquared)) {
+                    errors |= onRow ? X_ERRORS : onColumn ? Y_ERRORS : X_ERRORS | Y_ERRORS;
+                    if (errors == (X_ERRORS | Y_ERRORS)) {
+                        return errors;
+                    }
+                }
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Interpolates the grid at the specified position, expressed in cells from the grid origin
+     */
+    private void interpolate(final double fx, final double fy, final double[] dstPts,
+            final int dstOff) {
+        final int i = Math.min((int) fx, cols - 1);
+        final int j = Math.min((int) fy, rows - 1);
+        final double u = fx - i;
+        final double v = fy - j;
+        final int k0 = (j * (cols + 1) + i) * 2;
+        final int k1 = k0 + (cols + 1) * 2;
+        final double x0 = grid[k0] + u * (grid[k0 + 2] - grid[k0]);
+        final double y0 = grid[k0 + 1] + u * (grid[k0 + 3] - grid[k0 + 1]);
+        final double x1 = grid[k1] + u * (grid[k1 + 2] - grid[k1]);
+        final double y1 = grid[k1 + 1] + u * (grid[k1 + 3] - grid[k1 + 1]);
+        dstPts[dstOff] = x0 + v * (x1 - x0);
+        dstPts[dstOff + 1] = y0 + v * (y1 - y0);
+    }
+
+    /**
+     * Transforms the points by interpolation, the ones outside of the grid are transformed
+     * exactly, in runs of consecutive points.
+     */
+    public void transform(double[] srcPts, int srcOff, final double[] dstPts, final int dstOff,
+            final int numPts) throws TransformException {
+        if (srcPts == dstPts && needCopy(srcOff, 2, dstOff, 2, numPts)) {
+            srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts * 2);
+            srcOff = 0;
+        }
+        // the number of consecutive points outside of the grid, not transformed yet
+        int outside = 0;
+        for (int p = 0; p < numPts; p++) {
+            final int s = srcOff + p * 2;
+            final int d = dstOff + p * 2;
+            final double fx = (srcPts[s] - minX) / cellWidth;
+            final double fy = (srcPts[s + 1] - minY) / cellHeight;
+            if (fx >= 0 && fx <= cols && fy >= 0 && fy <= rows) {
+                if (outside > 0) {
+                    transform.transform(srcPts, s - outside * 2, dstPts, d - outside * 2,
+                            outside);
+                    outside = 0;
+                }
+                interpolate(fx, fy, dstPts, d);
+            } else {
+                outside++;
+            }
+        }
+        if (outside > 0) {
+            final int first = numPts - outside;
+            transform.transform(srcPts, srcOff + first * 2, dstPts, dstOff + first * 2, outside);
+        }
+    }
+
+    /**
+     * Returns the transform being approximated
+     */
+    public MathTransform2D getTransform() {
+        return transform;
+    }
+
+    /**
+     * Returns the tolerance the approximation has been built with
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public int getSourceDimensions() {
+        return 2;
+    }
+
+    public int getTargetDimensions() {
+        return 2;
+    }
+
+    /**
+     * Returns the derivative of the exact transform.
+     */
+    @Override
+    public Matrix derivative(Point2D point) throws TransformException {
+        return transform.derivative(point);
+    }
+
+    /**
+     * Returns the derivative of the exact transform.
+     */
+    @Override
+    public Matrix derivative(DirectPosition point) throws TransformException {
+        return transform.derivative(point);
+    }
+
+    /**
+     * Returns the inverse of the exact transform.
+     */
+    @Override
+    public MathTransform2D inverse() throws NoninvertibleTransformException {
+        return (MathTransform2D) transform.inverse();
+    }
+
+    @Override
+    public int hashCode() {
+        return transform.hashCode() ^ (31 * cols + rows);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (object == this) {
+            return true;
+        }
+        if (object instanceof ApproximatedTransform2D) {
+            final ApproximatedTransform2D that = (ApproximatedTransform2D) object;
+            return Utilities.equals(this.transform, that.transform)
+                    && Double.doubleToLongBits(this.tolerance)
+                            == Double.doubleToLongBits(that.tolerance)
+                    && this.minX == that.minX && this.minY == that.minY
+                    && this.cellWidth == that.cellWidth && this.cellHeight == that.cellHeight
+                    && this.cols == that.cols && this.rows == that.rows;
+        }
+        return false;
+    }
+
+    /**
+     * Formats the exact transform, the grid has no WKT representation.
+     */
+    @Override
+    protected String formatWKT(final Formatter formatter) {
+        formatter.append(transform);
+        return "CONCAT_MT";
+    }
+}
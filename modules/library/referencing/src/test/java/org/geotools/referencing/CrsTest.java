@@ -30,6 +30,7 @@ import org.geotools.referencing.crs.DefaultEngineeringCRS;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.referencing.operation.projection.MapProjection;
 import org.geotools.resources.geometry.XRectangle2D;
+import org.geotools.util.ConcurrentSoftCache;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.opengis.geometry.Envelope;
@@ -81,6 +82,35 @@ public final class CrsTest {
         assertSame(DefaultGeographicCRS.WGS84, CRS.decode("WGS84(DD)"));
     }
 
+    /**
+     * Tests the decoded CRS and the math transforms are cached.
+     */
+    @Test
+    public void testCaches() throws FactoryException {
+        ConcurrentSoftCache<?, CoordinateReferenceSystem> decoded = CRS.getDecodeCache();
+        decoded.clear();
+        long misses = decoded.getMisses();
+        CoordinateReferenceSystem crs = CRS.decode("WGS84(DD)");
+        assertEquals(misses + 1, decoded.getMisses());
+        long hits = decoded.getHits();
+        assertSame(crs, CRS.decode(" wgs84(dd) "));
+        assertEquals(hits + 1, decoded.getHits());
+
+        ConcurrentSoftCache<?, MathTransform> transforms = CRS.getTransformCache();
+        transforms.clear();
+        final CoordinateReferenceSystem mapCRS = CRS.parseWKT(WKT.UTM_10N);
+        final CoordinateReferenceSystem WGS84 = DefaultGeographicCRS.WGS84;
+        misses = transforms.getMisses();
+        MathTransform transform = CRS.findMathTransform(WGS84, mapCRS, true);
+        assertEquals(misses + 1, transforms.getMisses());
+        hits = transforms.getHits();
+        assertSame(transform, CRS.findMathTransform(WGS84, CRS.parseWKT(WKT.UTM_10N), true));
+        assertEquals(hits + 1, transforms.getHits());
+        // the lenient flag is part of the key
+        CRS.findMathTransform(WGS84, mapCRS, false);
+        assertEquals(misses + 2, transforms.getMisses());
+    }
+
     /**
      * Tests an ESRI code.
      *
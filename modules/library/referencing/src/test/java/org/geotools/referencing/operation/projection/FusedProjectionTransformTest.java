@@ -0,0 +1,167 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.projection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.geotools.referencing.operation.DefaultMathTransformFactory;
+import org.geotools.referencing.operation.matrix.Matrix3;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.referencing.operation.MathTransform;
+
+/**
+ * Tests {@link FusedProjectionTransform} returns the same results as the concatenated transforms
+ * it replaces.
+ */
+public final class FusedProjectionTransformTest {
+
+    static final double WGS84_MAJOR = 6378137.0;
+
+    static final double WGS84_MINOR = 6356752.314245179;
+
+    DefaultMathTransformFactory plain;
+
+    DefaultMathTransformFactory fused;
+
+    @Before
+    public void setUp() {
+        plain = new DefaultMathTransformFactory();
+        fused = new DefaultMathTransformFactory();
+        fused.setFusedTransforms(true);
+    }
+
+    MathTransform projection(String name, Object... params) throws Exception {
+        ParameterValueGroup parameters = plain.getDefaultParameters(name);
+        parameters.parameter("semi_major").setValue(WGS84_MAJOR);
+        parameters.parameter("semi_minor").setValue(WGS84_MINOR);
+        for (int i = 0; i < params.length; i += 2) {
+            parameters.parameter((String) params[i]).setValue(((Number) params[i + 1]).doubleValue());
+        }
+        return plain.createParameterizedTransform(parameters);
+    }
+
+    MathTransform utm(int zone) throws Exception {
+        return projection("Transverse_Mercator", "central_meridian", zone * 6 - 183,
+                "scale_factor", 0.9996, "false_easting", 500000);
+    }
+
+    MathTransform swap() throws Exception {
+        return plain.createAffineTransform(new Matrix3(0, 1, 0, 1, 0, 0, 0, 0, 1));
+    }
+
+    MathTransform[] concatenate(MathTransform... steps) throws Exception {
+        MathTransform expected = steps[0];
+        MathTransform actual = steps[0];
+        for (int i = 1; i < steps.length; i++) {
+            expected = plain.createConcatenatedTransform(expected, steps[i]);
+            actual = fused.createConcatenatedTransform(actual, steps[i]);
+        }
+        return new MathTransform[] { expected, actual };
+    }
+
+    @Test
+    public void testProjectedToProjected() throws Exception {
+        MathTransform[] transforms = concatenate(utm(32).inverse(), utm(33));
+        assertFused(transforms, 350000, 650000, 4500000, 5500000);
+    }
+
+    @Test
+    public void testGeographicToProjected() throws Exception {
+        // latitude first, output in feet
+        MathTransform feet = plain.createAffineTransform(new Matrix3(1 / 0.3048, 0, 0, 0,
+                1 / 0.3048, 0, 0, 0, 1));
+        MathTransform lambert = projection("Lambert_Conformal_Conic_2SP", "central_meridian", 3,
+                "latitude_of_origin", 46.5, "standard_parallel_1", 44, "standard_parallel_2", 49,
+                "false_easting", 700000, "false_northing", 6600000);
+        MathTransform[] transforms = concatenate(swap(), lambert, feet);
+        assertFused(transforms, 41, 52, -5, 10);
+    }
+
+    @Test
+    public void testProjectedToGeographic() throws Exception {
+        MathTransform mercator = projection("Mercator_1SP", "central_meridian", 100);
+        MathTransform[] transforms = concatenate(mercator.inverse(), swap());
+        assertFused(transforms, -5000000, 5000000, -5000000, 5000000);
+    }
+
+    @Test
+    public void testDatumShift() throws Exception {
+        ParameterValueGroup parameters = plain.getDefaultParameters("Abridged_Molodenski");
+        parameters.parameter("dim").setValue(2);
+        parameters.parameter("dx").setValue(-87.0);
+        parameters.parameter("dy").setValue(-98.0);
+        parameters.parameter("dz").setValue(-121.0);
+        parameters.parameter("src_semi_major").setValue(WGS84_MAJOR);
+        parameters.parameter("src_semi_minor").setValue(WGS84_MINOR);
+        parameters.parameter("tgt_semi_major").setValue(6378388.0);
+        parameters.parameter("tgt_semi_minor").setValue(6356911.946127947);
+        MathTransform molodenski = plain.createParameterizedTransform(parameters);
+        MathTransform[] transforms = concatenate(utm(31).inverse(), molodenski, utm(31));
+        assertFused(transforms, 350000, 650000, 4500000, 5500000);
+    }
+
+    @Test
+    public void testNotFused() throws Exception {
+        MathTransform[] transforms = concatenate(swap(), plain.createAffineTransform(new Matrix3(
+                2, 0, 0, 0, 2, 0, 0, 0, 1)));
+        assertFalse(transforms[1] instanceof FusedProjectionTransform);
+        // a fused transform concatenated with its inverse collapses as usual
+        MathTransform[] utm = concatenate(utm(32).inverse(), utm(33));
+        MathTransform back = fused.createConcatenatedTransform(utm[1], utm[1].inverse());
+        assertTrue(back.isIdentity());
+    }
+
+    void assertFused(MathTransform[] transforms, double minX, double maxX, double minY,
+            double maxY) throws Exception {
+        MathTransform expected = transforms[0];
+        MathTransform actual = transforms[1];
+        assertTrue(actual instanceof FusedProjectionTransform);
+        assertEquals(expected, FusedProjectionTransform.unwrap(actual));
+        assertEquals(expected.toWKT(), actual.toWKT());
+
+        final int steps = 20;
+        double[] source = new double[2 * steps * steps];
+        for (int i = 0, k = 0; i < steps; i++) {
+            for (int j = 0; j < steps; j++) {
+                source[k++] = minX + (maxX - minX) * i / (steps - 1);
+                source[k++] = minY + (maxY - minY) * j / (steps - 1);
+            }
+        }
+        final int numPts = source.length / 2;
+        double[] target = new double[source.length];
+        double[] result = new double[source.length];
+        expected.transform(source, 0, target, 0, numPts);
+        actual.transform(source, 0, result, 0, numPts);
+        for (int i = 0; i < source.length; i++) {
+            assertEquals(target[i], result[i], Math.abs(target[i]) * 1E-12 + 1E-7);
+        }
+
+        MathTransform inverse = actual.inverse();
+        assertTrue(inverse instanceof FusedProjectionTransform);
+        double[] expectedBack = new double[source.length];
+        double[] back = new double[source.length];
+        expected.inverse().transform(target, 0, expectedBack, 0, numPts);
+        inverse.transform(target, 0, back, 0, numPts);
+        for (int i = 0; i < source.length; i++) {
+            assertEquals(expectedBack[i], back[i], Math.abs(expectedBack[i]) * 1E-12 + 1E-7);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.projection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.geom.Point2D;
+
+import org.geotools.referencing.ReferencingFactoryFinder;
+import org.junit.Test;
+import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.MathTransformFactory;
+import org.opengis.referencing.operation.TransformException;
+
+/**
+ * Checks the bulk array transforms of {@link MapProjection} return the same results as the
+ * single point ones.
+ */
+public final class MapProjectionBulkTransformTest {
+
+    static final double WGS84_MAJOR = 6378137.0;
+
+    static final double WGS84_MINOR = 6356752.314245179;
+
+    static final double TOLERANCE = 1E-6;
+
+    static MapProjection create(String name, boolean spherical, Object... params)
+            throws FactoryException {
+        MathTransformFactory mtFactory = ReferencingFactoryFinder.getMathTransformFactory(null);
+        ParameterValueGroup parameters = mtFactory.getDefaultParameters(name);
+        parameters.parameter("semi_major").setValue(WGS84_MAJOR);
+        parameters.parameter("semi_minor").setValue(spherical ? WGS84_MAJOR : WGS84_MINOR);
+        for (int i = 0; i < params.length; i += 2) {
+            parameters.parameter((String) params[i]).setValue(((Number) params[i + 1]).doubleValue());
+        }
+        return (MapProjection) mtFactory.createParameterizedTransform(parameters);
+    }
+
+    @Test
+    public void testTransverseMercator() throws Exception {
+        for (boolean spherical : new boolean[] { false, true }) {
+            MapProjection mp = create("Transverse_Mercator", spherical, "central_meridian", 9,
+                    "scale_factor", 0.9996, "false_easting", 500000);
+            assertBulkMatches(mp, 4, 14, -80, 80);
+        }
+    }
+
+    @Test
+    public void testMercator() throws Exception {
+        for (boolean spherical : new boolean[] { false, true }) {
+            assertBulkMatches(create("Mercator_1SP", spherical), -179, 179, -80, 80);
+            assertBulkMatches(create("Mercator_2SP", spherical, "central_meridian", 51,
+                    "standard_parallel_1", 42), 30, 70, -60, 60);
+        }
+    }
+
+    @Test
+    public void testLambertConformal() throws Exception {
+        for (boolean spherical : new boolean[] { false, true }) {
+            MapProjection mp = create("Lambert_Conformal_Conic_2SP", spherical,
+                    "central_meridian", 3, "latitude_of_origin", 46.5,
+                    "standard_parallel_1", 44, "standard_parallel_2", 49,
+                    "false_easting", 700000, "false_northing", 6600000);
+            assertBulkMatches(mp, -5, 10, 41, 52);
+        }
+        MapProjection belgium = create("Lambert_Conformal_Conic_2SP_Belgium", false,
+                "central_meridian", 4.356939722, "latitude_of_origin", 90,
+                "standard_parallel_1", 49.833333333, "standard_parallel_2", 51.166666667,
+                "false_easting", 150000.01, "false_northing", 5400088.44);
+        assertBulkMatches(belgium, 2.5, 6.5, 49.5, 51.5);
+    }
+
+    @Test
+    public void testAlbersEqualArea() throws Exception {
+        for (boolean spherical : new boolean[] { false, true }) {
+            MapProjection mp = create("Albers_Conic_Equal_Area", spherical,
+                    "central_meridian", -96, "latitude_of_origin", 23,
+                    "standard_parallel_1", 29.5, "standard_parallel_2", 45.5);
+            assertBulkMatches(mp, -125, -67, 24, 50);
+        }
+    }
+
+    @Test
+    public void testPolarStereographic() throws Exception {
+        for (boolean spherical : new boolean[] { false, true }) {
+            // series inverse for the ellipsoidal case
+            assertBulkMatches(create("Polar_Stereographic", spherical, "latitude_of_origin", 90,
+                    "scale_factor", 0.994, "false_easting", 2000000, "false_northing", 2000000),
+                    -179, 179, 60, 89);
+            // iterative inverse for the ellipsoidal case
+            assertBulkMatches(create("Stereographic_North_Pole", spherical,
+                    "standard_parallel_1", 70), -179, 179, 55, 89);
+            assertBulkMatches(create("Stereographic_South_Pole", spherical,
+                    "standard_parallel_1", -71), -179, 179, -89, -55);
+        }
+    }
+
+    @Test
+    public void testFailures() throws Exception {
+        MapProjection mp = create("Mercator_1SP", false);
+        double[] src = { 10, 10, 10, 90, 20, 20 };
+        double[] dst = new double[src.length];
+        assertEquals(1, mp.transformAll(src, 0, dst, 0, 3));
+        assertFalse(Double.isNaN(dst[0]));
+        assertTrue(Double.isNaN(dst[2]));
+        assertTrue(Double.isNaN(dst[3]));
+        assertFalse(Double.isNaN(dst[4]));
+        Point2D expected = mp.transform(new Point2D.Double(20, 20), null);
+        assertEquals(expected.getX(), dst[4], TOLERANCE);
+        assertEquals(expected.getY(), dst[5], TOLERANCE);
+
+        // the MathTransform method still reports the failure with an exception
+        try {
+            mp.transform(src, 0, dst, 0, 3);
+            fail("Should have thrown a ProjectionException");
+        } catch (ProjectionException e) {
+            // fine
+        }
+        assertFalse(Double.isNaN(dst[0]));
+        assertTrue(Double.isNaN(dst[2]));
+    }
+
+    @Test
+    public void testOverlappingArrays() throws Exception {
+        MapProjection mp = create("Transverse_Mercator", false, "central_meridian", 9);
+        double[] src = { 5, 40, 7, 45, 11, 50, 13, 55 };
+        double[] expected = new double[src.length];
+        mp.transformAll(src, 0, expected, 0, 4);
+
+        double[] shared = new double[src.length + 2];
+        System.arraycopy(src, 0, shared, 0, src.length);
+        assertEquals(0, mp.transformAll(shared, 0, shared, 2, 4));
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], shared[i + 2], TOLERANCE);
+        }
+    }
+
+    /**
+     * Transforms a grid of points in the specified geographic area, both with the bulk and the
+     * single point methods, and compares the results, in both directions
+     */
+    static void assertBulkMatches(MapProjection mp, double minX, double maxX, double minY,
+            double maxY) throws TransformException {
+        final int steps = 20;
+        double[] geographic = new double[2 * steps * steps];
+        for (int i = 0, k = 0; i < steps; i++) {
+            for (int j = 0; j < steps; j++) {
+                geographic[k++] = minX + (maxX - minX) * i / (steps - 1);
+                geographic[k++] = minY + (maxY - minY) * j / (steps - 1);
+            }
+        }
+        final int numPts = geographic.length / 2;
+        double[] projected = new double[geographic.length];
+        assertEquals(0, mp.transformAll(geographic, 0, projected, 0, numPts));
+        Point2D.Double point = new Point2D.Double();
+        for (int i = 0; i < numPts; i++) {
+            point.setLocation(geographic[2 * i], geographic[2 * i + 1]);
+            mp.transform(point, point);
+            assertEquals(mp.getName() + " x at " + i, point.x, projected[2 * i], TOLERANCE);
+            assertEquals(mp.getName() + " y at " + i, point.y, projected[2 * i + 1], TOLERANCE);
+        }
+
+        MathTransform2D inverse = mp.inverse();
+        double[] back = new double[geographic.length];
+        assertEquals(0, mp.inverseTransformAll(projected, 0, back, 0, numPts));
+        for (int i = 0; i < numPts; i++) {
+            point.setLocation(projected[2 * i], projected[2 * i + 1]);
+            inverse.transform(point, point);
+            assertEquals(mp.getName() + " lon at " + i, point.x, back[2 * i], TOLERANCE);
+            assertEquals(mp.getName() + " lat at " + i, point.y, back[2 * i + 1], TOLERANCE);
+        }
+    }
+}
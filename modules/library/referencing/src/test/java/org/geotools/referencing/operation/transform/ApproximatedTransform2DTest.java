@@ -0,0 +1,135 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.referencing.operation.DefaultMathTransformFactory;
+import org.geotools.referencing.operation.matrix.Matrix3;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.referencing.operation.MathTransform2D;
+
+/**
+ * Tests the {@link ApproximatedTransform2D} stays within tolerance from the exact transform.
+ */
+public final class ApproximatedTransform2DTest {
+
+    DefaultMathTransformFactory factory;
+
+    MathTransform2D lambert;
+
+    @Before
+    public void setUp() throws Exception {
+        factory = new DefaultMathTransformFactory();
+        ParameterValueGroup parameters = factory
+                .getDefaultParameters("Lambert_Conformal_Conic_2SP");
+        parameters.parameter("semi_major").setValue(6378137.0);
+        parameters.parameter("semi_minor").setValue(6356752.314245179);
+        parameters.parameter("central_meridian").setValue(3.0);
+        parameters.parameter("latitude_of_origin").setValue(46.5);
+        parameters.parameter("standard_parallel_1").setValue(44.0);
+        parameters.parameter("standard_parallel_2").setValue(49.0);
+        parameters.parameter("false_easting").setValue(700000.0);
+        parameters.parameter("false_northing").setValue(6600000.0);
+        lambert = (MathTransform2D) factory.createParameterizedTransform(parameters);
+    }
+
+    GeneralEnvelope envelope(double minX, double minY, double maxX, double maxY) {
+        return new GeneralEnvelope(new double[] { minX, minY }, new double[] { maxX, maxY });
+    }
+
+    @Test
+    public void testWithinTolerance() throws Exception {
+        final double tolerance = 0.01;
+        MathTransform2D approximated = ApproximatedTransform2D.create(lambert,
+                envelope(-5, 41, 10, 52), tolerance);
+        assertTrue(approximated instanceof ApproximatedTransform2D);
+        ApproximatedTransform2D grid = (ApproximatedTransform2D) approximated;
+        assertTrue(grid.cols * grid.rows > 1);
+        assertTrue(grid.cols * grid.rows <= ApproximatedTransform2D.DEFAULT_MAX_CELLS);
+
+        Random random = new Random(0);
+        double[] source = new double[2000];
+        for (int i = 0; i < source.length; i += 2) {
+            source[i] = -5 + random.nextDouble() * 15;
+            source[i + 1] = 41 + random.nextDouble() * 11;
+        }
+        double[] expected = new double[source.length];
+        double[] actual = new double[source.length];
+        lambert.transform(source, 0, expected, 0, source.length / 2);
+        approximated.transform(source, 0, actual, 0, source.length / 2);
+        for (int i = 0; i < source.length; i += 2) {
+            double distance = Math.hypot(expected[i] - actual[i], expected[i + 1] - actual[i + 1]);
+            // the errors are checked on a lattice, allow some slack between its points
+            assertTrue("Distance " + distance + " at point " + i / 2, distance < tolerance * 2);
+        }
+    }
+
+    @Test
+    public void testOutsideDomain() throws Exception {
+        MathTransform2D approximated = ApproximatedTransform2D.create(lambert,
+                envelope(0, 45, 5, 50), 1);
+        assertTrue(approximated instanceof ApproximatedTransform2D);
+        // inside, outside, outside, inside, outside
+        double[] source = { 2, 47, -3, 47, 2, 51, 4, 49, 8, 42 };
+        double[] expected = new double[source.length];
+        lambert.transform(source, 0, expected, 0, 5);
+        double[] actual = new double[source.length];
+        approximated.transform(source, 0, actual, 0, 5);
+        for (int i = 2; i < 6; i++) {
+            assertEquals(expected[i], actual[i], 0);
+        }
+        assertEquals(expected[8], actual[8], 0);
+        assertEquals(expected[9], actual[9], 0);
+        for (int i : new int[] { 0, 1, 6, 7 }) {
+            assertEquals(expected[i], actual[i], 1);
+        }
+
+        // same points, transformed in place one point ahead
+        double[] shifted = new double[source.length + 2];
+        System.arraycopy(source, 0, shifted, 0, source.length);
+        approximated.transform(shifted, 0, shifted, 2, 5);
+        for (int i = 0; i < actual.length; i++) {
+            assertEquals(actual[i], shifted[i + 2], 0);
+        }
+    }
+
+    @Test
+    public void testNotApproximated() throws Exception {
+        MathTransform2D affine = (MathTransform2D) factory.createAffineTransform(new Matrix3(2,
+                0, 10, 0, 2, 20, 0, 0, 1));
+        assertSame(affine, ApproximatedTransform2D.create(affine, envelope(0, 0, 10, 10), 1));
+        assertSame(lambert, ApproximatedTransform2D.create(lambert, envelope(0, 45, 5, 50), 0));
+        // too strict for a four cells grid
+        assertSame(lambert,
+                ApproximatedTransform2D.create(lambert, envelope(-5, 41, 10, 52), 1e-6, 4));
+    }
+
+    @Test
+    public void testInverse() throws Exception {
+        MathTransform2D approximated = ApproximatedTransform2D.create(lambert,
+                envelope(0, 45, 5, 50), 1);
+        assertEquals(lambert.inverse(), approximated.inverse());
+    }
+}
@@ -23,6 +23,7 @@ import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.Shape;
 import java.awt.font.GlyphVector;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
@@ -188,6 +189,14 @@ public class LabelCacheImpl implements LabelCache {
     
     private BiFunction<Graphics2D, LabelRenderingMode, LabelPainter> constructPainter = LabelPainter::new; 
 
+    private boolean preciseConflictResolution = false;
+
+    private int placedLabels;
+
+    private int rejectedLabels;
+
+    private long conflictChecks;
+
     public void enableLayer(String layerId) {
         needsOrdering = true;
         enabledLayers.add(layerId);
@@ -204,6 +213,42 @@ public class LabelCacheImpl implements LabelCache {
         this.labelRenderingMode = mode;
     }
 
+    public boolean isPreciseConflictResolution() {
+        return preciseConflictResolution;
+    }
+
+    /**
+     * When enabled, rotated labels whose bounding boxes overlap are checked against their actual
+     * outlines before being considered in conflict. Allows denser labelling of rotated labels, at
+     * the expense of some extra computation. Disabled by default.
+     */
+    public void setPreciseConflictResolution(boolean preciseConflictResolution) {
+        this.preciseConflictResolution = preciseConflictResolution;
+    }
+
+    /**
+     * The number of labels painted during the last {@link #end(Graphics2D, Rectangle)} call
+     */
+    public int getPlacedLabels() {
+        return placedLabels;
+    }
+
+    /**
+     * The number of labels that could not be painted during the last
+     * {@link #end(Graphics2D, Rectangle)} call, because of conflicts, lack of space, or errors
+     */
+    public int getRejectedLabels() {
+        return rejectedLabels;
+    }
+
+    /**
+     * The number of label bounds compared against each other during the last
+     * {@link #end(Graphics2D, Rectangle)} call
+     */
+    public long getConflictChecks() {
+        return conflictChecks;
+    }
+
     /**
      * Change the method used to construct LabelPainters. Defaults to 
      * {@link LabelPainter#LabelPainter}.
@@ -470,6 +515,9 @@ public class LabelCacheImpl implements LabelCache {
         }
         LabelIndex glyphs = new LabelIndex();
         glyphs.reserveArea( reserved );
+        placedLabels = 0;
+        rejectedLabels = 0;
+        conflictChecks = 0;
 
         //Used to check the paintLineLabel function
         int paintedLineLabels = 0;
@@ -495,11 +543,21 @@ public class LabelCacheImpl implements LabelCache {
             items = getActiveLabels();
         }
         LabelPainter painter = constructPainter.apply(graphics, labelRenderingMode);
-        for (LabelCacheItem labelItem : items) {
-            if (stop)
-                return;
+        try {
+            for (LabelCacheItem labelItem : items) {
+                if (stop)
+                    return;
             
-            paintedLineLabels = paintLabel(graphics, displayArea, glyphs, paintedLineLabels, painter, labelItem);
+                paintedLineLabels = paintLabel(graphics, displayArea, glyphs, paintedLineLabels, painter, labelItem);
+            }
+        } finally {
+            conflictChecks = glyphs.getComparisons();
+        }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Placed " + placedLabels + " labels, rejected " + rejectedLabels + ", "
+                    + glyphs.getQueries() + " conflict queries, " + conflictChecks
+                    + " bounds comparisons, " + glyphs.getOutlineComparisons()
+                    + " outline comparisons");
         }
         //Output for line labels
         LOGGER.log(Level.FINE, "TOTAL LINE LABELS : {0}", items.size());
@@ -509,7 +567,7 @@ public class LabelCacheImpl implements LabelCache {
 
     int paintLabel(Graphics2D graphics, Rectangle displayArea, LabelIndex glyphs,
             int paintedLineLabels, LabelPainter painter, LabelCacheItem labelItem) {
-        boolean painted;
+        boolean painted = false;
         try {
             painter.setLabel(labelItem);
             // LabelCacheItem labelItem = (LabelCacheItem)
@@ -532,7 +590,7 @@ public class LabelCacheImpl implements LabelCache {
 
             Geometry geom = labelItem.getGeometry();
             if ((geom instanceof Point) || (geom instanceof MultiPoint))
-                paintPointLabel(painter, tempTransform, displayArea, glyphs);
+                painted = paintPointLabel(painter, tempTransform, displayArea, glyphs);
             else if (((geom instanceof LineString) && !(geom instanceof LinearRing))
                     || (geom instanceof MultiLineString)) {
                 if (!DISABLE_LETTER_LEVEL_CONFLICT)
@@ -548,10 +606,10 @@ public class LabelCacheImpl implements LabelCache {
                 if (labelItem.getTextStyle().isPointPlacement()
                         && !labelItem.isFollowLineEnabled()) {
                     // labelling the polygon centroid/label point
-                    paintPolygonLabel(painter, tempTransform, displayArea, glyphs);
+                    painted = paintPolygonLabel(painter, tempTransform, displayArea, glyphs);
                 } else {
                     // labelling the polygon border(s)
-                    paintPolygonBorder(painter, tempTransform, displayArea, glyphs);
+                    painted = paintPolygonBorder(painter, tempTransform, displayArea, glyphs);
                 }
         } catch (Exception e) {
             if (LOGGER.isLoggable(Level.FINE)) {
@@ -561,9 +619,26 @@ public class LabelCacheImpl implements LabelCache {
                 listener.errorOccurred(e);
             }
         }
+        if (painted) {
+            placedLabels++;
+        } else {
+            rejectedLabels++;
+        }
         return paintedLineLabels;
     }
 
+    /**
+     * Returns the outline of the label bounds, if precise conflict resolution is enabled and the
+     * label is rotated, null otherwise
+     */
+    private Shape getOutline(AffineTransform tx, Rectangle2D bounds) {
+        if (!preciseConflictResolution || (tx.getType()
+                & (AffineTransform.TYPE_GENERAL_ROTATION | AffineTransform.TYPE_GENERAL_TRANSFORM)) == 0) {
+            return null;
+        }
+        return tx.createTransformedShape(bounds);
+    }
+
 
     private Envelope toEnvelope(Rectangle2D bounds) {
         return new Envelope(bounds.getMinX(), bounds.getMaxX(), bounds.getMinY(), bounds.getMaxY());
@@ -937,6 +1012,7 @@ public class LabelCacheImpl implements LabelCache {
                     // reset transform and other computation parameters
                     tx.setToIdentity();
                     Rectangle2D labelEnvelope;
+                    Shape labelOutline = null;
                     double maxAngleChange = 0;
 
                     // the line ordinates where we presume the label will start
@@ -955,6 +1031,7 @@ public class LabelCacheImpl implements LabelCache {
                             // straight bounds
                             setupLineTransform(painter, cursor, centroid, tx, true);
                             labelEnvelope = tx.createTransformedShape(textBounds).getBounds2D();
+                            labelOutline = getOutline(tx, textBounds);
                         } else {
                             // otherwise use curved bounds, more expensive to
                             // compute
@@ -964,12 +1041,13 @@ public class LabelCacheImpl implements LabelCache {
                     } else {
                         setupLineTransform(painter, cursor, centroid, tx, false);
                         labelEnvelope = tx.createTransformedShape(textBounds).getBounds2D();
+                        labelOutline = getOutline(tx, textBounds);
                     }
 
                     // try to paint the label, the condition under which this
                     // happens are complex
                     if ((displayArea.contains(labelEnvelope) || labelItem.isPartialsEnabled())
-                            && !(labelItem.isConflictResolutionEnabled() && paintedBounds.labelsWithinDistance(labelEnvelope, extraSpace))
+                            && !(labelItem.isConflictResolutionEnabled() && paintedBounds.labelsWithinDistance(labelEnvelope, extraSpace, labelOutline))
                             && !groupLabels.labelsWithinDistance(labelEnvelope, minDistance)) {
                         if (labelItem.isFollowLineEnabled()) {
                             // for curved labels we never paint in case of
@@ -1012,7 +1090,7 @@ public class LabelCacheImpl implements LabelCache {
                                 painter.graphics.setColor(Color.RED);
                                 painter.graphics.draw(labelEnvelope);
                             }
-                            paintedBounds.addLabel(labelItem, labelEnvelope);
+                            paintedBounds.addLabel(labelItem, labelEnvelope, labelOutline);
                         }
                         
                         // do not paint the last label on a ring if we have painted its symmetric
@@ -1368,9 +1446,10 @@ public class LabelCacheImpl implements LabelCache {
         // check for overlaps and paint
         Rectangle2D transformed = tempTransform
                 .createTransformedShape(painter.getFullLabelBounds()).getBounds2D();
+        Shape outline = getOutline(tempTransform, painter.getFullLabelBounds());
         if (!(displayArea.contains(transformed) || labelItem.isPartialsEnabled())
                 || (labelItem.isConflictResolutionEnabled() && 
-                        glyphs.labelsWithinDistance(transformed, labelItem.getSpaceAround()))) {
+                        glyphs.labelsWithinDistance(transformed, labelItem.getSpaceAround(), outline))) {
             return false;
         } else {
             painter.paintStraightLabel(tempTransform);
@@ -1380,7 +1459,7 @@ public class LabelCacheImpl implements LabelCache {
                 painter.graphics.draw(transformed);
             }
             if(labelItem.isConflictResolutionEnabled())
-                glyphs.addLabel(labelItem, transformed);
+                glyphs.addLabel(labelItem, transformed, outline);
             return true;
         }
     }
@@ -1520,9 +1599,10 @@ public class LabelCacheImpl implements LabelCache {
 
         Rectangle2D transformed = tempTransform
                 .createTransformedShape(painter.getFullLabelBounds()).getBounds2D();
+        Shape outline = getOutline(tempTransform, painter.getFullLabelBounds());
         if (!(displayArea.contains(transformed) || labelItem.isPartialsEnabled())
                 || (labelItem.isConflictResolutionEnabled() 
-                        && glyphs.labelsWithinDistance(transformed, labelItem.getSpaceAround()))
+                        && glyphs.labelsWithinDistance(transformed, labelItem.getSpaceAround(), outline))
                 || goodnessOfFit(painter, tempTransform, pg) < painter.getLabel().getGoodnessOfFit()) {
             // try the alternate rotation if possible
             if(textStyle.flipRotation(pg.getGeometry())) {
@@ -1530,9 +1610,10 @@ public class LabelCacheImpl implements LabelCache {
                 setupPointTransform(tempTransform, centroid, textStyle, painter);
 
                 transformed = tempTransform.createTransformedShape(painter.getFullLabelBounds()).getBounds2D();
+                outline = getOutline(tempTransform, painter.getFullLabelBounds());
                 if (!(displayArea.contains(transformed) || labelItem.isPartialsEnabled())
                         || (labelItem.isConflictResolutionEnabled() 
-                                && glyphs.labelsWithinDistance(transformed, labelItem.getSpaceAround()))
+                                && glyphs.labelsWithinDistance(transformed, labelItem.getSpaceAround(), outline))
                         || goodnessOfFit(painter, tempTransform, pg) < painter.getLabel().getGoodnessOfFit()) {
                     textStyle.flipRotation(pg.getGeometry());
                     return false;
@@ -1549,7 +1630,7 @@ public class LabelCacheImpl implements LabelCache {
         }
         painter.paintStraightLabel(tempTransform);
         if(labelItem.isConflictResolutionEnabled()) {
-            glyphs.addLabel(labelItem, transformed);
+            glyphs.addLabel(labelItem, transformed, outline);
         }
         return true;
     }
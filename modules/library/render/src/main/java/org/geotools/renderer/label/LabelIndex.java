@@ -16,16 +16,27 @@
  */
 package org.geotools.renderer.label;
 
+import java.awt.Shape;
+import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Envelope;
-import com.vividsolutions.jts.index.quadtree.Quadtree;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
 
 /**
  * Stores label items and helps in finding the interferering ones, either by
- * pure overlap or within a certain distance from the specified bounds
+ * pure overlap or within a certain distance from the specified bounds.
+ * <p>
+ * Labels are indexed in a uniform grid of square cells, labels touching too many cells (e.g.,
+ * reserved areas) are kept aside and checked against every query. Labels can also carry their
+ * outline (e.g., a rotated rectangle), in which case the bounding box check is followed by a check
+ * on the outlines, so that rotated labels whose boxes overlap can still be both painted.
  * 
  * @author Andrea Aime
  * 
@@ -36,7 +47,50 @@ import com.vividsolutions.jts.index.quadtree.Quadtree;
  */
 public class LabelIndex {
 
-    Quadtree index = new Quadtree();
+    /**
+     * The default grid cell size, in pixels
+     */
+    public static final int DEFAULT_CELL_SIZE = 64;
+
+    /**
+     * Labels touching more cells than this are not put in the grid
+     */
+    static final int MAX_CELLS = 64;
+
+    static final GeometryFactory GF = new GeometryFactory();
+
+    static final int NO_CELL = Integer.MIN_VALUE;
+
+    final double cellSize;
+
+    final Map<Long, List<InterferenceItem>> cells = new HashMap<Long, List<InterferenceItem>>();
+
+    final List<InterferenceItem> largeItems = new ArrayList<InterferenceItem>();
+
+    boolean hasOutlines;
+
+    long queries;
+
+    long comparisons;
+
+    long outlineComparisons;
+
+    public LabelIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Builds an index with the specified grid cell size, in pixels. Cells should be about the size
+     * of the typical label.
+     *
+     * @param cellSize
+     */
+    public LabelIndex(int cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("The cell size must be positive");
+        }
+        this.cellSize = cellSize;
+    }
 
     /**
      * Returns true if there is any label in the index within the specified
@@ -47,25 +101,80 @@ public class LabelIndex {
      * @param distance
      * @return
      */
-    @SuppressWarnings("unchecked")
     public boolean labelsWithinDistance(Rectangle2D bounds, double distance) {
+        return labelsWithinDistance(bounds, distance, null);
+    }
+
+    /**
+     * Returns true if there is any label in the index within the specified distance from the
+     * bounds. If an outline is provided, the labels whose bounds are within distance are checked
+     * against it too (using the bounds of the indexed labels that have no outline)
+     *
+     * @param bounds The label bounds
+     * @param distance The minimum distance between labels
+     * @param outline The label outline, or null
+     * @return
+     */
+    public boolean labelsWithinDistance(Rectangle2D bounds, double distance, Shape outline) {
         if (distance < 0)
             return false;
 
+        queries++;
         Envelope e = toEnvelope(bounds);
         e.expandBy(distance);
-        List<InterferenceItem> results = index.query(e);
-        if (results.size() == 0)
-            return false;
-        for (Iterator<InterferenceItem> it = results.iterator(); it.hasNext();) {
-            InterferenceItem item = it.next();
-            if (item.env.intersects(e)) {
+        // the outline checks are run only if the bounds are not enough to tell
+        Geometry geometry = outline != null ? toGeometry(outline) : null;
+        if (geometry == null && hasOutlines) {
+            geometry = GF.toGeometry(toEnvelope(bounds));
+        }
+        for (InterferenceItem item : largeItems) {
+            if (interferes(item, e, geometry, distance, NO_CELL, NO_CELL)) {
                 return true;
             }
         }
+        int minX = cell(e.getMinX());
+        int maxX = cell(e.getMaxX());
+        int minY = cell(e.getMinY());
+        int maxY = cell(e.getMaxY());
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                List<InterferenceItem> items = cells.get(key(x, y));
+                if (items != null) {
+                    for (InterferenceItem item : items) {
+                        if (interferes(item, e, geometry, distance, x, y)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
         return false;
     }
 
+    /**
+     * Checks if the item interferes with the query, the cell coordinates are used to run the
+     * check only once for items spanning multiple cells (in the cell containing the min corner of
+     * the intersection)
+     */
+    private boolean interferes(InterferenceItem item, Envelope e, Geometry outline,
+            double distance, int x, int y) {
+        comparisons++;
+        if (!item.env.intersects(e)) {
+            return false;
+        }
+        if (x != NO_CELL && (cell(Math.max(item.env.getMinX(), e.getMinX())) != x
+                || cell(Math.max(item.env.getMinY(), e.getMinY())) != y)) {
+            // will be checked in another cell
+            return false;
+        }
+        if (outline == null || (item.outline == null && outline.isRectangle())) {
+            return true;
+        }
+        outlineComparisons++;
+        Geometry other = item.outline != null ? item.outline : GF.toGeometry(item.env);
+        return outline.isWithinDistance(other, distance);
+    }
+
     /**
      * Adds a label into the index
      * 
@@ -73,8 +182,55 @@ public class LabelIndex {
      * @param bounds
      */
     public void addLabel(LabelCacheItem item, Rectangle2D bounds) {
+        addLabel(item, bounds, null);
+    }
+
+    /**
+     * Adds a label into the index, along with its outline, if not null
+     *
+     * @param item
+     * @param bounds
+     * @param outline
+     */
+    public void addLabel(LabelCacheItem item, Rectangle2D bounds, Shape outline) {
         Envelope e = toEnvelope(bounds);
-        index.insert(e, new InterferenceItem(e, item));
+        InterferenceItem ii = new InterferenceItem(e, item);
+        if (outline != null) {
+            ii.outline = toGeometry(outline);
+            hasOutlines = true;
+        }
+        insert(ii);
+    }
+
+    private void insert(InterferenceItem item) {
+        Envelope e = item.env;
+        int minX = cell(e.getMinX());
+        int maxX = cell(e.getMaxX());
+        int minY = cell(e.getMinY());
+        int maxY = cell(e.getMaxY());
+        if (((long) maxX - minX + 1) * ((long) maxY - minY + 1) > MAX_CELLS) {
+            largeItems.add(item);
+            return;
+        }
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                Long key = key(x, y);
+                List<InterferenceItem> items = cells.get(key);
+                if (items == null) {
+                    items = new ArrayList<InterferenceItem>(4);
+                    cells.put(key, items);
+                }
+                items.add(item);
+            }
+        }
+    }
+
+    private int cell(double ordinate) {
+        return (int) Math.floor(ordinate / cellSize);
+    }
+
+    private static Long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
     }
 
     /**
@@ -88,7 +244,55 @@ public class LabelIndex {
     }
 
     /**
-     * Simple structure stored into the quadtree (keeping the item around helps
+     * Turns the first ring of the specified Java2D shape into a JTS polygon (label outlines are
+     * simple, usually rotated rectangles)
+     */
+    static Geometry toGeometry(Shape shape) {
+        List<Coordinate> coords = new ArrayList<Coordinate>();
+        double[] buffer = new double[6];
+        for (PathIterator it = shape.getPathIterator(null); !it.isDone(); it.next()) {
+            int type = it.currentSegment(buffer);
+            if (type == PathIterator.SEG_MOVETO && !coords.isEmpty()) {
+                break;
+            } else if (type != PathIterator.SEG_CLOSE) {
+                coords.add(new Coordinate(buffer[0], buffer[1]));
+            }
+        }
+        if (coords.size() < 3) {
+            Rectangle2D bounds = shape.getBounds2D();
+            return GF.toGeometry(new Envelope(bounds.getMinX(), bounds.getMaxX(),
+                    bounds.getMinY(), bounds.getMaxY()));
+        }
+        if (!coords.get(0).equals2D(coords.get(coords.size() - 1))) {
+            coords.add(new Coordinate(coords.get(0)));
+        }
+        return GF.createPolygon(coords.toArray(new Coordinate[coords.size()]));
+    }
+
+    /**
+     * The number of conflict queries run against this index
+     */
+    public long getQueries() {
+        return queries;
+    }
+
+    /**
+     * The number of bounding box comparisons run by the conflict queries
+     */
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    /**
+     * The number of outline comparisons run by the conflict queries, after the bounding boxes
+     * overlapped
+     */
+    public long getOutlineComparisons() {
+        return outlineComparisons;
+    }
+
+    /**
+     * Simple structure stored into the index (keeping the item around helps
      * in debugging)
      * 
      * @author Andrea Aime
@@ -99,6 +303,8 @@ public class LabelIndex {
 
         LabelCacheItem item;
 
+        Geometry outline;
+
         public InterferenceItem(Envelope env, LabelCacheItem item) {
             super();
             this.env = env;
@@ -117,7 +323,7 @@ public class LabelIndex {
             Envelope env = toEnvelope(area);
             
             InterferenceItem item = new InterferenceItem(env,null);            
-            index.insert( env, item );
+            insert( item );
         }
     }
 }
@@ -0,0 +1,204 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.geometry.jts.LiteShape2;
+import org.geotools.styling.TextSymbolizer;
+import org.geotools.util.NumberRange;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.Feature;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.identity.FeatureId;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.util.AffineTransformation;
+
+/**
+ * The label cache used by the renderers painting a single band of a larger map. The calls are
+ * recorded, with the labels moved from band to map coordinates, and replayed on the map wide
+ * label cache once all bands are painted, in band order, so that the label conflict resolution
+ * does not depend on the band painting order. Features showing up in more than one band are
+ * labelled only once. Starting, ending and stopping are left to the renderer painting the whole
+ * map, which also paints the labels at the end.
+ */
+class BandLabelCache implements LabelCache {
+
+    static final Logger LOGGER = Logging.getLogger(BandLabelCache.class);
+
+    final double dx;
+
+    final double dy;
+
+    final List<Consumer<LabelCache>> calls = new ArrayList<Consumer<LabelCache>>();
+
+    Graphics2D replayGraphics;
+
+    Rectangle replayArea;
+
+    /**
+     * @param dx The horizontal offset of the band in the map
+     * @param dy The vertical offset of the band in the map
+     */
+    BandLabelCache(double dx, double dy) {
+        this.dx = dx;
+        this.dy = dy;
+    }
+
+    /**
+     * Replays the recorded calls on the target cache
+     * 
+     * @param target The map wide label cache
+     * @param labelled The keys of the labels already added to the target cache by other bands
+     * @param graphics The map graphics
+     * @param displayArea The map area
+     */
+    void replay(LabelCache target, Set<List<Object>> labelled, Graphics2D graphics,
+            Rectangle displayArea) {
+        replayGraphics = graphics;
+        replayArea = displayArea;
+        for (Consumer<LabelCache> call : calls) {
+            if (call instanceof LabelCall) {
+                LabelCall label = (LabelCall) call;
+                if (label.key != null && !labelled.add(label.key)) {
+                    continue;
+                }
+            }
+            call.accept(target);
+        }
+        calls.clear();
+        replayGraphics = null;
+        replayArea = null;
+    }
+
+    /**
+     * A recorded label, along with the key used to recognize it in the other bands
+     */
+    static class LabelCall implements Consumer<LabelCache> {
+        final String layerId;
+
+        final TextSymbolizer symbolizer;
+
+        final Feature feature;
+
+        final LiteShape2 shape;
+
+        final NumberRange<Double> scaleRange;
+
+        final List<Object> key;
+
+        LabelCall(String layerId, TextSymbolizer symbolizer, Feature feature, LiteShape2 shape,
+                NumberRange<Double> scaleRange, List<Object> key) {
+            this.layerId = layerId;
+            this.symbolizer = symbolizer;
+            this.feature = feature;
+            this.shape = shape;
+            this.scaleRange = scaleRange;
+            this.key = key;
+        }
+
+        @Override
+        public void accept(LabelCache cache) {
+            cache.put(layerId, symbolizer, feature, shape, scaleRange);
+        }
+    }
+
+    public void start() {
+        // handled by the map renderer
+    }
+
+    public void startLayer(final String layerId) {
+        calls.add(cache -> cache.startLayer(layerId));
+    }
+
+    public void put(String layerId, TextSymbolizer symbolizer, Feature feature, LiteShape2 shape,
+            NumberRange<Double> scaleRange) {
+        if (dx != 0 || dy != 0) {
+            try {
+                Geometry geometry = AffineTransformation.translationInstance(dx, dy).transform(
+                        shape.getGeometry());
+                shape = new LiteShape2(geometry, null, null, false);
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Failed to move the label geometry in the map space", e);
+                return;
+            }
+        }
+        // label geometries are not clipped, so the same feature has the same geometry in all
+        // bands (which also helps telling apart features sharing the same id), up to rounding
+        // errors in the band offsets
+        List<Object> key = null;
+        FeatureId id = feature.getIdentifier();
+        if (id != null && id.getID() != null) {
+            Name typeName = feature.getType().getName();
+            Envelope envelope = shape.getGeometry().getEnvelopeInternal();
+            Envelope pixels = new Envelope(Math.round(envelope.getMinX()), Math.round(envelope
+                    .getMaxX()), Math.round(envelope.getMinY()), Math.round(envelope.getMaxY()));
+            key = Arrays.<Object> asList(layerId, typeName, id.getID(), pixels, symbolizer);
+        }
+        calls.add(new LabelCall(layerId, symbolizer, feature, shape, scaleRange, key));
+    }
+
+    public void put(Rectangle2D area) {
+        final Rectangle2D moved = new Rectangle2D.Double(area.getX() + dx, area.getY() + dy,
+                area.getWidth(), area.getHeight());
+        calls.add(cache -> cache.put(moved));
+    }
+
+    public void endLayer(final String layerId, Graphics2D graphics, Rectangle displayArea) {
+        calls.add(cache -> cache.endLayer(layerId, replayGraphics, replayArea));
+    }
+
+    public void end(Graphics2D graphics, Rectangle displayArea) {
+        // labels are painted by the map renderer once all bands are done
+    }
+
+    public void stop() {
+        // handled by the map renderer
+    }
+
+    public void clear() {
+        // handled by the map renderer
+    }
+
+    public void clear(final String layerId) {
+        calls.add(cache -> cache.clear(layerId));
+    }
+
+    public void disableLayer(final String layerId) {
+        calls.add(cache -> cache.disableLayer(layerId));
+    }
+
+    public void enableLayer(final String layerId) {
+        calls.add(cache -> cache.enableLayer(layerId));
+    }
+
+    public List orderedLabels() {
+        return Collections.emptyList();
+    }
+}
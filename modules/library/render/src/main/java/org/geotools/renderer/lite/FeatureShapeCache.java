@@ -0,0 +1,221 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.geotools.geometry.jts.LiteCoordinateSequence;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFilter;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * A cache of the feature geometries transformed and decimated in screen space, meant to be shared
+ * among renderers painting the same data at the same scales over and over, as it happens in tile
+ * servers. Geometries are stored in a space scaled like the screen one, but without the
+ * translation, whenever the source and target CRS are the same, so that they can be reused by
+ * maps (tiles) at the same scale covering different areas. The cache is bounded by the total
+ * number of coordinates stored, and evicts the least recently used geometries first.
+ * <p>
+ * The cache is not aware of data changes, it needs to be cleared when the data painted from it is
+ * modified. Set it in the renderer hints using {@link StreamingRenderer#SHAPE_CACHE_KEY}.
+ */
+public class FeatureShapeCache {
+
+    /**
+     * The default maximum number of coordinates held by the cache (roughly 160MB)
+     */
+    public static final long DEFAULT_MAX_COORDINATES = 10 * 1000 * 1000;
+
+    /**
+     * A cache key made of a list of parts, with the hash code computed only once
+     */
+    static final class Key {
+        final Object[] parts;
+
+        final int hash;
+
+        Key(Object... parts) {
+            this.parts = parts;
+            this.hash = Arrays.hashCode(parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && Arrays.equals(parts, other.parts);
+        }
+
+        @Override
+        public String toString() {
+            return "Key" + Arrays.toString(parts);
+        }
+    }
+
+    final long maxCoordinates;
+
+    final LinkedHashMap<Key, Geometry> geometries = new LinkedHashMap<Key, Geometry>(1024, 0.75f,
+            true);
+
+    long coordinates;
+
+    final AtomicLong hits = new AtomicLong();
+
+    final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Builds a cache holding at most {@link #DEFAULT_MAX_COORDINATES} coordinates
+     */
+    public FeatureShapeCache() {
+        this(DEFAULT_MAX_COORDINATES);
+    }
+
+    /**
+     * Builds a cache holding at most the specified number of coordinates
+     *
+     * @param maxCoordinates
+     */
+    public FeatureShapeCache(long maxCoordinates) {
+        if (maxCoordinates <= 0) {
+            throw new IllegalArgumentException("The cache size must be positive");
+        }
+        this.maxCoordinates = maxCoordinates;
+    }
+
+    /**
+     * Returns a copy of the cached geometry, moved by the specified offsets, or null if the
+     * geometry is not cached
+     */
+    Geometry get(Key key, double dx, double dy) {
+        Geometry geometry;
+        synchronized (this) {
+            geometry = geometries.get(key);
+        }
+        if (geometry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return translate(geometry, dx, dy);
+    }
+
+    /**
+     * Caches a copy of the geometry, moved by the specified offsets
+     */
+    void put(Key key, Geometry geometry, double dx, double dy) {
+        int size = geometry.getNumPoints();
+        if (size > maxCoordinates) {
+            return;
+        }
+        Geometry copy = translate(geometry, dx, dy);
+        synchronized (this) {
+            Geometry previous = geometries.put(key, copy);
+            if (previous != null) {
+                coordinates -= previous.getNumPoints();
+            }
+            coordinates += size;
+            Iterator<Map.Entry<Key, Geometry>> it = geometries.entrySet().iterator();
+            while (coordinates > maxCoordinates && it.hasNext()) {
+                coordinates -= it.next().getValue().getNumPoints();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Copies the geometry, using {@link LiteCoordinateSequence}, and moves it by the specified
+     * offsets
+     */
+    static Geometry translate(Geometry geometry, final double dx, final double dy) {
+        Geometry copy = LiteCoordinateSequence.cloneGeometry(geometry);
+        if (dx != 0 || dy != 0) {
+            copy.apply(new CoordinateSequenceFilter() {
+
+                @Override
+                public void filter(CoordinateSequence seq, int i) {
+                    seq.setOrdinate(i, 0, seq.getOrdinate(i, 0) + dx);
+                    seq.setOrdinate(i, 1, seq.getOrdinate(i, 1) + dy);
+                }
+
+                @Override
+                public boolean isDone() {
+                    return false;
+                }
+
+                @Override
+                public boolean isGeometryChanged() {
+                    return true;
+                }
+            });
+        }
+        return copy;
+    }
+
+    /**
+     * Removes all the geometries from the cache, and resets the statistics
+     */
+    public synchronized void clear() {
+        geometries.clear();
+        coordinates = 0;
+        hits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * The number of geometries in the cache
+     */
+    public synchronized int size() {
+        return geometries.size();
+    }
+
+    /**
+     * The number of coordinates held by the cached geometries
+     */
+    public synchronized long getCoordinates() {
+        return coordinates;
+    }
+
+    /**
+     * The number of lookups that found a cached geometry
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * The number of lookups that did not find a cached geometry
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+}
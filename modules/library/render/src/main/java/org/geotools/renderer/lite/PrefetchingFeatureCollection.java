@@ -0,0 +1,171 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.collection.DecoratingFeatureCollection;
+import org.opengis.feature.Feature;
+import org.opengis.feature.type.FeatureType;
+
+/**
+ * A feature collection whose first scan is read ahead in a background thread, buffering the
+ * features in a bounded queue, so that the data source latency can overlap with the painting of
+ * the layers above. The {@link #run()} method performs the read ahead and is meant to be submitted
+ * to a thread pool. If the painter gets to the collection before the read ahead started, it reads
+ * the delegate directly instead (which avoids dead locks on saturated pools). Scans after the
+ * first one always go to the delegate.
+ */
+class PrefetchingFeatureCollection<T extends FeatureType, F extends Feature> extends
+        DecoratingFeatureCollection<T, F> implements Runnable {
+
+    static final int NEW = 0;
+
+    static final int PREFETCHING = 1;
+
+    static final int DIRECT = 2;
+
+    static final Object END = new Object();
+
+    /**
+     * Wraps an exception thrown while reading ahead, to be rethrown by the consuming iterator
+     */
+    static class Failure {
+        final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    final AtomicInteger state = new AtomicInteger(NEW);
+
+    final BlockingQueue<Object> queue;
+
+    volatile boolean closed;
+
+    boolean consumed;
+
+    /**
+     * @param delegate The collection to be read
+     * @param bufferSize The maximum number of features read ahead of the painter
+     */
+    PrefetchingFeatureCollection(FeatureCollection<T, F> delegate, int bufferSize) {
+        super(delegate);
+        this.queue = new ArrayBlockingQueue<Object>(bufferSize);
+    }
+
+    @Override
+    public void run() {
+        if (!state.compareAndSet(NEW, PREFETCHING)) {
+            return;
+        }
+        try (FeatureIterator<F> it = delegate.features()) {
+            while (!closed && it.hasNext()) {
+                if (!offer(it.next())) {
+                    return;
+                }
+            }
+            offer(END);
+        } catch (Throwable t) {
+            offer(new Failure(t));
+        }
+    }
+
+    /**
+     * Adds to the queue, waiting for room until the collection is closed
+     */
+    private boolean offer(Object item) {
+        try {
+            while (!closed) {
+                if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    @Override
+    public FeatureIterator<F> features() {
+        if (consumed) {
+            return delegate.features();
+        }
+        consumed = true;
+        if (state.compareAndSet(NEW, DIRECT)) {
+            // the read ahead did not start yet, no point in waiting for it
+            return delegate.features();
+        }
+        return new PrefetchedIterator();
+    }
+
+    /**
+     * Stops the read ahead, if running, and releases the buffered features
+     */
+    void close() {
+        closed = true;
+        state.compareAndSet(NEW, DIRECT);
+        queue.clear();
+    }
+
+    class PrefetchedIterator implements FeatureIterator<F> {
+
+        Object next;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for features", e);
+                }
+                if (next instanceof Failure) {
+                    Throwable cause = ((Failure) next).cause;
+                    next = END;
+                    throw new RuntimeException("Failed to read the layer features", cause);
+                }
+            }
+            return next != END;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public F next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            F result = (F) next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void close() {
+            PrefetchingFeatureCollection.this.close();
+        }
+    }
+}
@@ -25,10 +25,12 @@ import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.RenderingHints.Key;
 import java.awt.Shape;
+import java.awt.Transparency;
 import java.awt.font.GlyphVector;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
@@ -37,6 +39,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -45,6 +49,7 @@ import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -96,6 +101,7 @@ import org.geotools.referencing.CRS;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
 import org.geotools.referencing.operation.matrix.XAffineTransform;
 import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.referencing.operation.transform.ApproximatedTransform2D;
 import org.geotools.referencing.operation.transform.ConcatenatedTransform;
 import org.geotools.referencing.operation.transform.ProjectiveTransform;
 import org.geotools.renderer.GTRenderer;
@@ -135,6 +141,7 @@ import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.expression.Expression;
 import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.identity.FeatureId;
 import org.opengis.filter.sort.SortBy;
 import org.opengis.parameter.GeneralParameterValue;
 import org.opengis.referencing.FactoryException;
@@ -370,6 +377,49 @@ public class StreamingRenderer implements GTRenderer {
     public static final String SCALE_COMPUTATION_METHOD_KEY = "scaleComputationMethod";
     public static final String BYLAYER_INTERPOLATION = "byLayerInterpolation";
 
+    /**
+     * Number of horizontal bands the map is split into when painting. Each band is painted by
+     * its own renderer, on its own image, using the band thread pool, and the bands are then
+     * composited on the target graphics. Labels are still resolved across the whole map. Meant
+     * for large raster outputs (e.g. meta tiles), values lower than 2 disable the band split.
+     */
+    public static final String PARALLEL_BANDS_KEY = "parallelBands";
+
+    /**
+     * The minimum height of a band, in pixels, when painting in parallel bands
+     */
+    static final int MIN_BAND_HEIGHT = 64;
+
+    /**
+     * Number of feature layers whose data is read ahead of the one being painted. The features
+     * of the following layers are read in background threads, using the prefetch thread pool,
+     * and buffered in bounded queues, while painting still happens in layer order. Meant to
+     * overlap the latency of slow data sources (e.g., remote databases) with the rasterization
+     * of the layers above them. Values lower than 1 disable the read ahead.
+     */
+    public static final String PREFETCH_LAYERS_KEY = "prefetchLayers";
+
+    /**
+     * The maximum number of features buffered for each prefetched layer, defaults to
+     * {@link #DEFAULT_PREFETCH_BUFFER}
+     */
+    public static final String PREFETCH_BUFFER_KEY = "prefetchBuffer";
+
+    static final int DEFAULT_PREFETCH_BUFFER = 1000;
+
+    /**
+     * The {@link FeatureShapeCache} storing the feature shapes transformed in screen space, to be
+     * reused by other paints at the same scale, skipping the reprojection and decimation
+     */
+    public static final String SHAPE_CACHE_KEY = "shapeCache";
+
+    /**
+     * The maximum distance, in pixels, between the exact and the approximated position of the
+     * reprojected vertices. When set, reprojections are approximated by a bilinear interpolation
+     * over a grid covering the map area, see {@link ApproximatedTransform2D}
+     */
+    public static final String TRANSFORM_TOLERANCE_KEY = "transformTolerance";
+
     /**
      * "vectorRenderingEnabled"      - Boolean  yes/no (see default vectorRenderingEnabledDEFAULT)
      * "declaredScaleDenominator"    - Double   the value of the scale denominator to use by the renderer.  
@@ -381,6 +431,11 @@ public class StreamingRenderer implements GTRenderer {
      *  "forceEPSGAxisOrder"         - When doing spatial filter reprojection (from the SLD towards the native CRS) assume the geometries 
      *                                 are expressed with the axis order suggested by the official EPSG database, regardless of how the 
      *                                 CRS system might be configured                               
+     *  "parallelBands"              - Integer  number of horizontal bands painted in parallel, see {@link #PARALLEL_BANDS_KEY}
+     *  "prefetchLayers"             - Integer  number of layers read ahead of the painted one, see {@link #PREFETCH_LAYERS_KEY}
+     *  "prefetchBuffer"             - Integer  number of features buffered for each prefetched layer
+     *  "shapeCache"                 - FeatureShapeCache the cache of transformed feature shapes, see {@link #SHAPE_CACHE_KEY}
+     *  "transformTolerance"         - Double   pixels of error allowed in approximated reprojections, see {@link #TRANSFORM_TOLERANCE_KEY}
      */
     private Map rendererHints = null;
 
@@ -404,6 +459,36 @@ public class StreamingRenderer implements GTRenderer {
 
     private PainterThread painterThread;
 
+    /**
+     * The thread pool used to paint the bands, when painting in parallel bands
+     */
+    private ExecutorService bandThreadPool;
+
+    /**
+     * The renderers painting the bands, if a paint in parallel bands is in progress
+     */
+    private volatile List<StreamingRenderer> bandRenderers;
+
+    /**
+     * The thread pool used to read the layers ahead of the painted one
+     */
+    private ExecutorService prefetchThreadPool;
+
+    /**
+     * The cache of transformed shapes, if any, and the keys identifying the current paint scale
+     * and area in it
+     */
+    private FeatureShapeCache shapeCache;
+
+    private FeatureShapeCache.Key shapeCacheScale;
+
+    private FeatureShapeCache.Key shapeCacheArea;
+
+    /**
+     * The tolerance of the approximated reprojections, in pixels, or 0 if they are not enabled
+     */
+    private double transformTolerance;
+
     /**
      * Creates a new instance of LiteRenderer without a context. Use it only to
      * gain access to utility methods of this class or if you want to render
@@ -421,6 +506,27 @@ public class StreamingRenderer implements GTRenderer {
         this.threadPool = threadPool;
     }
 
+    /**
+     * Sets the thread pool used to paint the bands when the {@link #PARALLEL_BANDS_KEY} hint is
+     * set. It should not be the same pool set in {@link #setThreadPool(ExecutorService)}, as the
+     * band painting tasks wait on the painter ones. If not set, a pool is created for each paint
+     * 
+     * @param bandThreadPool
+     */
+    public void setBandThreadPool(ExecutorService bandThreadPool) {
+        this.bandThreadPool = bandThreadPool;
+    }
+
+    /**
+     * Sets the thread pool used to read the layers data ahead of painting when the
+     * {@link #PREFETCH_LAYERS_KEY} hint is set. If not set, a pool is created for each paint
+     * 
+     * @param prefetchThreadPool
+     */
+    public void setPrefetchThreadPool(ExecutorService prefetchThreadPool) {
+        this.prefetchThreadPool = prefetchThreadPool;
+    }
+
     /**
      * Sets the flag which controls behaviour for applying affine transformation
      * to the graphics object.
@@ -511,6 +617,19 @@ public class StreamingRenderer implements GTRenderer {
      */
     public void stopRendering() {
         renderingStopRequested = true;
+        List<StreamingRenderer> renderers = bandRenderers;
+        if (renderers != null) {
+            for (StreamingRenderer renderer : renderers) {
+                renderer.stopRendering();
+            }
+            labelCache.stop();
+            return;
+        }
+        if (requests == null) {
+            // painting did not start yet
+            labelCache.stop();
+            return;
+        }
         // un-block the queue in case it was filled with requests and the main
         // thread got blocked on it
         requests.clear();
@@ -703,6 +822,12 @@ public class StreamingRenderer implements GTRenderer {
             if (worldToScreen == null)
                 return;
         }
+
+        int bands = getParallelBands(paintArea, worldToScreen);
+        if (bands > 1) {
+            paintBands(graphics, paintArea, mapArea, worldToScreen, bands);
+            return;
+        }
         
         // ////////////////////////////////////////////////////////////////////
         // 
@@ -762,6 +887,20 @@ public class StreamingRenderer implements GTRenderer {
                     mapExtent.getCoordinateReferenceSystem()); 
         }
 
+        // shapes can be moved to other areas at the same scale only if not reprojected,
+        // see RenderableFeature.getCachedShape
+        shapeCache = rendererHints != null ? (FeatureShapeCache) rendererHints
+                .get(SHAPE_CACHE_KEY) : null;
+        if (shapeCache != null) {
+            AffineTransform at = worldToScreenTransform;
+            shapeCacheScale = new FeatureShapeCache.Key(destinationCrs, at.getScaleX(),
+                    at.getShearY(), at.getShearX(), at.getScaleY(), generalizationDistance);
+            shapeCacheArea = new FeatureShapeCache.Key(shapeCacheScale, at.getTranslateX(),
+                    at.getTranslateY(), mapExtent);
+        }
+
+        transformTolerance = getTransformTolerance();
+
         // Setup the secondary painting thread
         requests = getRequestsQueue();
         painterThread = new PainterThread(requests);
@@ -773,6 +912,7 @@ public class StreamingRenderer implements GTRenderer {
         }
         Future painterFuture = localThreadPool.submit(painterThread);
         List<CompositingGroup> compositingGroups = null;
+        LayerPrefetcher prefetcher = null;
         try {
             if(mapContent == null) {
                 throw new IllegalStateException("Cannot call paint, you did not set a MapContent in this renderer");
@@ -784,6 +924,11 @@ public class StreamingRenderer implements GTRenderer {
             // split over multiple map contents, one per composition base
             compositingGroups = CompositingGroup.splitOnCompositingBase(graphics, paintArea, zGroupedMapContent);
             
+            int prefetchLayers = getPrefetchLayers();
+            if (prefetchLayers > 0) {
+                prefetcher = new LayerPrefetcher(prefetchLayers);
+            }
+
             int layerCounter = 0;
             for (CompositingGroup compositingGroup : compositingGroups) {
                 MapContent currentMapContent = compositingGroup.mapContent;
@@ -800,7 +945,9 @@ public class StreamingRenderer implements GTRenderer {
                     ((LabelCacheImpl) labelCache).setLabelRenderingMode(LabelRenderingMode.valueOf(getTextRenderingMethod()));
                 }
                 
-                for (Layer layer : currentMapContent.layers()) {
+                List<Layer> layers = currentMapContent.layers();
+                for (int i = 0; i < layers.size(); i++) {
+                    Layer layer = layers.get(i);
                     layerCounter++;
                     String layerId = String.valueOf(layerCounter);
                     if (!layer.isVisible()) {
@@ -812,6 +959,10 @@ public class StreamingRenderer implements GTRenderer {
                         return;
                     }
 
+                    if (prefetcher != null) {
+                        prefetcher.prefetch(compositingGraphic, layers, i);
+                    }
+
                     labelCache.startLayer(layerId);
                     if (layer instanceof DirectLayer) {
                         RenderingRequest request = new RenderDirectLayerRequest(compositingGraphic,
@@ -832,7 +983,13 @@ public class StreamingRenderer implements GTRenderer {
                         try {
                             // extract the feature type stylers from the style object
                             // and process them
-                            processStylers(compositingGraphic, layer, layerId);
+                            PreparedLayer prepared = prefetcher != null ? prefetcher.take(layer)
+                                    : null;
+                            if (prepared != null) {
+                                drawLayer(compositingGraphic, prepared, layerId);
+                            } else {
+                                processStylers(compositingGraphic, layer, layerId);
+                            }
                         } catch (Throwable t) {
                             fireErrorEvent(t);
                         }
@@ -853,6 +1010,9 @@ public class StreamingRenderer implements GTRenderer {
                 }
             }
         } finally {
+            if (prefetcher != null) {
+                prefetcher.dispose();
+            }
             try {
                 // clean up generated map contents (in finally block to ensure it's done regardless of how we got here
                 if (compositingGroups != null) {
@@ -900,6 +1060,271 @@ public class StreamingRenderer implements GTRenderer {
         
     }
 
+    /**
+     * Returns the number of layers to be read ahead of the painted one, or 0 if the read ahead
+     * is disabled
+     */
+    private int getPrefetchLayers() {
+        if (rendererHints == null) {
+            return 0;
+        }
+        Number layers = (Number) rendererHints.get(PREFETCH_LAYERS_KEY);
+        return layers == null ? 0 : Math.max(0, layers.intValue());
+    }
+
+    /**
+     * Reads the feature layers following the painted one in background threads. Each layer is
+     * prepared (styles and query) by the paint thread, its first scan is then read ahead by a
+     * {@link PrefetchingFeatureCollection}
+     */
+    private class LayerPrefetcher {
+
+        final int layers;
+
+        final int bufferSize;
+
+        final Map<Layer, PreparedLayer> prepared = new IdentityHashMap<Layer, PreparedLayer>();
+
+        ExecutorService pool;
+
+        boolean localPool;
+
+        LayerPrefetcher(int layers) {
+            this.layers = layers;
+            Number buffer = (Number) rendererHints.get(PREFETCH_BUFFER_KEY);
+            this.bufferSize = buffer != null && buffer.intValue() > 0 ? buffer.intValue()
+                    : DEFAULT_PREFETCH_BUFFER;
+        }
+
+        /**
+         * Starts reading the feature layers following the current one, up to the configured
+         * number of layers
+         */
+        void prefetch(Graphics2D graphics, List<Layer> mapLayers, int current) {
+            int last = Math.min(mapLayers.size() - 1, current + layers);
+            for (int i = current + 1; i <= last && !renderingStopRequested; i++) {
+                Layer layer = mapLayers.get(i);
+                if (!layer.isVisible() || layer instanceof DirectLayer
+                        || layer instanceof ZGroupLayer || prepared.containsKey(layer)) {
+                    continue;
+                }
+                PreparedLayer pl = null;
+                try {
+                    pl = prepareLayer(graphics, layer);
+                    for (int j = 0; j < pl.features.size(); j++) {
+                        PrefetchingFeatureCollection<?, ?> features = new PrefetchingFeatureCollection(
+                                pl.features.get(j), bufferSize);
+                        pl.features.set(j, features);
+                        getPool().submit(features);
+                    }
+                } catch (Throwable t) {
+                    // the layer will be prepared again when painted, reporting the error in order
+                    LOGGER.log(Level.FINE, "Failed to prefetch layer " + layer.getTitle(), t);
+                    if (pl != null) {
+                        pl.dispose();
+                        pl = null;
+                    }
+                }
+                prepared.put(layer, pl);
+            }
+        }
+
+        /**
+         * Returns the prepared layer, or null if the layer was not prepared in advance
+         */
+        PreparedLayer take(Layer layer) {
+            return prepared.remove(layer);
+        }
+
+        ExecutorService getPool() {
+            if (pool == null) {
+                pool = prefetchThreadPool;
+                if (pool == null) {
+                    pool = Executors.newFixedThreadPool(layers);
+                    localPool = true;
+                }
+            }
+            return pool;
+        }
+
+        /**
+         * Stops the reads of the layers that have not been painted, and the local pool if any
+         */
+        void dispose() {
+            for (PreparedLayer pl : prepared.values()) {
+                if (pl != null) {
+                    pl.dispose();
+                }
+            }
+            prepared.clear();
+            if (localPool) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bands the paint area should be split into, or 1 if the map is
+     * to be painted in one go
+     */
+    private int getParallelBands(Rectangle paintArea, AffineTransform worldToScreen) {
+        if (rendererHints == null || mapContent == null || concatTransforms) {
+            return 1;
+        }
+        Number bands = (Number) rendererHints.get(PARALLEL_BANDS_KEY);
+        if (bands == null || bands.intValue() < 2) {
+            return 1;
+        }
+        // bands are computed in screen space and turned into bounding boxes in world space,
+        // which only works without rotations
+        if ((worldToScreen.getType() & AffineTransform.TYPE_GENERAL_ROTATION) != 0) {
+            return 1;
+        }
+        return Math.min(bands.intValue(), paintArea.height / MIN_BAND_HEIGHT);
+    }
+
+    /**
+     * Paints the map as a set of horizontal bands, each one painted in parallel by a separate
+     * renderer on its own image, then composites the bands on the target graphics and paints
+     * the labels collected by all of them
+     */
+    private void paintBands(final Graphics2D graphics, final Rectangle paintArea,
+            final ReferencedEnvelope mapArea, final AffineTransform worldToScreen, int bands) {
+        renderingStopRequested = false;
+        AffineTransform screenToWorld;
+        try {
+            screenToWorld = worldToScreen.createInverse();
+        } catch (NoninvertibleTransformException e) {
+            fireErrorEvent(e);
+            return;
+        }
+
+        // all bands must use the same scale, or they might end up using different rules
+        final double scale = computeScale(mapArea, paintArea, worldToScreen, rendererHints);
+        scaleDenominator = scale;
+        labelCache.start();
+        if (labelCache instanceof LabelCacheImpl) {
+            ((LabelCacheImpl) labelCache).setLabelRenderingMode(LabelRenderingMode
+                    .valueOf(getTextRenderingMethod()));
+        }
+
+        final RenderingHints graphicsHints = graphics.getRenderingHints();
+        final CoordinateReferenceSystem crs = mapArea.getCoordinateReferenceSystem();
+        int bandHeight = (int) Math.ceil(paintArea.height / (double) bands);
+        List<StreamingRenderer> renderers = new CopyOnWriteArrayList<StreamingRenderer>();
+        List<BandLabelCache> bandLabelCaches = new ArrayList<BandLabelCache>();
+        List<BufferedImage> images = new ArrayList<BufferedImage>();
+        List<Rectangle> areas = new ArrayList<Rectangle>();
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        ExecutorService pool = bandThreadPool;
+        boolean localPool = false;
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(bands);
+            localPool = true;
+        }
+        bandRenderers = renderers;
+        try {
+            for (int y = paintArea.y; y < paintArea.y + paintArea.height; y += bandHeight) {
+                final Rectangle area = new Rectangle(paintArea.x, y, paintArea.width, Math.min(
+                        bandHeight, paintArea.y + paintArea.height - y));
+                Rectangle2D world = screenToWorld.createTransformedShape(area).getBounds2D();
+                final ReferencedEnvelope bandArea = new ReferencedEnvelope(world.getMinX(),
+                        world.getMaxX(), world.getMinY(), world.getMaxY(), crs);
+                final AffineTransform bandTransform = AffineTransform.getTranslateInstance(
+                        -area.x, -area.y);
+                bandTransform.concatenate(worldToScreen);
+                final BufferedImage image = graphics.getDeviceConfiguration()
+                        .createCompatibleImage(area.width, area.height, Transparency.TRANSLUCENT);
+                BandLabelCache bandLabelCache = new BandLabelCache(area.x, area.y);
+                final StreamingRenderer renderer = createBandRenderer(bandLabelCache, scale);
+                renderers.add(renderer);
+                bandLabelCaches.add(bandLabelCache);
+                images.add(image);
+                areas.add(area);
+                futures.add(pool.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        if (renderingStopRequested) {
+                            return;
+                        }
+                        Graphics2D bandGraphics = image.createGraphics();
+                        try {
+                            bandGraphics.setRenderingHints(graphicsHints);
+                            renderer.paint(bandGraphics, new Rectangle(0, 0, area.width,
+                                    area.height), bandArea, bandTransform);
+                        } finally {
+                            bandGraphics.dispose();
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    renderingStopRequested = true;
+                    fireErrorEvent(e);
+                } catch (ExecutionException e) {
+                    fireErrorEvent(e.getCause());
+                }
+            }
+        } finally {
+            bandRenderers = null;
+            if (localPool) {
+                pool.shutdown();
+            }
+        }
+
+        if (renderingStopRequested) {
+            labelCache.clear();
+            return;
+        }
+        // collect the labels in band order, so that the conflict resolution does not depend
+        // on which band completed first
+        Set<List<Object>> labelled = new HashSet<List<Object>>();
+        for (BandLabelCache bandLabelCache : bandLabelCaches) {
+            bandLabelCache.replay(labelCache, labelled, graphics, paintArea);
+        }
+        Composite composite = graphics.getComposite();
+        try {
+            graphics.setComposite(AlphaComposite.SrcOver);
+            for (int i = 0; i < images.size(); i++) {
+                Rectangle area = areas.get(i);
+                graphics.drawImage(images.get(i), area.x, area.y, null);
+            }
+        } finally {
+            graphics.setComposite(composite);
+        }
+        labelCache.end(graphics, paintArea);
+    }
+
+    /**
+     * Creates a renderer painting a single band, with the same configuration as this one
+     */
+    private StreamingRenderer createBandRenderer(LabelCache bandLabelCache, double scale) {
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mapContent);
+        renderer.setJava2DHints(java2dHints);
+        renderer.setGeneralizationDistance(generalizationDistance);
+        renderer.setInteractive(interactive);
+        renderer.setThreadPool(threadPool);
+        renderer.setPrefetchThreadPool(prefetchThreadPool);
+        Map<Object, Object> hints = new HashMap<Object, Object>(rendererHints);
+        hints.remove(PARALLEL_BANDS_KEY);
+        hints.put(LABEL_CACHE_KEY, bandLabelCache);
+        // the declared scale is only used with the accurate computation method
+        hints.put(SCALE_COMPUTATION_METHOD_KEY, SCALE_ACCURATE);
+        hints.put(DECLARED_SCALE_DENOM_KEY, scale);
+        renderer.setRendererHints(hints);
+        for (RenderListener listener : renderListeners) {
+            renderer.addRenderListener(listener);
+        }
+        return renderer;
+    }
+
     /**
      * Builds the blocking queue used to bridge between the data loading thread and
      * the painting one
@@ -1905,6 +2330,18 @@ public class StreamingRenderer implements GTRenderer {
      */
     private void processStylers(final Graphics2D graphics, final Layer layer, String layerId)
             throws Exception {
+        drawLayer(graphics, prepareLayer(graphics, layer), layerId);
+    }
+
+    /**
+     * Builds the styles applying to the layer at the current scale, and the feature collections
+     * they will be painted from, without reading them yet
+     * 
+     * @param graphics Target graphics for rendering
+     * @param layer The layer being styled
+     * @throws Exception
+     */
+    PreparedLayer prepareLayer(final Graphics2D graphics, final Layer layer) throws Exception {
         // /////////////////////////////////////////////////////////////////////
         //
         // Preparing feature information and styles
@@ -1919,8 +2356,10 @@ public class StreamingRenderer implements GTRenderer {
 
         final ArrayList<LiteFeatureTypeStyle> lfts = createLiteFeatureTypeStyles(layer, graphics,
                 isOptimizedFTSRenderingEnabled());
+        PreparedLayer result = new PreparedLayer(isOptimizedFTSRenderingEnabled()
+                && lfts.size() > 1);
         if (lfts.isEmpty()) {
-            return;
+            return result;
         } else {
             if (LOGGER.isLoggable(Level.FINE)) {
                 LOGGER.fine("Processing " + lfts.size() + " stylers for " + schema.getName());
@@ -1937,12 +2376,55 @@ public class StreamingRenderer implements GTRenderer {
             if(features == null) {
                 continue;
             }
+            result.styles.add(uniform);
+            result.features.add(features);
+        }
 
-            // finally, perform rendering
-            if (isOptimizedFTSRenderingEnabled() && lfts.size() > 1) {
-                drawOptimized(graphics, layerId, features, uniform);
-            } else {
-                drawPlain(graphics, layerId, features, uniform);
+        return result;
+    }
+
+    /**
+     * Paints a layer prepared by {@link #prepareLayer(Graphics2D, Layer)}
+     */
+    private void drawLayer(final Graphics2D graphics, PreparedLayer prepared, String layerId) {
+        try {
+            for (int i = 0; i < prepared.styles.size() && !renderingStopRequested; i++) {
+                FeatureCollection features = prepared.features.get(i);
+                List<LiteFeatureTypeStyle> uniform = prepared.styles.get(i);
+                // finally, perform rendering
+                if (prepared.optimized) {
+                    drawOptimized(graphics, layerId, features, uniform);
+                } else {
+                    drawPlain(graphics, layerId, features, uniform);
+                }
+            }
+        } finally {
+            prepared.dispose();
+        }
+    }
+
+    /**
+     * The styles of a layer, and the features they apply to, grouped by uniform transformation
+     */
+    static class PreparedLayer {
+        final boolean optimized;
+
+        final List<List<LiteFeatureTypeStyle>> styles = new ArrayList<List<LiteFeatureTypeStyle>>();
+
+        final List<FeatureCollection> features = new ArrayList<FeatureCollection>();
+
+        PreparedLayer(boolean optimized) {
+            this.optimized = optimized;
+        }
+
+        /**
+         * Stops the read ahead of the features, if any
+         */
+        void dispose() {
+            for (FeatureCollection fc : features) {
+                if (fc instanceof PrefetchingFeatureCollection) {
+                    ((PrefetchingFeatureCollection) fc).close();
+                }
             }
         }
     }
@@ -2470,6 +2952,7 @@ public class StreamingRenderer implements GTRenderer {
             rf.setScreenMap(fts.screenMap);
             rf.layer = fts.layer;
             rf.metaBuffer = fts.metaBuffer;
+            rf.shapeCacheable = shapeCache != null && fts.transformation == null;
 
             // can the rules
             boolean doElse = true;
@@ -2830,6 +3313,37 @@ public class StreamingRenderer implements GTRenderer {
         return result.intValue();
     }
 
+    /**
+     * Returns the tolerance of the approximated reprojections, or 0 if they are not enabled
+     */
+    private double getTransformTolerance() {
+        if (rendererHints == null) {
+            return 0;
+        }
+        Number tolerance = (Number) rendererHints.get(TRANSFORM_TOLERANCE_KEY);
+        return tolerance == null ? 0 : Math.max(0, tolerance.doubleValue());
+    }
+
+    /**
+     * Approximates the transform from the data to the screen over the map area, if the
+     * approximated reprojections are enabled, otherwise returns the transform as is
+     */
+    private MathTransform approximate(MathTransform transform, CoordinateReferenceSystem crs) {
+        if (transformTolerance <= 0 || crs == null || !(transform instanceof MathTransform2D)
+                || transform instanceof AffineTransform2D) {
+            return transform;
+        }
+        try {
+            ReferencedEnvelope domain = mapExtent.transform(crs, true);
+            return ApproximatedTransform2D.create((MathTransform2D) transform, domain,
+                    transformTolerance);
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Cannot approximate the transform to screen, using it as is",
+                    e);
+            return transform;
+        }
+    }
+
     /**
      * <p>
      * Returns scale computation algorithm to be used. 
@@ -3020,6 +3534,7 @@ public class StreamingRenderer implements GTRenderer {
         private IdentityHashMap decimators = new IdentityHashMap();
         private ScreenMap screenMap;
         private String layerId;
+        boolean shapeCacheable;
 
 
         public RenderableFeature(String layerId, boolean clone) {
@@ -3043,6 +3558,7 @@ public class StreamingRenderer implements GTRenderer {
             if (g == null || g.isEmpty())
                 return null;
             
+            boolean simplified = false;
             try {
                 // process screenmap if necessary (only do it once, 
                 // the geometry will be transformed simplified in place and the screenmap 
@@ -3059,6 +3575,7 @@ public class StreamingRenderer implements GTRenderer {
                         } else {
                             g = screenMap.getSimplifiedShape(env.getMinX(), env.getMinY(), 
                                     env.getMaxX(), env.getMaxY(), g.getFactory(), g.getClass());
+                            simplified = true;
                         }
                 }
     
@@ -3074,6 +3591,9 @@ public class StreamingRenderer implements GTRenderer {
                         crsTransform = buildTransform(sa.crs, destinationCrs);
                         atTransform = ProjectiveTransform.create(worldToScreenTransform);
                         fullTransform = buildFullTransform(sa.crs, destinationCrs, at);
+                        if (projectionHandler == null) {
+                            fullTransform = approximate(fullTransform, sa.crs);
+                        }
                     } catch (Exception e) {
                         // fall through
                         LOGGER.log(Level.WARNING, e.getLocalizedMessage(), e);
@@ -3119,6 +3639,8 @@ public class StreamingRenderer implements GTRenderer {
                     } else {
                         return getTransformedShape(RendererUtilities.getCentroid(g), sa);
                     }
+                } else if (shapeCacheable && !simplified) {
+                    return getCachedShape(g, sa, symbolizer);
                 } else {
                     return getTransformedShape(g, sa);
                 }
@@ -3142,6 +3664,63 @@ public class StreamingRenderer implements GTRenderer {
             return -1;
         }
 
+        /**
+         * Looks up the transformed shape in the shape cache, computing and caching it if missing
+         */
+        private LiteShape2 getCachedShape(Geometry g, SymbolizerAssociation sa,
+                Symbolizer symbolizer) throws TransformException, FactoryException {
+            int idx = getGeometryIndex(g);
+            if (idx != -1) {
+                return (LiteShape2) shapes.get(idx);
+            }
+
+            // without reprojection and projection handling the result does not depend on the
+            // map area, the shape can be stored without translation and moved to other areas
+            boolean movable = projectionHandler == null
+                    && (sa.crsxform == null || sa.crsxform.isIdentity());
+            FeatureShapeCache.Key key = getShapeCacheKey(symbolizer, movable);
+            if (key == null) {
+                return getTransformedShape(g, sa);
+            }
+            double dx = movable ? worldToScreenTransform.getTranslateX() : 0;
+            double dy = movable ? worldToScreenTransform.getTranslateY() : 0;
+            Geometry cached = shapeCache.get(key, dx, dy);
+            if (cached != null) {
+                LiteShape2 shape = new LiteShape2(cached, null, null, false, false);
+                geometries.add(g);
+                shapes.add(shape);
+                return shape;
+            }
+
+            LiteShape2 shape = getTransformedShape(g, sa);
+            if (shape != null && shape.getGeometry() != null) {
+                shapeCache.put(key, shape.getGeometry(), -dx, -dy);
+            }
+            return shape;
+        }
+
+        /**
+         * Builds the key of the current feature shape in the shape cache, or returns null if the
+         * shape cannot be cached (no feature id, computed geometry)
+         */
+        private FeatureShapeCache.Key getShapeCacheKey(Symbolizer symbolizer, boolean movable) {
+            Expression geometry = symbolizer.getGeometry();
+            if (geometry != null && !(geometry instanceof PropertyName)) {
+                return null;
+            }
+            FeatureId id = feature.getIdentifier();
+            FeatureSource source = layer != null ? layer.getFeatureSource() : null;
+            if (id == null || id.getID() == null || source == null
+                    || source.getDataStore() == null) {
+                return null;
+            }
+            String geometryName = geometry != null ? ((PropertyName) geometry).getPropertyName()
+                    : null;
+            return new FeatureShapeCache.Key(movable ? shapeCacheScale : shapeCacheArea,
+                    source.getDataStore(), feature.getType().getName(), id.getID(), geometryName,
+                    inMemoryGeneralization);
+        }
+
         private LiteShape2 getTransformedShape(Geometry originalGeom, SymbolizerAssociation sa) throws TransformException,
         FactoryException {
             int idx = getGeometryIndex(originalGeom);
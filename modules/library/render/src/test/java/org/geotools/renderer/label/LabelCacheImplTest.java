@@ -254,6 +254,25 @@ public class LabelCacheImplTest {
         assertNull(exception.get());
     }
 
+    @Test
+    public void testStatistics() throws Exception {
+        TextSymbolizer ts = sb.createTextSymbolizer(Color.BLACK, (Font) null, "name");
+        Geometry point = geometry("POINT(50 50)");
+        SimpleFeature f1 = createFeature("label1", point);
+        SimpleFeature f2 = createFeature("label2", point);
+        cache.put(LAYER_ID, ts, f1, new LiteShape2(point, null, null, false), ALL_SCALES);
+        cache.put(LAYER_ID, ts, f2, new LiteShape2(point, null, null, false), ALL_SCALES);
+        cache.endLayer(LAYER_ID, null, null);
+        BufferedImage bi = new BufferedImage(100, 100, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D graphics = bi.createGraphics();
+        cache.end(graphics, new Rectangle(0, 0, 100, 100));
+        graphics.dispose();
+        // same position, only one can be painted
+        assertEquals(1, cache.getPlacedLabels());
+        assertEquals(1, cache.getRejectedLabels());
+        assertTrue(cache.getConflictChecks() > 0);
+    }
+
     private SimpleFeature createFeature(String label, Geometry geom) {
         fb.add(label);
         fb.add(geom);
@@ -0,0 +1,115 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.label;
+
+import static org.junit.Assert.*;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LabelIndexTest {
+
+    @Test
+    public void testWithinDistance() {
+        LabelIndex index = new LabelIndex(10);
+        // spans several cells
+        index.addLabel(null, new Rectangle2D.Double(5, 5, 30, 10));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(30, 12, 5, 5), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(40, 5, 5, 5), 0));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(40, 5, 5, 5), 6));
+        // negative coordinates
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(-20, -20, 5, 5), 0));
+        index.addLabel(null, new Rectangle2D.Double(-20, -20, 5, 5));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(-18, -18, 1, 1), 0));
+        // negative distance disables the check
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(-18, -18, 1, 1), -1));
+    }
+
+    @Test
+    public void testReservedArea() {
+        LabelIndex index = new LabelIndex(10);
+        // large enough to be kept out of the grid
+        index.reserveArea(Collections.<Rectangle2D> singletonList(new Rectangle2D.Double(0, 0,
+                1000, 1000)));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(500, 500, 5, 5), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(1500, 500, 5, 5), 0));
+    }
+
+    @Test
+    public void testOutlines() {
+        // two thin labels rotated by 45 degrees, parallel, their bounding boxes overlap
+        Rectangle2D label = new Rectangle2D.Double(-50, -2, 100, 4);
+        AffineTransform tx1 = new AffineTransform();
+        tx1.translate(100, 100);
+        tx1.rotate(Math.PI / 4);
+        AffineTransform tx2 = new AffineTransform();
+        tx2.translate(120, 80);
+        tx2.rotate(Math.PI / 4);
+        Shape outline1 = tx1.createTransformedShape(label);
+        Shape outline2 = tx2.createTransformedShape(label);
+
+        LabelIndex plain = new LabelIndex();
+        plain.addLabel(null, outline1.getBounds2D());
+        assertTrue(plain.labelsWithinDistance(outline2.getBounds2D(), 0));
+
+        LabelIndex precise = new LabelIndex();
+        precise.addLabel(null, outline1.getBounds2D(), outline1);
+        assertFalse(precise.labelsWithinDistance(outline2.getBounds2D(), 0, outline2));
+        assertEquals(1, precise.getOutlineComparisons());
+        // but they are still closer than 30 pixels
+        assertTrue(precise.labelsWithinDistance(outline2.getBounds2D(), 30, outline2));
+        // a label without outline is checked against the indexed outline
+        assertFalse(precise.labelsWithinDistance(new Rectangle2D.Double(130, 60, 5, 5), 0));
+        assertTrue(precise.labelsWithinDistance(new Rectangle2D.Double(98, 98, 4, 4), 0));
+    }
+
+    @Test
+    public void testSameAsBruteForce() {
+        Random random = new Random(42);
+        List<Rectangle2D> labels = new ArrayList<Rectangle2D>();
+        LabelIndex index = new LabelIndex();
+        for (int i = 0; i < 2000; i++) {
+            Rectangle2D candidate = new Rectangle2D.Double(random.nextDouble() * 2000 - 500,
+                    random.nextDouble() * 2000 - 500, 5 + random.nextDouble() * 100,
+                    5 + random.nextDouble() * 20);
+            double distance = random.nextInt(5);
+            boolean expected = false;
+            for (Rectangle2D label : labels) {
+                Rectangle2D expanded = new Rectangle2D.Double(candidate.getX() - distance,
+                        candidate.getY() - distance, candidate.getWidth() + distance * 2,
+                        candidate.getHeight() + distance * 2);
+                if (expanded.intersects(label) || expanded.contains(label)) {
+                    expected = true;
+                    break;
+                }
+            }
+            assertEquals(expected, index.labelsWithinDistance(candidate, distance));
+            if (!expected) {
+                labels.add(candidate);
+                index.addLabel(null, candidate);
+            }
+        }
+        assertEquals(2000, index.getQueries());
+    }
+}
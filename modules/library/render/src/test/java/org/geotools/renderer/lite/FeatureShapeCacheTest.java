@@ -0,0 +1,135 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.image.test.ImageAssert;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class FeatureShapeCacheTest {
+
+    SimpleFeatureSource featureSource;
+
+    ReferencedEnvelope bounds;
+
+    MapContent mapContent;
+
+    @Before
+    public void setUp() throws Exception {
+        File property = new File(TestData.getResource(this, "genericLines.properties").toURI());
+        PropertyDataStore ds = new PropertyDataStore(property.getParentFile());
+        featureSource = ds.getFeatureSource("genericLines");
+        bounds = featureSource.getBounds();
+        bounds.expandBy(1, 1);
+
+        StyleBuilder sb = new StyleBuilder();
+        mapContent = new MapContent();
+        mapContent.addLayer(new FeatureLayer(featureSource, sb.createStyle(sb
+                .createLineSymbolizer(Color.BLUE, 3))));
+    }
+
+    @After
+    public void tearDown() {
+        mapContent.dispose();
+    }
+
+    @Test
+    public void testSameMap() throws Exception {
+        FeatureShapeCache cache = new FeatureShapeCache();
+        BufferedImage expected = render(bounds, null);
+        BufferedImage first = render(bounds, cache);
+        int features = featureSource.getFeatures().size();
+        assertEquals(0, cache.getHits());
+        assertEquals(features, cache.getMisses());
+        assertEquals(features, cache.size());
+        BufferedImage second = render(bounds, cache);
+        assertEquals(features, cache.getHits());
+        ImageAssert.assertEquals(expected, first, 0);
+        ImageAssert.assertEquals(expected, second, 0);
+    }
+
+    @Test
+    public void testMovedMap() throws Exception {
+        FeatureShapeCache cache = new FeatureShapeCache();
+        render(bounds, cache);
+        // same scale, different area, the shapes are reused
+        ReferencedEnvelope moved = new ReferencedEnvelope(bounds);
+        moved.translate(bounds.getWidth() / 4, bounds.getHeight() / 4);
+        BufferedImage expected = render(moved, null);
+        BufferedImage cached = render(moved, cache);
+        assertEquals(featureSource.getFeatures().size(), cache.getHits());
+        ImageAssert.assertEquals(expected, cached, 10);
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        WKTReader reader = new WKTReader();
+        Geometry line = reader.read("LINESTRING(0 0, 10 10, 20 0)");
+        FeatureShapeCache cache = new FeatureShapeCache(7);
+        cache.put(new FeatureShapeCache.Key("a"), line, 0, 0);
+        cache.put(new FeatureShapeCache.Key("b"), line, 0, 0);
+        assertEquals(6, cache.getCoordinates());
+        // touch a, so that b gets evicted
+        assertNotNull(cache.get(new FeatureShapeCache.Key("a"), 0, 0));
+        cache.put(new FeatureShapeCache.Key("c"), line, 0, 0);
+        assertEquals(2, cache.size());
+        assertNull(cache.get(new FeatureShapeCache.Key("b"), 0, 0));
+
+        Geometry moved = cache.get(new FeatureShapeCache.Key("c"), 5, -5);
+        assertTrue(moved.equalsExact(reader.read("LINESTRING(5 -5, 15 5, 25 -5)")));
+        // the cached copy is not affected
+        assertTrue(cache.get(new FeatureShapeCache.Key("c"), 0, 0).equalsExact(line));
+    }
+
+    BufferedImage render(ReferencedEnvelope area, FeatureShapeCache cache) {
+        StreamingRenderer renderer = new StreamingRenderer();
+        Map<Object, Object> hints = new HashMap<Object, Object>();
+        if (cache != null) {
+            hints.put(StreamingRenderer.SHAPE_CACHE_KEY, cache);
+        }
+        renderer.setRendererHints(hints);
+        renderer.setMapContent(mapContent);
+        BufferedImage image = new BufferedImage(256, 256, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 256, 256);
+        renderer.paint(graphics, new Rectangle(256, 256), area);
+        graphics.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.image.test.ImageAssert;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.renderer.label.LabelCacheImpl;
+import org.geotools.renderer.label.LabelCacheItem;
+import org.geotools.renderer.style.FontCache;
+import org.geotools.styling.Style;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelBandsTest {
+
+    SimpleFeatureSource featureSource;
+
+    ReferencedEnvelope bounds;
+
+    MapContent mapContent;
+
+    Style labelStyle;
+
+    @Before
+    public void setUp() throws Exception {
+        FontCache.getDefaultInstance().registerFont(
+                Font.createFont(Font.TRUETYPE_FONT, TestData.getResource(this, "Vera.ttf")
+                        .openStream()));
+        File property = new File(TestData.getResource(this, "diaglines.properties").toURI());
+        PropertyDataStore ds = new PropertyDataStore(property.getParentFile());
+        featureSource = ds.getFeatureSource("diaglines");
+        bounds = featureSource.getBounds();
+        bounds.expandBy(1, 1);
+
+        labelStyle = RendererBaseTest.loadStyle(this, "labelStyle.sld");
+        mapContent = new MapContent();
+    }
+
+    @After
+    public void tearDown() {
+        mapContent.dispose();
+    }
+
+    @Test
+    public void testSameAsSequential() throws Exception {
+        StyleBuilder sb = new StyleBuilder();
+        Style style = sb.createStyle(sb.createLineSymbolizer(Color.RED, 5));
+        mapContent.addLayer(new FeatureLayer(featureSource, style));
+        BufferedImage sequential = render(new LabelCacheImpl(), 1, null);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            BufferedImage parallel = render(new LabelCacheImpl(), 4, pool);
+            ImageAssert.assertEquals(sequential, parallel, 50);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testLabelsNotDuplicated() throws Exception {
+        // lines crossing several bands must be labelled only once
+        mapContent.addLayer(new FeatureLayer(featureSource, labelStyle));
+        LabelCacheImpl labelCache = new LabelCacheImpl();
+        render(labelCache, 8, null);
+        List<LabelCacheItem> labels = labelCache.getActiveLabels();
+        assertEquals(featureSource.getFeatures().size(), labels.size());
+    }
+
+    @Test
+    public void testSmallImageNotSplit() throws Exception {
+        mapContent.addLayer(new FeatureLayer(featureSource, labelStyle));
+        StreamingRenderer renderer = new StreamingRenderer();
+        Map<Object, Object> hints = new HashMap<Object, Object>();
+        hints.put(StreamingRenderer.PARALLEL_BANDS_KEY, 16);
+        renderer.setRendererHints(hints);
+        renderer.setMapContent(mapContent);
+        BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D graphics = image.createGraphics();
+        renderer.paint(graphics, new Rectangle(100, 100), bounds);
+        graphics.dispose();
+        // too small to be split, but still painted
+        assertTrue(hasColor(image, Color.BLUE));
+    }
+
+    BufferedImage render(LabelCacheImpl labelCache, int bands, ExecutorService pool) {
+        StreamingRenderer renderer = new StreamingRenderer();
+        Map<Object, Object> hints = new HashMap<Object, Object>();
+        hints.put(StreamingRenderer.LABEL_CACHE_KEY, labelCache);
+        hints.put(StreamingRenderer.PARALLEL_BANDS_KEY, bands);
+        renderer.setRendererHints(hints);
+        renderer.setBandThreadPool(pool);
+        renderer.setMapContent(mapContent);
+        BufferedImage image = new BufferedImage(512, 512, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 512, 512);
+        renderer.paint(graphics, new Rectangle(512, 512), bounds);
+        graphics.dispose();
+        return image;
+    }
+
+    boolean hasColor(BufferedImage image, Color color) {
+        for (int x = 0; x < image.getWidth(); x++) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                if ((image.getRGB(x, y) & 0xFFFFFF) == (color.getRGB() & 0xFFFFFF)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
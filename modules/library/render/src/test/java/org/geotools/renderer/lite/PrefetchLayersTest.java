@@ -0,0 +1,150 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.*;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.geotools.data.property.PropertyDataStore;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.image.test.ImageAssert;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.MapContent;
+import org.geotools.styling.StyleBuilder;
+import org.geotools.test.TestData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class PrefetchLayersTest {
+
+    SimpleFeatureSource featureSource;
+
+    ReferencedEnvelope bounds;
+
+    MapContent mapContent;
+
+    @Before
+    public void setUp() throws Exception {
+        File property = new File(TestData.getResource(this, "diaglines.properties").toURI());
+        PropertyDataStore ds = new PropertyDataStore(property.getParentFile());
+        featureSource = ds.getFeatureSource("diaglines");
+        bounds = featureSource.getBounds();
+        bounds.expandBy(1, 1);
+
+        // same lines, painted with narrower lines at each layer, the result depends on the order
+        StyleBuilder sb = new StyleBuilder();
+        Color[] colors = new Color[] { Color.RED, Color.GREEN, Color.BLUE, Color.ORANGE,
+                Color.BLACK };
+        mapContent = new MapContent();
+        for (int i = 0; i < colors.length; i++) {
+            mapContent.addLayer(new FeatureLayer(featureSource, sb.createStyle(sb
+                    .createLineSymbolizer(colors[i], 11 - i * 2))));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        mapContent.dispose();
+    }
+
+    @Test
+    public void testSameAsSequential() throws Exception {
+        BufferedImage sequential = render(0, null);
+        BufferedImage prefetched = render(3, null);
+        ImageAssert.assertEquals(sequential, prefetched, 0);
+    }
+
+    @Test
+    public void testSaturatedPool() throws Exception {
+        // the prefetch tasks never get to run, the layers are read directly when painted
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        final CountDownLatch latch = new CountDownLatch(1);
+        pool.submit(() -> {
+            latch.await();
+            return null;
+        });
+        try {
+            BufferedImage sequential = render(0, null);
+            BufferedImage prefetched = render(4, pool);
+            ImageAssert.assertEquals(sequential, prefetched, 0);
+        } finally {
+            latch.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrefetchingCollection() throws Exception {
+        SimpleFeatureCollection features = featureSource.getFeatures();
+        PrefetchingFeatureCollection<SimpleFeatureType, SimpleFeature> prefetching = new PrefetchingFeatureCollection<SimpleFeatureType, SimpleFeature>(
+                features, 2);
+        Thread reader = new Thread(prefetching);
+        reader.start();
+        // wait for the read ahead to start, the small buffer will keep it waiting on us
+        while (prefetching.state.get() == PrefetchingFeatureCollection.NEW) {
+            Thread.sleep(1);
+        }
+        assertEquals(features.size(), count(prefetching));
+        reader.join();
+        // following scans go to the delegate
+        assertEquals(features.size(), count(prefetching));
+    }
+
+    int count(PrefetchingFeatureCollection<?, ?> features) {
+        int count = 0;
+        try (FeatureIterator<?> it = features.features()) {
+            while (it.hasNext()) {
+                assertNotNull(it.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    BufferedImage render(int prefetch, ExecutorService pool) {
+        StreamingRenderer renderer = new StreamingRenderer();
+        Map<Object, Object> hints = new HashMap<Object, Object>();
+        hints.put(StreamingRenderer.PREFETCH_LAYERS_KEY, prefetch);
+        hints.put(StreamingRenderer.PREFETCH_BUFFER_KEY, 2);
+        renderer.setRendererHints(hints);
+        renderer.setPrefetchThreadPool(pool);
+        renderer.setMapContent(mapContent);
+        BufferedImage image = new BufferedImage(300, 300, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, 300, 300);
+        renderer.paint(graphics, new Rectangle(300, 300), bounds);
+        graphics.dispose();
+        return image;
+    }
+}
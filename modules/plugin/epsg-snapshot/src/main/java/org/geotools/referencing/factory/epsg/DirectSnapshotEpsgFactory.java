@@ -0,0 +1,354 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.opengis.metadata.citation.Citation;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.IdentifiedObject;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.util.InternationalString;
+
+import org.geotools.factory.Hints;
+import org.geotools.metadata.iso.citation.CitationImpl;
+import org.geotools.metadata.iso.citation.Citations;
+import org.geotools.referencing.factory.DirectAuthorityFactory;
+import org.geotools.referencing.factory.ReferencingFactoryContainer;
+import org.geotools.referencing.wkt.Symbols;
+import org.geotools.util.SimpleInternationalString;
+import org.geotools.util.Version;
+
+
+/**
+ * The backing store of {@link SnapshotEpsgFactory}, creating the coordinate reference systems
+ * from the WKT stored in an {@linkplain EpsgSnapshot EPSG snapshot}, completed with the domain
+ * of validity, scope and remarks stored along with it.
+ * <p>
+ * This factory doesn't cache any result, every call to a {@code createFoo} method parses the
+ * WKT again. Caching is performed by the enclosing {@link SnapshotEpsgFactory}.
+ *
+ * @since 20.0
+ *
+ * @source $URL$
+ */
+final class DirectSnapshotEpsgFactory extends DirectAuthorityFactory
+        implements CRSAuthorityFactory
+{
+    /**
+     * The snapshot the CRS are read from.
+     */
+    private final EpsgSnapshot snapshot;
+
+    /**
+     * The snapshot location, for information purpose.
+     */
+    private final String source;
+
+    /**
+     * The authority, with the EPSG edition of the snapshot.
+     */
+    private final Citation authority;
+
+    /**
+     * The codes for the different types. Views will be constructed only when first needed.
+     */
+    private final Map<Class<? extends IdentifiedObject>, Set<String>> filteredCodes =
+            new HashMap<Class<? extends IdentifiedObject>, Set<String>>();
+
+    /**
+     * The WKT parser.
+     */
+    private final MetadataParser parser;
+
+    /**
+     * Creates a factory reading the specified snapshot.
+     *
+     * @param factories The underlying factories used for objects creation.
+     * @param snapshot  The snapshot to read.
+     * @param source    The snapshot location, for information purpose.
+     */
+    DirectSnapshotEpsgFactory(final ReferencingFactoryContainer factories,
+                              final EpsgSnapshot snapshot, final String source)
+    {
+        super(factories, MAXIMUM_PRIORITY - 20);
+        // The following hints have no effect on this class behaviour,
+        // but tell to the user what this factory do about axis order.
+        hints.put(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER, Boolean.FALSE);
+        hints.put(Hints.FORCE_STANDARD_AXIS_DIRECTIONS,   Boolean.FALSE);
+        hints.put(Hints.FORCE_STANDARD_AXIS_UNITS,        Boolean.FALSE);
+        this.snapshot = snapshot;
+        this.source   = source;
+        final String edition = snapshot.getEdition();
+        if (edition.length() == 0) {
+            authority = Citations.EPSG;
+        } else {
+            final CitationImpl c = new CitationImpl(Citations.EPSG);
+            c.setEdition(new SimpleInternationalString(edition));
+            authority = (Citation) c.unmodifiable();
+            hints.put(Hints.VERSION, new Version(edition));
+        }
+        parser = new MetadataParser(factories);
+    }
+
+    /**
+     * Returns the EPSG authority, with the edition the snapshot has been generated from.
+     */
+    public Citation getAuthority() {
+        return authority;
+    }
+
+    /**
+     * Returns a description of the snapshot.
+     */
+    @Override
+    public String getBackingStoreDescription() {
+        return "EPSG snapshot " + snapshot.getEdition() + " (" + snapshot.size()
+                + " codes) from " + source;
+    }
+
+    /**
+     * Returns the set of authority codes of the given type. The sets are views over the
+     * snapshot index, filtered on the fly on the CRS type stored in the index.
+     *
+     * @param  type The spatial reference objects type (may be {@code Object.class}).
+     * @return The set of authority codes for spatial reference objects of the given type.
+     */
+    public Set<String> getAuthorityCodes(final Class<? extends IdentifiedObject> type) {
+        synchronized (filteredCodes) {
+            Set<String> codes = filteredCodes.get(type);
+            if (codes == null) {
+                codes = new Codes(snapshot, type);
+                filteredCodes.put(type, codes);
+            }
+            return codes;
+        }
+    }
+
+    /**
+     * Gets a description of the object corresponding to a code.
+     *
+     * @param  code Value allocated by authority.
+     * @return A description of the object.
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     */
+    public InternationalString getDescriptionText(final String code)
+            throws NoSuchAuthorityCodeException
+    {
+        return new SimpleInternationalString(
+                snapshot.getDescription(find(IdentifiedObject.class, code)));
+    }
+
+    /**
+     * Returns an arbitrary object from a code. Only coordinate reference systems are stored
+     * in the snapshot.
+     *
+     * @param  code Value allocated by authority.
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     * @throws FactoryException if the object creation failed for some other reason.
+     */
+    @Override
+    public IdentifiedObject createObject(final String code) throws FactoryException {
+        return createCoordinateReferenceSystem(code);
+    }
+
+    /**
+     * Returns a coordinate reference system from a code, parsing its WKT.
+     *
+     * @param  code Value allocated by authority.
+     * @throws NoSuchAuthorityCodeException if the specified {@code code} was not found.
+     * @throws FactoryException if the object creation failed for some other reason.
+     */
+    @Override
+    public CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
+            throws FactoryException
+    {
+        final int i = find(CoordinateReferenceSystem.class, code);
+        try {
+            final String wkt = snapshot.getWKT(i);
+            synchronized (parser) {
+                parser.metadata = snapshot.getProperties(i);
+                try {
+                    return parser.parseCoordinateReferenceSystem(wkt);
+                } finally {
+                    parser.metadata = null;
+                }
+            }
+        } catch (IOException exception) {
+            throw new FactoryException(exception);
+        } catch (ParseException exception) {
+            throw new FactoryException(exception);
+        }
+    }
+
+    /**
+     * Returns the index of the snapshot record for the specified code.
+     *
+     * @throws NoSuchAuthorityCodeException if the code is not in the snapshot.
+     */
+    private int find(final Class<?> type, final String code) throws NoSuchAuthorityCodeException {
+        ensureNonNull("code", code);
+        final int i = indexOf(snapshot, trimAuthority(code));
+        if (i < 0) {
+            throw noSuchAuthorityCode(type, code);
+        }
+        return i;
+    }
+
+    /**
+     * Returns the index of the snapshot record for the specified code without authority,
+     * or -1 if not found.
+     */
+    static int indexOf(final EpsgSnapshot snapshot, final String code) {
+        final int key;
+        try {
+            key = Integer.parseInt(code.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        return snapshot.find(key);
+    }
+
+    /**
+     * The WKT parser for this factory. This parser adds the metadata stored in the snapshot to
+     * the root object of the WKT, that is the CRS for the requested code.
+     */
+    private static final class MetadataParser extends org.geotools.referencing.wkt.Parser {
+        /**
+         * For cross-version compatibility.
+         */
+        private static final long serialVersionUID = -4350393752466329546L;
+
+        /**
+         * The metadata of the CRS to be parsed, or {@code null} if none.
+         */
+        Map<String,Object> metadata;
+
+        MetadataParser(final ReferencingFactoryContainer factories) {
+            super(Symbols.DEFAULT, factories);
+        }
+
+        /**
+         * Adds the snapshot metadata to the properties of the root object.
+         */
+        @Override
+        protected Map<String,Object> alterProperties(Map<String,Object> properties) {
+            if (metadata != null && !metadata.isEmpty()) {
+                properties = new HashMap<String,Object>(properties);
+                properties.putAll(metadata);
+            }
+            return super.alterProperties(properties);
+        }
+    }
+
+    /**
+     * The set of codes for a specific type of CRS. Filtering is performed on the fly, the
+     * set is cheap if the user just want to check for the existence of a particular code.
+     */
+    private static final class Codes extends AbstractSet<String> {
+        /**
+         * The snapshot index.
+         */
+        private final EpsgSnapshot snapshot;
+
+        /**
+         * The spatial reference objects type, or {@code null} for all codes.
+         */
+        private final Class<?> type;
+
+        /**
+         * The number of codes, or -1 if not yet computed.
+         */
+        private int size = -1;
+
+        Codes(final EpsgSnapshot snapshot, final Class<?> type) {
+            this.snapshot = snapshot;
+            this.type = (type == null || type.isAssignableFrom(IdentifiedObject.class))
+                    ? null : type;
+        }
+
+        /**
+         * Returns {@code true} if the i-th code of the snapshot is of the expected type.
+         */
+        boolean accept(final int i) {
+            return type == null || type.isAssignableFrom(snapshot.getType(i));
+        }
+
+        @Override
+        public boolean contains(final Object code) {
+            if (code instanceof String) {
+                final int i = indexOf(snapshot, (String) code);
+                return i >= 0 && accept(i);
+            }
+            return false;
+        }
+
+        @Override
+        public synchronized int size() {
+            if (size < 0) {
+                int n = 0;
+                for (int i = 0; i < snapshot.size(); i++) {
+                    if (accept(i)) {
+                        n++;
+                    }
+                }
+                size = n;
+            }
+            return size;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int next = advance(0);
+
+                private int advance(int i) {
+                    while (i < snapshot.size() && !accept(i)) {
+                        i++;
+                    }
+                    return i;
+                }
+
+                public boolean hasNext() {
+                    return next < snapshot.size();
+                }
+
+                public String next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final String code = String.valueOf(snapshot.getCode(next));
+                    next = advance(next + 1);
+                    return code;
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.opengis.referencing.IdentifiedObject;
+import org.opengis.referencing.ReferenceSystem;
+import org.opengis.referencing.crs.CompoundCRS;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.DerivedCRS;
+import org.opengis.referencing.crs.EngineeringCRS;
+import org.opengis.referencing.crs.GeocentricCRS;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ImageCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+import org.opengis.referencing.crs.TemporalCRS;
+import org.opengis.referencing.crs.VerticalCRS;
+
+import org.geotools.metadata.iso.extent.ExtentImpl;
+import org.geotools.metadata.iso.extent.GeographicBoundingBoxImpl;
+import org.geotools.util.SimpleInternationalString;
+
+
+/**
+ * Read access to a binary snapshot of the EPSG coordinate reference systems, as written by
+ * {@link EpsgSnapshotWriter}. The file layout is:
+ * <p>
+ * <ul>
+ *   <li>A header made of the {@link #MAGIC} number, the {@link #FORMAT} version, the EPSG
+ *       database edition and the number of codes.</li>
+ *   <li>An index of fixed size records sorted by code, each one holding the code, the
+ *       {@linkplain #TYPES type} of the CRS and the offset of its definition.</li>
+ *   <li>The definitions, each one made of a description, the EPSG metadata that WKT can't
+ *       carry (scope, remarks, area of use with its geographic bounding box), and either a WKT,
+ *       or the code of a parent CRS (base of a projected CRS, head of a compound CRS) along
+ *       with the WKT text before and after the parent one.</li>
+ * </ul>
+ * <p>
+ * Numbers are big endian and strings are UTF-8 bytes preceded by their length, an empty
+ * string standing for a missing value. Nothing is
+ * decoded when the snapshot is opened: codes are looked up with a binary search in the index,
+ * and definitions are rebuilt on request. Instances are thread safe, the buffer is only read
+ * with absolute methods or through duplicates.
+ *
+ * @since 20.0
+ *
+ * @source $URL$
+ */
+final class EpsgSnapshot {
+    /**
+     * The magic number at the start of every snapshot ({@code "EPSG"} in ASCII).
+     */
+    static final int MAGIC = 0x45505347;
+
+    /**
+     * The version of the file format.
+     */
+    static final int FORMAT = 1;
+
+    /**
+     * The size in bytes of an index record: code, type and offset.
+     */
+    static final int RECORD_SIZE = 9;
+
+    /**
+     * The CRS types, indexed by the type byte stored in the index. The first entry is used for
+     * the CRS that do not implement any of the other interfaces.
+     */
+    static final Class<?>[] TYPES = {
+        CoordinateReferenceSystem.class,
+        GeographicCRS.class,
+        ProjectedCRS.class,
+        GeocentricCRS.class,
+        VerticalCRS.class,
+        CompoundCRS.class,
+        EngineeringCRS.class,
+        TemporalCRS.class,
+        DerivedCRS.class,
+        ImageCRS.class
+    };
+
+    /**
+     * The encoding of all strings.
+     */
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The snapshot content, memory mapped or read in memory.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The EPSG database edition the snapshot has been generated from.
+     */
+    private final String edition;
+
+    /**
+     * The number of codes.
+     */
+    private final int count;
+
+    /**
+     * The position of the first index record.
+     */
+    private final int index;
+
+    /**
+     * The position of the definitions, the offsets in the index are relative to it.
+     */
+    private final int data;
+
+    /**
+     * Wraps the specified snapshot content.
+     *
+     * @throws IOException if the content is not a snapshot, or is truncated.
+     */
+    EpsgSnapshot(final ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < 16 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an EPSG snapshot");
+        }
+        final int format = buffer.getInt(4);
+        if (format != FORMAT) {
+            throw new IOException("Unsupported EPSG snapshot format: " + format);
+        }
+        edition = readString(8);
+        final int position = 12 + buffer.getInt(8);
+        count = buffer.getInt(position);
+        index = position + 4;
+        data  = index + count * RECORD_SIZE;
+        if (count < 0 || data > buffer.limit()) {
+            throw new IOException("Truncated EPSG snapshot");
+        }
+    }
+
+    /**
+     * Opens the snapshot at the specified URL. Files are memory mapped, any other resource
+     * (for example an entry in a JAR file) is read in memory.
+     *
+     * @param  url The snapshot location.
+     * @return The snapshot.
+     * @throws IOException if the snapshot can't be read.
+     */
+    static EpsgSnapshot open(final URL url) throws IOException {
+        if ("file".equalsIgnoreCase(url.getProtocol())) {
+            final File file;
+            try {
+                file = new File(url.toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException(e);
+            }
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                // The mapping stays valid after the channel has been closed
+                final FileChannel channel = raf.getChannel();
+                return new EpsgSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        channel.size()));
+            } finally {
+                raf.close();
+            }
+        }
+        final InputStream in = url.openStream();
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+            final byte[] bytes = new byte[8192];
+            int n;
+            while ((n = in.read(bytes)) >= 0) {
+                out.write(bytes, 0, n);
+            }
+            return new EpsgSnapshot(ByteBuffer.wrap(out.toByteArray()));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Returns the index of the {@linkplain #TYPES type} the specified CRS is an instance of.
+     */
+    static byte typeOf(final CoordinateReferenceSystem crs) {
+        for (int i = 1; i < TYPES.length; i++) {
+            if (TYPES[i].isInstance(crs)) {
+                return (byte) i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the EPSG database edition the snapshot has been generated from,
+     * or an empty string if unknown.
+     */
+    String getEdition() {
+        return edition;
+    }
+
+    /**
+     * Returns the number of codes in the snapshot.
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Returns the code of the i-th record of the index.
+     */
+    int getCode(final int i) {
+        return buffer.getInt(index + i * RECORD_SIZE);
+    }
+
+    /**
+     * Returns the CRS type of the i-th record of the index.
+     */
+    Class<?> getType(final int i) {
+        final int type = buffer.get(index + i * RECORD_SIZE + 4);
+        return (type >= 0 && type < TYPES.length) ? TYPES[type] : TYPES[0];
+    }
+
+    /**
+     * Returns the index of the record for the specified code, or -1 if not found.
+     */
+    int find(final int code) {
+        int low  = 0;
+        int high = count - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int candidate = getCode(mid);
+            if (candidate < code) {
+                low = mid + 1;
+            } else if (candidate > code) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the description of the i-th record of the index.
+     */
+    String getDescription(final int i) {
+        return readString(definition(i));
+    }
+
+    /**
+     * Returns the metadata of the i-th record of the index, as properties to be given to the
+     * CRS constructor: {@linkplain ReferenceSystem#DOMAIN_OF_VALIDITY_KEY domain of validity},
+     * {@linkplain ReferenceSystem#SCOPE_KEY scope} and
+     * {@linkplain IdentifiedObject#REMARKS_KEY remarks}. Missing values are omitted.
+     */
+    Map<String,Object> getProperties(final int i) {
+        final Map<String,Object> properties = new HashMap<String,Object>(4);
+        int position = skipString(definition(i));
+        final String scope = readString(position);
+        position = skipString(position);
+        if (scope.length() != 0) {
+            properties.put(ReferenceSystem.SCOPE_KEY, new SimpleInternationalString(scope));
+        }
+        final String remarks = readString(position);
+        position = skipString(position);
+        if (remarks.length() != 0) {
+            properties.put(IdentifiedObject.REMARKS_KEY, new SimpleInternationalString(remarks));
+        }
+        final String area = readString(position);
+        position = skipString(position);
+        ExtentImpl extent = null;
+        if (area.length() != 0) {
+            extent = new ExtentImpl();
+            extent.setDescription(new SimpleInternationalString(area));
+        }
+        if (buffer.get(position) != 0) {
+            if (extent == null) {
+                extent = new ExtentImpl();
+            }
+            extent.getGeographicElements().add(new GeographicBoundingBoxImpl(
+                    buffer.getDouble(position +  1), buffer.getDouble(position +  9),
+                    buffer.getDouble(position + 17), buffer.getDouble(position + 25)));
+        }
+        if (extent != null) {
+            properties.put(ReferenceSystem.DOMAIN_OF_VALIDITY_KEY, extent.unmodifiable());
+        }
+        return properties;
+    }
+
+    /**
+     * Returns the WKT of the i-th record of the index, rebuilding it from its parent if needed.
+     *
+     * @throws IOException if the parent of the definition is not in the snapshot.
+     */
+    String getWKT(final int i) throws IOException {
+        int position = skipString(definition(i));
+        position = skipString(skipString(skipString(position)));
+        position += (buffer.get(position) != 0) ? 33 : 1;
+        final int parent = buffer.getInt(position);
+        position += 4;
+        if (parent == 0) {
+            return readString(position);
+        }
+        final int p = find(parent);
+        if (p < 0) {
+            throw new IOException("Missing parent " + parent + " of EPSG:" + getCode(i));
+        }
+        final String prefix = readString(position);
+        final String suffix = readString(skipString(position));
+        return prefix + getWKT(p) + suffix;
+    }
+
+    /**
+     * Returns the absolute position of the definition of the i-th record of the index.
+     */
+    private int definition(final int i) {
+        return data + buffer.getInt(index + i * RECORD_SIZE + 5);
+    }
+
+    /**
+     * Returns the position following the string at the specified absolute position.
+     */
+    private int skipString(final int position) {
+        return position + 4 + buffer.getInt(position);
+    }
+
+    /**
+     * Reads the string at the specified absolute position.
+     */
+    private String readString(final int position) {
+        final int length = buffer.getInt(position);
+        final ByteBuffer bytes = buffer.duplicate();
+        bytes.limit(position + 4 + length).position(position + 4);
+        return UTF8.decode(bytes).toString();
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.opengis.metadata.Identifier;
+import org.opengis.metadata.extent.Extent;
+import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+import org.opengis.referencing.crs.CompoundCRS;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.ProjectedCRS;
+import org.opengis.util.InternationalString;
+
+import org.geotools.factory.Hints;
+import org.geotools.metadata.iso.citation.Citations;
+import org.geotools.referencing.AbstractIdentifiedObject;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.ReferencingFactoryFinder;
+import org.geotools.referencing.wkt.Formattable;
+import org.geotools.referencing.wkt.Parser;
+import org.geotools.referencing.wkt.UnformattableObjectException;
+import org.geotools.util.logging.Logging;
+
+
+/**
+ * Writes the {@linkplain EpsgSnapshot binary snapshot} read by {@link SnapshotEpsgFactory}.
+ * Every coordinate reference system of the source factory is decoded, formatted as WKT and
+ * parsed back, the ones failing any of those steps or losing information on the way (as
+ * checked by {@link CRS#equalsIgnoreMetadata}) are left out of the snapshot. The metadata WKT
+ * can't carry (scope, remarks and area of use) are stored along with the WKT. Projected and
+ * compound CRS whose WKT embeds the one of another CRS in the snapshot only store the text
+ * around it, which roughly halves the snapshot size.
+ * <p>
+ * The {@linkplain #main main method} is run at build time against the EPSG database found on
+ * the classpath, in order to generate the snapshot shipped with this module.
+ *
+ * @since 20.0
+ *
+ * @source $URL$
+ */
+public class EpsgSnapshotWriter {
+    /**
+     * The logger for snapshot generation.
+     */
+    private static final Logger LOGGER = Logging.getLogger(EpsgSnapshotWriter.class);
+
+    /**
+     * The definition of a single code, as gathered before writing.
+     */
+    private static final class Entry {
+        final byte type;
+
+        final String description;
+
+        final String scope;
+
+        final String remarks;
+
+        final String area;
+
+        final GeographicBoundingBox box;
+
+        final String wkt;
+
+        int parent;
+
+        String prefix;
+
+        String suffix;
+
+        Entry(final CoordinateReferenceSystem crs, final String description,
+              final String wkt)
+        {
+            this.type        = EpsgSnapshot.typeOf(crs);
+            this.description = description;
+            this.scope       = toString(crs.getScope());
+            this.remarks     = toString(crs.getRemarks());
+            final Extent extent = crs.getDomainOfValidity();
+            this.area        = (extent != null) ? toString(extent.getDescription()) : "";
+            this.box         = CRS.getGeographicBoundingBox(crs);
+            this.wkt         = wkt;
+            this.parent      = getParentCode(crs);
+        }
+
+        private static String toString(final InternationalString text) {
+            return (text != null) ? text.toString() : "";
+        }
+    }
+
+    /**
+     * The factory the CRS are read from.
+     */
+    private final CRSAuthorityFactory factory;
+
+    /**
+     * The parser used to check the formatted WKT.
+     */
+    private final Parser parser = new Parser();
+
+    /**
+     * Creates a writer for the CRS provided by the specified EPSG factory.
+     *
+     * @param factory The source of the CRS definitions.
+     */
+    public EpsgSnapshotWriter(final CRSAuthorityFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Writes a snapshot of all the coordinate reference systems of the source factory.
+     *
+     * @param  out The stream to write to, left open.
+     * @return The number of codes written.
+     * @throws FactoryException if the codes can't be listed.
+     * @throws IOException if writing failed.
+     */
+    public int write(final OutputStream out) throws FactoryException, IOException {
+        return write(out, factory.getAuthorityCodes(CoordinateReferenceSystem.class));
+    }
+
+    /**
+     * Writes a snapshot of the specified coordinate reference systems. Codes that are not
+     * numeric, or whose CRS can't be round tripped through WKT, are skipped.
+     *
+     * @param  out The stream to write to, left open.
+     * @param  codes The codes to write.
+     * @return The number of codes written.
+     * @throws FactoryException if the authority of the source factory can't be read.
+     * @throws IOException if writing failed.
+     */
+    public int write(final OutputStream out, final Collection<String> codes)
+            throws FactoryException, IOException
+    {
+        final SortedMap<Integer,Entry> entries = new TreeMap<Integer,Entry>();
+        for (final String code : codes) {
+            final int key;
+            try {
+                key = Integer.parseInt(code.trim());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (key > 0) {
+                final Entry entry = createEntry(key);
+                if (entry != null) {
+                    entries.put(key, entry);
+                }
+            }
+        }
+        /*
+         * Shares the WKT of the parents. The parent text must be strictly shorter than the
+         * child one, so that rebuilding the WKT of an entry always terminates.
+         */
+        for (final Entry entry : entries.values()) {
+            final Entry parent = (entry.parent != 0) ? entries.get(entry.parent) : null;
+            final int start = (parent != null && parent.wkt.length() < entry.wkt.length())
+                    ? entry.wkt.indexOf(parent.wkt) : -1;
+            if (start >= 0) {
+                entry.prefix = entry.wkt.substring(0, start);
+                entry.suffix = entry.wkt.substring(start + parent.wkt.length());
+            } else {
+                entry.parent = 0;
+            }
+        }
+        /*
+         * Writes the definitions first in memory, in order to know their offsets,
+         * then the header, the index and the definitions.
+         */
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 20);
+        final DataOutputStream definitions = new DataOutputStream(buffer);
+        final int[] offsets = new int[entries.size()];
+        int i = 0;
+        for (final Entry entry : entries.values()) {
+            offsets[i++] = definitions.size();
+            writeString(definitions, entry.description);
+            writeString(definitions, entry.scope);
+            writeString(definitions, entry.remarks);
+            writeString(definitions, entry.area);
+            if (entry.box != null) {
+                definitions.writeByte(1);
+                definitions.writeDouble(entry.box.getWestBoundLongitude());
+                definitions.writeDouble(entry.box.getEastBoundLongitude());
+                definitions.writeDouble(entry.box.getSouthBoundLatitude());
+                definitions.writeDouble(entry.box.getNorthBoundLatitude());
+            } else {
+                definitions.writeByte(0);
+            }
+            definitions.writeInt(entry.parent);
+            if (entry.parent != 0) {
+                writeString(definitions, entry.prefix);
+                writeString(definitions, entry.suffix);
+            } else {
+                writeString(definitions, entry.wkt);
+            }
+        }
+        definitions.flush();
+        final DataOutputStream output = new DataOutputStream(out);
+        output.writeInt(EpsgSnapshot.MAGIC);
+        output.writeInt(EpsgSnapshot.FORMAT);
+        final InternationalString edition = factory.getAuthority().getEdition();
+        writeString(output, (edition != null) ? edition.toString() : "");
+        output.writeInt(entries.size());
+        i = 0;
+        for (final Map.Entry<Integer,Entry> entry : entries.entrySet()) {
+            output.writeInt(entry.getKey());
+            output.writeByte(entry.getValue().type);
+            output.writeInt(offsets[i++]);
+        }
+        buffer.writeTo(output);
+        output.flush();
+        return entries.size();
+    }
+
+    /**
+     * Decodes the CRS for the specified code and formats it, or returns {@code null} if
+     * the CRS can't be decoded, formatted or parsed back into an equal CRS.
+     */
+    private Entry createEntry(final int code) {
+        final String key = String.valueOf(code);
+        try {
+            final CoordinateReferenceSystem crs = factory.createCoordinateReferenceSystem(key);
+            if (!(crs instanceof Formattable)) {
+                return null;
+            }
+            // Not strict, same as toString(), but still checked by parsing it back
+            final String wkt = ((Formattable) crs).toWKT(Formattable.SINGLE_LINE, false);
+            final CoordinateReferenceSystem parsed = parser.parseCoordinateReferenceSystem(wkt);
+            if (!CRS.equalsIgnoreMetadata(parsed, crs)) {
+                LOGGER.fine("Skipping EPSG:" + code + ", its WKT doesn't round trip: " + wkt);
+                return null;
+            }
+            final InternationalString text = factory.getDescriptionText(key);
+            final String description = (text != null) ? text.toString() : crs.getName().getCode();
+            return new Entry(crs, description, wkt);
+        } catch (FactoryException e) {
+            LOGGER.log(Level.FINE, "Skipping EPSG:" + code, e);
+        } catch (UnformattableObjectException e) {
+            LOGGER.log(Level.FINE, "Skipping EPSG:" + code, e);
+        } catch (ParseException e) {
+            LOGGER.log(Level.FINE, "Skipping EPSG:" + code, e);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the EPSG code of the CRS whose WKT is likely to be embedded in the WKT of the
+     * specified one, or 0 if none.
+     */
+    private static int getParentCode(final CoordinateReferenceSystem crs) {
+        final CoordinateReferenceSystem parent;
+        if (crs instanceof ProjectedCRS) {
+            parent = ((ProjectedCRS) crs).getBaseCRS();
+        } else if (crs instanceof CompoundCRS) {
+            parent = ((CompoundCRS) crs).getCoordinateReferenceSystems().get(0);
+        } else {
+            return 0;
+        }
+        final Identifier id = AbstractIdentifiedObject.getIdentifier(parent, Citations.EPSG);
+        if (id != null) {
+            try {
+                return Integer.parseInt(id.getCode().trim());
+            } catch (NumberFormatException e) {
+                // Not an EPSG numeric code, the WKT won't be shared
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes the length in bytes of the UTF-8 encoded string, followed by the bytes.
+     */
+    private static void writeString(final DataOutputStream out, final String text)
+            throws IOException
+    {
+        final byte[] bytes = text.getBytes(EpsgSnapshot.UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes a snapshot of the EPSG database found on the classpath. The only argument is
+     * the file to write.
+     *
+     * @param  args Command line arguments.
+     * @throws Exception if the snapshot can't be written.
+     */
+    public static void main(final String[] args) throws Exception {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: java "
+                    + EpsgSnapshotWriter.class.getName() + " <snapshot file>");
+        }
+        final CRSAuthorityFactory factory = ReferencingFactoryFinder.getCRSAuthorityFactory(
+                "EPSG", new Hints(Hints.CRS_AUTHORITY_FACTORY, ThreadedEpsgFactory.class));
+        final File file = new File(args[0]);
+        final File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        final OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        final int count;
+        try {
+            count = new EpsgSnapshotWriter(factory).write(out);
+        } finally {
+            out.close();
+        }
+        LOGGER.info("Wrote " + count + " EPSG codes from " + factory.getAuthority().getEdition()
+                + " in " + file + " (" + file.length() + " bytes)");
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+
+import org.geotools.factory.Hints;
+import org.geotools.referencing.factory.AbstractAuthorityFactory;
+import org.geotools.referencing.factory.DeferredAuthorityFactory;
+import org.geotools.referencing.factory.FactoryNotFoundException;
+import org.geotools.referencing.factory.ReferencingFactoryContainer;
+import org.geotools.resources.i18n.ErrorKeys;
+import org.geotools.resources.i18n.Errors;
+import org.geotools.resources.i18n.LoggingKeys;
+import org.geotools.resources.i18n.Loggings;
+import org.geotools.util.logging.Logging;
+
+
+/**
+ * Authority factory for the EPSG coordinate reference systems backed by a binary snapshot of
+ * the EPSG database, generated at build time by {@link EpsgSnapshotWriter}. Opening the snapshot
+ * only maps it in memory, without JDBC connection nor database setup, and each CRS is parsed
+ * from its WKT only when first requested. This makes the factory suitable for short lived
+ * processes, where the startup cost of {@link ThreadedEpsgFactory} dominates.
+ * <p>
+ * Only coordinate reference systems are provided, with their EPSG scope, remarks and domain
+ * of validity. Datum shifts travel along with them as {@code TOWGS84} elements. Datums, coordinate systems and coordinate operations by code are
+ * left to the other EPSG factories, if any. This factory has a higher priority than
+ * {@link ThreadedEpsgFactory}, so that it is picked for CRS when both are on the classpath.
+ * <p>
+ * The snapshot is searched as a {@value #FILENAME} file in the directory given by the
+ * {@link Hints#CRS_AUTHORITY_EXTRA_DIRECTORY} hint first, then in the
+ * {@code org/geotools/referencing/factory/epsg} directory of the classpath. Files are memory
+ * mapped, snapshots packaged in a JAR are read in memory.
+ *
+ * @since 20.0
+ *
+ * @source $URL$
+ */
+public class SnapshotEpsgFactory extends DeferredAuthorityFactory implements CRSAuthorityFactory {
+    /**
+     * The default filename of the snapshot.
+     */
+    public static final String FILENAME = "epsg.snapshot";
+
+    /**
+     * The default priority for this factory, above the one of {@link ThreadedEpsgFactory}.
+     */
+    static final int PRIORITY = ThreadedEpsgFactory.PRIORITY + 5;
+
+    /**
+     * The factories to be given to the backing store.
+     */
+    private final ReferencingFactoryContainer factories;
+
+    /**
+     * Directory scanned for the snapshot, or {@code null} if none.
+     */
+    private final File directory;
+
+    /**
+     * Constructs an authority factory using the default set of factories.
+     */
+    public SnapshotEpsgFactory() {
+        this(null);
+    }
+
+    /**
+     * Constructs an authority factory using a set of factories created from the specified hints.
+     * This constructor recognizes the {@link Hints#CRS_FACTORY CRS}, {@link Hints#CS_FACTORY CS},
+     * {@link Hints#DATUM_FACTORY DATUM} and {@link Hints#MATH_TRANSFORM_FACTORY MATH_TRANSFORM}
+     * {@code FACTORY} hints, in addition of {@link Hints#CRS_AUTHORITY_EXTRA_DIRECTORY}.
+     */
+    public SnapshotEpsgFactory(final Hints userHints) {
+        this(userHints, PRIORITY);
+    }
+
+    /**
+     * Constructs an authority factory using the specified hints and priority.
+     */
+    protected SnapshotEpsgFactory(final Hints userHints, final int priority) {
+        super(userHints, priority);
+        factories = ReferencingFactoryContainer.instance(userHints);
+        Object hint = null;
+        if (userHints != null) {
+            hint = userHints.get(Hints.CRS_AUTHORITY_EXTRA_DIRECTORY);
+        }
+        if (hint instanceof File) {
+            directory = (File) hint;
+        } else if (hint instanceof String) {
+            directory = new File((String) hint);
+        } else {
+            directory = null;
+        }
+        hints.put(Hints.CRS_AUTHORITY_EXTRA_DIRECTORY, directory);
+        // The following hints have no effect on this class behaviour,
+        // but tell to the user what this factory do about axis order.
+        hints.put(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER, Boolean.FALSE);
+        hints.put(Hints.FORCE_STANDARD_AXIS_DIRECTIONS,   Boolean.FALSE);
+        hints.put(Hints.FORCE_STANDARD_AXIS_UNITS,        Boolean.FALSE);
+        // Reopening the snapshot is cheap, release it after 15 minutes of inactivity.
+        setTimeout(15 * 60 * 1000L);
+    }
+
+    /**
+     * Returns the URL of the snapshot, searching the {@value #FILENAME} file in the directory
+     * given by the {@link Hints#CRS_AUTHORITY_EXTRA_DIRECTORY} hint, then on the classpath.
+     *
+     * @return The URL, or {@code null} if none.
+     */
+    protected URL getDefinitionsURL() {
+        try {
+            if (directory != null) {
+                final File file = new File(directory, FILENAME);
+                if (file.isFile()) {
+                    return file.toURI().toURL();
+                }
+            }
+        } catch (SecurityException exception) {
+            Logging.unexpectedException(LOGGER, exception);
+        } catch (MalformedURLException exception) {
+            Logging.unexpectedException(LOGGER, exception);
+        }
+        return SnapshotEpsgFactory.class.getResource(FILENAME);
+    }
+
+    /**
+     * Creates the backing store authority factory.
+     *
+     * @return The backing store to uses in {@code createXXX(...)} methods.
+     * @throws FactoryNotFoundException if no snapshot has been found.
+     * @throws FactoryException if the snapshot can't be read.
+     *         This exception usually has an {@link IOException} as its cause.
+     */
+    protected AbstractAuthorityFactory createBackingStore() throws FactoryException {
+        final URL url = getDefinitionsURL();
+        if (url == null) {
+            throw new FactoryNotFoundException(Errors.format(
+                    ErrorKeys.FILE_DOES_NOT_EXIST_$1, FILENAME));
+        }
+        try {
+            final EpsgSnapshot snapshot = EpsgSnapshot.open(url);
+            final LogRecord record = Loggings.format(Level.CONFIG,
+                    LoggingKeys.USING_FILE_AS_FACTORY_$2, url.getPath(), "EPSG");
+            record.setLoggerName(LOGGER.getName());
+            LOGGER.log(record);
+            return new DirectSnapshotEpsgFactory(factories, snapshot, url.getPath());
+        } catch (IOException exception) {
+            throw new FactoryException(Errors.format(ErrorKeys.CANT_READ_$1, FILENAME),
+                    exception);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory.epsg;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.geotools.factory.Hints;
+import org.geotools.metadata.iso.citation.Citations;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.ReferencingFactoryFinder;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.opengis.geometry.Envelope;
+import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
+import org.opengis.referencing.crs.CRSAuthorityFactory;
+import org.opengis.referencing.crs.CompoundCRS;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+
+public class SnapshotEpsgFactoryTest {
+
+    static final List<String> CODES = Arrays.asList("4326", "4269", "4267", "26910", "32631",
+            "3857", "5714", "7405", "27700");
+
+    static CRSAuthorityFactory database;
+
+    static File directory;
+
+    static SnapshotEpsgFactory factory;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        database = ReferencingFactoryFinder.getCRSAuthorityFactory("EPSG",
+                new Hints(Hints.CRS_AUTHORITY_FACTORY, ThreadedEpsgFactory.class));
+        directory = new File("target/snapshot-test");
+        directory.mkdirs();
+        OutputStream out = new FileOutputStream(new File(directory, SnapshotEpsgFactory.FILENAME));
+        try {
+            assertEquals(CODES.size(), new EpsgSnapshotWriter(database).write(out, CODES));
+        } finally {
+            out.close();
+        }
+        factory = new SnapshotEpsgFactory(new Hints(Hints.CRS_AUTHORITY_EXTRA_DIRECTORY,
+                directory));
+    }
+
+    @AfterClass
+    public static void tearDownClass() throws Exception {
+        factory.dispose();
+        new File(directory, SnapshotEpsgFactory.FILENAME).delete();
+    }
+
+    @Test
+    public void testAuthority() throws Exception {
+        assertTrue(Citations.identifierMatches(factory.getAuthority(), "EPSG"));
+        assertEquals(database.getAuthority().getEdition().toString(),
+                factory.getAuthority().getEdition().toString());
+    }
+
+    @Test
+    public void testCodes() throws Exception {
+        Set<String> codes = factory.getAuthorityCodes(CoordinateReferenceSystem.class);
+        assertEquals(CODES.size(), codes.size());
+        assertTrue(codes.containsAll(CODES));
+
+        Set<String> projected = factory.getAuthorityCodes(ProjectedCRS.class);
+        assertEquals(4, projected.size());
+        assertTrue(projected.contains("32631"));
+        assertFalse(projected.contains("4326"));
+        assertFalse(projected.contains("1234"));
+
+        Set<String> geographic = factory.getAuthorityCodes(GeographicCRS.class);
+        assertTrue(geographic.containsAll(Arrays.asList("4326", "4269", "4267")));
+        assertEquals(3, geographic.size());
+    }
+
+    @Test
+    public void testDescription() throws Exception {
+        for (String code : CODES) {
+            assertEquals(database.getDescriptionText(code).toString(),
+                    factory.getDescriptionText("EPSG:" + code).toString());
+        }
+    }
+
+    @Test
+    public void testDecode() throws Exception {
+        for (String code : CODES) {
+            CoordinateReferenceSystem expected = database.createCoordinateReferenceSystem(code);
+            CoordinateReferenceSystem actual = factory.createCoordinateReferenceSystem(code);
+            assertTrue(code, CRS.equalsIgnoreMetadata(expected, actual));
+            assertEquals(code, CRS.lookupIdentifier(Citations.EPSG, actual, false));
+        }
+        // rebuilt from the WKT of the projected CRS, in turn rebuilt from the geographic one
+        CompoundCRS compound = (CompoundCRS) factory.createCoordinateReferenceSystem("7405");
+        assertEquals(2, compound.getCoordinateReferenceSystems().size());
+    }
+
+    @Test
+    public void testMetadata() throws Exception {
+        for (String code : CODES) {
+            CoordinateReferenceSystem expected = database.createCoordinateReferenceSystem(code);
+            CoordinateReferenceSystem actual = factory.createCoordinateReferenceSystem(code);
+            assertEquals(code, String.valueOf(expected.getScope()),
+                    String.valueOf(actual.getScope()));
+            assertEquals(code, String.valueOf(expected.getRemarks()),
+                    String.valueOf(actual.getRemarks()));
+            assertEquals(code, String.valueOf(expected.getDomainOfValidity().getDescription()),
+                    String.valueOf(actual.getDomainOfValidity().getDescription()));
+
+            GeographicBoundingBox expectedBox = CRS.getGeographicBoundingBox(expected);
+            GeographicBoundingBox actualBox = CRS.getGeographicBoundingBox(actual);
+            assertNotNull(code, expectedBox);
+            assertNotNull(code, actualBox);
+            assertEquals(code, expectedBox.getWestBoundLongitude(),
+                    actualBox.getWestBoundLongitude(), 0);
+            assertEquals(code, expectedBox.getEastBoundLongitude(),
+                    actualBox.getEastBoundLongitude(), 0);
+            assertEquals(code, expectedBox.getSouthBoundLatitude(),
+                    actualBox.getSouthBoundLatitude(), 0);
+            assertEquals(code, expectedBox.getNorthBoundLatitude(),
+                    actualBox.getNorthBoundLatitude(), 0);
+
+            if (CRS.getHorizontalCRS(expected) != null) {
+                Envelope expectedEnvelope = CRS.getEnvelope(expected);
+                Envelope actualEnvelope = CRS.getEnvelope(actual);
+                assertNotNull(code, expectedEnvelope);
+                assertNotNull(code, actualEnvelope);
+                for (int i = 0; i < expectedEnvelope.getDimension(); i++) {
+                    assertEquals(code, expectedEnvelope.getMinimum(i),
+                            actualEnvelope.getMinimum(i), 1e-6);
+                    assertEquals(code, expectedEnvelope.getMaximum(i),
+                            actualEnvelope.getMaximum(i), 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test(expected = NoSuchAuthorityCodeException.class)
+    public void testMissingCode() throws Exception {
+        factory.createCoordinateReferenceSystem("2000");
+    }
+
+    @Test
+    public void testCorruptedSnapshot() throws Exception {
+        File other = new File(directory, "corrupted");
+        other.mkdirs();
+        OutputStream out = new FileOutputStream(new File(other, SnapshotEpsgFactory.FILENAME));
+        try {
+            out.write("Not a snapshot".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        SnapshotEpsgFactory corrupted = new SnapshotEpsgFactory(new Hints(
+                Hints.CRS_AUTHORITY_EXTRA_DIRECTORY, other));
+        try {
+            assertFalse(corrupted.isAvailable());
+        } finally {
+            corrupted.dispose();
+        }
+    }
+}
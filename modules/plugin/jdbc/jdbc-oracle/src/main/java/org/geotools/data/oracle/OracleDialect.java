@@ -44,6 +44,7 @@ import org.geotools.factory.Hints;
 import org.geotools.filter.function.FilterFunction_area;
 import org.geotools.geometry.jts.JTS;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.PreparedFilterToSQL;
 import org.geotools.jdbc.PreparedStatementSQLDialect;
@@ -892,6 +893,75 @@ public class OracleDialect extends PreparedStatementSQLDialect {
         return readIntegerFromStatement(cx, userSdoSql, parameters);
     }
     
+    @Override
+    public Map<String, Map<String, ColumnMetadata>> getGeometryColumnMetadata(Connection cx,
+            String schemaName) throws SQLException {
+        List<String> parameters = new ArrayList<String>();
+        String sql;
+        if (geometryMetadataTable != null) {
+            sql = "SELECT F_TABLE_NAME, F_GEOMETRY_COLUMN, TYPE, SRID, COORD_DIMENSION FROM "
+                    + geometryMetadataTable;
+            if (schemaName != null && !"".equals(schemaName)) {
+                sql += " WHERE F_TABLE_SCHEMA = ?";
+                parameters.add(schemaName);
+            }
+        } else if (schemaName != null) {
+            // the geometry type comes from the spatial index, as in getMapping
+            sql = "SELECT M.TABLE_NAME, M.COLUMN_NAME,\n"
+                    + "(SELECT MIN(META.SDO_LAYER_GTYPE) FROM ALL_INDEXES INFO\n"
+                    + " INNER JOIN MDSYS.ALL_SDO_INDEX_METADATA META\n"
+                    + " ON INFO.INDEX_NAME = META.SDO_INDEX_NAME\n"
+                    + " WHERE INFO.TABLE_NAME = M.TABLE_NAME\n"
+                    + " AND REPLACE(META.SDO_COLUMN_NAME, '\"') = M.COLUMN_NAME\n"
+                    + " AND INFO.TABLE_OWNER = M.OWNER AND META.SDO_INDEX_OWNER = M.OWNER),\n"
+                    + "M.SRID, (SELECT COUNT(*) FROM TABLE(M.DIMINFO))\n"
+                    + "FROM MDSYS.ALL_SDO_GEOM_METADATA M WHERE M.OWNER = ?";
+            parameters.add(schemaName);
+        } else {
+            return null;
+        }
+
+        Map<String, Map<String, ColumnMetadata>> result = new HashMap<String, Map<String, ColumnMetadata>>();
+        PreparedStatement st = null;
+        ResultSet rs = null;
+        try {
+            LOGGER.log(Level.FINE, "Geometry columns metadata; {0} [ parameters = {1} ]",
+                    new Object[] { sql, parameters });
+            st = cx.prepareStatement(sql);
+            for (int i = 0; i < parameters.size(); i++) {
+                st.setString(i + 1, parameters.get(i));
+            }
+            rs = st.executeQuery();
+            while (rs.next()) {
+                ColumnMetadata column = new ColumnMetadata();
+                column.setName(rs.getString(2));
+                String gType = rs.getString(3);
+                Class geometryClass = gType != null ? (Class) TT.GEOM_CLASSES.get(gType) : null;
+                column.setBinding(geometryClass != null ? geometryClass : Geometry.class);
+                Object srid = rs.getObject(4);
+                if (srid != null) {
+                    column.setSrid(((Number) srid).intValue());
+                }
+                Object dimension = rs.getObject(5);
+                if (dimension != null && ((Number) dimension).intValue() > 0) {
+                    column.setDimension(((Number) dimension).intValue());
+                }
+
+                String tableName = rs.getString(1);
+                Map<String, ColumnMetadata> columns = result.get(tableName);
+                if (columns == null) {
+                    columns = new HashMap<String, ColumnMetadata>();
+                    result.put(tableName, columns);
+                }
+                columns.put(column.getName(), column);
+            }
+        } finally {
+            dataStore.closeSafe(rs);
+            dataStore.closeSafe(st);
+        }
+        return result;
+    }
+
     @Override
     public CoordinateReferenceSystem createCRS(int srid, Connection cx) throws SQLException  {
         // if the official EPSG database has an answer, use that one
@@ -80,6 +80,7 @@ public class OracleNGOCIDataStoreFactory extends OracleNGDataStoreFactory {
         parameters.put(MINCONN.key, MINCONN);
         parameters.put(FETCHSIZE.key, FETCHSIZE);
         parameters.put(BATCH_INSERT_SIZE.key, BATCH_INSERT_SIZE);
+        parameters.put(BATCH_UPDATE_SIZE.key, BATCH_UPDATE_SIZE);
         parameters.put(MAXWAIT.key, MAXWAIT);
         if (getValidationQuery() != null)
             parameters.put(VALIDATECONN.key, VALIDATECONN);
@@ -0,0 +1,760 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Wrapper;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.FeatureEvent;
+import org.geotools.data.FeatureEvent.Type;
+import org.geotools.data.Transaction;
+import org.geotools.data.jdbc.datasource.DataSourceFinder;
+import org.geotools.data.jdbc.datasource.UnWrapper;
+import org.geotools.factory.Hints;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.jdbc.AutoGeneratedPrimaryKeyColumn;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.JDBCFeatureStore;
+import org.geotools.jdbc.PrimaryKey;
+import org.geotools.jdbc.PrimaryKeyColumn;
+import org.geotools.jdbc.SQLDialect;
+import org.geotools.jdbc.SequencedPrimaryKeyColumn;
+import org.geotools.util.Converters;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.Filter;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * Loads large amounts of features in a PostGIS table using the PostgreSQL <code>COPY</code>
+ * command, streaming them to the database with bounded memory, instead of running one insert
+ * statement per feature as {@link JDBCFeatureStore#addFeatures(FeatureCollection)} does.
+ * <p>
+ * The binary <code>COPY</code> format is used when all the table columns have a type it can
+ * encode, the text format otherwise. Primary key values are either generated by the database
+ * (auto incrementing columns), fetched in blocks from the key sequence, computed as max + 1, or
+ * taken from the feature ids when {@link #setUseProvidedFid(boolean)} is enabled. Unlike
+ * <code>addFeatures</code> the ids of the inserted features are not returned.
+ * <p>
+ * The load happens in the transaction of the feature store: with {@link Transaction#AUTO_COMMIT}
+ * the whole load is committed at the end, or not at all in case of failure.
+ * <p>
+ * Example usage:
+ * 
+ * <pre>
+ * <code>
+ * JDBCFeatureStore store = (JDBCFeatureStore) dataStore.getFeatureSource("roads");
+ * int count = new PostGISBulkLoader(store).load(roads);
+ * </code>
+ * </pre>
+ */
+public class PostGISBulkLoader {
+
+    static final Logger LOGGER = Logging.getLogger(PostGISBulkLoader.class);
+
+    /**
+     * The default size of the buffer used to send data to the database
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The default number of key values fetched from a sequence in a single query
+     */
+    public static final int DEFAULT_KEY_FETCH_SIZE = 1000;
+
+    static final byte[] BINARY_SIGNATURE = new byte[] { 'P', 'G', 'C', 'O', 'P', 'Y', '\n',
+            (byte) 0xFF, '\r', '\n', 0 };
+
+    /** 2000-01-01, the PostgreSQL epoch, in milliseconds from the Java one */
+    static final long POSTGRES_EPOCH_MILLIS = 946684800000L;
+
+    static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    /**
+     * The native types that can be sent in the binary format
+     */
+    enum BinaryType {
+        INT2, INT4, INT8, FLOAT4, FLOAT8, BOOL, TEXT, BYTEA, UUID, DATE, TIMESTAMP, TIMESTAMPTZ,
+        GEOMETRY
+    }
+
+    static final Map<String, BinaryType> BINARY_TYPES = new HashMap<String, BinaryType>();
+    static {
+        BINARY_TYPES.put("int2", BinaryType.INT2);
+        BINARY_TYPES.put("smallserial", BinaryType.INT2);
+        BINARY_TYPES.put("int4", BinaryType.INT4);
+        BINARY_TYPES.put("serial", BinaryType.INT4);
+        BINARY_TYPES.put("int8", BinaryType.INT8);
+        BINARY_TYPES.put("bigserial", BinaryType.INT8);
+        BINARY_TYPES.put("float4", BinaryType.FLOAT4);
+        BINARY_TYPES.put("float8", BinaryType.FLOAT8);
+        BINARY_TYPES.put("bool", BinaryType.BOOL);
+        BINARY_TYPES.put("text", BinaryType.TEXT);
+        BINARY_TYPES.put("varchar", BinaryType.TEXT);
+        BINARY_TYPES.put("bpchar", BinaryType.TEXT);
+        BINARY_TYPES.put("name", BinaryType.TEXT);
+        BINARY_TYPES.put("bytea", BinaryType.BYTEA);
+        BINARY_TYPES.put("uuid", BinaryType.UUID);
+        BINARY_TYPES.put("date", BinaryType.DATE);
+        BINARY_TYPES.put("timestamp", BinaryType.TIMESTAMP);
+        BINARY_TYPES.put("timestamptz", BinaryType.TIMESTAMPTZ);
+        BINARY_TYPES.put("geometry", BinaryType.GEOMETRY);
+        BINARY_TYPES.put("geography", BinaryType.GEOMETRY);
+    }
+
+    /**
+     * A column of the target table, fed either by a feature attribute or by the primary key
+     */
+    static class CopyColumn {
+        String name;
+
+        AttributeDescriptor descriptor;
+
+        PrimaryKeyColumn keyColumn;
+
+        int keyIndex;
+
+        BinaryType binaryType;
+
+        int srid;
+
+        int dimension = 2;
+
+        KeyGenerator generator;
+    }
+
+    /**
+     * Generates primary key values for features without a provided id
+     */
+    abstract static class KeyGenerator {
+        abstract Object next(Connection cx) throws SQLException;
+    }
+
+    /**
+     * Grabs the values from the key sequence in blocks
+     */
+    class SequenceGenerator extends KeyGenerator {
+        String sql;
+
+        List<Object> values = new ArrayList<Object>();
+
+        int index;
+
+        SequenceGenerator(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        Object next(Connection cx) throws SQLException {
+            if (index >= values.size()) {
+                values.clear();
+                index = 0;
+                // must not run on the copy connection while the copy is active
+                Statement st = cx.createStatement();
+                try {
+                    ResultSet rs = st.executeQuery(sql);
+                    while (rs.next()) {
+                        values.add(rs.getObject(1));
+                    }
+                    rs.close();
+                } finally {
+                    getDataStore().closeSafe(st);
+                }
+                if (values.isEmpty()) {
+                    throw new SQLException("Could not get values from the sequence: " + sql);
+                }
+            }
+            return values.get(index++);
+        }
+    }
+
+    /**
+     * Generates values incrementing the max value found in the table before the load
+     */
+    static class IncrementingGenerator extends KeyGenerator {
+        long next;
+
+        IncrementingGenerator(long next) {
+            this.next = next;
+        }
+
+        @Override
+        Object next(Connection cx) {
+            return next++;
+        }
+    }
+
+    final JDBCFeatureStore store;
+
+    int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    int keyFetchSize = DEFAULT_KEY_FETCH_SIZE;
+
+    boolean useProvidedFid;
+
+    public PostGISBulkLoader(JDBCFeatureStore store) {
+        SQLDialect dialect = store.getDataStore().getSQLDialect();
+        if (!(dialect instanceof PostGISDialect) && !(dialect instanceof PostGISPSDialect)) {
+            throw new IllegalArgumentException("The bulk loader works only against PostGIS stores");
+        }
+        this.store = store;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the size of the buffer used to send data to the database
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getKeyFetchSize() {
+        return keyFetchSize;
+    }
+
+    /**
+     * Sets how many primary key values are fetched from a sequence in a single query
+     */
+    public void setKeyFetchSize(int keyFetchSize) {
+        this.keyFetchSize = keyFetchSize;
+    }
+
+    public boolean isUseProvidedFid() {
+        return useProvidedFid;
+    }
+
+    /**
+     * When enabled, the primary key values are decoded from the feature ids, as it happens with
+     * {@link Hints#USE_PROVIDED_FID} in the regular inserts
+     */
+    public void setUseProvidedFid(boolean useProvidedFid) {
+        this.useProvidedFid = useProvidedFid;
+    }
+
+    JDBCDataStore getDataStore() {
+        return store.getDataStore();
+    }
+
+    /**
+     * Loads the features in the store table. Attributes are matched by name, the ones missing in
+     * the features are loaded as nulls
+     * 
+     * @param features The features to be loaded
+     * @return The number of features loaded
+     * @throws IOException
+     */
+    public int load(FeatureCollection<SimpleFeatureType, SimpleFeature> features)
+            throws IOException {
+        JDBCDataStore dataStore = getDataStore();
+        SimpleFeatureType schema = store.getSchema();
+        String typeName = schema.getTypeName();
+        if (dataStore.getVirtualTables().containsKey(typeName)) {
+            throw new IOException("Cannot bulk load features in the virtual table " + typeName);
+        }
+
+        Transaction tx = store.getTransaction();
+        Connection cx = dataStore.getConnection(tx);
+        // key generators need their own connection, the copy one is busy until the end
+        Connection keyCx = null;
+        PGCopyOutputStream copy = null;
+        ReferencedEnvelope bounds = ReferencedEnvelope.create(schema
+                .getCoordinateReferenceSystem());
+        int count = 0;
+        try {
+            List<CopyColumn> columns = getColumns(schema, cx);
+            boolean binary = true;
+            for (CopyColumn column : columns) {
+                if (column.binaryType == null) {
+                    binary = false;
+                }
+                if (column.generator instanceof SequenceGenerator && keyCx == null) {
+                    keyCx = dataStore.getDataSource().getConnection();
+                }
+            }
+
+            String sql = getCopySQL(typeName, columns, binary);
+            LOGGER.log(Level.FINE, "Bulk loading features with: {0}", sql);
+            copy = new PGCopyOutputStream(unwrapConnection(cx), sql, bufferSize);
+            DataOutputStream out = new DataOutputStream(copy);
+            if (binary) {
+                out.write(BINARY_SIGNATURE);
+                out.writeInt(0);
+                out.writeInt(0);
+            }
+
+            try (FeatureIterator<SimpleFeature> it = features.features()) {
+                while (it.hasNext()) {
+                    SimpleFeature feature = it.next();
+                    List<Object> keyValues = useProvidedFid ? decodeFID(feature) : null;
+                    if (binary) {
+                        out.writeShort(columns.size());
+                    }
+                    for (int i = 0; i < columns.size(); i++) {
+                        CopyColumn column = columns.get(i);
+                        Object value;
+                        if (column.keyColumn == null) {
+                            value = feature.getAttribute(column.name);
+                            if (value instanceof Geometry) {
+                                bounds.expandToInclude(((Geometry) value).getEnvelopeInternal());
+                            }
+                        } else if (keyValues != null) {
+                            value = keyValues.get(column.keyIndex);
+                        } else {
+                            value = column.generator.next(keyCx != null ? keyCx : cx);
+                        }
+                        if (binary) {
+                            writeBinary(out, column, value);
+                        } else {
+                            if (i > 0) {
+                                out.write('\t');
+                            }
+                            writeText(out, column, value);
+                        }
+                    }
+                    if (!binary) {
+                        out.write('\n');
+                    }
+                    count++;
+                }
+            }
+            if (binary) {
+                out.writeShort(-1);
+            }
+            out.flush();
+            copy.endCopy();
+        } catch (SQLException e) {
+            cancel(copy);
+            throw new IOException("Failed to bulk load features in " + typeName, e);
+        } catch (IOException | RuntimeException e) {
+            cancel(copy);
+            throw e;
+        } finally {
+            dataStore.closeSafe(keyCx);
+            if (tx == null || tx == Transaction.AUTO_COMMIT) {
+                dataStore.closeSafe(cx);
+            }
+        }
+
+        if (count > 0) {
+            FeatureEvent event = new FeatureEvent(store, Type.ADDED, bounds, Filter.INCLUDE);
+            store.getState().fireFeatureEvent(event);
+        }
+        return count;
+    }
+
+    private void cancel(PGCopyOutputStream copy) {
+        if (copy != null && copy.isActive()) {
+            try {
+                copy.cancelCopy();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Failed to cancel the copy", e);
+            }
+        }
+    }
+
+    /**
+     * Builds the list of columns to be loaded, along with their native types
+     */
+    List<CopyColumn> getColumns(SimpleFeatureType schema, Connection cx) throws SQLException,
+            IOException {
+        JDBCDataStore dataStore = getDataStore();
+        PrimaryKey key = store.getPrimaryKey();
+        Map<String, String> nativeTypes = getNativeTypes(schema.getTypeName(), cx);
+
+        List<CopyColumn> columns = new ArrayList<CopyColumn>();
+        for (AttributeDescriptor descriptor : schema.getAttributeDescriptors()) {
+            String name = descriptor.getLocalName();
+            if (key.getColumn(name) != null) {
+                // exposed primary key column, handled below
+                continue;
+            }
+            CopyColumn column = new CopyColumn();
+            column.name = name;
+            column.descriptor = descriptor;
+            if (descriptor instanceof GeometryDescriptor) {
+                Integer srid = (Integer) descriptor.getUserData().get(
+                        JDBCDataStore.JDBC_NATIVE_SRID);
+                column.srid = srid != null ? srid : 0;
+                Integer dimension = (Integer) descriptor.getUserData().get(
+                        Hints.COORDINATE_DIMENSION);
+                column.dimension = dimension != null ? Math.min(3, dimension) : 2;
+            }
+            columns.add(column);
+        }
+        for (int i = 0; i < key.getColumns().size(); i++) {
+            PrimaryKeyColumn keyColumn = key.getColumns().get(i);
+            CopyColumn column = new CopyColumn();
+            column.name = keyColumn.getName();
+            column.keyColumn = keyColumn;
+            column.keyIndex = i;
+            if (!useProvidedFid) {
+                if (keyColumn instanceof AutoGeneratedPrimaryKeyColumn) {
+                    // leave it to the database
+                    continue;
+                } else if (keyColumn instanceof SequencedPrimaryKeyColumn) {
+                    String sequence = ((SequencedPrimaryKeyColumn) keyColumn).getSequenceName();
+                    column.generator = new SequenceGenerator("SELECT "
+                            + dataStore.getSQLDialect().encodeNextSequenceValue(
+                                    dataStore.getDatabaseSchema(), sequence)
+                            + " FROM generate_series(1, " + keyFetchSize + ")");
+                } else {
+                    column.generator = new IncrementingGenerator(getNextKeyValue(schema
+                            .getTypeName(), keyColumn, cx));
+                }
+            }
+            columns.add(column);
+        }
+
+        for (CopyColumn column : columns) {
+            String nativeType = nativeTypes.get(column.name);
+            if (nativeType == null) {
+                throw new IOException("Could not find the column " + column.name
+                        + " in the table " + schema.getTypeName());
+            }
+            column.binaryType = BINARY_TYPES.get(nativeType);
+        }
+        return columns;
+    }
+
+    /**
+     * Returns the column native type names, as reported by the database metadata
+     */
+    Map<String, String> getNativeTypes(String tableName, Connection cx) throws SQLException {
+        Map<String, String> types = new HashMap<String, String>();
+        DatabaseMetaData metaData = cx.getMetaData();
+        // the names are patterns, "_" and "%" would match other tables too
+        JDBCDataStore store = getDataStore();
+        ResultSet rs = metaData.getColumns(null,
+                store.escapeNamePattern(metaData, store.getDatabaseSchema()),
+                store.escapeNamePattern(metaData, tableName), "%");
+        try {
+            while (rs.next()) {
+                String type = rs.getString("TYPE_NAME");
+                // user defined types might be quoted
+                types.put(rs.getString("COLUMN_NAME"), type.replace("\"", ""));
+            }
+        } finally {
+            getDataStore().closeSafe(rs);
+        }
+        return types;
+    }
+
+    long getNextKeyValue(String tableName, PrimaryKeyColumn keyColumn, Connection cx)
+            throws SQLException, IOException {
+        if (!Number.class.isAssignableFrom(keyColumn.getType())) {
+            throw new IOException("Cannot generate values for the primary key column "
+                    + keyColumn.getName() + " of type " + keyColumn.getType().getName()
+                    + ", use provided feature ids instead");
+        }
+        StringBuffer sql = new StringBuffer("SELECT max(");
+        SQLDialect dialect = getDataStore().getSQLDialect();
+        dialect.encodeColumnName(null, keyColumn.getName(), sql);
+        sql.append(") FROM ");
+        encodeTableName(tableName, sql);
+        Statement st = cx.createStatement();
+        try {
+            ResultSet rs = st.executeQuery(sql.toString());
+            rs.next();
+            long max = rs.getLong(1);
+            rs.close();
+            return max + 1;
+        } finally {
+            getDataStore().closeSafe(st);
+        }
+    }
+
+    String getCopySQL(String tableName, List<CopyColumn> columns, boolean binary) {
+        SQLDialect dialect = getDataStore().getSQLDialect();
+        StringBuffer sql = new StringBuffer("COPY ");
+        encodeTableName(tableName, sql);
+        sql.append(" (");
+        for (CopyColumn column : columns) {
+            dialect.encodeColumnName(null, column.name, sql);
+            sql.append(", ");
+        }
+        sql.setLength(sql.length() - 2);
+        sql.append(") FROM STDIN");
+        if (binary) {
+            sql.append(" (FORMAT binary)");
+        }
+        return sql.toString();
+    }
+
+    private void encodeTableName(String tableName, StringBuffer sql) {
+        SQLDialect dialect = getDataStore().getSQLDialect();
+        String schema = getDataStore().getDatabaseSchema();
+        if (schema != null) {
+            dialect.encodeSchemaName(schema, sql);
+            sql.append(".");
+        }
+        dialect.encodeTableName(tableName, sql);
+    }
+
+    /**
+     * Decodes the primary key values from the feature id, the same way the store does
+     */
+    List<Object> decodeFID(SimpleFeature feature) throws IOException {
+        PrimaryKey key = store.getPrimaryKey();
+        Object provided = feature.getUserData().get(Hints.PROVIDED_FID);
+        String fid = provided != null ? provided.toString() : feature.getID();
+        if (fid.startsWith(key.getTableName() + ".")) {
+            fid = fid.substring(key.getTableName().length() + 1);
+        }
+        try {
+            fid = URLDecoder.decode(fid, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+        List<Object> values = new ArrayList<Object>();
+        if (key.getColumns().size() > 1) {
+            for (String value : fid.split("\\.")) {
+                values.add(value);
+            }
+        } else {
+            values.add(fid);
+        }
+        if (values.size() != key.getColumns().size()) {
+            throw new IOException("Illegal fid: " + fid + ". Expected "
+                    + key.getColumns().size() + " values but got " + values.size());
+        }
+        return values;
+    }
+
+    /**
+     * Writes a field in the binary copy format, that is, its length followed by its binary
+     * representation
+     */
+    void writeBinary(DataOutputStream out, CopyColumn column, Object value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        switch (column.binaryType) {
+        case INT2:
+            out.writeInt(2);
+            out.writeShort(convert(value, Short.class, column));
+            break;
+        case INT4:
+            out.writeInt(4);
+            out.writeInt(convert(value, Integer.class, column));
+            break;
+        case INT8:
+            out.writeInt(8);
+            out.writeLong(convert(value, Long.class, column));
+            break;
+        case FLOAT4:
+            out.writeInt(4);
+            out.writeFloat(convert(value, Float.class, column));
+            break;
+        case FLOAT8:
+            out.writeInt(8);
+            out.writeDouble(convert(value, Double.class, column));
+            break;
+        case BOOL:
+            out.writeInt(1);
+            out.writeByte(convert(value, Boolean.class, column) ? 1 : 0);
+            break;
+        case TEXT:
+            writeBytes(out, toString(value).getBytes(StandardCharsets.UTF_8));
+            break;
+        case BYTEA:
+            writeBytes(out, convert(value, byte[].class, column));
+            break;
+        case UUID:
+            UUID uuid = convert(value, UUID.class, column);
+            out.writeInt(16);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+            break;
+        case DATE:
+            // days from the PostgreSQL epoch, in local time
+            long localMillis = toLocalMillis(convert(value, java.util.Date.class, column));
+            out.writeInt(4);
+            out.writeInt((int) Math.floorDiv(localMillis - POSTGRES_EPOCH_MILLIS, MILLIS_PER_DAY));
+            break;
+        case TIMESTAMP:
+        case TIMESTAMPTZ:
+            // microseconds from the PostgreSQL epoch, in local time for timestamps without zone
+            Timestamp ts = convert(value, Timestamp.class, column);
+            long millis = column.binaryType == BinaryType.TIMESTAMP ? toLocalMillis(ts) : ts
+                    .getTime();
+            long seconds = Math.floorDiv(millis, 1000);
+            out.writeInt(8);
+            out.writeLong((seconds - POSTGRES_EPOCH_MILLIS / 1000) * 1000000 + ts.getNanos()
+                    / 1000);
+            break;
+        case GEOMETRY:
+            writeBytes(out, toEWKB((Geometry) value, column));
+            break;
+        }
+    }
+
+    private void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Writes a field in the text copy format, escaping the characters having a special meaning
+     */
+    void writeText(DataOutputStream out, CopyColumn column, Object value) throws IOException {
+        String text;
+        if (value == null) {
+            out.write('\\');
+            out.write('N');
+            return;
+        } else if (value instanceof Geometry) {
+            text = WKBWriter.toHex(toEWKB((Geometry) value, column));
+        } else if (value instanceof byte[]) {
+            text = "\\x" + WKBWriter.toHex((byte[]) value);
+        } else if (value instanceof Boolean) {
+            text = ((Boolean) value) ? "t" : "f";
+        } else {
+            text = toString(value);
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            switch (b) {
+            case '\\':
+                out.write('\\');
+                out.write('\\');
+                break;
+            case '\n':
+                out.write('\\');
+                out.write('n');
+                break;
+            case '\r':
+                out.write('\\');
+                out.write('r');
+                break;
+            case '\t':
+                out.write('\\');
+                out.write('t');
+                break;
+            default:
+                out.write(b);
+            }
+        }
+    }
+
+    private byte[] toEWKB(Geometry geometry, CopyColumn column) {
+        int srid = geometry.getSRID();
+        try {
+            if (column.srid > 0) {
+                geometry.setSRID(column.srid);
+            }
+            return new WKBWriter(column.dimension, geometry.getSRID() > 0).write(geometry);
+        } finally {
+            geometry.setSRID(srid);
+        }
+    }
+
+    private String toString(Object value) {
+        if (value instanceof java.util.Date) {
+            // the JDBC escape formats, parsed in the session time zone
+            if (value instanceof java.sql.Date || value instanceof java.sql.Time
+                    || value instanceof Timestamp) {
+                return value.toString();
+            }
+            return new Timestamp(((java.util.Date) value).getTime()).toString();
+        }
+        String converted = Converters.convert(value, String.class);
+        return converted != null ? converted : value.toString();
+    }
+
+    private long toLocalMillis(java.util.Date date) {
+        long millis = date.getTime();
+        return millis + TimeZone.getDefault().getOffset(millis);
+    }
+
+    private <T> T convert(Object value, Class<T> target, CopyColumn column) throws IOException {
+        T converted = Converters.convert(value, target);
+        if (converted == null) {
+            throw new IOException("Cannot convert " + value + " to " + target.getSimpleName()
+                    + " for column " + column.name);
+        }
+        return converted;
+    }
+
+    /**
+     * Obtains the native PostgreSQL connection given a pooled connection
+     */
+    PGConnection unwrapConnection(Connection cx) throws SQLException {
+        if (cx instanceof PGConnection) {
+            return (PGConnection) cx;
+        }
+        try {
+            Connection testCon = cx;
+            Connection toUnwrap;
+            do {
+                UnWrapper unwrapper = DataSourceFinder.getUnWrapper(testCon);
+                if (unwrapper == null) {
+                    break;
+                }
+                toUnwrap = testCon;
+                testCon = unwrapper.unwrap(testCon);
+                if (testCon instanceof PGConnection) {
+                    return (PGConnection) testCon;
+                }
+            } while (testCon != null && testCon != toUnwrap);
+        } catch (IOException e) {
+            throw new SQLException("Could not obtain the native PostgreSQL connection", e);
+        }
+        if (cx instanceof Wrapper) {
+            try {
+                if (cx.isWrapperFor(PGConnection.class)) {
+                    return cx.unwrap(PGConnection.class);
+                }
+            } catch (Throwable t) {
+                // old DBCP versions will throw an Error here
+                LOGGER.log(Level.FINER, "Failed to unwrap connection using java 6 facilities", t);
+            }
+        }
+        throw new SQLException("Could not obtain the native PostgreSQL connection for "
+                + cx.getClass());
+    }
+}
@@ -19,6 +19,7 @@ package org.geotools.data.postgis;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Savepoint;
@@ -38,6 +39,9 @@ import java.util.logging.Level;
 
 import org.geotools.data.jdbc.FilterToSQL;
 import org.geotools.factory.Hints;
+import org.geotools.feature.visitor.AverageVisitor;
+import org.geotools.feature.visitor.MedianVisitor;
+import org.geotools.feature.visitor.StandardDeviationVisitor;
 import org.geotools.filter.function.FilterFunction_area;
 import org.geotools.geometry.jts.CircularRing;
 import org.geotools.geometry.jts.CircularString;
@@ -52,8 +56,10 @@ import org.geotools.geometry.jts.WKTWriter2;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PrimaryKey;
 import org.geotools.referencing.CRS;
 import org.geotools.util.Version;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -153,6 +159,39 @@ public class PostGISDialect extends BasicSQLDialect {
        return "distinct".equalsIgnoreCase(function);
     }
 
+    @Override
+    public void registerAggregateFunctions(
+            Map<Class<? extends FeatureVisitor>, String> aggregates) {
+        super.registerAggregateFunctions(aggregates);
+        aggregates.put(AverageVisitor.class, "avg");
+        aggregates.put(StandardDeviationVisitor.class, "stddev_pop");
+        // ordered set aggregates need PostgreSQL 9.4, older servers compute it in memory
+        if (pgsqlVersion != null && pgsqlVersion.compareTo(PGSQL_V_9_4) >= 0) {
+            aggregates.put(MedianVisitor.class, MEDIAN);
+        }
+    }
+
+    @Override
+    public void encodeAggregateFunctionCall(String function, String expression, StringBuffer sql) {
+        if (MEDIAN.equals(function)) {
+            // same as the visitor, averages the two middle values when the count is even
+            sql.append("percentile_cont(0.5) WITHIN GROUP (ORDER BY ").append(expression)
+                    .append(")");
+        } else {
+            super.encodeAggregateFunctionCall(function, expression, sql);
+        }
+    }
+
+    @Override
+    public boolean isQuantileListSupported() {
+        return true;
+    }
+
+    /**
+     * Name the median is registered with, encoded as a percentile (ordered set aggregate)
+     */
+    static final String MEDIAN = "median";
+
     static final Version V_1_5_0 = new Version("1.5.0");
 
     static final Version V_2_0_0 = new Version("2.0.0");
@@ -161,10 +200,14 @@ public class PostGISDialect extends BasicSQLDialect {
 
     static final Version V_2_2_0 = new Version("2.2.0");
 
+    static final Version V_2_4_0 = new Version("2.4.0");
+
     static final Version PGSQL_V_9_0 = new Version("9.0");
     
     static final Version PGSQL_V_9_1 = new Version("9.1");
 
+    static final Version PGSQL_V_9_4 = new Version("9.4");
+
     public PostGISDialect(JDBCDataStore dataStore) {
         super(dataStore);
     }
@@ -178,6 +221,10 @@ public class PostGISDialect extends BasicSQLDialect {
     boolean functionEncodingEnabled = false;
     
     boolean simplifyEnabled = true;
+
+    boolean binaryGeometryEnabled = false;
+
+    boolean twkbEnabled = false;
     
     Version version, pgsqlVersion;
 
@@ -230,6 +277,35 @@ public class PostGISDialect extends BasicSQLDialect {
         this.simplifyEnabled = simplifyEnabled;
     }
 
+    public boolean isBinaryGeometryEnabled() {
+        return binaryGeometryEnabled;
+    }
+
+    /**
+     * Enables/disables transferring geometries as raw bytes, instead of base64 encoded text
+     * 
+     * @see PostgisNGDataStoreFactory#BINARY_GEOMETRY
+     * @param binaryGeometryEnabled
+     */
+    public void setBinaryGeometryEnabled(boolean binaryGeometryEnabled) {
+        this.binaryGeometryEnabled = binaryGeometryEnabled;
+    }
+
+    public boolean isTWKBEnabled() {
+        return twkbEnabled;
+    }
+
+    /**
+     * Enables/disables usage of ST_AsTWKB to transfer simplified geometries, with a precision
+     * matching the simplification distance
+     * 
+     * @see PostgisNGDataStoreFactory#TWKB
+     * @param twkbEnabled
+     */
+    public void setTWKBEnabled(boolean twkbEnabled) {
+        this.twkbEnabled = twkbEnabled;
+    }
+
 
     @Override
     public void initializeConnection(Connection cx) throws SQLException {
@@ -268,6 +344,9 @@ public class PostGISDialect extends BasicSQLDialect {
             throws IOException, SQLException {
         WKBAttributeIO reader = getWKBReader(factory);
         
+        if (isTWKBEncoded(descriptor, hints)) {
+            return (Geometry) reader.readTWKB(rs, column);
+        }
         return (Geometry) reader.read(rs, column);
     }
     
@@ -276,6 +355,9 @@ public class PostGISDialect extends BasicSQLDialect {
             throws IOException, SQLException {
         WKBAttributeIO reader = getWKBReader(factory);
         
+        if (isTWKBEncoded(descriptor, hints)) {
+            return (Geometry) reader.readTWKB(rs, column);
+        }
         return (Geometry) reader.read(rs, column);
     }
 
@@ -287,9 +369,62 @@ public class PostGISDialect extends BasicSQLDialect {
         }  else {
             reader.setGeometryFactory(factory);
         }
+        reader.setBase64EncodingEnabled(!binaryGeometryEnabled);
         return reader;
     }
 
+    /**
+     * Returns true if the geometry column is read with a simplification hint that
+     * {@link #encodeGeometryColumnSimplified(GeometryDescriptor, String, int, StringBuffer, Double)}
+     * turned into a ST_AsTWKB call
+     */
+    private boolean isTWKBEncoded(GeometryDescriptor descriptor, Hints hints) {
+        if (descriptor == null || hints == null
+                || descriptor.getType().getBinding() == Point.class) {
+            return false;
+        }
+        Object distance = hints.get(Hints.GEOMETRY_SIMPLIFICATION);
+        return distance instanceof Double && isTWKBEncoded(descriptor, (Double) distance);
+    }
+
+    /**
+     * Returns true if geometries simplified with the given distance are transferred as TWKB
+     */
+    private boolean isTWKBEncoded(GeometryDescriptor gatt, Double distance) {
+        return twkbEnabled && simplifyEnabled && distance != null && distance > 0
+                && version != null && version.compareTo(V_2_2_0) >= 0
+                && !"geography".equals(gatt.getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPENAME))
+                && NON_CURVED_GEOMETRY_CLASSES.contains(gatt.getType().getBinding());
+    }
+
+    /**
+     * Returns the number of decimal digits to be used in ST_AsTWKB for the given simplification
+     * distance, so that the quantization error stays below it
+     */
+    static int getTWKBPrecision(double distance) {
+        int digits = (int) Math.ceil(-Math.log10(distance));
+        // TWKB stores the precision in four bits, zig-zag encoded
+        return Math.max(-8, Math.min(7, digits));
+    }
+
+    /**
+     * Opens the base64 encoding of a binary geometry expression, unless raw bytes are requested
+     */
+    private void startGeometryEncoding(StringBuffer sql) {
+        if (!binaryGeometryEnabled) {
+            sql.append("encode(");
+        }
+    }
+
+    /**
+     * Closes the encoding opened by {@link #startGeometryEncoding(StringBuffer)}
+     */
+    private void endGeometryEncoding(StringBuffer sql) {
+        if (!binaryGeometryEnabled) {
+            sql.append(",'base64')");
+        }
+    }
+
     @Override
     public void encodeGeometryColumn(GeometryDescriptor gatt, String prefix, int srid,
             StringBuffer sql) {
@@ -303,25 +438,27 @@ public class PostGISDialect extends BasicSQLDialect {
         boolean geography = "geography".equals(gatt.getUserData().get(
                 JDBCDataStore.JDBC_NATIVE_TYPENAME));
     
+        startGeometryEncoding(sql);
         if (geography) {
-            sql.append("encode(ST_AsBinary(");
+            sql.append("ST_AsBinary(");
             encodeColumnName(prefix, gatt.getLocalName(), sql);
-            sql.append("),'base64')");
+            sql.append(")");
         }
         else {
             boolean force2D = hints != null && hints.containsKey(Hints.FEATURE_2D) && 
                 Boolean.TRUE.equals(hints.get(Hints.FEATURE_2D));
 
             if (force2D) {
-                sql.append("encode(ST_AsBinary(" + getForce2DFunction() + "(");
+                sql.append("ST_AsBinary(" + getForce2DFunction() + "(");
                 encodeColumnName(prefix, gatt.getLocalName(), sql);
-                sql.append(")),'base64')");
+                sql.append("))");
             } else {
-                sql.append("encode(ST_AsEWKB(");
+                sql.append("ST_AsEWKB(");
                 encodeColumnName(prefix, gatt.getLocalName(), sql);
-                sql.append("),'base64')");
+                sql.append(")");
             }
         }
+        endGeometryEncoding(sql);
     }
     
     @Override
@@ -337,18 +474,25 @@ public class PostGISDialect extends BasicSQLDialect {
             boolean geography = "geography".equals(gatt.getUserData().get(
                     JDBCDataStore.JDBC_NATIVE_TYPENAME));
     
+            startGeometryEncoding(sql);
             if (geography) {
-                sql.append("encode(ST_AsBinary(");
+                sql.append("ST_AsBinary(");
                 encodeColumnName(prefix, gatt.getLocalName(), sql);
-                sql.append("),'base64')");
+                sql.append(")");
             } else {
-                if (NON_CURVED_GEOMETRY_CLASSES.contains(gatt.getType().getBinding())) {
-                    sql.append("encode(ST_AsBinary(ST_Simplify(" + getForce2DFunction() + "(");
+                if (isTWKBEncoded(gatt, distance)) {
+                    // the coordinates are rounded to a precision matching the distance
+                    sql.append("ST_AsTWKB(ST_Simplify(" + getForce2DFunction() + "(");
+                    encodeColumnName(prefix, gatt.getLocalName(), sql);
+                    sql.append("), " + distance + preserveCollapsed + "), "
+                            + getTWKBPrecision(distance) + ")");
+                } else if (NON_CURVED_GEOMETRY_CLASSES.contains(gatt.getType().getBinding())) {
+                    sql.append("ST_AsBinary(ST_Simplify(" + getForce2DFunction() + "(");
                     encodeColumnName(prefix, gatt.getLocalName(), sql);
-                    sql.append("), " + distance + preserveCollapsed + ")),'base64')");
+                    sql.append("), " + distance + preserveCollapsed + "))");
                 } else {
                     // we can have curves mixed in
-                    sql.append("encode(ST_AsBinary(");
+                    sql.append("ST_AsBinary(");
                     sql.append("CASE WHEN ST_HasArc(");
                     encodeColumnName(prefix, gatt.getLocalName(), sql);
                     sql.append(") THEN ");
@@ -356,10 +500,11 @@ public class PostGISDialect extends BasicSQLDialect {
                     sql.append(" ELSE ");
                     sql.append("ST_Simplify(" + getForce2DFunction() + "(");
                     encodeColumnName(prefix, gatt.getLocalName(), sql);
-                    sql.append("), " + distance + preserveCollapsed + ") END),'base64')");
+                    sql.append("), " + distance + preserveCollapsed + ") END)");
                 }
 
             }
+            endGeometryEncoding(sql);
         }
     }
 
@@ -725,6 +870,70 @@ public class PostGISDialect extends BasicSQLDialect {
         return dimension;
     }
 
+    @Override
+    public Map<String, Map<String, ColumnMetadata>> getGeometryColumnMetadata(Connection cx,
+            String schemaName) throws SQLException {
+        if (schemaName == null) {
+            schemaName = "public";
+        }
+        boolean geography = supportsGeography(cx);
+        String sql = "SELECT F_TABLE_NAME, F_GEOMETRY_COLUMN, TYPE, SRID, COORD_DIMENSION, FALSE "
+                + "FROM GEOMETRY_COLUMNS WHERE F_TABLE_SCHEMA = ?";
+        if (geography) {
+            sql += " UNION ALL SELECT F_TABLE_NAME, F_GEOGRAPHY_COLUMN, TYPE, SRID, "
+                    + "COORD_DIMENSION, TRUE FROM GEOGRAPHY_COLUMNS WHERE F_TABLE_SCHEMA = ?";
+        }
+        LOGGER.log(Level.FINE, "Geometry columns metadata; {0} ", sql);
+
+        boolean v2 = getVersion(cx).compareTo(V_2_0_0) >= 0;
+        Map<String, Map<String, ColumnMetadata>> result = new HashMap<String, Map<String, ColumnMetadata>>();
+        PreparedStatement ps = cx.prepareStatement(sql);
+        try {
+            ps.setString(1, schemaName);
+            if (geography) {
+                ps.setString(2, schemaName);
+            }
+            ResultSet rs = ps.executeQuery();
+            try {
+                while (rs.next()) {
+                    ColumnMetadata column = new ColumnMetadata();
+                    column.setName(rs.getString(2));
+                    String gType = rs.getString(3);
+                    Class binding = gType != null ? TYPE_TO_CLASS_MAP.get(gType.toUpperCase())
+                            : null;
+                    column.setBinding(binding != null ? binding : Geometry.class);
+                    int srid = rs.getInt(4);
+                    if (rs.getBoolean(6)) {
+                        // same as getGeometrySRID, geography is always in WGS84
+                        column.setSrid(4326);
+                    } else if (!rs.wasNull() && !(v2 && srid == 0)) {
+                        // a zero srid in postgis 2 means unset, leave it to getGeometrySRID
+                        column.setSrid(srid);
+                    }
+                    int dimension = rs.getInt(5);
+                    if (!rs.wasNull()) {
+                        column.setDimension(dimension);
+                    }
+
+                    String tableName = rs.getString(1);
+                    Map<String, ColumnMetadata> columns = result.get(tableName);
+                    if (columns == null) {
+                        columns = new HashMap<String, ColumnMetadata>();
+                        result.put(tableName, columns);
+                    }
+                    if (!columns.containsKey(column.getName())) {
+                        columns.put(column.getName(), column);
+                    }
+                }
+            } finally {
+                dataStore.closeSafe(rs);
+            }
+        } finally {
+            dataStore.closeSafe(ps);
+        }
+        return result;
+    }
+
     protected Integer getDimensionFromFirstGeo(String schemaName, String tableName, String columnName,
             Connection cx) throws SQLException {
 
@@ -1134,6 +1343,136 @@ public class PostGISDialect extends BasicSQLDialect {
             sql.append(" OFFSET " + offset);
         }
     }
+
+    @Override
+    public boolean isKeysetPaginationSupported() {
+        return true;
+    }
+
+    @Override
+    public void encodeKeysetPredicate(String prefix, PrimaryKey key, List<Object> lastKey,
+            List<Object> bindings, StringBuffer sql) {
+        encodeKeysetRowComparison(prefix, key, lastKey, bindings, sql);
+    }
+
+    /**
+     * Splits tables on ctid ranges. Databases before PostgreSQL 14 lack TID range scans, and scan
+     * the whole table for each partition: the reads are still spread over several backends, but
+     * the primary key or spatial grid strategies should be preferred there.
+     */
+    @Override
+    public boolean isPhysicalPartitioningSupported() {
+        return true;
+    }
+
+    @Override
+    public Long getPhysicalPageCount(String schemaName, String tableName, Connection cx)
+            throws SQLException {
+        StringBuffer table = new StringBuffer();
+        if (schemaName != null && !schemaName.isEmpty()) {
+            encodeSchemaName(schemaName, table);
+            table.append(".");
+        }
+        encodeTableName(tableName, table);
+
+        String sql = "SELECT pg_relation_size(?::regclass) / current_setting('block_size')::int";
+        LOGGER.fine(sql + " (" + table + ")");
+        PreparedStatement ps = cx.prepareStatement(sql);
+        try {
+            ps.setString(1, table.toString());
+            ResultSet rs = ps.executeQuery();
+            try {
+                return rs.next() ? rs.getLong(1) : null;
+            } finally {
+                dataStore.closeSafe(rs);
+            }
+        } finally {
+            dataStore.closeSafe(ps);
+        }
+    }
+
+    @Override
+    public void encodePhysicalRangePredicate(String prefix, Long firstPage, Long lastPage,
+            StringBuffer sql) {
+        if (firstPage == null && lastPage == null) {
+            sql.append("1 = 1");
+            return;
+        }
+        if (firstPage != null) {
+            encodeColumnName(prefix, "ctid", sql);
+            sql.append(" >= '(").append(firstPage).append(",0)'::tid");
+        }
+        if (lastPage != null) {
+            if (firstPage != null) {
+                sql.append(" AND ");
+            }
+            encodeColumnName(prefix, "ctid", sql);
+            sql.append(" < '(").append(lastPage).append(",0)'::tid");
+        }
+    }
+
+    @Override
+    public boolean isGridPartitioningSupported() {
+        return true;
+    }
+
+    @Override
+    public void encodeGridCellPredicate(String prefix, GeometryDescriptor geometry, int srid,
+            Envelope cell, boolean lastColumn, boolean lastRow, StringBuffer sql) {
+        StringBuffer column = new StringBuffer();
+        encodeColumnName(prefix, geometry.getLocalName(), column);
+        if ("geography".equals(geometry.getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPENAME))) {
+            column.append("::geometry");
+        }
+        if (cell == null) {
+            sql.append(column).append(" IS NULL OR ST_IsEmpty(").append(column).append(")");
+            return;
+        }
+        // a box whose lower left corner is in the cell intersects it, the index can be used
+        sql.append(column).append(" && ST_MakeEnvelope(").append(cell.getMinX()).append(", ")
+                .append(cell.getMinY()).append(", ").append(cell.getMaxX()).append(", ")
+                .append(cell.getMaxY()).append(", ").append(Math.max(srid, 0)).append(")");
+        sql.append(" AND ST_XMin(").append(column).append(") >= ").append(cell.getMinX());
+        sql.append(" AND ST_XMin(").append(column).append(lastColumn ? ") <= " : ") < ")
+                .append(cell.getMaxX());
+        sql.append(" AND ST_YMin(").append(column).append(") >= ").append(cell.getMinY());
+        sql.append(" AND ST_YMin(").append(column).append(lastRow ? ") <= " : ") < ")
+                .append(cell.getMaxY());
+    }
+
+    @Override
+    public boolean isVectorTileSupported() {
+        // ST_AsMVT and ST_AsMVTGeom need PostGIS 2.4 built with protobuf-c support
+        return version != null && version.compareTo(V_2_4_0) >= 0;
+    }
+
+    @Override
+    public void encodeVectorTileGeometry(GeometryDescriptor geometry, int srid, int tileSrid,
+            Envelope tile, int extent, int buffer, StringBuffer sql) {
+        StringBuffer column = new StringBuffer();
+        encodeColumnName(null, geometry.getLocalName(), column);
+        if ("geography".equals(geometry.getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPENAME))) {
+            column.append("::geometry");
+        }
+        sql.append("ST_AsMVTGeom(");
+        if (srid != tileSrid) {
+            sql.append("ST_Transform(").append(column).append(", ").append(tileSrid).append(")");
+        } else {
+            sql.append(column);
+        }
+        sql.append(", ST_MakeEnvelope(").append(tile.getMinX()).append(", ")
+                .append(tile.getMinY()).append(", ").append(tile.getMaxX()).append(", ")
+                .append(tile.getMaxY()).append("), ").append(extent).append(", ").append(buffer)
+                .append(", true)");
+    }
+
+    @Override
+    public void encodeVectorTileAggregate(String alias, String layerName, String geometryColumn,
+            int extent, StringBuffer sql) {
+        sql.append("ST_AsMVT(").append(alias).append(", '")
+                .append(layerName.replace("'", "''")).append("', ").append(extent).append(", '")
+                .append(geometryColumn.replace("'", "''")).append("')");
+    }
     
     @Override
     public void encodeValue(Object value, Class type, StringBuffer sql) {
@@ -22,6 +22,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.List;
 import java.util.Map;
 
 import org.geotools.factory.Hints;
@@ -29,6 +30,8 @@ import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.PreparedFilterToSQL;
 import org.geotools.jdbc.PreparedStatementSQLDialect;
+import org.geotools.jdbc.PrimaryKey;
+import org.opengis.feature.FeatureVisitor;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.GeometryDescriptor;
 
@@ -53,10 +56,33 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
         this.delegate = delegate;
     }
     
+    @Override
+    public void initializeConnection(Connection cx) throws SQLException {
+        super.initializeConnection(cx);
+        // the delegate needs the server versions too, e.g. to pick the aggregate functions
+        delegate.initializeConnection(cx);
+    }
+
     @Override
     public boolean isAggregatedSortSupported(String function) {
         return "distinct".equalsIgnoreCase(function);
     }
+
+    @Override
+    public void registerAggregateFunctions(
+            Map<Class<? extends FeatureVisitor>, String> aggregates) {
+        delegate.registerAggregateFunctions(aggregates);
+    }
+
+    @Override
+    public void encodeAggregateFunctionCall(String function, String expression, StringBuffer sql) {
+        delegate.encodeAggregateFunctionCall(function, expression, sql);
+    }
+
+    @Override
+    public boolean isQuantileListSupported() {
+        return delegate.isQuantileListSupported();
+    }
     
     @Override
     public boolean includeTable(String schemaName, String tableName, Connection cx)
@@ -256,12 +282,75 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
         delegate.applyLimitOffset(sql, limit, offset);
     }
 
+    @Override
+    public boolean isKeysetPaginationSupported() {
+        return delegate.isKeysetPaginationSupported();
+    }
+
+    @Override
+    public void encodeKeysetPredicate(String prefix, PrimaryKey key, List<Object> lastKey,
+            List<Object> bindings, StringBuffer sql) {
+        // not delegated, the values are bound to the statement rather than encoded as literals
+        encodeKeysetRowComparison(prefix, key, lastKey, bindings, sql);
+    }
+
+    @Override
+    public boolean isPhysicalPartitioningSupported() {
+        return delegate.isPhysicalPartitioningSupported();
+    }
+
+    @Override
+    public Long getPhysicalPageCount(String schemaName, String tableName, Connection cx)
+            throws SQLException {
+        return delegate.getPhysicalPageCount(schemaName, tableName, cx);
+    }
+
+    @Override
+    public void encodePhysicalRangePredicate(String prefix, Long firstPage, Long lastPage,
+            StringBuffer sql) {
+        delegate.encodePhysicalRangePredicate(prefix, firstPage, lastPage, sql);
+    }
+
+    @Override
+    public boolean isGridPartitioningSupported() {
+        return delegate.isGridPartitioningSupported();
+    }
+
+    @Override
+    public void encodeGridCellPredicate(String prefix, GeometryDescriptor geometry, int srid,
+            Envelope cell, boolean lastColumn, boolean lastRow, StringBuffer sql) {
+        delegate.encodeGridCellPredicate(prefix, geometry, srid, cell, lastColumn, lastRow, sql);
+    }
+
+    @Override
+    public boolean isVectorTileSupported() {
+        return delegate.isVectorTileSupported();
+    }
+
+    @Override
+    public void encodeVectorTileGeometry(GeometryDescriptor geometry, int srid, int tileSrid,
+            Envelope tile, int extent, int buffer, StringBuffer sql) {
+        delegate.encodeVectorTileGeometry(geometry, srid, tileSrid, tile, extent, buffer, sql);
+    }
+
+    @Override
+    public void encodeVectorTileAggregate(String alias, String layerName, String geometryColumn,
+            int extent, StringBuffer sql) {
+        delegate.encodeVectorTileAggregate(alias, layerName, geometryColumn, extent, sql);
+    }
+
     @Override
     public int getGeometryDimension(String schemaName, String tableName, String columnName,
             Connection cx) throws SQLException {
         return delegate.getGeometryDimension(schemaName, tableName, columnName, cx);
     }
 
+    @Override
+    public Map<String, Map<String, ColumnMetadata>> getGeometryColumnMetadata(Connection cx,
+            String schemaName) throws SQLException {
+        return delegate.getGeometryColumnMetadata(cx, schemaName);
+    }
+
     public boolean isFunctionEncodingEnabled() {
         return delegate.isFunctionEncodingEnabled();
     }
@@ -87,6 +87,24 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
      */
     public static final Param SIMPLIFY = new Param("Support on the fly geometry simplification", Boolean.class, 
             "When enabled, operations such as map rendering will pass a hint that will enable the usage of ST_Simplify", false, Boolean.TRUE);
+
+    /**
+     * Enables transferring the geometries as raw bytes instead of base64 encoded text
+     */
+    public static final Param BINARY_GEOMETRY = new Param("binary geometry", Boolean.class,
+            "Transfer geometries as raw bytea instead of base64 encoded text. Reduces the "
+                    + "decoding costs, and the network traffic when the driver uses the binary "
+                    + "transfer protocol for bytea values (e.g., with prepared statements).",
+            false, Boolean.FALSE, new KVP(Param.LEVEL, "advanced"));
+
+    /**
+     * Enables usage of ST_AsTWKB to transfer the geometries simplified by ST_Simplify
+     */
+    public static final Param TWKB = new Param("twkb simplified geometries", Boolean.class,
+            "When on the fly geometry simplification is used, transfer the simplified geometries "
+                    + "with ST_AsTWKB, rounding the coordinates to a precision matching the "
+                    + "simplification distance (requires PostGIS 2.2+)", false, Boolean.FALSE,
+            new KVP(Param.LEVEL, "advanced"));
     
     @Override
     protected SQLDialect createSQLDialect(JDBCDataStore dataStore) {
@@ -158,6 +176,12 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         // check geometry simplification (on by default)
         Boolean simplify = (Boolean) SIMPLIFY.lookUp(params);
         dialect.setSimplifyEnabled(simplify == null || simplify);
+
+        // check geometry transfer formats (off by default)
+        Boolean binaryGeometry = (Boolean) BINARY_GEOMETRY.lookUp(params);
+        dialect.setBinaryGeometryEnabled(Boolean.TRUE.equals(binaryGeometry));
+        Boolean twkb = (Boolean) TWKB.lookUp(params);
+        dialect.setTWKBEnabled(Boolean.TRUE.equals(twkb));
         
         // encode BBOX filter with wrapping ST_Envelope (GEOT-5167)
         Boolean encodeBBOXAsEnvelope = false;
@@ -183,8 +207,11 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         parameters.put(PORT.key, PORT);
         parameters.put(PREPARED_STATEMENTS.key, PREPARED_STATEMENTS);
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
+        parameters.put(PREPARED_FILTER_CACHE.key, PREPARED_FILTER_CACHE);
         parameters.put(ENCODE_FUNCTIONS.key, ENCODE_FUNCTIONS);
         parameters.put(SIMPLIFY.key, SIMPLIFY);
+        parameters.put(BINARY_GEOMETRY.key, BINARY_GEOMETRY);
+        parameters.put(TWKB.key, TWKB);
         parameters.put(CREATE_DB_IF_MISSING.key, CREATE_DB_IF_MISSING);
         parameters.put(CREATE_PARAMS.key, CREATE_PARAMS);
     }
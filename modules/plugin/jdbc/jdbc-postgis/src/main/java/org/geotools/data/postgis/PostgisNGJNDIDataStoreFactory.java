@@ -44,7 +44,10 @@ public class PostgisNGJNDIDataStoreFactory extends JDBCJNDIDataStoreFactory {
         parameters.put(LOOSEBBOX.key, LOOSEBBOX);
         parameters.put(ESTIMATED_EXTENTS.key, ESTIMATED_EXTENTS);
         parameters.put(PREPARED_STATEMENTS.key, PREPARED_STATEMENTS);
+        parameters.put(PREPARED_FILTER_CACHE.key, PREPARED_FILTER_CACHE);
         parameters.put(ENCODE_FUNCTIONS.key, ENCODE_FUNCTIONS);
         parameters.put(SIMPLIFY.key, SIMPLIFY);
+        parameters.put(BINARY_GEOMETRY.key, BINARY_GEOMETRY);
+        parameters.put(TWKB.key, TWKB);
     }
 }
@@ -0,0 +1,287 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.ParseException;
+
+/**
+ * Reads geometries in the Tiny Well Known Binary format, as produced by the PostGIS
+ * <code>ST_AsTWKB</code> function (see https://github.com/TWKB/Specification). Ordinates are
+ * decoded using the precision found in the header, M values are skipped, rings left open by the
+ * quantization are closed and rings collapsed below four points are dropped.
+ * <p>
+ * Instances are not thread safe.
+ */
+public class TWKBReader {
+
+    static final int POINT = 1;
+
+    static final int LINESTRING = 2;
+
+    static final int POLYGON = 3;
+
+    static final int MULTIPOINT = 4;
+
+    static final int MULTILINESTRING = 5;
+
+    static final int MULTIPOLYGON = 6;
+
+    static final int GEOMETRYCOLLECTION = 7;
+
+    static final int BBOX = 0x01;
+
+    static final int SIZE = 0x02;
+
+    static final int IDLIST = 0x04;
+
+    static final int EXTENDED_DIMS = 0x08;
+
+    static final int EMPTY = 0x10;
+
+    GeometryFactory factory;
+
+    byte[] bytes;
+
+    int offset;
+
+    /* the state of the geometry being read */
+
+    int dimensions;
+
+    boolean hasZ;
+
+    double scale;
+
+    double scaleZ;
+
+    long[] previous = new long[4];
+
+    public TWKBReader() {
+        this(new GeometryFactory());
+    }
+
+    public TWKBReader(GeometryFactory factory) {
+        this.factory = factory;
+    }
+
+    public void setGeometryFactory(GeometryFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Parses the TWKB encoded geometry
+     *
+     * @param bytes
+     * @return
+     * @throws ParseException
+     */
+    public Geometry read(byte[] bytes) throws ParseException {
+        this.bytes = bytes;
+        this.offset = 0;
+        try {
+            Geometry geometry = readGeometry();
+            if (offset != bytes.length) {
+                throw new ParseException("Found " + (bytes.length - offset)
+                        + " extra bytes after the TWKB geometry");
+            }
+            return geometry;
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new ParseException("Unexpected end of the TWKB geometry");
+        } finally {
+            this.bytes = null;
+        }
+    }
+
+    private Geometry readGeometry() throws ParseException {
+        int typeAndPrecision = bytes[offset++] & 0xFF;
+        int type = typeAndPrecision & 0x0F;
+        scale = Math.pow(10, unzigzag(typeAndPrecision >> 4));
+
+        int metadata = bytes[offset++] & 0xFF;
+        hasZ = false;
+        dimensions = 2;
+        scaleZ = 1;
+        if ((metadata & EXTENDED_DIMS) != 0) {
+            int extended = bytes[offset++] & 0xFF;
+            hasZ = (extended & 0x01) != 0;
+            boolean hasM = (extended & 0x02) != 0;
+            if (hasZ) {
+                dimensions++;
+                scaleZ = Math.pow(10, (extended >> 2) & 0x07);
+            }
+            if (hasM) {
+                dimensions++;
+            }
+        }
+        if ((metadata & SIZE) != 0) {
+            readUnsignedVarInt();
+        }
+        if ((metadata & BBOX) != 0) {
+            // min and delta for each dimension, not needed to build the geometry
+            for (int i = 0; i < dimensions * 2; i++) {
+                readUnsignedVarInt();
+            }
+        }
+        boolean empty = (metadata & EMPTY) != 0;
+        boolean idList = (metadata & IDLIST) != 0;
+        for (int i = 0; i < previous.length; i++) {
+            previous[i] = 0;
+        }
+
+        switch (type) {
+        case POINT:
+            return empty ? factory.createPoint((Coordinate) null) : readPoint();
+        case LINESTRING:
+            return empty ? factory.createLineString((Coordinate[]) null) : readLineString();
+        case POLYGON:
+            return empty ? factory.createPolygon(null, null) : readPolygon();
+        case MULTIPOINT: {
+            Point[] points = new Point[empty ? 0 : readCount(idList)];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = readPoint();
+            }
+            return factory.createMultiPoint(points);
+        }
+        case MULTILINESTRING: {
+            LineString[] lines = new LineString[empty ? 0 : readCount(idList)];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = readLineString();
+            }
+            return factory.createMultiLineString(lines);
+        }
+        case MULTIPOLYGON: {
+            Polygon[] polygons = new Polygon[empty ? 0 : readCount(idList)];
+            for (int i = 0; i < polygons.length; i++) {
+                polygons[i] = readPolygon();
+            }
+            return factory.createMultiPolygon(polygons);
+        }
+        case GEOMETRYCOLLECTION: {
+            // each member is a full TWKB geometry, with its own header
+            Geometry[] geometries = new Geometry[empty ? 0 : readCount(idList)];
+            for (int i = 0; i < geometries.length; i++) {
+                geometries[i] = readGeometry();
+            }
+            return factory.createGeometryCollection(geometries);
+        }
+        default:
+            throw new ParseException("Unknown TWKB geometry type " + type);
+        }
+    }
+
+    /**
+     * Reads the number of members of a collection, skipping the id list if present
+     */
+    private int readCount(boolean idList) {
+        int count = (int) readUnsignedVarInt();
+        if (idList) {
+            for (int i = 0; i < count; i++) {
+                readUnsignedVarInt();
+            }
+        }
+        return count;
+    }
+
+    private Point readPoint() {
+        return factory.createPoint(readCoordinates(1));
+    }
+
+    private LineString readLineString() {
+        int count = (int) readUnsignedVarInt();
+        return factory.createLineString(readCoordinates(count));
+    }
+
+    private Polygon readPolygon() {
+        int ringCount = (int) readUnsignedVarInt();
+        LinearRing shell = null;
+        LinearRing[] holes = new LinearRing[Math.max(0, ringCount - 1)];
+        int holeCount = 0;
+        for (int i = 0; i < ringCount; i++) {
+            LinearRing ring = readRing();
+            if (i == 0) {
+                shell = ring;
+            } else if (ring != null) {
+                holes[holeCount++] = ring;
+            }
+        }
+        if (shell == null) {
+            return factory.createPolygon(null, null);
+        }
+        if (holeCount < holes.length) {
+            LinearRing[] resized = new LinearRing[holeCount];
+            System.arraycopy(holes, 0, resized, 0, holeCount);
+            holes = resized;
+        }
+        return factory.createPolygon(shell, holes);
+    }
+
+    private LinearRing readRing() {
+        int count = (int) readUnsignedVarInt();
+        Coordinate[] coordinates = readCoordinates(count);
+        if (count > 0 && !coordinates[0].equals2D(coordinates[count - 1])) {
+            Coordinate[] closed = new Coordinate[count + 1];
+            System.arraycopy(coordinates, 0, closed, 0, count);
+            closed[count] = new Coordinate(coordinates[0]);
+            coordinates = closed;
+        }
+        if (coordinates.length < 4) {
+            return null;
+        }
+        return factory.createLinearRing(coordinates);
+    }
+
+    /**
+     * Reads delta encoded coordinates, the deltas keep on going across the parts of a geometry
+     */
+    private Coordinate[] readCoordinates(int count) {
+        Coordinate[] coordinates = new Coordinate[count];
+        for (int i = 0; i < count; i++) {
+            for (int d = 0; d < dimensions; d++) {
+                previous[d] += unzigzag(readUnsignedVarInt());
+            }
+            Coordinate c = new Coordinate(previous[0] / scale, previous[1] / scale);
+            if (hasZ) {
+                c.z = previous[2] / scaleZ;
+            }
+            coordinates[i] = c;
+        }
+        return coordinates;
+    }
+
+    private long readUnsignedVarInt() {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[offset++];
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
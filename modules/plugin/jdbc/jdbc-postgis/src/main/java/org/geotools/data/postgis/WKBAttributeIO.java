@@ -44,19 +44,39 @@ import com.vividsolutions.jts.io.WKBWriter;
  */
 public class WKBAttributeIO {
     WKBReader wkbr;
+    TWKBReader twkbr;
     ByteArrayInStream inStream = new ByteArrayInStream(new byte[0]);
     GeometryFactory gf;
+    boolean base64EncodingEnabled = true;
 
     public WKBAttributeIO() {
         this(new GeometryFactory());
     }
     
     public WKBAttributeIO(GeometryFactory gf) {
+        this.gf = gf;
         wkbr = new WKBReader(gf);
     }
     
     public void setGeometryFactory(GeometryFactory gf) {
+        this.gf = gf;
         wkbr = new WKBReader(gf);
+        if (twkbr != null) {
+            twkbr.setGeometryFactory(gf);
+        }
+    }
+
+    public boolean isBase64EncodingEnabled() {
+        return base64EncodingEnabled;
+    }
+
+    /**
+     * Sets whether the geometry columns are base64 encoded text (the default), or raw bytes
+     * 
+     * @param base64EncodingEnabled
+     */
+    public void setBase64EncodingEnabled(boolean base64EncodingEnabled) {
+        this.base64EncodingEnabled = base64EncodingEnabled;
     }
 
     /**
@@ -84,6 +104,32 @@ public class WKBAttributeIO {
         }
     }
 
+    /**
+     * This method will convert a Tiny Well Known Binary representation to a JTS Geometry object.
+     */
+    private Geometry twkb2Geometry(byte[] twkbBytes) throws IOException {
+        if (twkbBytes == null)
+            return null;
+        if (twkbr == null) {
+            twkbr = new TWKBReader(gf);
+        }
+        try {
+            return twkbr.read(twkbBytes);
+        } catch (Exception e) {
+            throw new DataSourceException("An exception occurred while parsing TWKB data", e);
+        }
+    }
+
+    /**
+     * Returns the column bytes, decoding them from base64 if necessary
+     */
+    private byte[] getBytes(byte[] bytes) {
+        if (bytes == null || !base64EncodingEnabled) {
+            return bytes;
+        }
+        return Base64.decode(bytes);
+    }
+
     /**
      * @see org.geotools.data.jdbc.attributeio.AttributeIO#read(java.sql.ResultSet,
      *      int)
@@ -93,7 +139,7 @@ public class WKBAttributeIO {
             byte bytes[] = rs.getBytes(columnName);
             if (bytes == null) // ie. its a null column -> return a null geometry!
                 return null;
-            return wkb2Geometry(Base64.decode(bytes));
+            return wkb2Geometry(getBytes(bytes));
         } catch (SQLException e) {
             throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
         }
@@ -108,7 +154,29 @@ public class WKBAttributeIO {
             byte bytes[] = rs.getBytes(columnIndex);
             if (bytes == null) // ie. its a null column -> return a null geometry!
                 return null;
-            return wkb2Geometry(Base64.decode(bytes));
+            return wkb2Geometry(getBytes(bytes));
+        } catch (SQLException e) {
+            throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
+        }
+    }
+
+    /**
+     * Reads a geometry encoded with <code>ST_AsTWKB</code>
+     */
+    public Object readTWKB(ResultSet rs, String columnName) throws IOException {
+        try {
+            return twkb2Geometry(getBytes(rs.getBytes(columnName)));
+        } catch (SQLException e) {
+            throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
+        }
+    }
+
+    /**
+     * Reads a geometry encoded with <code>ST_AsTWKB</code>
+     */
+    public Object readTWKB(ResultSet rs, int columnIndex) throws IOException {
+        try {
+            return twkb2Geometry(getBytes(rs.getBytes(columnIndex)));
         } catch (SQLException e) {
             throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
         }
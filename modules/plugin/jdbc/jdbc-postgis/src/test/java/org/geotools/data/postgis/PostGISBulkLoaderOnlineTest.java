@@ -0,0 +1,159 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.Hints;
+import org.geotools.feature.DefaultFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.jdbc.JDBCFeatureStore;
+import org.geotools.jdbc.JDBCTestSetup;
+import org.geotools.jdbc.JDBCTestSupport;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.FilterFactory;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+public class PostGISBulkLoaderOnlineTest extends JDBCTestSupport {
+
+    @Override
+    protected JDBCTestSetup createTestSetup() {
+        return new PostGISTestSetup();
+    }
+
+    public void testLoad() throws Exception {
+        JDBCFeatureStore store = (JDBCFeatureStore) dataStore.getFeatureSource(tname("ft1"));
+        int loaded = new PostGISBulkLoader(store).load(buildFeatures(store, 100, false));
+        assertEquals(100, loaded);
+        assertEquals(103, store.getCount(Query.ALL));
+
+        FilterFactory ff = dataStore.getFilterFactory();
+        SimpleFeatureCollection features = store.getFeatures(ff.equals(
+                ff.property(aname("stringProperty")), ff.literal("feature\t42\nline")));
+        try (SimpleFeatureIterator it = features.features()) {
+            assertTrue(it.hasNext());
+            SimpleFeature f = it.next();
+            assertEquals(42, ((Number) f.getAttribute(aname("intProperty"))).intValue());
+            assertEquals(4.2, ((Number) f.getAttribute(aname("doubleProperty"))).doubleValue(),
+                    0d);
+            Point p = (Point) f.getDefaultGeometry();
+            assertEquals(new Coordinate(42, 42), p.getCoordinate());
+            assertFalse(it.hasNext());
+        }
+
+        // the generated keys do not clash with the ones generated by the regular inserts
+        store.addFeatures(buildFeatures(store, 1, false));
+        assertEquals(104, store.getCount(Query.ALL));
+    }
+
+    public void testLoadProvidedFid() throws Exception {
+        JDBCFeatureStore store = (JDBCFeatureStore) dataStore.getFeatureSource(tname("ft1"));
+        PostGISBulkLoader loader = new PostGISBulkLoader(store);
+        loader.setUseProvidedFid(true);
+        loader.load(buildFeatures(store, 10, true));
+
+        FilterFactory ff = dataStore.getFilterFactory();
+        SimpleFeatureCollection features = store.getFeatures(ff.id(ff.featureId(tname("ft1")
+                + ".1005")));
+        try (SimpleFeatureIterator it = features.features()) {
+            assertTrue(it.hasNext());
+            assertEquals(5, ((Number) it.next().getAttribute(aname("intProperty"))).intValue());
+        }
+    }
+
+    public void testRollback() throws Exception {
+        JDBCFeatureStore store = (JDBCFeatureStore) dataStore.getFeatureSource(tname("ft1"));
+        try (Transaction tx = new DefaultTransaction()) {
+            store.setTransaction(tx);
+            assertEquals(50, new PostGISBulkLoader(store).load(buildFeatures(store, 50, false)));
+            assertEquals(53, store.getCount(Query.ALL));
+            tx.rollback();
+        } finally {
+            store.setTransaction(Transaction.AUTO_COMMIT);
+        }
+        assertEquals(3, store.getCount(Query.ALL));
+    }
+
+    public void testLoadTextFormat() throws Exception {
+        // numeric columns cannot be sent in binary format, the loader switches to text
+        try (Connection cx = dataStore.getDataSource().getConnection();
+                Statement st = cx.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS \"bulk_text\"");
+            st.execute("CREATE TABLE \"bulk_text\"(\"id\" serial primary key, "
+                    + "\"geom\" geometry(Point, 4326), \"amount\" numeric, \"name\" varchar)");
+        }
+        try {
+            JDBCFeatureStore store = (JDBCFeatureStore) dataStore.getFeatureSource("bulk_text");
+            SimpleFeatureBuilder fb = new SimpleFeatureBuilder(store.getSchema());
+            DefaultFeatureCollection features = new DefaultFeatureCollection();
+            GeometryFactory gf = new GeometryFactory();
+            for (int i = 0; i < 10; i++) {
+                fb.set("geom", gf.createPoint(new Coordinate(i, i)));
+                fb.set("amount", new BigDecimal(i + ".5"));
+                fb.set("name", i % 2 == 0 ? "back\\slash " + i : null);
+                features.add(fb.buildFeature(null));
+            }
+            assertEquals(10, new PostGISBulkLoader(store).load(features));
+
+            FilterFactory ff = dataStore.getFilterFactory();
+            SimpleFeatureCollection loaded = store.getFeatures(ff.equals(ff.property("name"),
+                    ff.literal("back\\slash 4")));
+            try (SimpleFeatureIterator it = loaded.features()) {
+                assertTrue(it.hasNext());
+                SimpleFeature f = it.next();
+                assertEquals(new BigDecimal("4.5"), f.getAttribute("amount"));
+                assertEquals(new Coordinate(4, 4), ((Point) f.getDefaultGeometry())
+                        .getCoordinate());
+            }
+            assertEquals(5, store.getCount(new Query("bulk_text", ff.isNull(ff
+                    .property("name")))));
+        } finally {
+            try (Connection cx = dataStore.getDataSource().getConnection();
+                    Statement st = cx.createStatement()) {
+                st.execute("DROP TABLE \"bulk_text\"");
+            }
+        }
+    }
+
+    DefaultFeatureCollection buildFeatures(JDBCFeatureStore store, int count, boolean fids) {
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(store.getSchema());
+        DefaultFeatureCollection features = new DefaultFeatureCollection();
+        GeometryFactory gf = new GeometryFactory();
+        for (int i = 0; i < count; i++) {
+            fb.set(aname("geometry"), gf.createPoint(new Coordinate(i, i)));
+            fb.set(aname("intProperty"), i);
+            fb.set(aname("doubleProperty"), i / 10d);
+            fb.set(aname("stringProperty"), "feature\t" + i + "\nline");
+            SimpleFeature feature = fb.buildFeature(fids ? tname("ft1") + "." + (1000 + i) : null);
+            if (fids) {
+                feature.getUserData().put(Hints.USE_PROVIDED_FID, true);
+            }
+            features.add(feature);
+        }
+        return features;
+    }
+}
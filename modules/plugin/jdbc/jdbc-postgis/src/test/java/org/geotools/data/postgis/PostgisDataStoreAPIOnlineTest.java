@@ -17,6 +17,8 @@
 package org.geotools.data.postgis;
 
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.geotools.data.Query;
 import org.geotools.data.simple.SimpleFeatureCollection;
@@ -99,4 +101,68 @@ public class PostgisDataStoreAPIOnlineTest extends JDBCDataStoreAPIOnlineTest {
         assertTrue(original.getNumPoints()>=simplified.getNumPoints());
     }
 
+    public void testBinaryGeometry() throws Exception {
+        PostGISDialect dialect = ((PostGISDialect) dataStore.getSQLDialect());
+        SimpleFeatureSource fs = dataStore.getFeatureSource(tname("road"));
+        List<Geometry> expected = readGeometries(fs, Query.ALL);
+
+        dialect.setBinaryGeometryEnabled(true);
+        try {
+            List<Geometry> actual = readGeometries(fs, Query.ALL);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertTrue(expected.get(i).equalsExact(actual.get(i)));
+            }
+        } finally {
+            dialect.setBinaryGeometryEnabled(false);
+        }
+    }
+
+    public void testTWKBSimplification() throws Exception {
+        Connection cx = dataStore.getDataSource().getConnection();
+        PostGISDialect dialect = ((PostGISDialect) dataStore.getSQLDialect());
+        Version version = dialect.getVersion(cx);
+        dataStore.closeSafe(cx);
+        if (version.compareTo(PostGISDialect.V_2_2_0) < 0) {
+            return;
+        }
+
+        SimpleFeatureSource fs = dataStore.getFeatureSource(tname("lake"));
+        if (fs.getSupportedHints().contains(Hints.GEOMETRY_SIMPLIFICATION) == false)
+            return;
+
+        double distance = 0.01;
+        Query query = new Query();
+        query.setHints(new Hints(Hints.GEOMETRY_SIMPLIFICATION, distance));
+        List<Geometry> expected = readGeometries(fs, query);
+
+        for (boolean binary : new boolean[] { false, true }) {
+            dialect.setTWKBEnabled(true);
+            dialect.setBinaryGeometryEnabled(binary);
+            try {
+                List<Geometry> actual = readGeometries(fs, query);
+                assertEquals(expected.size(), actual.size());
+                for (int i = 0; i < expected.size(); i++) {
+                    // coordinates are rounded to a precision below the simplification distance
+                    assertTrue(expected.get(i).equalsExact(actual.get(i), distance));
+                }
+            } finally {
+                dialect.setTWKBEnabled(false);
+                dialect.setBinaryGeometryEnabled(false);
+            }
+        }
+    }
+
+    List<Geometry> readGeometries(SimpleFeatureSource fs, Query query) throws Exception {
+        List<Geometry> result = new ArrayList<Geometry>();
+        SimpleFeatureIterator iterator = fs.getFeatures(query).features();
+        try {
+            while (iterator.hasNext()) {
+                result.add((Geometry) iterator.next().getDefaultGeometry());
+            }
+        } finally {
+            iterator.close();
+        }
+        return result;
+    }
 }
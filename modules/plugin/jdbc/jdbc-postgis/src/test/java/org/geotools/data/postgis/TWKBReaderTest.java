@@ -0,0 +1,142 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class TWKBReaderTest {
+
+    TWKBReader reader = new TWKBReader();
+
+    @Test
+    public void testPoint() throws Exception {
+        assertTWKB("POINT(1 2)", 0x01, 0x00, 0x02, 0x04);
+    }
+
+    @Test
+    public void testPointPrecision() throws Exception {
+        // precision 2, x = 150, y = 225
+        assertTWKB("POINT(1.5 2.25)", 0x41, 0x00, 0xAC, 0x02, 0xC2, 0x03);
+    }
+
+    @Test
+    public void testNegativePrecision() throws Exception {
+        // precision -1, x = 12, y = -3
+        assertTWKB("POINT(120 -30)", 0x11, 0x00, 0x18, 0x05);
+    }
+
+    @Test
+    public void testPoint3D() throws Exception {
+        Geometry g = read(0x01, 0x08, 0x01, 0x02, 0x04, 0x06);
+        Coordinate c = g.getCoordinate();
+        assertEquals(new Coordinate(1, 2), c);
+        assertEquals(3, c.z, 0d);
+    }
+
+    @Test
+    public void testPointM() throws Exception {
+        // the M value is skipped
+        assertTWKB("POINT(1 2)", 0x01, 0x08, 0x02, 0x02, 0x04, 0x06);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertTrue(read(0x01, 0x10).isEmpty());
+        assertTrue(read(0x03, 0x10).isEmpty());
+        assertTrue(read(0x06, 0x10).isEmpty());
+    }
+
+    @Test
+    public void testLineString() throws Exception {
+        assertTWKB("LINESTRING(1 1, 5 5)", 0x02, 0x00, 0x02, 0x02, 0x02, 0x08, 0x08);
+    }
+
+    @Test
+    public void testLineStringBBOXAndSize() throws Exception {
+        assertTWKB("LINESTRING(1 1, 5 5)", 0x02, 0x03, 0x09, 0x02, 0x08, 0x02, 0x08, 0x02, 0x02,
+                0x02, 0x08, 0x08);
+    }
+
+    @Test
+    public void testPolygon() throws Exception {
+        assertTWKB("POLYGON((0 0, 1 0, 1 1, 0 1, 0 0))", 0x03, 0x00, 0x01, 0x05, 0x00, 0x00,
+                0x02, 0x00, 0x00, 0x02, 0x01, 0x00, 0x00, 0x01);
+    }
+
+    @Test
+    public void testPolygonOpenRing() throws Exception {
+        assertTWKB("POLYGON((0 0, 1 0, 1 1, 0 1, 0 0))", 0x03, 0x00, 0x01, 0x04, 0x00, 0x00,
+                0x02, 0x00, 0x00, 0x02, 0x01, 0x00);
+    }
+
+    @Test
+    public void testPolygonCollapsedHole() throws Exception {
+        // the second ring has only two points, and gets dropped
+        assertTWKB("POLYGON((0 0, 1 0, 1 1, 0 1, 0 0))", 0x03, 0x00, 0x02, 0x05, 0x00, 0x00,
+                0x02, 0x00, 0x00, 0x02, 0x01, 0x00, 0x00, 0x01, 0x02, 0x00, 0x00, 0x00, 0x00);
+    }
+
+    @Test
+    public void testMultiPointIdList() throws Exception {
+        assertTWKB("MULTIPOINT((0 0), (1 1))", 0x04, 0x04, 0x02, 0x0A, 0x0C, 0x00, 0x00, 0x02,
+                0x02);
+    }
+
+    @Test
+    public void testMultiLineString() throws Exception {
+        // the deltas keep going across the parts
+        assertTWKB("MULTILINESTRING((1 1, 5 5), (6 6, 7 7))", 0x05, 0x00, 0x02, 0x02, 0x02, 0x02,
+                0x08, 0x08, 0x02, 0x02, 0x02, 0x02, 0x02);
+    }
+
+    @Test
+    public void testGeometryCollection() throws Exception {
+        assertTWKB("GEOMETRYCOLLECTION(POINT(1 2), LINESTRING(1 1, 5 5))", 0x07, 0x00, 0x02,
+                0x01, 0x00, 0x02, 0x04, 0x02, 0x00, 0x02, 0x02, 0x02, 0x08, 0x08);
+    }
+
+    @Test(expected = ParseException.class)
+    public void testTruncated() throws Exception {
+        read(0x02, 0x00, 0x02, 0x02, 0x02);
+    }
+
+    @Test(expected = ParseException.class)
+    public void testUnknownType() throws Exception {
+        read(0x09, 0x00);
+    }
+
+    void assertTWKB(String expected, int... bytes) throws Exception {
+        Geometry g = read(bytes);
+        Geometry e = new WKTReader().read(expected);
+        assertTrue("Expected " + e + " but got " + g, e.equalsExact(g, 1e-9));
+    }
+
+    Geometry read(int... values) throws ParseException {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return reader.read(bytes);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.shapefile.dbf.DbaseFileHeader;
+import org.geotools.data.shapefile.dbf.DbaseFileReader;
+import org.geotools.data.shapefile.files.FileWriter;
+import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.shapefile.files.StorageFile;
+import org.geotools.data.shapefile.index.attribute.AttributeIndex.KeyType;
+import org.geotools.data.shapefile.index.attribute.AttributeIndexWriter;
+import org.geotools.data.shapefile.shp.IndexFile;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Builds the attribute index (.aix) for a set of dbf columns. Only numeric and text columns can be
+ * indexed, other columns are skipped with a warning.
+ */
+class AttributeIndexer implements FileWriter {
+
+    static final Logger LOGGER = Logging.getLogger(AttributeIndexer.class);
+
+    ShapefileDataStore store;
+
+    public AttributeIndexer(ShapefileDataStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Returns the key type used to index the specified dbf field, or null if the field cannot be
+     * indexed
+     */
+    static KeyType getKeyType(DbaseFileHeader header, int field) {
+        Class<?> binding = header.getFieldClass(field);
+        if (Number.class.isAssignableFrom(binding)) {
+            return KeyType.NUMBER;
+        } else if (binding == String.class) {
+            return KeyType.STRING;
+        }
+        return null;
+    }
+
+    /**
+     * Indexes the specified columns
+     *
+     * @param columns The dbf column names
+     * @return The number of indexed records
+     * @throws IOException
+     */
+    public int index(List<String> columns) throws IOException {
+        ShapefileSetManager shpManager = store.shpManager;
+        DbaseFileReader dbf = shpManager.openDbfReader(false);
+        if (dbf == null) {
+            throw new IOException("Cannot build an attribute index without a dbf file");
+        }
+        IndexFile shx = null;
+        StorageFile storage = store.shpFiles.getStorageFile(ShpFileType.AIX);
+        int cnt = 0;
+        try {
+            shx = shpManager.openIndexFile();
+            if (shx == null) {
+                throw new IOException("Cannot build an attribute index without a shx file");
+            }
+
+            // map the column names to the dbf fields
+            DbaseFileHeader header = dbf.getHeader();
+            AttributeIndexWriter writer = new AttributeIndexWriter();
+            List<Integer> fields = new ArrayList<Integer>();
+            for (String column : columns) {
+                int field = -1;
+                for (int i = 0; i < header.getNumFields(); i++) {
+                    if (header.getFieldName(i).equals(column)) {
+                        field = i;
+                        break;
+                    }
+                }
+                KeyType type = field >= 0 ? getKeyType(header, field) : null;
+                if (type == null) {
+                    LOGGER.warning("Cannot index column " + column + " of "
+                            + store.getTypeName().getLocalPart()
+                            + ", it's either missing, or it's not a number or text column");
+                } else {
+                    writer.addColumn(column, type);
+                    fields.add(field);
+                }
+            }
+            int[] selected = new int[fields.size()];
+            for (int i = 0; i < selected.length; i++) {
+                selected[i] = fields.get(i);
+            }
+            dbf.setSelectedFields(selected);
+
+            // collect the values, records are paired with shapes by position
+            int records = shx.getRecordCount();
+            while (dbf.hasNext() && cnt < records) {
+                DbaseFileReader.Row row = dbf.readRow();
+                if (!row.isDeleted()) {
+                    int offset = shx.getOffsetInBytes(cnt);
+                    for (int i = 0; i < selected.length; i++) {
+                        writer.add(i, row.read(selected[i]), offset);
+                    }
+                }
+                cnt++;
+            }
+
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Writing attribute index on " + fields.size() + " columns for "
+                        + cnt + " records");
+            }
+            writer.write(storage.getFile());
+        } finally {
+            dbf.close();
+            if (shx != null) {
+                shx.close();
+            }
+        }
+
+        storage.replaceOriginal();
+
+        return cnt;
+    }
+
+    public String id() {
+        return getClass().getName();
+    }
+}
@@ -1,6 +1,9 @@
 package org.geotools.data.shapefile;
 
+import static org.geotools.data.shapefile.files.ShpFileType.AIX;
+import static org.geotools.data.shapefile.files.ShpFileType.DBF;
 import static org.geotools.data.shapefile.files.ShpFileType.FIX;
+import static org.geotools.data.shapefile.files.ShpFileType.PRX;
 import static org.geotools.data.shapefile.files.ShpFileType.QIX;
 import static org.geotools.data.shapefile.files.ShpFileType.SHP;
 import static org.geotools.data.shapefile.files.ShpFileType.SHX;
@@ -8,8 +11,12 @@ import static org.geotools.data.shapefile.files.ShpFileType.SHX;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.TreeSet;
 import java.util.logging.Level;
@@ -27,14 +34,32 @@ import org.geotools.data.shapefile.index.CachedQuadTree;
 import org.geotools.data.shapefile.index.Data;
 import org.geotools.data.shapefile.index.DataDefinition;
 import org.geotools.data.shapefile.index.TreeException;
+import org.geotools.data.shapefile.index.attribute.AttributeIndex;
 import org.geotools.data.shapefile.index.quadtree.QuadTree;
 import org.geotools.data.shapefile.index.quadtree.StoreException;
 import org.geotools.data.shapefile.index.quadtree.fs.FileSystemIndexStore;
+import org.geotools.data.shapefile.index.rtree.PackedRTree;
 import org.geotools.data.shapefile.shp.IndexFile;
+import org.geotools.resources.NIOUtilities;
+import org.geotools.util.Converters;
 import org.geotools.util.NullProgressListener;
 import org.geotools.util.URLs;
 import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
 import org.opengis.filter.Id;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
 import org.opengis.filter.identity.Identifier;
 
 import com.vividsolutions.jts.geom.Envelope;
@@ -50,6 +75,69 @@ class IndexManager {
 
     static final int DEFAULT_MAX_QIX_CACHE_SIZE;
 
+    /**
+     * A range of values on a single attribute, extracted from a filter, that can be looked up in
+     * the attribute index. Equality is represented as a range with the same inclusive bounds.
+     */
+    static class AttributeRange {
+        String attribute;
+
+        Object low;
+
+        boolean lowInclusive;
+
+        Object high;
+
+        boolean highInclusive;
+
+        AttributeRange(String attribute, Object low, boolean lowInclusive, Object high,
+                boolean highInclusive) {
+            this.attribute = attribute;
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.high = high;
+            this.highInclusive = highInclusive;
+        }
+
+        boolean isEquality() {
+            return low != null && low.equals(high) && lowInclusive && highInclusive;
+        }
+
+        /**
+         * Narrows this range with another one on the same numeric attribute
+         */
+        void intersect(AttributeRange other) {
+            if (other.low != null) {
+                int cmp = low == null ? -1 : compare(low, other.low);
+                if (cmp < 0) {
+                    low = other.low;
+                    lowInclusive = other.lowInclusive;
+                } else if (cmp == 0) {
+                    lowInclusive &= other.lowInclusive;
+                }
+            }
+            if (other.high != null) {
+                int cmp = high == null ? 1 : compare(high, other.high);
+                if (cmp > 0) {
+                    high = other.high;
+                    highInclusive = other.highInclusive;
+                } else if (cmp == 0) {
+                    highInclusive &= other.highInclusive;
+                }
+            }
+        }
+
+        private int compare(Object o1, Object o2) {
+            return Double.compare(((Number) o1).doubleValue(), ((Number) o2).doubleValue());
+        }
+
+        @Override
+        public String toString() {
+            return (lowInclusive ? "[" : "(") + low + ", " + high + (highInclusive ? "]" : ")")
+                    + " on " + attribute;
+        }
+    }
+
     ShpFiles shpFiles;
 
     int maxQixCacheSize = DEFAULT_MAX_QIX_CACHE_SIZE;
@@ -96,12 +184,14 @@ class IndexManager {
     public boolean createSpatialIndex(boolean force) {
         // create index as needed
         try {
-            if (shpFiles.isLocal() && (isIndexStale(QIX) || force)) {
+            ShpFileType indexType = getSpatialIndexType();
+            if (shpFiles.isLocal() && (isIndexStale(indexType) || force)) {
                 ShapefileDataStoreFactory.LOGGER.fine("Creating spatial index for "
                         + shpFiles.get(SHP));
 
                 ShapeFileIndexer indexer = new ShapeFileIndexer();
                 indexer.setShapeFileName(shpFiles);
+                indexer.setIndexType(indexType);
                 indexer.index(false, new NullProgressListener());
 
                 return true;
@@ -180,7 +270,17 @@ class IndexManager {
      * @return
      */
     boolean isSpatialIndexAvailable() {
-        return shpFiles.isLocal() && shpFiles.exists(QIX);
+        return shpFiles.isLocal() && shpFiles.exists(getSpatialIndexType());
+    }
+
+    /**
+     * Returns the type of spatial index in use, either the .qix quadtree or the .prx packed
+     * R-tree
+     * 
+     * @return
+     */
+    ShpFileType getSpatialIndexType() {
+        return store.isPackedSpatialIndex() ? PRX : QIX;
     }
 
     /**
@@ -301,6 +401,10 @@ class IndexManager {
         // check if the spatial index needs recreating
         createSpatialIndex(false);
 
+        if (getSpatialIndexType() == PRX) {
+            return queryPackedRTree(bbox);
+        }
+
         if (cachedTree == null) {
             boolean canCache = false;
             URL treeURL = shpFiles.acquireRead(QIX, writer);
@@ -347,6 +451,286 @@ class IndexManager {
         return tmp;
     }
 
+    /**
+     * Queries the packed R-tree. The index file is memory mapped for the duration of the search
+     * only, the search is fully performed before returning, so that the mapping can be released
+     * right away and the index file does not stay locked
+     * 
+     * @param bbox
+     * @return The matching records, or null if the index is missing or the bbox contains the whole
+     *         index
+     * @throws IOException
+     * @throws TreeException
+     */
+    CloseableIterator<Data> queryPackedRTree(Envelope bbox) throws IOException, TreeException {
+        if (!shpFiles.isLocal() || !shpFiles.exists(PRX)) {
+            return null;
+        }
+
+        ReadableByteChannel channel = shpFiles.getReadChannel(PRX, writer);
+        try {
+            FileChannel fc = (FileChannel) channel;
+            MappedByteBuffer buffer = fc.map(MapMode.READ_ONLY, 0, fc.size());
+            try {
+                PackedRTree tree = new PackedRTree(buffer);
+                if (bbox.contains(tree.getBounds())) {
+                    return null;
+                }
+                return tree.search(bbox);
+            } finally {
+                NIOUtilities.clean(buffer, true);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Returns true if the attribute index is missing, or older than the .shp or .dbf files
+     */
+    boolean isAttributeIndexStale() {
+        if (isIndexStale(AIX)) {
+            return true;
+        }
+        URL indexURL = shpFiles.acquireRead(AIX, writer);
+        URL dbfURL = shpFiles.acquireRead(DBF, writer);
+        try {
+            File indexFile = URLs.urlToFile(indexURL);
+            File dbfFile = URLs.urlToFile(dbfURL);
+            return dbfFile.exists() && indexFile.lastModified() < dbfFile.lastModified();
+        } finally {
+            shpFiles.unlockRead(dbfURL, writer);
+            shpFiles.unlockRead(indexURL, writer);
+        }
+    }
+
+    /**
+     * Creates the attribute index on the columns configured in the store, if appropriate
+     * 
+     * @param force Forces the index re-creation even if the attribute index seems to be up to
+     *        date
+     * @return true if the attribute index has been created/updated
+     */
+    public boolean createAttributeIndex(boolean force) {
+        List<String> columns = store.getIndexedAttributes();
+        if (columns.isEmpty() || !shpFiles.isLocal() || !shpFiles.exists(DBF)) {
+            return false;
+        }
+        try {
+            if (force || isAttributeIndexStale()) {
+                LOGGER.fine("Creating attribute index on " + columns + " for "
+                        + shpFiles.get(SHP));
+                new AttributeIndexer(store).index(columns);
+                return true;
+            }
+        } catch (Throwable t) {
+            LOGGER.log(Level.SEVERE, t.getLocalizedMessage(), t);
+        }
+        return false;
+    }
+
+    /**
+     * Extracts from the filter a range on one of the indexed attributes. Equality and
+     * comparisons against numeric attributes, and case sensitive equality against text
+     * attributes, are supported, either as the whole filter or as one of the elements of a top
+     * level AND.
+     * 
+     * @param filter The filter
+     * @param schema The feature type, used to check the attribute types
+     * @return The range, or null if the filter cannot be answered by the attribute index
+     */
+    AttributeRange getAttributeRange(Filter filter, SimpleFeatureType schema) {
+        List<String> columns = store.getIndexedAttributes();
+        if (columns.isEmpty() || filter == null || !shpFiles.isLocal()) {
+            return null;
+        }
+        List<Filter> elements;
+        if (filter instanceof And) {
+            elements = ((And) filter).getChildren();
+        } else {
+            elements = Collections.singletonList(filter);
+        }
+        AttributeRange result = null;
+        for (Filter element : elements) {
+            AttributeRange range = toAttributeRange(element, schema, columns);
+            if (range == null) {
+                continue;
+            }
+            if (result == null) {
+                result = range;
+            } else if (result.attribute.equals(range.attribute)) {
+                if (result.low instanceof Number) {
+                    result.intersect(range);
+                }
+            } else if (range.isEquality() && !result.isEquality()) {
+                // equality is usually more selective
+                result = range;
+            }
+        }
+        return result;
+    }
+
+    private AttributeRange toAttributeRange(Filter filter, SimpleFeatureType schema,
+            List<String> columns) {
+        if (filter instanceof PropertyIsBetween) {
+            PropertyIsBetween between = (PropertyIsBetween) filter;
+            Class<?> binding = getIndexedBinding(between.getExpression(), schema, columns);
+            if (binding == null || !Number.class.isAssignableFrom(binding)) {
+                return null;
+            }
+            Double low = toNumber(between.getLowerBoundary());
+            Double high = toNumber(between.getUpperBoundary());
+            if (low == null || high == null) {
+                return null;
+            }
+            String name = ((PropertyName) between.getExpression()).getPropertyName();
+            return new AttributeRange(name, low, true, high, true);
+        } else if (filter instanceof BinaryComparisonOperator) {
+            BinaryComparisonOperator bc = (BinaryComparisonOperator) filter;
+            Expression property = bc.getExpression1();
+            Expression literal = bc.getExpression2();
+            boolean flipped = false;
+            if (!(property instanceof PropertyName)) {
+                property = bc.getExpression2();
+                literal = bc.getExpression1();
+                flipped = true;
+            }
+            Class<?> binding = getIndexedBinding(property, schema, columns);
+            if (binding == null || !(literal instanceof Literal)) {
+                return null;
+            }
+            String name = ((PropertyName) property).getPropertyName();
+            if (binding == String.class) {
+                if (!(filter instanceof PropertyIsEqualTo) || !bc.isMatchingCase()) {
+                    return null;
+                }
+                Object value = ((Literal) literal).getValue();
+                if (!(value instanceof String)) {
+                    return null;
+                }
+                return new AttributeRange(name, value, true, value, true);
+            }
+            Double value = toNumber(literal);
+            if (value == null) {
+                return null;
+            }
+            if (filter instanceof PropertyIsEqualTo) {
+                return new AttributeRange(name, value, true, value, true);
+            }
+            boolean less = filter instanceof PropertyIsLessThan
+                    || filter instanceof PropertyIsLessThanOrEqualTo;
+            boolean greater = filter instanceof PropertyIsGreaterThan
+                    || filter instanceof PropertyIsGreaterThanOrEqualTo;
+            if (!less && !greater) {
+                return null;
+            }
+            boolean inclusive = filter instanceof PropertyIsLessThanOrEqualTo
+                    || filter instanceof PropertyIsGreaterThanOrEqualTo;
+            // literal < property is the same as property > literal
+            if (less ^ flipped) {
+                return new AttributeRange(name, null, false, value, inclusive);
+            } else {
+                return new AttributeRange(name, value, inclusive, null, false);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the binding of the attribute if the expression is a property name referring to an
+     * indexed numeric or text attribute, null otherwise
+     */
+    private Class<?> getIndexedBinding(Expression expression, SimpleFeatureType schema,
+            List<String> columns) {
+        if (!(expression instanceof PropertyName)) {
+            return null;
+        }
+        String name = ((PropertyName) expression).getPropertyName();
+        if (!columns.contains(name)) {
+            return null;
+        }
+        AttributeDescriptor descriptor = schema.getDescriptor(name);
+        if (descriptor == null) {
+            return null;
+        }
+        Class<?> binding = descriptor.getType().getBinding();
+        if (Number.class.isAssignableFrom(binding) || binding == String.class) {
+            return binding;
+        }
+        return null;
+    }
+
+    private Double toNumber(Expression expression) {
+        if (!(expression instanceof Literal)) {
+            return null;
+        }
+        Object value = ((Literal) expression).getValue();
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return Converters.convert(value, Double.class);
+    }
+
+    /**
+     * Queries the attribute index. As for the packed R-tree, the index is memory mapped only for
+     * the duration of the search
+     * 
+     * @param range The range to be looked up, as returned by
+     *        {@link #getAttributeRange(Filter, SimpleFeatureType)}
+     * @return The matching records, or null if the index cannot be used
+     * @throws IOException
+     * @throws TreeException
+     */
+    CloseableIterator<Data> queryAttributeIndex(AttributeRange range) throws IOException,
+            TreeException {
+        if (store.isIndexCreationEnabled()) {
+            createAttributeIndex(false);
+        }
+        if (!shpFiles.exists(AIX) || isAttributeIndexStale()) {
+            return null;
+        }
+
+        CloseableIterator<Data> result = searchAttributeIndex(range);
+        if (result == null && store.isIndexCreationEnabled()) {
+            // the index might have been built before the column got configured
+            createAttributeIndex(true);
+            result = searchAttributeIndex(range);
+        }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Attribute index lookup for " + range
+                    + (result == null ? " not possible" : " performed"));
+        }
+        return result;
+    }
+
+    private CloseableIterator<Data> searchAttributeIndex(AttributeRange range)
+            throws IOException, TreeException {
+        ReadableByteChannel channel = shpFiles.getReadChannel(AIX, writer);
+        try {
+            FileChannel fc = (FileChannel) channel;
+            MappedByteBuffer buffer = fc.map(MapMode.READ_ONLY, 0, fc.size());
+            try {
+                AttributeIndex index = new AttributeIndex(buffer);
+                AttributeIndex.Column column = index.getColumn(range.attribute);
+                if (column == null) {
+                    return null;
+                }
+                byte[] low = column.encode(range.low);
+                byte[] high = column.encode(range.high);
+                if ((range.low != null && low == null) || (range.high != null && high == null)) {
+                    // the value cannot be represented in the index, so it cannot match either
+                    return new CloseableIteratorWrapper<Data>(
+                            Collections.<Data> emptyList().iterator());
+                }
+                return index.search(column, low, range.lowInclusive, high, range.highInclusive);
+            } finally {
+                NIOUtilities.clean(buffer, true);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
     /**
      * Convenience method for opening a QuadTree index.
      * 
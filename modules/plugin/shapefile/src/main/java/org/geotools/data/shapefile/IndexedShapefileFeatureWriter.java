@@ -110,6 +110,8 @@ class IndexedShapefileFeatureWriter extends ShapefileFeatureWriter implements Fi
                 }
 
                 deleteFile(ShpFileType.QIX);
+                deleteFile(ShpFileType.PRX);
+                deleteFile(ShpFileType.AIX);
             }
         } catch (Throwable e) {
             ShapefileDataStoreFactory.LOGGER.log(Level.WARNING, "Error creating Spatial index", e);
@@ -38,10 +38,12 @@ import org.geotools.data.shapefile.index.quadtree.QuadTree;
 import org.geotools.data.shapefile.index.quadtree.StoreException;
 import org.geotools.data.shapefile.index.quadtree.fs.FileSystemIndexStore;
 import org.geotools.data.shapefile.index.quadtree.fs.IndexHeader;
+import org.geotools.data.shapefile.index.rtree.PackedRTreeBuilder;
 import org.geotools.data.shapefile.shp.IndexFile;
 import org.geotools.data.shapefile.shp.ShapefileHeader;
 import org.geotools.data.shapefile.shp.ShapefileReader;
 import org.geotools.data.shapefile.shp.ShapefileReader.Record;
+import org.geotools.data.shapefile.shp.ShapeType;
 import org.geotools.util.NullProgressListener;
 import org.geotools.util.logging.Logging;
 import org.opengis.util.ProgressListener;
@@ -66,6 +68,7 @@ class ShapeFileIndexer implements FileWriter {
 	private String byteOrder;
     private boolean interactive = false;
     private ShpFiles shpFiles;
+    private ShpFileType indexType = ShpFileType.QIX;
 
     public static void main(String[] args) throws IOException {
         if ((args.length < 1) || (((args.length - 1) % 2) != 0)) {
@@ -79,9 +82,10 @@ class ShapeFileIndexer implements FileWriter {
 
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("-t")) {
-                // idx.setIdxType(IndexType.valueOf(args[++i]));
-                // just skip it for backwards compatibility
-                i++;
+                // old values (QUADTREE, RTREE) are accepted for backwards compatibility
+                if ("PRX".equalsIgnoreCase(args[++i])) {
+                    idx.setIndexType(ShpFileType.PRX);
+                }
             } else if (args[i].equals("-M")) {
                 idx.setMax(Integer.parseInt(args[++i]));
             } else if (args[i].equals("-s")) {
@@ -115,7 +119,7 @@ class ShapeFileIndexer implements FileWriter {
     }
 
     private static void usage() {
-        System.out.println("Usage: ShapeFileIndexer " + "-t <QIX> "
+        System.out.println("Usage: ShapeFileIndexer " + "-t <QIX | PRX> "
                 + "[-M <max tree depth>] "
                 + "[-b <byte order NL | NM>] " + "<shape file>"
                 + "[-s <max number of items in a leaf>]");
@@ -123,9 +127,9 @@ class ShapeFileIndexer implements FileWriter {
         System.out.println();
 
         System.out.println("Options:");
-        System.out.println("\t-t Index type: RTREE or QUADTREE");
+        System.out.println("\t-t Index type: QIX (quadtree, default) or PRX (packed R-tree)");
         System.out.println();
-        System.out.println("Following options apllies only to QUADTREE:");
+        System.out.println("Following options apllies only to QIX:");
         System.out.println("\t-b byte order to use: NL = LSB; "
                 + "NM = MSB (default)");
 
@@ -165,32 +169,36 @@ class ShapeFileIndexer implements FileWriter {
         ShapefileReader reader = null;
 
         // Temporary file for building...
-        StorageFile storage = shpFiles.getStorageFile(ShpFileType.QIX);
+        StorageFile storage = shpFiles.getStorageFile(indexType);
         File treeFile = storage.getFile();
 
         try {
             reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
             
-            if(max == -1) {
-                // compute a reasonable index max depth, considering a fully developed
-                // 10 levels one already contains 200k index nodes, good for indexing up
-                // to 3M features without consuming too much memory
-                int features = reader.getCount(0);
-                max = 1;
-                int nodes = 1;
-                while(nodes * leafSize < features) {
-                    max++;
-                    nodes *= 4;
-                }
-                if(max < 10) {
-                    max = 10;
+            if (indexType == ShpFileType.PRX) {
+                cnt = this.buildPackedRTree(reader, treeFile, verbose);
+            } else {
+                if(max == -1) {
+                    // compute a reasonable index max depth, considering a fully developed
+                    // 10 levels one already contains 200k index nodes, good for indexing up
+                    // to 3M features without consuming too much memory
+                    int features = reader.getCount(0);
+                    max = 1;
+                    int nodes = 1;
+                    while(nodes * leafSize < features) {
+                        max++;
+                        nodes *= 4;
+                    }
+                    if(max < 10) {
+                        max = 10;
+                    }
+                    
+                    reader.close();
+                    reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
                 }
                 
-                reader.close();
-                reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
+                cnt = this.buildQuadTree(reader, treeFile, verbose);
             }
-            
-            cnt = this.buildQuadTree(reader, treeFile, verbose);
         } finally {
             if (reader != null)
                 reader.close();
@@ -202,6 +210,37 @@ class ShapeFileIndexer implements FileWriter {
         return cnt;
     }
 
+    private int buildPackedRTree(ShapefileReader reader, File file, boolean verbose)
+            throws IOException {
+        LOGGER.fine("Building packed R-tree spatial index with node size " + leafSize
+                + " for file " + file.getAbsolutePath());
+
+        IndexFile shpIndex = new IndexFile(shpFiles, false);
+        int cnt = 0;
+        try {
+            PackedRTreeBuilder builder = new PackedRTreeBuilder(Math.max(2, leafSize));
+            while (reader.hasNext()) {
+                Record rec = reader.nextRecord();
+                // null shapes have no bounds and cannot match a bbox query anyways
+                if (rec.type != ShapeType.NULL) {
+                    builder.add(shpIndex.getOffsetInBytes(cnt), rec.minX, rec.minY, rec.maxX,
+                            rec.maxY);
+                }
+                cnt++;
+
+                if (verbose && ((cnt % 1000) == 0)) {
+                    System.out.print('.');
+                }
+            }
+            if (verbose)
+                System.out.println("done");
+            builder.write(file);
+        } finally {
+            shpIndex.close();
+        }
+        return cnt;
+    }
+
     private int buildQuadTree(ShapefileReader reader, File file, boolean verbose)
             throws IOException, StoreException {
         LOGGER.fine("Building quadtree spatial index with depth " +  max + " for file " + file.getAbsolutePath());
@@ -421,6 +460,23 @@ class ShapeFileIndexer implements FileWriter {
         this.byteOrder = byteOrder;
     }
 
+    /**
+     * Sets the type of spatial index to be built, either {@link ShpFileType#QIX} (the default) or
+     * {@link ShpFileType#PRX}
+     * 
+     * @param indexType
+     */
+    public void setIndexType(ShpFileType indexType) {
+        if (indexType != ShpFileType.QIX && indexType != ShpFileType.PRX) {
+            throw new IllegalArgumentException("Unsupported spatial index type " + indexType);
+        }
+        this.indexType = indexType;
+    }
+
+    public ShpFileType getIndexType() {
+        return indexType;
+    }
+
     public String id() {
         return getClass().getName();
     }
@@ -29,9 +29,12 @@ import java.net.URL;
 import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.List;
+import java.util.Spliterator;
 import java.util.TimeZone;
 import java.util.logging.Level;
 
@@ -46,6 +49,7 @@ import org.geotools.data.shapefile.dbf.DbaseFileHeader;
 import org.geotools.data.shapefile.files.ShpFileType;
 import org.geotools.data.shapefile.files.ShpFiles;
 import org.geotools.data.shapefile.files.StorageFile;
+import org.geotools.data.shapefile.shp.IndexFile;
 import org.geotools.data.shapefile.shp.ShapeType;
 import org.geotools.data.shapefile.shp.ShapefileWriter;
 import org.geotools.data.store.ContentDataStore;
@@ -113,6 +117,10 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
 
     boolean fidIndexed = true;
 
+    boolean packedSpatialIndex = false;
+
+    List<String> indexedAttributes = Collections.emptyList();
+
     IndexManager indexManager;
 
     ShapefileSetManager shpManager;
@@ -121,6 +129,8 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     
     long maxDbfSize = ShapefileFeatureWriter.DEFAULT_MAX_DBF_SIZE;
 
+    int parallelReadThreads = 1;
+
     public ShapefileDataStore(URL url) {
         shpFiles = new ShpFiles(url);
         if (TRACE_ENABLED) {
@@ -232,6 +242,62 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     }
 
 
+    /**
+     * The number of threads used to scan the shapefile when visiting it with mergeable aggregate
+     * visitors
+     * @return
+     */
+    public int getParallelReadThreads() {
+        return parallelReadThreads;
+    }
+
+    /**
+     * Sets the number of threads used to scan the shapefile when visiting it with aggregate visitors
+     * whose partial results can be merged (count, bounds, sum, min, max, unique). The records are
+     * split in ranges using the .shx file, each range is read by its own thread using a separate
+     * set of channels. A value of 1 (the default) disables parallel scans.
+     * @param parallelReadThreads
+     */
+    public void setParallelReadThreads(int parallelReadThreads) {
+        if (parallelReadThreads < 1) {
+            throw new IllegalArgumentException("The number of read threads must be positive");
+        }
+        this.parallelReadThreads = parallelReadThreads;
+    }
+
+    /**
+     * Returns a {@link Spliterator} over the features matching the query. The spliterator splits
+     * over the record ranges listed in the .shx file, opening a separate set of readers for each
+     * split, so it can be used to build a parallel stream via
+     * {@link java.util.stream.StreamSupport#stream(Spliterator, boolean)}. Sorting, paging and
+     * reprojection in the query are not supported.
+     * 
+     * @param query
+     * @return
+     * @throws IOException If the .shx file is not available
+     */
+    public Spliterator<SimpleFeature> getFeatureSpliterator(Query query) throws IOException {
+        if ((query.getSortBy() != null && query.getSortBy().length > 0)
+                || query.getStartIndex() != null || !query.isMaxFeaturesUnlimited()
+                || query.getCoordinateSystemReproject() != null) {
+            throw new IllegalArgumentException(
+                    "Sorting, paging and reprojection are not supported by the spliterator");
+        }
+        IndexFile shx = shpManager.openIndexFile();
+        if (shx == null) {
+            throw new IOException("The feature spliterator requires the .shx file");
+        }
+        int recordCount;
+        try {
+            recordCount = shx.getRecordCount();
+        } finally {
+            shx.close();
+        }
+        ShapefileFeatureSource source = new ShapefileFeatureSource(ensureEntry(getTypeName()),
+                shpFiles);
+        return new ShapefileFeatureSpliterator(source, query, 0, recordCount);
+    }
+
     public SimpleFeatureType getSchema() throws IOException {
         return getSchema(getTypeName());
     }
@@ -486,12 +552,59 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
         this.fidIndexed = fidIndexed;
     }
 
+    /**
+     * Returns true if the store uses the packed R-tree (.prx) spatial index instead of the .qix
+     * quadtree
+     */
+    public boolean isPackedSpatialIndex() {
+        return packedSpatialIndex;
+    }
+
+    /**
+     * When set to true the store will use (and create, if index creation is enabled) a memory
+     * mapped, Hilbert packed R-tree (.prx) as the spatial index, instead of the .qix quadtree.
+     * The packed R-tree is static, it gets rebuilt after any modification of the shapefile, so
+     * it's best suited for read mostly data.
+     * 
+     * @param packedSpatialIndex
+     */
+    public void setPackedSpatialIndex(boolean packedSpatialIndex) {
+        this.packedSpatialIndex = packedSpatialIndex;
+    }
+
+    /**
+     * Returns the names of the dbf columns covered by the attribute index (.aix), an empty list
+     * if the attribute index is disabled
+     */
+    public List<String> getIndexedAttributes() {
+        return indexedAttributes;
+    }
+
+    /**
+     * Sets the dbf columns to be covered by the attribute index (.aix). Equality and range
+     * filters against numeric columns, and equality filters against text columns, will look up
+     * the matching records in the index instead of scanning the whole file. The index is
+     * created on demand if index creation is enabled, and rebuilt whenever the shapefile
+     * changes.
+     * 
+     * @param indexedAttributes
+     */
+    public void setIndexedAttributes(String... indexedAttributes) {
+        if (indexedAttributes == null || indexedAttributes.length == 0) {
+            this.indexedAttributes = Collections.emptyList();
+        } else {
+            this.indexedAttributes = Collections.unmodifiableList(new ArrayList<String>(Arrays
+                    .asList(indexedAttributes)));
+        }
+    }
+
     @Override
     public String toString() {
         return "ShapefileDataStore [file=" + shpFiles.get(SHP) + ", charset=" + charset + ", timeZone=" + timeZone
                 + ", memoryMapped=" + memoryMapped + ", bufferCachingEnabled="
                 + bufferCachingEnabled + ", indexed=" + indexed + ", fidIndexed=" + fidIndexed
-                + "]";
+                + ", packedSpatialIndex=" + packedSpatialIndex + ", indexedAttributes="
+                + indexedAttributes + "]";
     }
 
     @Override
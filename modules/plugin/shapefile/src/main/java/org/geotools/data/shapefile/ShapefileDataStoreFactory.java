@@ -23,9 +23,11 @@ import java.io.Serializable;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
 import java.util.logging.Logger;
@@ -140,6 +142,30 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
             Boolean.class, "enable/disable the use of spatial index for local shapefiles", false,
             true, new KVP(Param.LEVEL, "advanced"));
 
+    /**
+     * Optional - use the packed R-tree instead of the quadtree as the spatial index
+     */
+    public static final Param PACKED_SPATIAL_INDEX = new Param("packed spatial index",
+            Boolean.class,
+            "use a memory mapped, Hilbert packed R-tree (.prx) instead of the quadtree (.qix) as the spatial index",
+            false, false, new KVP(Param.LEVEL, "advanced"));
+
+    /**
+     * Optional - number of threads used to scan the shapefile when computing aggregates
+     */
+    public static final Param PARALLEL_READ_THREADS = new Param("parallel read threads",
+            Integer.class,
+            "number of threads used to scan the shapefile when computing aggregates, 1 disables parallel reads",
+            false, 1, new KVP(Param.LEVEL, "advanced"));
+
+    /**
+     * Optional - comma separated list of dbf columns covered by the attribute index
+     */
+    public static final Param ATTRIBUTE_INDEXES = new Param("attribute indexes",
+            String.class,
+            "comma separated list of dbf columns to be indexed (.aix) for equality and range lookups",
+            false, null, new KVP(Param.LEVEL, "advanced"));
+
     public String getDisplayName() {
         return "Shapefile";
     }
@@ -150,7 +176,8 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
 
     public Param[] getParametersInfo() {
         return new Param[] { URLP, NAMESPACEP, ENABLE_SPATIAL_INDEX, CREATE_SPATIAL_INDEX, DBFCHARSET, DBFTIMEZONE,
-                MEMORY_MAPPED, CACHE_MEMORY_MAPS, FILE_TYPE, FSTYPE };
+                MEMORY_MAPPED, CACHE_MEMORY_MAPS, FILE_TYPE, FSTYPE, PACKED_SPATIAL_INDEX,
+                PARALLEL_READ_THREADS, ATTRIBUTE_INDEXES };
     }
 
     public boolean isAvailable() {
@@ -169,6 +196,9 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
         Charset dbfCharset = lookup(DBFCHARSET, params, Charset.class);
         TimeZone dbfTimeZone = lookup(DBFTIMEZONE, params, TimeZone.class);
         Boolean isCreateSpatialIndex = lookup(CREATE_SPATIAL_INDEX, params, Boolean.class);
+        Boolean isPackedSpatialIndex = lookup(PACKED_SPATIAL_INDEX, params, Boolean.class);
+        Integer parallelReadThreads = lookup(PARALLEL_READ_THREADS, params, Integer.class);
+        String attributeIndexes = lookup(ATTRIBUTE_INDEXES, params, String.class);
         Boolean isEnableSpatialIndex = (Boolean) ENABLE_SPATIAL_INDEX.lookUp(params);
         if (isEnableSpatialIndex == null) {
             // should not be needed as default is TRUE
@@ -199,6 +229,17 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
             store.setTimeZone(dbfTimeZone);
             store.setIndexed(enableIndex);
             store.setIndexCreationEnabled(createIndex);
+            store.setPackedSpatialIndex(isPackedSpatialIndex);
+            store.setParallelReadThreads(Math.max(1, parallelReadThreads));
+            if (isLocal && attributeIndexes != null && !attributeIndexes.trim().isEmpty()) {
+                List<String> columns = new ArrayList<String>();
+                for (String column : attributeIndexes.split(",")) {
+                    if (!column.trim().isEmpty()) {
+                        columns.add(column.trim());
+                    }
+                }
+                store.setIndexedAttributes(columns.toArray(new String[columns.size()]));
+            }
             return store;
         }
     }
@@ -17,6 +17,7 @@
 package org.geotools.data.shapefile;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -132,6 +133,19 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
                     }
                 }
             }
+
+            // the read schema only contains the attributes needed by the query, let the dbf
+            // reader skip over the others
+            int[] selected = new int[dbfindexes.length];
+            int numSelected = 0;
+            for (int index : dbfindexes) {
+                if (index >= 0) {
+                    selected[numSelected++] = index;
+                }
+            }
+            if (numSelected < head.getNumFields()) {
+                dbf.setSelectedFields(Arrays.copyOf(selected, numSelected));
+            }
         }
     }
 
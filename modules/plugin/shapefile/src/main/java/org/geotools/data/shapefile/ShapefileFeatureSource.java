@@ -39,6 +39,8 @@ import org.geotools.data.FeatureSource;
 import org.geotools.data.PrjFileReader;
 import org.geotools.data.Query;
 import org.geotools.data.ReTypeFeatureReader;
+import org.geotools.data.Transaction;
+import org.geotools.data.shapefile.IndexManager.AttributeRange;
 import org.geotools.data.shapefile.dbf.DbaseFileHeader;
 import org.geotools.data.shapefile.dbf.DbaseFileReader;
 import org.geotools.data.shapefile.fid.IndexedFidReader;
@@ -318,13 +320,7 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         GeometryFactory geometryFactory = getGeometryFactory(q);
 
         // grab the target bbox, if any
-        Envelope bbox = new ReferencedEnvelope();
-        if (q.getFilter() != null) {
-            bbox = (Envelope) q.getFilter().accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, bbox);
-            if(bbox == null) {
-                bbox = new ReferencedEnvelope();
-            }
-        }
+        Envelope bbox = getTargetBBox(q);
 
         // see if we can use indexing to speedup the data access
         Filter filter = q != null ? q.getFilter() : null;
@@ -346,6 +342,16 @@ class ShapefileFeatureSource extends ContentFeatureSource {
                 throw new IOException("Error querying index: " + e.getMessage());
             }
         }
+        if (goodRecs == null && !(filter instanceof Id)) {
+            AttributeRange range = indexManager.getAttributeRange(filter, getSchema());
+            if (range != null) {
+                try {
+                    goodRecs = indexManager.queryAttributeIndex(range);
+                } catch (TreeException e) {
+                    throw new IOException("Error querying attribute index: " + e.getMessage());
+                }
+            }
+        }
         // do we have anything to read at all? If not don't bother opening all the files
         if (goodRecs != null && !goodRecs.hasNext()) {
             LOGGER.log(Level.FINE, "Empty results for " + resultSchema.getName().getLocalPart()
@@ -364,9 +370,7 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         ShapefileSetManager shpManager = getDataStore().shpManager;
         ShapefileReader shapeReader = shpManager.openShapeReader(geometryFactory, goodRecs != null);
         DbaseFileReader dbfReader = null;
-        List<AttributeDescriptor> attributes = readSchema.getAttributeDescriptors();
-        if (attributes.size() < 1
-                || (attributes.size() == 1 && readSchema.getGeometryDescriptor() != null)) {
+        if (!isDbfReadRequired(readSchema)) {
             LOGGER.fine("The DBF file won't be opened since no attributes will be read from it");
         } else {
             dbfReader = shpManager.openDbfReader(goodRecs != null);
@@ -378,11 +382,102 @@ class ShapefileFeatureSource extends ContentFeatureSource {
         } else {
             reader = new ShapefileFeatureReader(readSchema, shapeReader, dbfReader, fidReader);
         }
+        setupReader(reader, shapeReader, q, bbox);
+
+        // do the retyping
+        if(!FeatureTypes.equals(readSchema, resultSchema)) {
+           return new ReTypeFeatureReader(reader, resultSchema);
+        } else {
+            return reader;
+        }
+    }
+
+    /**
+     * Returns a reader scanning only the records in the [start, end) range, using its own set of
+     * channels, so that several range readers can be used concurrently
+     * 
+     * @param q The query, the reader will apply filtering and retyping
+     * @param start The first record (zero based, inclusive)
+     * @param end The last record (zero based, exclusive)
+     * @return
+     * @throws IOException
+     */
+    FeatureReader<SimpleFeatureType, SimpleFeature> getRangeReader(Query q, int start, int end)
+            throws IOException {
+        SimpleFeatureType resultSchema = getResultSchema(q);
+        SimpleFeatureType readSchema = getReadSchema(q);
+        GeometryFactory geometryFactory = getGeometryFactory(q);
+        Envelope bbox = getTargetBBox(q);
+
+        ShapefileSetManager shpManager = getDataStore().shpManager;
+        IndexFile shx = shpManager.openIndexFile();
+        if (shx == null) {
+            throw new IOException("Range reads require the .shx file to be available");
+        }
+        ShapefileReader shapeReader = null;
+        DbaseFileReader dbfReader = null;
+        ShapefileRangeFeatureReader reader;
+        try {
+            shapeReader = shpManager.openShapeReader(geometryFactory, true);
+            if (isDbfReadRequired(readSchema)) {
+                dbfReader = shpManager.openDbfReader(true);
+            }
+            reader = new ShapefileRangeFeatureReader(readSchema, shapeReader, dbfReader, shx,
+                    start, end);
+        } catch (IOException e) {
+            shx.close();
+            if (shapeReader != null) {
+                shapeReader.close();
+            }
+            if (dbfReader != null) {
+                dbfReader.close();
+            }
+            throw e;
+        }
+        setupReader(reader, shapeReader, q, bbox);
+
+        if (!FeatureTypes.equals(readSchema, resultSchema)) {
+            return new ReTypeFeatureReader(reader, resultSchema);
+        } else {
+            return reader;
+        }
+    }
+
+    /**
+     * Extracts the target bbox out of the query filter, returns an empty envelope if the filter
+     * does not constrain the geometry
+     */
+    Envelope getTargetBBox(Query q) {
+        Envelope bbox = new ReferencedEnvelope();
+        if (q.getFilter() != null) {
+            bbox = (Envelope) q.getFilter().accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, bbox);
+            if(bbox == null) {
+                bbox = new ReferencedEnvelope();
+            }
+        }
+        return bbox;
+    }
+
+    /**
+     * Returns true if the read schema contains at least one attribute that needs to be read from
+     * the dbf file
+     */
+    boolean isDbfReadRequired(SimpleFeatureType readSchema) {
+        List<AttributeDescriptor> attributes = readSchema.getAttributeDescriptors();
+        return !(attributes.size() < 1
+                || (attributes.size() == 1 && readSchema.getGeometryDescriptor() != null));
+    }
+
+    /**
+     * Sets up the filter, the target bbox if any, and the generalization hints if available
+     */
+    void setupReader(ShapefileFeatureReader reader, ShapefileReader shapeReader, Query q,
+            Envelope bbox) {
+        Filter filter = q != null ? q.getFilter() : null;
         if (filter != null && !Filter.INCLUDE.equals(filter)) {
             reader.setFilter(filter);
         }
 
-        // setup the target bbox if any, and the generalization hints if available
         if (q != null) {
             if (bbox != null && !bbox.isNull()) {
                 reader.setTargetBBox(bbox);
@@ -402,13 +497,6 @@ class ShapefileFeatureSource extends ContentFeatureSource {
             }
 
         }
-
-        // do the retyping
-        if(!FeatureTypes.equals(readSchema, resultSchema)) {
-           return new ReTypeFeatureReader(reader, resultSchema);
-        } else {
-            return reader;
-        }
     }
 
     SimpleFeatureType getResultSchema(Query q) {
@@ -596,7 +684,58 @@ class ShapefileFeatureSource extends ContentFeatureSource {
 
     @Override
     protected boolean handleVisitor(Query query, FeatureVisitor visitor) throws IOException {
+        int threads = getDataStore().getParallelReadThreads();
+        if (threads > 1 && isParallelScanEnabled(query)
+                && ShapefileParallelScanner.canSplit(visitor)) {
+            ShapefileParallelScanner scanner = new ShapefileParallelScanner(this, threads);
+            if (scanner.visit(query, visitor)) {
+                return true;
+            }
+        }
         return super.handleVisitor(query, visitor);
     }
 
+    /**
+     * Checks if the query can be run as a parallel scan, that is, it is not transactional, does
+     * not need sorting, paging, reprojection or screenmap generalization, and it cannot be
+     * answered more efficiently by one of the indexes
+     * 
+     * @param query
+     * @return
+     */
+    boolean isParallelScanEnabled(Query query) {
+        if (getTransaction() != null && getTransaction() != Transaction.AUTO_COMMIT) {
+            return false;
+        }
+        if ((query.getSortBy() != null && query.getSortBy().length > 0)
+                || query.getStartIndex() != null || !query.isMaxFeaturesUnlimited()
+                || query.getCoordinateSystem() != null
+                || query.getCoordinateSystemReproject() != null) {
+            return false;
+        }
+        Hints hints = query.getHints();
+        if (hints != null && hints.get(Hints.SCREENMAP) != null) {
+            // the screenmap is not thread safe
+            return false;
+        }
+
+        Filter filter = query.getFilter();
+        if (filter instanceof Id) {
+            return false;
+        }
+        Envelope bbox = getTargetBBox(query);
+        if (getDataStore().isIndexed() && !bbox.isNull() && !Double.isInfinite(bbox.getWidth())
+                && !Double.isInfinite(bbox.getHeight())
+                && getDataStore().indexManager.isSpatialIndexAvailable()) {
+            // the spatial index will do better than a full scan
+            return false;
+        }
+        if (getDataStore().indexManager.getAttributeRange(filter, getSchema()) != null) {
+            // same goes for the attribute index
+            return false;
+        }
+
+        return true;
+    }
+
 }
@@ -0,0 +1,131 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * A {@link Spliterator} over the features of a shapefile. Splitting happens on the record range
+ * (as listed in the .shx file), each split opens its own readers lazily, on the first advance, so
+ * that it can be consumed by a different thread than the one that created it.
+ * <p>
+ * The readers are closed when a split is exhausted, consumers that stop early should close the
+ * stream built on top of this spliterator, or exhaust it.
+ */
+class ShapefileFeatureSpliterator implements Spliterator<SimpleFeature> {
+
+    /**
+     * Splits smaller than this are not split further
+     */
+    static final int MIN_SPLIT_SIZE = 1024;
+
+    ShapefileFeatureSource source;
+
+    Query query;
+
+    int start;
+
+    int end;
+
+    FeatureReader<SimpleFeatureType, SimpleFeature> reader;
+
+    /**
+     * Builds a spliterator over the [start, end) record range
+     */
+    ShapefileFeatureSpliterator(ShapefileFeatureSource source, Query query, int start, int end) {
+        this.source = source;
+        this.query = query;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super SimpleFeature> action) {
+        try {
+            if (reader == null) {
+                if (start >= end) {
+                    return false;
+                }
+                reader = source.getRangeReader(query, start, end);
+            }
+            if (reader.hasNext()) {
+                action.accept(reader.next());
+                return true;
+            }
+        } catch (IOException e) {
+            close();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+
+        // we are done with this range
+        close();
+        return false;
+    }
+
+    @Override
+    public Spliterator<SimpleFeature> trySplit() {
+        // once reading started the range cannot be changed anymore
+        int size = end - start;
+        if (reader != null || size < MIN_SPLIT_SIZE * 2) {
+            return null;
+        }
+        int mid = start + size / 2;
+        ShapefileFeatureSpliterator prefix = new ShapefileFeatureSpliterator(source, query, start,
+                mid);
+        start = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        // an upper bound, filtering and deleted records might reduce the actual count
+        return Math.max(0, end - start);
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Closes the reader, if open, and marks the range as consumed
+     */
+    void close() {
+        start = end;
+        if (reader != null) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                ShapefileFeatureSource.LOGGER.log(Level.FINE, "Failed to close range reader", e);
+            }
+            reader = null;
+        }
+    }
+
+}
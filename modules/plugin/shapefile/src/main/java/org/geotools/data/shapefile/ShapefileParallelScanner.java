@@ -0,0 +1,257 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Query;
+import org.geotools.data.shapefile.shp.IndexFile;
+import org.geotools.feature.visitor.BoundsVisitor;
+import org.geotools.feature.visitor.CalcResult;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.FeatureCalc;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.feature.visitor.UniqueVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Visits a shapefile by splitting its records in ranges (using the .shx offsets) and scanning each
+ * range in a separate thread, with its own set of channels. Each range feeds a private copy of
+ * the visitor, the partial results are then merged back into the original visitor using
+ * {@link CalcResult#merge(CalcResult)}.
+ * <p>
+ * Only visitors whose partial results can be merged are supported, see
+ * {@link #canSplit(FeatureVisitor)}
+ */
+class ShapefileParallelScanner {
+
+    static final Logger LOGGER = Logging.getLogger(ShapefileParallelScanner.class);
+
+    /**
+     * The minimum number of records in a range, below this size splitting the scan is not worth
+     * the overhead of opening a new set of readers
+     */
+    static final int MIN_RANGE_SIZE = 10000;
+
+    static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    ShapefileFeatureSource source;
+
+    int threads;
+
+    int minRangeSize = MIN_RANGE_SIZE;
+
+    public ShapefileParallelScanner(ShapefileFeatureSource source, int threads) {
+        this.source = source;
+        this.threads = threads;
+    }
+
+    /**
+     * Returns true if the visitor partial results can be merged, and thus it can be fed with a
+     * split scan
+     *
+     * @param visitor
+     * @return
+     */
+    static boolean canSplit(FeatureVisitor visitor) {
+        return newPartialVisitor(visitor) != null;
+    }
+
+    /**
+     * Builds a new visitor equivalent to the provided one, or returns null if the visitor results
+     * cannot be merged. Subclasses of the known visitors are not supported, as they might be
+     * carrying extra state
+     */
+    static FeatureCalc newPartialVisitor(FeatureVisitor visitor) {
+        if (visitor == null) {
+            return null;
+        }
+        Class<?> clazz = visitor.getClass();
+        if (clazz == CountVisitor.class) {
+            return new CountVisitor();
+        } else if (clazz == BoundsVisitor.class) {
+            return new BoundsVisitor();
+        } else if (clazz == SumVisitor.class) {
+            return new SumVisitor(((SumVisitor) visitor).getExpression());
+        } else if (clazz == MinVisitor.class) {
+            return new MinVisitor(((MinVisitor) visitor).getExpression());
+        } else if (clazz == MaxVisitor.class) {
+            return new MaxVisitor(((MaxVisitor) visitor).getExpression());
+        } else if (clazz == UniqueVisitor.class) {
+            UniqueVisitor unique = (UniqueVisitor) visitor;
+            if (unique.hasLimits()) {
+                // paging over the unique values needs a single ordered scan
+                return null;
+            }
+            UniqueVisitor partial = new UniqueVisitor(unique.getExpression());
+            partial.setPreserveOrder(unique.isPreserveOrder());
+            return partial;
+        }
+        return null;
+    }
+
+    /**
+     * Adds the merged partial results to the state of the original visitor
+     */
+    static void addResult(FeatureVisitor visitor, CalcResult result) {
+        if (result == null || result == CalcResult.NULL_RESULT) {
+            return;
+        }
+        if (visitor instanceof CountVisitor) {
+            CountVisitor count = (CountVisitor) visitor;
+            count.setValue(count.getCount() + result.toInt());
+        } else if (visitor instanceof BoundsVisitor) {
+            ((BoundsVisitor) visitor).getBounds().include((ReferencedEnvelope) result.getValue());
+        } else {
+            CalcResult merged = ((FeatureCalc) visitor).getResult().merge(result);
+            if (visitor instanceof SumVisitor) {
+                ((SumVisitor) visitor).setValue(merged.getValue());
+            } else if (visitor instanceof MinVisitor) {
+                ((MinVisitor) visitor).setValue(merged.getValue());
+            } else if (visitor instanceof MaxVisitor) {
+                ((MaxVisitor) visitor).setValue(merged.getValue());
+            } else if (visitor instanceof UniqueVisitor) {
+                ((UniqueVisitor) visitor).setValue(merged.getValue());
+            }
+        }
+    }
+
+    /**
+     * Splits the shapefile records in ranges
+     *
+     * @param recordCount The total number of records
+     * @param maxRanges The maximum number of ranges to be built
+     * @param minRangeSize The minimum number of records in a range
+     * @return A list of [start, end) pairs
+     */
+    static List<int[]> split(int recordCount, int maxRanges, int minRangeSize) {
+        int ranges = Math.max(1, Math.min(maxRanges, recordCount / Math.max(1, minRangeSize)));
+        List<int[]> result = new ArrayList<int[]>(ranges);
+        int rangeSize = recordCount / ranges;
+        int start = 0;
+        for (int i = 0; i < ranges; i++) {
+            int end = i == ranges - 1 ? recordCount : start + rangeSize;
+            result.add(new int[] { start, end });
+            start = end;
+        }
+        return result;
+    }
+
+    /**
+     * Runs the parallel scan, feeding the results into the visitor
+     *
+     * @param query The query to be run
+     * @param visitor The target visitor
+     * @return false if the scan could not be split (e.g., missing .shx file or too few records), in
+     *         that case the visitor has not been touched
+     * @throws IOException
+     */
+    public boolean visit(final Query query, FeatureVisitor visitor) throws IOException {
+        IndexFile shx = source.getDataStore().shpManager.openIndexFile();
+        if (shx == null) {
+            return false;
+        }
+        int recordCount;
+        try {
+            recordCount = shx.getRecordCount();
+        } finally {
+            shx.close();
+        }
+
+        List<int[]> ranges = split(recordCount, threads, minRangeSize);
+        if (ranges.size() < 2) {
+            return false;
+        }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Scanning " + recordCount + " records of "
+                    + source.getSchema().getTypeName() + " in " + ranges.size() + " ranges");
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(ranges.size(),
+                new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "gt-shapefile-scan-"
+                                + THREAD_COUNTER.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        try {
+            List<Future<CalcResult>> futures = new ArrayList<Future<CalcResult>>();
+            for (final int[] range : ranges) {
+                final FeatureCalc partial = newPartialVisitor(visitor);
+                futures.add(executor.submit(new Callable<CalcResult>() {
+
+                    @Override
+                    public CalcResult call() throws Exception {
+                        FeatureReader<SimpleFeatureType, SimpleFeature> reader = source
+                                .getRangeReader(query, range[0], range[1]);
+                        try {
+                            while (reader.hasNext()) {
+                                partial.visit(reader.next());
+                            }
+                        } finally {
+                            reader.close();
+                        }
+                        return partial.getResult();
+                    }
+                }));
+            }
+
+            // merge in range order, so that order preserving visitors get the natural order
+            CalcResult result = CalcResult.NULL_RESULT;
+            for (Future<CalcResult> future : futures) {
+                result = result.merge(future.get());
+            }
+            addResult(visitor, result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning the shapefile", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to scan the shapefile", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return true;
+    }
+
+}
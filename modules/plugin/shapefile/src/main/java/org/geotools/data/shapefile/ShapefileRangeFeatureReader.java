@@ -0,0 +1,105 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+
+import org.geotools.data.shapefile.dbf.DbaseFileReader;
+import org.geotools.data.shapefile.dbf.DbaseFileReader.Row;
+import org.geotools.data.shapefile.dbf.IndexedDbaseFileReader;
+import org.geotools.data.shapefile.shp.IndexFile;
+import org.geotools.data.shapefile.shp.ShapefileReader;
+import org.geotools.data.shapefile.shp.ShapefileReader.Record;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * A shapefile feature reader that only reads the records in a given range, as listed by the .shx
+ * file. Each reader works off its own channels, so that several of them can scan different
+ * portions of the same shapefile concurrently.
+ */
+class ShapefileRangeFeatureReader extends ShapefileFeatureReader {
+
+    IndexFile shx;
+
+    int current;
+
+    int end;
+
+    boolean dbfPositioned;
+
+    /**
+     * Builds a reader for the records in the [start, end) range
+     *
+     * @param schema The schema to be read
+     * @param shp The shape reader, opened for random access only
+     * @param dbf The dbf reader, it must be an {@link IndexedDbaseFileReader}. May be null, in
+     *        this case no attributes will be read from the dbf file
+     * @param shx The index file used to locate the records in the .shp file
+     * @param start The first record to be read (zero based, inclusive)
+     * @param end The last record to be read (zero based, exclusive)
+     */
+    public ShapefileRangeFeatureReader(SimpleFeatureType schema, ShapefileReader shp,
+            DbaseFileReader dbf, IndexFile shx, int start, int end) throws IOException {
+        super(schema, shp, dbf, null);
+        this.shx = shx;
+        this.current = start;
+        this.end = Math.min(end, shx.getRecordCount());
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        while (nextFeature == null && current < end) {
+            int recordIndex = current++;
+            shp.goTo(shx.getOffsetInBytes(recordIndex));
+            Record record = shp.nextRecord();
+
+            // rows are paired with shapes by position, like the sequential reader does
+            Row row = null;
+            if (dbf != null) {
+                if (!dbfPositioned) {
+                    ((IndexedDbaseFileReader) dbf).goTo(recordIndex + 1);
+                    dbfPositioned = true;
+                }
+                row = dbf.readRow();
+            }
+
+            Geometry geometry = getGeometry(record);
+            if (geometry == SKIP || (row != null && row.isDeleted())) {
+                continue;
+            }
+
+            nextFeature = buildFeature(record.number, geometry, row, record.envelope());
+        }
+
+        return nextFeature != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            if (shx != null) {
+                shx.close();
+            }
+            shx = null;
+        }
+    }
+
+}
@@ -29,6 +29,7 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Locale;
 import java.util.TimeZone;
@@ -83,6 +84,9 @@ public class DbaseFileReader implements FileReader {
         public String toString() {
             final StringBuffer ret = new StringBuffer("DBF Row - ");
             for (int i = 0; i < header.getNumFields(); i++) {
+                if (!isSelected(i)) {
+                    continue;
+                }
                 ret.append(header.getFieldName(i)).append(": \"");
                 try {
                     ret.append(this.read(i));
@@ -113,6 +117,19 @@ public class DbaseFileReader implements FileReader {
     
     int[] fieldOffsets;
 
+    /**
+     * The fields that will be read, or null if all fields are to be read
+     */
+    boolean[] selectedFields;
+
+    /**
+     * The byte ranges of the record holding the selected fields, adjacent fields are merged in a
+     * single range. Null if all fields are to be read
+     */
+    int[] selectedOffsets;
+
+    int[] selectedLengths;
+
     int cnt = 1;
 
     Row row;
@@ -132,6 +149,19 @@ public class DbaseFileReader implements FileReader {
 
     private final long MILLISECS_PER_DAY = 24*60*60*1000;
 
+    /**
+     * Marker returned by {@link #parseLong(byte[], int, int)} when the field cannot be parsed
+     */
+    static final long NOT_A_LONG = Long.MIN_VALUE;
+
+    static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
     
     /**
      * Creates a new instance of DBaseFileReader
@@ -265,6 +295,62 @@ public class DbaseFileReader implements FileReader {
         }
     }
 
+    /**
+     * Restricts the fields read from each record to the specified ones, the bytes of the other
+     * fields will be skipped over without being copied or decoded. Trying to read a field that
+     * has not been selected will result in an {@link IllegalStateException}, while
+     * {@link #readEntry(Object[])} will leave the non selected fields null.
+     * 
+     * @param fields The (zero based) indexes of the fields to be read, or null to read all fields
+     */
+    public void setSelectedFields(int[] fields) {
+        if (fields == null) {
+            selectedFields = null;
+            selectedOffsets = null;
+            selectedLengths = null;
+            return;
+        }
+
+        final int numFields = header.getNumFields();
+        boolean[] selected = new boolean[numFields];
+        for (int field : fields) {
+            if (field < 0 || field >= numFields) {
+                throw new IllegalArgumentException("Invalid field index " + field
+                        + ", the dbf file has " + numFields + " fields");
+            }
+            selected[field] = true;
+        }
+
+        // compute the byte ranges to be copied, merging adjacent fields
+        int[] offsets = new int[numFields];
+        int[] lengths = new int[numFields];
+        int ranges = 0;
+        for (int i = 0; i < numFields; i++) {
+            if (!selected[i] || fieldLengths[i] == 0) {
+                continue;
+            }
+            if (ranges > 0 && offsets[ranges - 1] + lengths[ranges - 1] == fieldOffsets[i]) {
+                lengths[ranges - 1] += fieldLengths[i];
+            } else {
+                offsets[ranges] = fieldOffsets[i];
+                lengths[ranges] = fieldLengths[i];
+                ranges++;
+            }
+        }
+        this.selectedFields = selected;
+        this.selectedOffsets = Arrays.copyOf(offsets, ranges);
+        this.selectedLengths = Arrays.copyOf(lengths, ranges);
+    }
+
+    /**
+     * Returns true if the field is going to be read, see {@link #setSelectedFields(int[])}
+     * 
+     * @param field The (zero based) field index
+     */
+    public boolean isSelected(int field) {
+        return selectedFields == null || selectedFields[field];
+    }
+
     /**
      * Get the header from this file. The header is read upon instantiation.
      * 
@@ -381,7 +467,7 @@ public class DbaseFileReader implements FileReader {
         final int numFields = header.getNumFields();
 
         for (int j = 0; j < numFields; j++) {
-            entry[j + offset] = readObject(fieldOffsets[j], j);
+            entry[j + offset] = isSelected(j) ? readObject(fieldOffsets[j], j) : null;
         }
 
         return entry;
@@ -427,9 +513,19 @@ public class DbaseFileReader implements FileReader {
             final char deleted = (char) buffer.get();
             row.deleted = deleted == '*';
 
-            buffer.limit(buffer.position() + header.getRecordLength() - 1);
-            buffer.get(bytes); // SK: There is a side-effect here!!!
-            buffer.limit(buffer.capacity());
+            if (selectedOffsets == null) {
+                buffer.limit(buffer.position() + header.getRecordLength() - 1);
+                buffer.get(bytes); // SK: There is a side-effect here!!!
+                buffer.limit(buffer.capacity());
+            } else {
+                // only copy the bytes of the selected fields, skip the others
+                final int start = buffer.position();
+                for (int i = 0; i < selectedOffsets.length; i++) {
+                    buffer.position(start + selectedOffsets[i]);
+                    buffer.get(bytes, selectedOffsets[i], selectedLengths[i]);
+                }
+                buffer.position(start + header.getRecordLength() - 1);
+            }
 
             foundRecord = true;
         }
@@ -451,6 +547,10 @@ public class DbaseFileReader implements FileReader {
     }
     private Object readObject(final int fieldOffset, final int fieldNum)
             throws IOException {
+        if (selectedFields != null && !selectedFields[fieldNum]) {
+            throw new IllegalStateException("Field " + header.getFieldName(fieldNum)
+                    + " has not been selected for reading");
+        }
         final char type = fieldTypes[fieldNum];
         final int fieldLen = fieldLengths[fieldNum];
         Object object = null;
@@ -549,22 +649,25 @@ public class DbaseFileReader implements FileReader {
                 if (bytes[fieldOffset] == '*') {
                     break;
                 } else {
-                    final String string = fastParse(bytes,fieldOffset,fieldLen).trim();
                     Class clazz = header.getFieldClass(fieldNum);
-                    if (clazz == Integer.class) {
-                        try {
-                            object = Integer.parseInt(string);
+                    if (clazz == Integer.class || clazz == Long.class) {
+                        // parse straight from the bytes, without building a string
+                        final long value = parseLong(bytes, fieldOffset, fieldLen);
+                        if (value != NOT_A_LONG) {
+                            if (clazz == Integer.class && value >= Integer.MIN_VALUE
+                                    && value <= Integer.MAX_VALUE) {
+                                object = Integer.valueOf((int) value);
+                            } else {
+                                object = Long.valueOf(value);
+                            }
                             break;
-                        } catch (NumberFormatException e) {
-                            // try to parse as long... 
-                            clazz = Long.class; 
                         }
-                    } 
-                    if (clazz == Long.class) {
+                        // Long.MIN_VALUE and oddly formatted numbers, try the slow path
                         try {
-                            object = Long.parseLong(string);
+                            object = Long.parseLong(
+                                    fastParse(bytes, fieldOffset, fieldLen).trim());
                             break;
-                        } catch (final NumberFormatException e2) {
+                        } catch (final NumberFormatException e) {
                             // fall through to the floating point number
                         }
                     }
@@ -575,11 +678,16 @@ public class DbaseFileReader implements FileReader {
             case 'f':
             case 'F': 
                 if (bytes[fieldOffset] != '*') {
-                    try {
-                        object = Double.parseDouble(fastParse(bytes,fieldOffset,fieldLen));
-                    } catch (final NumberFormatException e) {
-                        // okay, now whatever we got was truly indigestible.
-                        object = null;
+                    final double value = parseDouble(bytes, fieldOffset, fieldLen);
+                    if (!Double.isNaN(value)) {
+                        object = value;
+                    } else {
+                        try {
+                            object = Double.parseDouble(fastParse(bytes,fieldOffset,fieldLen));
+                        } catch (final NumberFormatException e) {
+                            // okay, now whatever we got was truly indigestible.
+                            object = null;
+                        }
                     }
                 }
                 break;
@@ -591,6 +699,111 @@ public class DbaseFileReader implements FileReader {
         return object;
     }
     
+    /**
+     * Parses an integral number, surrounded by optional spaces, straight out of the record bytes
+     * 
+     * @return The parsed value, or {@link #NOT_A_LONG} if the field does not contain a valid
+     *         long (Long.MIN_VALUE itself is reported as {@link #NOT_A_LONG} as well)
+     */
+    static long parseLong(final byte[] bytes, final int fieldOffset, final int fieldLen) {
+        int i = fieldOffset;
+        int end = fieldOffset + fieldLen;
+        // skip the padding, same as String.trim() would do
+        while (i < end && (bytes[i] & 0xFF) <= ' ') {
+            i++;
+        }
+        while (end > i && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (i == end) {
+            return NOT_A_LONG;
+        }
+        boolean negative = false;
+        if (bytes[i] == '-' || bytes[i] == '+') {
+            negative = bytes[i] == '-';
+            i++;
+            if (i == end) {
+                return NOT_A_LONG;
+            }
+        }
+        // more than 19 digits never fit in a long
+        if (end - i > 19) {
+            return NOT_A_LONG;
+        }
+        // accumulate negatively, like Long.parseLong, to check for overflow
+        final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        final long multmin = limit / 10;
+        long value = 0;
+        for (; i < end; i++) {
+            final int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || value < multmin) {
+                return NOT_A_LONG;
+            }
+            value *= 10;
+            if (value < limit + digit) {
+                return NOT_A_LONG;
+            }
+            value -= digit;
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * Parses a decimal number, surrounded by optional spaces, straight out of the record bytes.
+     * Only the numbers that can be parsed exactly (no exponent, at most 15 significant digits and
+     * 22 decimals) are handled, for everything else NaN is returned and the caller should fall
+     * back on {@link Double#parseDouble(String)}
+     */
+    static double parseDouble(final byte[] bytes, final int fieldOffset, final int fieldLen) {
+        int i = fieldOffset;
+        int end = fieldOffset + fieldLen;
+        while (i < end && (bytes[i] & 0xFF) <= ' ') {
+            i++;
+        }
+        while (end > i && (bytes[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (i == end) {
+            return Double.NaN;
+        }
+        boolean negative = false;
+        if (bytes[i] == '-' || bytes[i] == '+') {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        boolean hasDigits = false;
+        int digits = 0;
+        int decimals = -1;
+        for (; i < end; i++) {
+            final byte b = bytes[i];
+            if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (b >= '0' && b <= '9') {
+                hasDigits = true;
+                if (mantissa != 0 || b != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (decimals >= 0) {
+                    decimals++;
+                }
+                if (digits > 15) {
+                    return Double.NaN;
+                }
+            } else {
+                return Double.NaN;
+            }
+        }
+        if (!hasDigits || decimals > 22) {
+            return Double.NaN;
+        }
+        // both the mantissa and the power of ten are exact doubles, the division is
+        // correctly rounded
+        double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+        return negative ? -value : value;
+    }
+
     /**
      * Performs a faster byte[] to String conversion under the assumption the content
      * is represented with one byte per char 
@@ -55,6 +55,16 @@ public enum ShpFileType {
      * by fid also so that the fids stay consistent across deletes and adds
      */
     FIX("fix"),
+    /**
+     * the .prx file, a Hilbert packed static R-tree spatial index of the shapefile, an
+     * alternative to the .qix file meant to be memory mapped
+     */
+    PRX("prx"),
+    /**
+     * the .aix file, sorted (value, offset) pairs for a set of dbf columns, used to look up
+     * records by attribute value without scanning the dbf
+     */
+    AIX("aix"),
     /**
      * the .shp.xml file, it contains the metadata about the shapefile
      */
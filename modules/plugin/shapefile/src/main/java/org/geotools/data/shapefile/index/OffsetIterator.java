@@ -0,0 +1,77 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.CloseableIterator;
+
+/**
+ * Iterates over the .shp offsets collected by an index search, returning them as {@link Data}
+ * made of a record number and an offset. The record number is not known to the indexes storing
+ * offsets only, it's read from the .shp record itself, so it's left to 0.
+ */
+public class OffsetIterator implements CloseableIterator<Data> {
+
+    static final DataDefinition DATA_DEFINITION = new DataDefinition("US-ASCII");
+    static {
+        DATA_DEFINITION.addField(Integer.class);
+        DATA_DEFINITION.addField(Long.class);
+    }
+
+    final int[] offsets;
+
+    int idx = 0;
+
+    /**
+     * @param offsets The .shp offsets, in the order they should be returned
+     */
+    public OffsetIterator(int[] offsets) {
+        this.offsets = offsets;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return idx < offsets.length;
+    }
+
+    @Override
+    public Data next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Data data = new Data(DATA_DEFINITION);
+        try {
+            data.addValue(0);
+            data.addValue((long) offsets[idx++]);
+        } catch (TreeException e) {
+            throw new RuntimeException(e);
+        }
+        return data;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException {
+        idx = offsets.length;
+    }
+}
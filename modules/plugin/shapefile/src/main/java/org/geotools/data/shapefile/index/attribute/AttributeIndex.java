@@ -0,0 +1,281 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.attribute;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.geotools.data.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.data.shapefile.index.OffsetIterator;
+import org.geotools.data.shapefile.index.TreeException;
+
+/**
+ * Read only access to an attribute index file (.aix). The file contains, for each indexed dbf
+ * column, the list of (key, .shp offset) pairs sorted by key, which is searched with a binary
+ * search directly off the (usually memory mapped) buffer.
+ * <p>
+ * The file layout is:
+ * <ul>
+ * <li>the header: magic, version, number of columns</li>
+ * <li>for each column: the name (length as a short, UTF-8 bytes), the key type (a byte), the key
+ * length, the number of entries and the position of the first entry (as an int)</li>
+ * <li>the entries of each column, each made of the key bytes and an int .shp offset</li>
+ * </ul>
+ * Keys are encoded so that comparing them as unsigned bytes gives the same order as comparing
+ * the original values, see {@link KeyType}. Null values are not indexed.
+ */
+public class AttributeIndex {
+
+    static final int MAGIC = 0x47544158; // "GTAX"
+
+    static final int VERSION = 1;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The supported key types, along with their binary encoding
+     */
+    public enum KeyType {
+        /**
+         * Numbers, encoded as 8 bytes doubles whose sign bits are flipped so that they sort as
+         * unsigned bytes
+         */
+        NUMBER {
+            @Override
+            byte[] encode(Object value, int keyLength) {
+                double d = ((Number) value).doubleValue();
+                if (Double.isNaN(d)) {
+                    return null;
+                }
+                if (d == 0) {
+                    // -0.0 and 0.0 are the same key
+                    d = 0;
+                }
+                long bits = Double.doubleToLongBits(d);
+                bits = bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+                byte[] key = new byte[8];
+                for (int i = 7; i >= 0; i--) {
+                    key[i] = (byte) bits;
+                    bits >>>= 8;
+                }
+                return key;
+            }
+        },
+        /**
+         * Strings, encoded as UTF-8 bytes padded with zeroes up to the key length
+         */
+        STRING {
+            @Override
+            byte[] encode(Object value, int keyLength) {
+                byte[] bytes = value.toString().getBytes(UTF8);
+                if (keyLength >= 0 && bytes.length > keyLength) {
+                    return null;
+                }
+                return keyLength >= 0 ? Arrays.copyOf(bytes, keyLength) : bytes;
+            }
+        };
+
+        /**
+         * Encodes the value as a key of the specified length, or returns null if the value cannot
+         * be encoded (in which case it cannot be part of the index either). A negative length
+         * returns the key without padding
+         */
+        abstract byte[] encode(Object value, int keyLength);
+    }
+
+    /**
+     * The description of an indexed column
+     */
+    public static class Column {
+        final String name;
+
+        final KeyType type;
+
+        final int keyLength;
+
+        final int count;
+
+        final int start;
+
+        Column(String name, KeyType type, int keyLength, int count, int start) {
+            this.name = name;
+            this.type = type;
+            this.keyLength = keyLength;
+            this.count = count;
+            this.start = start;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public KeyType getType() {
+            return type;
+        }
+
+        /**
+         * The number of non null values indexed
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Encodes a value as a key for this column, or returns null if the value cannot possibly
+         * be found in the index
+         */
+        public byte[] encode(Object value) {
+            return value == null ? null : type.encode(value, keyLength);
+        }
+
+        int entryLength() {
+            return keyLength + 4;
+        }
+    }
+
+    final ByteBuffer buffer;
+
+    final Map<String, Column> columns = new HashMap<String, Column>();
+
+    /**
+     * Wraps the buffer containing the index. The buffer is only read using absolute positions,
+     * but has to stay valid until the searches are completed.
+     *
+     * @param buffer
+     * @throws IOException If the buffer does not contain an attribute index
+     */
+    public AttributeIndex(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < 12 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("The buffer does not contain an attribute index");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported attribute index version " + version);
+        }
+        this.buffer = buffer;
+        int numColumns = buffer.getInt(8);
+        int position = 12;
+        for (int i = 0; i < numColumns; i++) {
+            int nameLength = buffer.getShort(position);
+            byte[] nameBytes = new byte[nameLength];
+            for (int j = 0; j < nameLength; j++) {
+                nameBytes[j] = buffer.get(position + 2 + j);
+            }
+            position += 2 + nameLength;
+            KeyType type = KeyType.values()[buffer.get(position)];
+            int keyLength = buffer.getInt(position + 1);
+            int count = buffer.getInt(position + 5);
+            int start = buffer.getInt(position + 9);
+            position += 13;
+            Column column = new Column(new String(nameBytes, UTF8), type, keyLength, count, start);
+            if (buffer.limit() < start + (long) count * column.entryLength()) {
+                throw new IOException("The attribute index is truncated");
+            }
+            columns.put(column.name, column);
+        }
+    }
+
+    /**
+     * The names of the indexed columns
+     */
+    public Set<String> getColumnNames() {
+        return columns.keySet();
+    }
+
+    /**
+     * Returns the description of the indexed column, or null if the column is not indexed
+     */
+    public Column getColumn(String name) {
+        return columns.get(name);
+    }
+
+    /**
+     * Collects the .shp offsets of the records whose key is between the specified bounds, in
+     * ascending order
+     *
+     * @param column The column to be searched
+     * @param low The lower bound key, or null if unbounded
+     * @param lowInclusive True if the lower bound is part of the range
+     * @param high The upper bound key, or null if unbounded
+     * @param highInclusive True if the upper bound is part of the range
+     * @return
+     */
+    public int[] searchOffsets(Column column, byte[] low, boolean lowInclusive, byte[] high,
+            boolean highInclusive) {
+        int from = low == null ? 0 : bound(column, low, lowInclusive);
+        int to = high == null ? column.count : bound(column, high, !highInclusive);
+        if (from >= to) {
+            return new int[0];
+        }
+        int[] offsets = new int[to - from];
+        for (int i = from; i < to; i++) {
+            offsets[i - from] = buffer.getInt(column.start + i * column.entryLength()
+                    + column.keyLength);
+        }
+        // sort so that the .shp file is read sequentially
+        Arrays.sort(offsets);
+        return offsets;
+    }
+
+    /**
+     * Searches the records whose key is between the specified bounds. The search is completed
+     * before this method returns, the iterator does not need the buffer
+     *
+     * @return An iterator over the matching records, in .shp file order
+     */
+    public CloseableIterator<Data> search(Column column, byte[] low, boolean lowInclusive,
+            byte[] high, boolean highInclusive) throws TreeException {
+        return new OffsetIterator(searchOffsets(column, low, lowInclusive, high, highInclusive));
+    }
+
+    /**
+     * Returns the position of the first entry whose key is greater or equal than the specified
+     * one (greater, if inclusive is false)
+     */
+    int bound(Column column, byte[] key, boolean inclusive) {
+        int low = 0;
+        int high = column.count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int comparison = compare(column.start + mid * column.entryLength(), key,
+                    column.keyLength);
+            if (comparison < 0 || (comparison == 0 && !inclusive)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    int compare(int position, byte[] key, int keyLength) {
+        for (int i = 0; i < keyLength; i++) {
+            int a = buffer.get(position + i) & 0xFF;
+            int b = key[i] & 0xFF;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return 0;
+    }
+}
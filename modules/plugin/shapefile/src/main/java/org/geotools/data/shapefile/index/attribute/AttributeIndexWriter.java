@@ -0,0 +1,192 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.attribute;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.geotools.data.shapefile.index.attribute.AttributeIndex.KeyType;
+
+/**
+ * Builds an attribute index file. Values are collected in memory column by column, then sorted
+ * and written out in a single pass by {@link #write(File)}
+ */
+public class AttributeIndexWriter {
+
+    static class ColumnBuilder {
+        final String name;
+
+        final KeyType type;
+
+        List<byte[]> keys = new ArrayList<byte[]>();
+
+        int[] offsets = new int[256];
+
+        int keyLength;
+
+        ColumnBuilder(String name, KeyType type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        void add(byte[] key, int offset) {
+            int size = keys.size();
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            keys.add(key);
+            offsets[size] = offset;
+            keyLength = Math.max(keyLength, key.length);
+        }
+    }
+
+    List<ColumnBuilder> columns = new ArrayList<ColumnBuilder>();
+
+    /**
+     * Adds a column to the index
+     *
+     * @param name The column name
+     * @param type The key type
+     * @return The column position, to be used in {@link #add(int, Object, int)}
+     */
+    public int addColumn(String name, KeyType type) {
+        columns.add(new ColumnBuilder(name, type));
+        return columns.size() - 1;
+    }
+
+    /**
+     * Adds a value to the index. Null values, and values that cannot be encoded (e.g., NaN) are
+     * ignored.
+     *
+     * @param column The column position, as returned by {@link #addColumn(String, KeyType)}
+     * @param value The value
+     * @param offset The offset of the record in the .shp file
+     */
+    public void add(int column, Object value, int offset) {
+        if (value == null) {
+            return;
+        }
+        ColumnBuilder builder = columns.get(column);
+        byte[] key = builder.type.encode(value, -1);
+        if (key != null) {
+            builder.add(key, offset);
+        }
+    }
+
+    /**
+     * Sorts the collected values and writes the index to the specified file
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void write(File file) throws IOException {
+        // compute the header size, and from it the position of each column entries
+        byte[][] names = new byte[columns.size()][];
+        int headerSize = 12;
+        for (int i = 0; i < columns.size(); i++) {
+            names[i] = columns.get(i).name.getBytes(AttributeIndex.UTF8);
+            headerSize += 2 + names[i].length + 13;
+        }
+
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            FileChannel channel = fos.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(headerSize, 64 * 1024));
+            buffer.putInt(AttributeIndex.MAGIC);
+            buffer.putInt(AttributeIndex.VERSION);
+            buffer.putInt(columns.size());
+            long start = headerSize;
+            for (int i = 0; i < columns.size(); i++) {
+                ColumnBuilder column = columns.get(i);
+                if (start > Integer.MAX_VALUE) {
+                    throw new IOException("The attribute index would exceed 2GB");
+                }
+                buffer.putShort((short) names[i].length);
+                buffer.put(names[i]);
+                buffer.put((byte) column.type.ordinal());
+                buffer.putInt(column.keyLength);
+                buffer.putInt(column.keys.size());
+                buffer.putInt((int) start);
+                start += (long) column.keys.size() * (column.keyLength + 4);
+            }
+
+            for (ColumnBuilder column : columns) {
+                Integer[] order = sort(column);
+                byte[] padding = new byte[column.keyLength];
+                for (Integer idx : order) {
+                    if (buffer.remaining() < column.keyLength + 4) {
+                        flush(buffer, channel);
+                    }
+                    byte[] key = column.keys.get(idx);
+                    buffer.put(key);
+                    buffer.put(padding, 0, column.keyLength - key.length);
+                    buffer.putInt(column.offsets[idx]);
+                }
+                // release memory as we go
+                column.keys = null;
+                column.offsets = null;
+            }
+            flush(buffer, channel);
+        } finally {
+            fos.close();
+        }
+    }
+
+    /**
+     * Returns the entry positions sorted by key
+     */
+    private Integer[] sort(final ColumnBuilder column) {
+        Integer[] order = new Integer[column.keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // keys are compared as if they were padded with zeroes
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                byte[] k1 = column.keys.get(o1);
+                byte[] k2 = column.keys.get(o2);
+                int length = Math.max(k1.length, k2.length);
+                for (int i = 0; i < length; i++) {
+                    int b1 = i < k1.length ? k1[i] & 0xFF : 0;
+                    int b2 = i < k2.length ? k2[i] & 0xFF : 0;
+                    if (b1 != b2) {
+                        return b1 - b2;
+                    }
+                }
+                return column.offsets[o1] - column.offsets[o2];
+            }
+        });
+        return order;
+    }
+
+    private void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
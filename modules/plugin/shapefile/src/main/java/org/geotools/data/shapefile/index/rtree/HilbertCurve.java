@@ -0,0 +1,87 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.rtree;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Maps points to their position along a Hilbert curve filling a square grid, used to sort the
+ * index entries so that entries close in space end up close in the index file too
+ */
+class HilbertCurve {
+
+    /**
+     * The curve order, the grid has 2^ORDER cells per side. Kept at 15 so that the curve index
+     * fits in 30 bits
+     */
+    static final int ORDER = 15;
+
+    static final int SIDE = 1 << ORDER;
+
+    final double minX;
+
+    final double minY;
+
+    final double scaleX;
+
+    final double scaleY;
+
+    /**
+     * Builds a curve covering the specified extent
+     */
+    HilbertCurve(Envelope extent) {
+        this.minX = extent.getMinX();
+        this.minY = extent.getMinY();
+        this.scaleX = extent.getWidth() > 0 ? (SIDE - 1) / extent.getWidth() : 0;
+        this.scaleY = extent.getHeight() > 0 ? (SIDE - 1) / extent.getHeight() : 0;
+    }
+
+    /**
+     * Returns the position along the curve of the grid cell containing the specified point
+     */
+    int index(double x, double y) {
+        return index(cell((x - minX) * scaleX), cell((y - minY) * scaleY));
+    }
+
+    private int cell(double ordinate) {
+        // points can fall slightly outside of the extent due to rounding
+        return (int) Math.max(0, Math.min(SIDE - 1, ordinate));
+    }
+
+    /**
+     * Returns the position along the curve of the specified grid cell
+     */
+    static int index(int x, int y) {
+        int d = 0;
+        for (int s = SIDE / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant so that the curve stays continuous
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = SIDE - 1 - x;
+                    y = SIDE - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+}
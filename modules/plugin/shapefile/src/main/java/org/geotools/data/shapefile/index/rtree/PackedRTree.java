@@ -0,0 +1,212 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.rtree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.geotools.data.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.data.shapefile.index.OffsetIterator;
+import org.geotools.data.shapefile.index.TreeException;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A static R-tree, bulk loaded in Hilbert order and stored as a flat array of entries, that is
+ * searched directly off a (usually memory mapped) buffer, without loading it in memory.
+ * <p>
+ * The file layout is:
+ * <ul>
+ * <li>the header: magic, version, node size, number of items, number of levels, the bounds of the
+ * whole tree as four doubles, and the end position of each level in the entry array</li>
+ * <li>the entries, leaves first, root last. Each entry is made of four floats (minx, miny, maxx,
+ * maxy, rounded outwards) and an int reference. For leaves the reference is the offset of the
+ * record in the .shp file, for the other nodes it's the position of the first child entry, the
+ * children of a node being contiguous</li>
+ * </ul>
+ * All values are stored in big endian order.
+ */
+public class PackedRTree {
+
+    static final int MAGIC = 0x47545052; // "GTPR"
+
+    static final int VERSION = 1;
+
+    /**
+     * Size of the fixed part of the header
+     */
+    static final int HEADER_SIZE = 5 * 4 + 4 * 8;
+
+    /**
+     * Size of a single entry, four floats and an int
+     */
+    static final int ENTRY_SIZE = 5 * 4;
+
+    final ByteBuffer buffer;
+
+    final int nodeSize;
+
+    final int numItems;
+
+    final int[] levelEnds;
+
+    final int entriesStart;
+
+    final Envelope bounds;
+
+    /**
+     * Wraps the buffer containing the tree. The buffer is only read using absolute positions, it
+     * can be shared among threads, but has to stay valid until the searches are completed.
+     *
+     * @param buffer
+     * @throws IOException If the buffer does not contain a packed R-tree
+     */
+    public PackedRTree(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("The buffer does not contain a packed R-tree index");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported packed R-tree version " + version);
+        }
+        this.buffer = buffer;
+        this.nodeSize = buffer.getInt(8);
+        this.numItems = buffer.getInt(12);
+        int numLevels = buffer.getInt(16);
+        if (numItems > 0) {
+            this.bounds = new Envelope(buffer.getDouble(20), buffer.getDouble(36),
+                    buffer.getDouble(28), buffer.getDouble(44));
+        } else {
+            this.bounds = new Envelope();
+        }
+        this.levelEnds = new int[numLevels];
+        for (int i = 0; i < numLevels; i++) {
+            levelEnds[i] = buffer.getInt(HEADER_SIZE + i * 4);
+        }
+        this.entriesStart = HEADER_SIZE + numLevels * 4;
+        int numEntries = numLevels > 0 ? levelEnds[numLevels - 1] : 0;
+        if (buffer.limit() < entriesStart + numEntries * ENTRY_SIZE) {
+            throw new IOException("The packed R-tree index is truncated");
+        }
+    }
+
+    /**
+     * The bounds of all the items in the tree, a null envelope if the tree is empty
+     */
+    public Envelope getBounds() {
+        return new Envelope(bounds);
+    }
+
+    /**
+     * The number of items in the tree
+     */
+    public int getNumItems() {
+        return numItems;
+    }
+
+    /**
+     * Collects the .shp offsets of the records whose bounds intersect the search area, in
+     * ascending order
+     *
+     * @param area The search area
+     * @return
+     */
+    public int[] searchOffsets(Envelope area) {
+        Offsets offsets = new Offsets();
+        if (numItems == 0 || !bounds.intersects(area)) {
+            return offsets.toArray();
+        }
+
+        // depth first visit, each stack element is a (entry, level) pair
+        int[] stack = new int[32];
+        int top = 0;
+        int root = levelEnds[levelEnds.length - 1] - 1;
+        stack[top++] = root;
+        stack[top++] = levelEnds.length - 1;
+        while (top > 0) {
+            int level = stack[--top];
+            int node = stack[--top];
+            int firstChild = buffer.getInt(entryPosition(node) + 16);
+            int lastChild = Math.min(firstChild + nodeSize, levelEnds[level - 1]);
+            for (int child = firstChild; child < lastChild; child++) {
+                int position = entryPosition(child);
+                if (!intersects(position, area)) {
+                    continue;
+                }
+                if (level == 1) {
+                    offsets.add(buffer.getInt(position + 16));
+                } else {
+                    if (top + 2 > stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[top++] = child;
+                    stack[top++] = level - 1;
+                }
+            }
+        }
+
+        int[] result = offsets.toArray();
+        // sort so that the .shp file is read sequentially
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Searches the records whose bounds intersect the search area. The search is completed before
+     * this method returns, the iterator does not need the buffer
+     *
+     * @param area The search area
+     * @return An iterator over the matching records, in .shp file order
+     * @throws TreeException
+     */
+    public CloseableIterator<Data> search(Envelope area) throws TreeException {
+        return new OffsetIterator(searchOffsets(area));
+    }
+
+    int entryPosition(int entry) {
+        return entriesStart + entry * ENTRY_SIZE;
+    }
+
+    boolean intersects(int position, Envelope area) {
+        return buffer.getFloat(position) <= area.getMaxX()
+                && buffer.getFloat(position + 4) <= area.getMaxY()
+                && buffer.getFloat(position + 8) >= area.getMinX()
+                && buffer.getFloat(position + 12) >= area.getMinY();
+    }
+
+    /**
+     * A growable list of ints
+     */
+    static class Offsets {
+        int[] values = new int[64];
+
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 3 / 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.rtree;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Bulk loads a {@link PackedRTree}: the items are collected in memory, sorted along a Hilbert
+ * curve, and then packed bottom up in nodes of fixed size, that are written out in a single
+ * sequential pass.
+ */
+public class PackedRTreeBuilder {
+
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    final int nodeSize;
+
+    float[] boxes = new float[1024];
+
+    int[] refs = new int[256];
+
+    int size;
+
+    Envelope bounds = new Envelope();
+
+    public PackedRTreeBuilder() {
+        this(DEFAULT_NODE_SIZE);
+    }
+
+    public PackedRTreeBuilder(int nodeSize) {
+        if (nodeSize < 2) {
+            throw new IllegalArgumentException("The node size must be at least 2");
+        }
+        this.nodeSize = nodeSize;
+    }
+
+    /**
+     * Adds an item to the tree
+     *
+     * @param offset The offset of the record in the .shp file
+     */
+    public void add(int offset, double minX, double minY, double maxX, double maxY) {
+        if (size == refs.length) {
+            refs = Arrays.copyOf(refs, size * 2);
+            boxes = Arrays.copyOf(boxes, size * 8);
+        }
+        boxes[size * 4] = floor(minX);
+        boxes[size * 4 + 1] = floor(minY);
+        boxes[size * 4 + 2] = ceil(maxX);
+        boxes[size * 4 + 3] = ceil(maxY);
+        refs[size] = offset;
+        size++;
+        bounds.expandToInclude(minX, minY);
+        bounds.expandToInclude(maxX, maxY);
+    }
+
+    /**
+     * The number of items added so far
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sorts and packs the items, and writes the resulting tree to the specified file
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void write(File file) throws IOException {
+        // compute the levels, leaves first
+        List<Integer> ends = new ArrayList<Integer>();
+        int numEntries = size;
+        ends.add(size);
+        if (size > 0) {
+            int levelSize = size;
+            do {
+                levelSize = (levelSize + nodeSize - 1) / nodeSize;
+                numEntries += levelSize;
+                ends.add(numEntries);
+            } while (levelSize > 1);
+        }
+
+        // sort the leaves along the Hilbert curve, keys are (curve index, item) pairs
+        float[] entryBoxes = new float[numEntries * 4];
+        int[] entryRefs = new int[numEntries];
+        if (size > 0) {
+            HilbertCurve curve = new HilbertCurve(bounds);
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                double cx = (boxes[i * 4] + (double) boxes[i * 4 + 2]) / 2;
+                double cy = (boxes[i * 4 + 1] + (double) boxes[i * 4 + 3]) / 2;
+                keys[i] = ((long) curve.index(cx, cy) << 32) | i;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < size; i++) {
+                int item = (int) keys[i];
+                System.arraycopy(boxes, item * 4, entryBoxes, i * 4, 4);
+                entryRefs[i] = refs[item];
+            }
+        }
+
+        // pack the upper levels
+        int levelStart = 0;
+        for (int level = 1; level < ends.size(); level++) {
+            int childrenEnd = ends.get(level - 1);
+            int entry = childrenEnd;
+            for (int child = levelStart; child < childrenEnd; child += nodeSize, entry++) {
+                float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+                float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+                int last = Math.min(child + nodeSize, childrenEnd);
+                for (int i = child; i < last; i++) {
+                    minX = Math.min(minX, entryBoxes[i * 4]);
+                    minY = Math.min(minY, entryBoxes[i * 4 + 1]);
+                    maxX = Math.max(maxX, entryBoxes[i * 4 + 2]);
+                    maxY = Math.max(maxY, entryBoxes[i * 4 + 3]);
+                }
+                entryBoxes[entry * 4] = minX;
+                entryBoxes[entry * 4 + 1] = minY;
+                entryBoxes[entry * 4 + 2] = maxX;
+                entryBoxes[entry * 4 + 3] = maxY;
+                entryRefs[entry] = child;
+            }
+            levelStart = childrenEnd;
+        }
+
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            FileChannel channel = fos.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(PackedRTree.HEADER_SIZE
+                    + ends.size() * 4, 64 * 1024));
+            buffer.putInt(PackedRTree.MAGIC);
+            buffer.putInt(PackedRTree.VERSION);
+            buffer.putInt(nodeSize);
+            buffer.putInt(size);
+            buffer.putInt(ends.size());
+            buffer.putDouble(size > 0 ? bounds.getMinX() : 0);
+            buffer.putDouble(size > 0 ? bounds.getMinY() : 0);
+            buffer.putDouble(size > 0 ? bounds.getMaxX() : 0);
+            buffer.putDouble(size > 0 ? bounds.getMaxY() : 0);
+            for (Integer end : ends) {
+                buffer.putInt(end);
+            }
+            for (int i = 0; i < numEntries; i++) {
+                if (buffer.remaining() < PackedRTree.ENTRY_SIZE) {
+                    flush(buffer, channel);
+                }
+                buffer.putFloat(entryBoxes[i * 4]);
+                buffer.putFloat(entryBoxes[i * 4 + 1]);
+                buffer.putFloat(entryBoxes[i * 4 + 2]);
+                buffer.putFloat(entryBoxes[i * 4 + 3]);
+                buffer.putInt(entryRefs[i]);
+            }
+            flush(buffer, channel);
+        } finally {
+            fos.close();
+        }
+    }
+
+    private void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Returns the largest float that is less or equal than the value
+     */
+    static float floor(double value) {
+        float f = (float) value;
+        return f > value ? Math.nextDown(f) : f;
+    }
+
+    /**
+     * Returns the smallest float that is greater or equal than the value
+     */
+    static float ceil(double value) {
+        float f = (float) value;
+        return f < value ? Math.nextUp(f) : f;
+    }
+}
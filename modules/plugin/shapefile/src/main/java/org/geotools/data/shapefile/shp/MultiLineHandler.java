@@ -44,11 +44,14 @@ public class MultiLineHandler implements ShapeHandler {
     final ShapeType shapeType;
 
     GeometryFactory geometryFactory;
-    
+
+    // scratch buffers, reused across reads
     double[] xy;
 
     double[] z;
 
+    int[] partOffsets;
+
     /** Create a MultiLineHandler for ShapeType.ARC */
     public MultiLineHandler(GeometryFactory gf) {
         shapeType = ShapeType.ARC;
@@ -125,12 +128,12 @@ public class MultiLineHandler implements ShapeHandler {
         int numParts = buffer.getInt();
         int numPoints = buffer.getInt(); // total number of points
 
-        int[] partOffsets = new int[numParts];
-
-        // points = new Coordinate[numPoints];
+        partOffsets = PackedCoordinates.ensureCapacity(partOffsets, numParts);
         for (int i = 0; i < numParts; i++) {
             partOffsets[i] = buffer.getInt();
         }
+        final CoordinateSequenceFactory csFactory = geometryFactory.getCoordinateSequenceFactory();
+        final boolean packed = dimensions == 2 && PackedCoordinates.isPackedDouble(csFactory);
         // read the first two coordinates and start building the coordinate
         // sequences
         CoordinateSequence[] lines = new CoordinateSequence[numParts];
@@ -156,18 +159,29 @@ public class MultiLineHandler implements ShapeHandler {
                 clonePoint = false;
             }
 
-            CoordinateSequence cs =
-                JTS.createCS(geometryFactory.getCoordinateSequenceFactory(), length, dimensions);
-            double[] xy = new double[xyLength * 2];
-            doubleBuffer.get(xy);
-            for (int i = 0; i < xyLength; i++) {
-                cs.setOrdinate(i, 0, xy[i * 2]);
-                cs.setOrdinate(i, 1, xy[i * 2 + 1]);
-            }
+            CoordinateSequence cs;
+            if (packed) {
+                // read straight into the array backing the sequence
+                double[] ordinates = new double[length * 2];
+                doubleBuffer.get(ordinates, 0, xyLength * 2);
+                if (clonePoint) {
+                    ordinates[2] = ordinates[0];
+                    ordinates[3] = ordinates[1];
+                }
+                cs = PackedCoordinates.create(csFactory, ordinates, 2);
+            } else {
+                cs = JTS.createCS(csFactory, length, dimensions);
+                xy = PackedCoordinates.ensureCapacity(xy, xyLength * 2);
+                doubleBuffer.get(xy, 0, xyLength * 2);
+                for (int i = 0; i < xyLength; i++) {
+                    cs.setOrdinate(i, 0, xy[i * 2]);
+                    cs.setOrdinate(i, 1, xy[i * 2 + 1]);
+                }
 
-            if (clonePoint) {
-                cs.setOrdinate(1, 0, cs.getOrdinate(0, 0));
-                cs.setOrdinate(1, 1, cs.getOrdinate(0, 1));
+                if (clonePoint) {
+                    cs.setOrdinate(1, 0, cs.getOrdinate(0, 0));
+                    cs.setOrdinate(1, 1, cs.getOrdinate(0, 1));
+                }
             }
 
             lines[part] = cs;
@@ -196,8 +210,8 @@ public class MultiLineHandler implements ShapeHandler {
                     clonePoint = false;
                 }
 
-                double[] z = new double[length];
-                doubleBuffer.get(z);
+                z = PackedCoordinates.ensureCapacity(z, length);
+                doubleBuffer.get(z, 0, length);
                 for (int i = 0; i < length; i++) {
                     lines[part].setOrdinate(i, 2, z[i]);
                 }
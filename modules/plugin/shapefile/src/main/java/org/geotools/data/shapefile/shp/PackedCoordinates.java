@@ -0,0 +1,84 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.shp;
+
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequenceFactory;
+
+/**
+ * Support methods for the shape handlers, allowing them to decode ordinates straight into the
+ * array backing a packed coordinate sequence, instead of going through a temporary array and
+ * per ordinate setters.
+ */
+final class PackedCoordinates {
+
+    private PackedCoordinates() {
+        // utility class
+    }
+
+    /**
+     * Returns true if the factory builds sequences backed by a single interleaved double array,
+     * that can be wrapped around an existing array without copying it
+     */
+    static boolean isPackedDouble(CoordinateSequenceFactory csFactory) {
+        if (csFactory instanceof LiteCoordinateSequenceFactory) {
+            return true;
+        } else if (csFactory instanceof PackedCoordinateSequenceFactory) {
+            return ((PackedCoordinateSequenceFactory) csFactory).getType() == PackedCoordinateSequenceFactory.DOUBLE;
+        }
+        return false;
+    }
+
+    /**
+     * Wraps the interleaved ordinates into a coordinate sequence. The array is not copied, the
+     * factory must be one for which {@link #isPackedDouble(CoordinateSequenceFactory)} returns
+     * true
+     */
+    static CoordinateSequence create(CoordinateSequenceFactory csFactory, double[] ordinates,
+            int dimension) {
+        if (csFactory instanceof LiteCoordinateSequenceFactory) {
+            return ((LiteCoordinateSequenceFactory) csFactory).create(ordinates, dimension);
+        } else {
+            return ((PackedCoordinateSequenceFactory) csFactory).create(ordinates, dimension);
+        }
+    }
+
+    /**
+     * Returns an array at least as big as the requested size, reusing the provided one if
+     * possible. The contents of the array are not preserved.
+     */
+    static double[] ensureCapacity(double[] array, int size) {
+        if (array == null || array.length < size) {
+            return new double[size];
+        }
+        return array;
+    }
+
+    /**
+     * Returns an array at least as big as the requested size, reusing the provided one if
+     * possible. The contents of the array are not preserved.
+     */
+    static int[] ensureCapacity(int[] array, int size) {
+        if (array == null || array.length < size) {
+            return new int[size];
+        }
+        return array;
+    }
+}
@@ -22,6 +22,7 @@ import org.geotools.geometry.jts.JTS;
 
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.Point;
 
@@ -85,18 +86,32 @@ public class PointHandler implements ShapeHandler {
         }
         
         int dimension = shapeType == ShapeType.POINTZ && !flatGeometry ? 3 : 2;
-        CoordinateSequence cs =
-            JTS.createCS(geometryFactory.getCoordinateSequenceFactory(), 1, dimension);
-        
-        cs.setOrdinate(0, 0, buffer.getDouble());
-        cs.setOrdinate(0, 1, buffer.getDouble());
+        CoordinateSequenceFactory csFactory = geometryFactory.getCoordinateSequenceFactory();
+        CoordinateSequence cs;
+        if (PackedCoordinates.isPackedDouble(csFactory)) {
+            double[] ordinates = new double[dimension];
+            ordinates[0] = buffer.getDouble();
+            ordinates[1] = buffer.getDouble();
+            if (shapeType == ShapeType.POINTM) {
+                buffer.getDouble();
+            }
+            if (dimension > 2) {
+                ordinates[2] = buffer.getDouble();
+            }
+            cs = PackedCoordinates.create(csFactory, ordinates, dimension);
+        } else {
+            cs = JTS.createCS(csFactory, 1, dimension);
 
-        if (shapeType == ShapeType.POINTM) {
-            buffer.getDouble();
-        }
-        
-        if (dimension > 2) {
-            cs.setOrdinate(0, 2, buffer.getDouble());
+            cs.setOrdinate(0, 0, buffer.getDouble());
+            cs.setOrdinate(0, 1, buffer.getDouble());
+
+            if (shapeType == ShapeType.POINTM) {
+                buffer.getDouble();
+            }
+
+            if (dimension > 2) {
+                cs.setOrdinate(0, 2, buffer.getDouble());
+            }
         }
 
         return geometryFactory.createPoint(cs);
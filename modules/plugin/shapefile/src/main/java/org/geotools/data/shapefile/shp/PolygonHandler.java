@@ -30,6 +30,7 @@ import com.vividsolutions.jts.algorithm.CGAlgorithms;
 import com.vividsolutions.jts.algorithm.RobustDeterminant;
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
@@ -54,6 +55,13 @@ public class PolygonHandler implements ShapeHandler {
 
     final ShapeType shapeType;
 
+    // scratch buffers, reused across reads
+    double[] xy;
+
+    double[] z;
+
+    int[] partOffsets;
+
     public PolygonHandler(GeometryFactory gf) {
         shapeType = ShapeType.POLYGON;
         this.geometryFactory = gf;
@@ -135,13 +143,11 @@ public class PolygonHandler implements ShapeHandler {
         // bounds
         buffer.position(buffer.position() + 4 * 8);
 
-        int[] partOffsets;
-
         int numParts = buffer.getInt();
         int numPoints = buffer.getInt();
         int dimensions = (shapeType == ShapeType.POLYGONZ) && !flatFeature ? 3 : 2;
 
-        partOffsets = new int[numParts];
+        partOffsets = PackedCoordinates.ensureCapacity(partOffsets, numParts);
 
         for (int i = 0; i < numParts; i++) {
             partOffsets[i] = buffer.getInt();
@@ -149,9 +155,10 @@ public class PolygonHandler implements ShapeHandler {
 
         ArrayList shells = new ArrayList();
         ArrayList holes = new ArrayList();
-        CoordinateSequence coords = readCoordinates(buffer, numPoints, dimensions);
+        readOrdinates(buffer, numPoints, dimensions);
+        final CoordinateSequenceFactory csFactory = geometryFactory.getCoordinateSequenceFactory();
+        final boolean packed = PackedCoordinates.isPackedDouble(csFactory);
 
-        int offset = 0;
         int start;
         int finish;
         int length;
@@ -167,34 +174,49 @@ public class PolygonHandler implements ShapeHandler {
 
             length = finish - start;
             int close = 0; // '1' if the ring must be closed, '0' otherwise
-            if ((coords.getOrdinate(start, 0) != coords.getOrdinate(finish - 1, 0)) 
-                    || (coords.getOrdinate(start, 1) != coords.getOrdinate(finish - 1, 1))
+            if ((xy[start * 2] != xy[(finish - 1) * 2]) 
+                    || (xy[start * 2 + 1] != xy[(finish - 1) * 2 + 1])
             ) {
                 close=1;
             }
             if (dimensions == 3) {
-                if(coords.getOrdinate(start, 2) != coords.getOrdinate(finish - 1, 2)) {
+                if(z[start] != z[finish - 1]) {
                     close = 1;
                 }
             }
 
-            CoordinateSequence csRing =
-                JTS.createCS(geometryFactory.getCoordinateSequenceFactory(),length + close, dimensions);
-            // double area = 0;
-            // int sx = offset;
-            for (int i = 0; i < length; i++) {
-                csRing.setOrdinate(i, 0, coords.getOrdinate(offset, 0));
-                csRing.setOrdinate(i, 1, coords.getOrdinate(offset, 1));
-                if(dimensions == 3) {
-                    csRing.setOrdinate(i, 2, coords.getOrdinate(offset, 2));
+            CoordinateSequence csRing;
+            if (packed) {
+                // build the array backing the sequence directly, no per ordinate copies
+                double[] ordinates = new double[(length + close) * dimensions];
+                if (dimensions == 2) {
+                    System.arraycopy(xy, start * 2, ordinates, 0, length * 2);
+                } else {
+                    for (int i = 0, j = start; i < length; i++, j++) {
+                        ordinates[i * 3] = xy[j * 2];
+                        ordinates[i * 3 + 1] = xy[j * 2 + 1];
+                        ordinates[i * 3 + 2] = z[j];
+                    }
                 }
-                offset++;
-            }
-            if (close == 1) {
-                csRing.setOrdinate(length, 0, coords.getOrdinate(start, 0));
-                csRing.setOrdinate(length, 1, coords.getOrdinate(start, 1));
-                if(dimensions == 3) {
-                    csRing.setOrdinate(length, 2, coords.getOrdinate(start, 2));
+                if (close == 1) {
+                    System.arraycopy(ordinates, 0, ordinates, length * dimensions, dimensions);
+                }
+                csRing = PackedCoordinates.create(csFactory, ordinates, dimensions);
+            } else {
+                csRing = JTS.createCS(csFactory, length + close, dimensions);
+                for (int i = 0, j = start; i < length; i++, j++) {
+                    csRing.setOrdinate(i, 0, xy[j * 2]);
+                    csRing.setOrdinate(i, 1, xy[j * 2 + 1]);
+                    if(dimensions == 3) {
+                        csRing.setOrdinate(i, 2, z[j]);
+                    }
+                }
+                if (close == 1) {
+                    csRing.setOrdinate(length, 0, xy[start * 2]);
+                    csRing.setOrdinate(length, 1, xy[start * 2 + 1]);
+                    if(dimensions == 3) {
+                        csRing.setOrdinate(length, 2, z[start]);
+                    }
                 }
             }
             // REVISIT: polygons with only 1 or 2 points are not polygons -
@@ -233,33 +255,23 @@ public class PolygonHandler implements ShapeHandler {
     }
 
     /**
+     * Reads the ordinates of the whole record into the xy and z scratch buffers
+     * 
      * @param buffer
      * @param numPoints
      */
-    private CoordinateSequence readCoordinates(final ByteBuffer buffer,
-            final int numPoints, final int dimensions) {
-        CoordinateSequence cs =
-            JTS.createCS(geometryFactory.getCoordinateSequenceFactory(), numPoints, dimensions);
-
+    private void readOrdinates(final ByteBuffer buffer, final int numPoints,
+            final int dimensions) {
         DoubleBuffer dbuffer = buffer.asDoubleBuffer();
-        double[] ordinates = new double[numPoints * 2];
-        dbuffer.get(ordinates);
-        for (int t = 0; t < numPoints; t++) {
-            cs.setOrdinate(t, 0, ordinates[t * 2]);
-            cs.setOrdinate(t, 1, ordinates[t * 2 + 1]);
-        }
-        
+        xy = PackedCoordinates.ensureCapacity(xy, numPoints * 2);
+        dbuffer.get(xy, 0, numPoints * 2);
+
         if (dimensions > 2) {
             // z
             dbuffer.position(dbuffer.position() + 2);
-            dbuffer.get(ordinates, 0, numPoints);
-
-            for (int t = 0; t < numPoints; t++) {
-                cs.setOrdinate(t, 2, ordinates[t]);
-            }
+            z = PackedCoordinates.ensureCapacity(z, numPoints);
+            dbuffer.get(z, 0, numPoints);
         }
-
-        return cs;
     }
 
     /**
@@ -0,0 +1,168 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Random;
+
+import org.geotools.data.shapefile.IndexManager.AttributeRange;
+import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.shapefile.index.attribute.AttributeIndex;
+import org.geotools.data.shapefile.index.attribute.AttributeIndex.KeyType;
+import org.geotools.data.shapefile.index.attribute.AttributeIndexWriter;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.junit.Test;
+import org.opengis.filter.Filter;
+
+public class ShapefileAttributeIndexTest extends TestCaseSupport {
+
+    @Test
+    public void testSearch() throws Exception {
+        Random random = new Random(42);
+        double[] numbers = new double[1000];
+        String[] names = new String[1000];
+        AttributeIndexWriter writer = new AttributeIndexWriter();
+        int numberColumn = writer.addColumn("N", KeyType.NUMBER);
+        int nameColumn = writer.addColumn("S", KeyType.STRING);
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = random.nextInt(200) - 100 + (random.nextBoolean() ? 0.5 : 0);
+            names[i] = "name" + random.nextInt(50);
+            writer.add(numberColumn, numbers[i], i);
+            writer.add(nameColumn, names[i], i);
+        }
+        // nulls are not indexed
+        writer.add(numberColumn, null, 1000);
+        File file = File.createTempFile("attribute", ".aix", tmpDir());
+        writer.write(file);
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            ByteBuffer buffer = raf.getChannel().map(MapMode.READ_ONLY, 0, raf.length());
+            AttributeIndex index = new AttributeIndex(buffer);
+            AttributeIndex.Column n = index.getColumn("N");
+            AttributeIndex.Column s = index.getColumn("S");
+            assertEquals(1000, n.getCount());
+            for (int i = 0; i < 50; i++) {
+                double low = random.nextInt(240) - 120;
+                double high = low + random.nextInt(40);
+                boolean lowInclusive = random.nextBoolean();
+                boolean highInclusive = random.nextBoolean();
+                int expected = 0;
+                for (double number : numbers) {
+                    if ((lowInclusive ? number >= low : number > low)
+                            && (highInclusive ? number <= high : number < high)) {
+                        expected++;
+                    }
+                }
+                int[] offsets = index.searchOffsets(n, n.encode(low), lowInclusive,
+                        n.encode(high), highInclusive);
+                assertEquals(expected, offsets.length);
+                for (int j = 1; j < offsets.length; j++) {
+                    assertTrue(offsets[j - 1] < offsets[j]);
+                }
+
+                String name = "name" + random.nextInt(60);
+                expected = 0;
+                for (String n2 : names) {
+                    if (n2.equals(name)) {
+                        expected++;
+                    }
+                }
+                byte[] key = s.encode(name);
+                assertEquals(expected, index.searchOffsets(s, key, true, key, true).length);
+            }
+            // longer than any indexed value, cannot be encoded
+            assertNull(s.encode("a much longer name than any of the indexed ones"));
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test
+    public void testAttributeRange() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        ShapefileDataStore store = new ShapefileDataStore(shpFile.toURI().toURL());
+        store.setIndexedAttributes("STATE_NAME", "PERSONS");
+        try {
+            IndexManager manager = store.indexManager;
+            AttributeRange range = manager.getAttributeRange(
+                    ff.and(ff.greater(ff.property("PERSONS"), ff.literal(1000000)),
+                            ff.lessOrEqual(ff.literal(5000000), ff.property("PERSONS"))),
+                    store.getSchema());
+            assertEquals("PERSONS", range.attribute);
+            assertEquals(5000000d, range.low);
+            assertTrue(range.lowInclusive);
+            assertNull(range.high);
+
+            range = manager.getAttributeRange(
+                    ff.and(ff.greater(ff.property("PERSONS"), ff.literal(1000000)),
+                            ff.equals(ff.property("STATE_NAME"), ff.literal("Illinois"))),
+                    store.getSchema());
+            assertEquals("STATE_NAME", range.attribute);
+            assertTrue(range.isEquality());
+
+            // case insensitive matches and non indexed attributes cannot use the index
+            assertNull(manager.getAttributeRange(
+                    ff.equal(ff.property("STATE_NAME"), ff.literal("illinois"), false),
+                    store.getSchema()));
+            assertNull(manager.getAttributeRange(
+                    ff.equals(ff.property("STATE_ABBR"), ff.literal("IL")), store.getSchema()));
+        } finally {
+            store.dispose();
+        }
+    }
+
+    @Test
+    public void testQueryStore() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        ShapefileDataStore plain = new ShapefileDataStore(shpFile.toURI().toURL());
+        ShapefileDataStore indexed = new ShapefileDataStore(shpFile.toURI().toURL());
+        indexed.setIndexedAttributes("STATE_NAME", "PERSONS");
+        try {
+            SimpleFeatureSource plainSource = plain.getFeatureSource();
+            SimpleFeatureSource indexedSource = indexed.getFeatureSource();
+            Filter[] filters = new Filter[] {
+                    ff.equals(ff.property("STATE_NAME"), ff.literal("Illinois")),
+                    ff.equals(ff.property("STATE_NAME"), ff.literal("Atlantis")),
+                    ff.greater(ff.property("PERSONS"), ff.literal(5000000)),
+                    ff.lessOrEqual(ff.property("PERSONS"), ff.literal(1000000)),
+                    ff.between(ff.property("PERSONS"), ff.literal(1000000),
+                            ff.literal(3000000)),
+                    ff.and(ff.greater(ff.property("PERSONS"), ff.literal(1000000)),
+                            ff.like(ff.property("STATE_NAME"), "N*")) };
+            for (Filter filter : filters) {
+                assertEquals(filter.toString(), plainSource.getFeatures(filter).size(),
+                        indexedSource.getFeatures(filter).size());
+            }
+            assertTrue(indexed.shpFiles.exists(ShpFileType.AIX));
+        } finally {
+            plain.dispose();
+            indexed.dispose();
+        }
+    }
+
+    File tmpDir() {
+        File dir = new File("target/attribute-index");
+        dir.mkdirs();
+        return dir;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.shapefile.index.rtree.PackedRTree;
+import org.geotools.data.shapefile.index.rtree.PackedRTreeBuilder;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.junit.Test;
+import org.opengis.filter.Filter;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+public class ShapefilePackedRTreeTest extends TestCaseSupport {
+
+    @Test
+    public void testSearch() throws Exception {
+        Random random = new Random(42);
+        List<Envelope> boxes = new ArrayList<Envelope>();
+        PackedRTreeBuilder builder = new PackedRTreeBuilder(4);
+        for (int i = 0; i < 1000; i++) {
+            double x = random.nextDouble() * 360 - 180;
+            double y = random.nextDouble() * 180 - 90;
+            Envelope box = new Envelope(x, x + random.nextDouble(), y, y + random.nextDouble());
+            boxes.add(box);
+            builder.add(i, box.getMinX(), box.getMinY(), box.getMaxX(), box.getMaxY());
+        }
+        File file = File.createTempFile("packed", ".prx", tmpDir());
+        builder.write(file);
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            ByteBuffer buffer = raf.getChannel().map(MapMode.READ_ONLY, 0, raf.length());
+            PackedRTree tree = new PackedRTree(buffer);
+            assertEquals(1000, tree.getNumItems());
+            for (int i = 0; i < 50; i++) {
+                double x = random.nextDouble() * 360 - 180;
+                double y = random.nextDouble() * 180 - 90;
+                Envelope area = new Envelope(x, x + 20, y, y + 10);
+                List<Integer> expected = new ArrayList<Integer>();
+                for (int j = 0; j < boxes.size(); j++) {
+                    if (boxes.get(j).intersects(area)) {
+                        expected.add(j);
+                    }
+                }
+                // float rounding might add a few false positives, never remove matches
+                List<Integer> actual = new ArrayList<Integer>();
+                for (int offset : tree.searchOffsets(area)) {
+                    actual.add(offset);
+                }
+                assertTrue(actual.containsAll(expected));
+                for (Integer offset : actual) {
+                    Envelope box = new Envelope(boxes.get(offset));
+                    box.expandBy(1e-4);
+                    assertTrue(box.intersects(area));
+                }
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        File file = File.createTempFile("empty", ".prx", tmpDir());
+        new PackedRTreeBuilder().write(file);
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            ByteBuffer buffer = raf.getChannel().map(MapMode.READ_ONLY, 0, raf.length());
+            PackedRTree tree = new PackedRTree(buffer);
+            assertEquals(0, tree.getNumItems());
+            assertTrue(tree.getBounds().isNull());
+            assertEquals(0, tree.searchOffsets(new Envelope(-180, 180, -90, 90)).length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test
+    public void testQueryStore() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        ShapefileDataStore plain = new ShapefileDataStore(shpFile.toURI().toURL());
+        plain.setIndexed(false);
+        ShapefileDataStore packed = new ShapefileDataStore(shpFile.toURI().toURL());
+        packed.setPackedSpatialIndex(true);
+        try {
+            SimpleFeatureSource plainSource = plain.getFeatureSource();
+            SimpleFeatureSource packedSource = packed.getFeatureSource();
+            String geom = plainSource.getSchema().getGeometryDescriptor().getLocalName();
+            Filter[] filters = new Filter[] {
+                    ff.bbox(geom, -100, 30, -90, 40, null),
+                    ff.bbox(geom, -75, 40, -73, 42, null),
+                    ff.bbox(geom, 0, 0, 10, 10, null) };
+            for (Filter filter : filters) {
+                assertEquals(plainSource.getFeatures(filter).size(),
+                        packedSource.getFeatures(filter).size());
+            }
+            assertTrue(packed.shpFiles.exists(ShpFileType.PRX));
+        } finally {
+            plain.dispose();
+            packed.dispose();
+        }
+    }
+
+    File tmpDir() {
+        File dir = new File("target/packed-rtree");
+        dir.mkdirs();
+        return dir;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.StreamSupport;
+
+import org.geotools.data.Query;
+import org.geotools.feature.visitor.BoundsVisitor;
+import org.geotools.feature.visitor.CountVisitor;
+import org.geotools.feature.visitor.SumVisitor;
+import org.geotools.feature.visitor.UniqueVisitor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.feature.simple.SimpleFeature;
+
+public class ShapefileParallelScanTest extends TestCaseSupport {
+
+    ShapefileDataStore store;
+
+    ShapefileFeatureSource source;
+
+    @Before
+    public void setup() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        store = new ShapefileDataStore(shpFile.toURI().toURL());
+        source = ((ShapefileFeatureStore) store.getFeatureSource()).delegate;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        store.dispose();
+        super.tearDown();
+    }
+
+    @Test
+    public void testSplit() {
+        List<int[]> ranges = ShapefileParallelScanner.split(49, 4, 10);
+        assertEquals(4, ranges.size());
+        assertEquals(0, ranges.get(0)[0]);
+        for (int i = 1; i < ranges.size(); i++) {
+            assertEquals(ranges.get(i - 1)[1], ranges.get(i)[0]);
+        }
+        assertEquals(49, ranges.get(3)[1]);
+
+        // too few records to split
+        assertEquals(1, ShapefileParallelScanner.split(49, 4, 100).size());
+    }
+
+    @Test
+    public void testCount() throws Exception {
+        CountVisitor expected = new CountVisitor();
+        CountVisitor actual = new CountVisitor();
+        assertParallelScan(expected, actual);
+        assertEquals(expected.getCount(), actual.getCount());
+    }
+
+    @Test
+    public void testBounds() throws Exception {
+        BoundsVisitor expected = new BoundsVisitor();
+        BoundsVisitor actual = new BoundsVisitor();
+        assertParallelScan(expected, actual);
+        assertEquals(expected.getBounds(), actual.getBounds());
+    }
+
+    @Test
+    public void testSum() throws Exception {
+        SumVisitor expected = new SumVisitor(ff.property("PERSONS"));
+        SumVisitor actual = new SumVisitor(ff.property("PERSONS"));
+        assertParallelScan(expected, actual);
+        assertEquals(((Number) expected.getSum()).doubleValue(),
+                ((Number) actual.getSum()).doubleValue(), 0d);
+    }
+
+    @Test
+    public void testUnique() throws Exception {
+        UniqueVisitor expected = new UniqueVisitor(ff.property("STATE_NAME"));
+        expected.setPreserveOrder(true);
+        UniqueVisitor actual = new UniqueVisitor(ff.property("STATE_NAME"));
+        actual.setPreserveOrder(true);
+        assertParallelScan(expected, actual);
+        assertEquals(expected.getUnique().size(), actual.getUnique().size());
+        assertEquals(new ArrayList<Object>(expected.getUnique()),
+                new ArrayList<Object>(actual.getUnique()));
+    }
+
+    @Test
+    public void testUnsupportedVisitor() throws Exception {
+        UniqueVisitor paged = new UniqueVisitor(ff.property("STATE_NAME"));
+        paged.setMaxFeatures(10);
+        assertFalse(ShapefileParallelScanner.canSplit(paged));
+        assertFalse(ShapefileParallelScanner.canSplit(new FeatureVisitor() {
+
+            @Override
+            public void visit(org.opengis.feature.Feature feature) {
+            }
+        }));
+    }
+
+    @Test
+    public void testSpliterator() throws Exception {
+        int count = source.getCount(Query.ALL);
+        Spliterator<SimpleFeature> spliterator = store.getFeatureSpliterator(Query.ALL);
+        assertEquals(count, spliterator.estimateSize());
+        assertEquals(count, StreamSupport.stream(spliterator, true).count());
+
+        Query q = new Query(store.getTypeName().getLocalPart(),
+                ff.equals(ff.property("STATE_NAME"), ff.literal("Illinois")));
+        assertEquals(1, StreamSupport.stream(store.getFeatureSpliterator(q), true).count());
+    }
+
+    void assertParallelScan(FeatureVisitor expected, FeatureVisitor actual) throws Exception {
+        source.accepts(Query.ALL, expected, null);
+
+        ShapefileParallelScanner scanner = new ShapefileParallelScanner(source, 4);
+        scanner.minRangeSize = 10;
+        assertTrue(scanner.visit(Query.ALL, actual));
+    }
+
+}
@@ -18,10 +18,15 @@ package org.geotools.data.shapefile.dbf;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -58,4 +63,82 @@ public class DbaseFileReaderTest {
         assertThat(records.get(98289L), nullValue());
         assertThat(records.get(98245L), nullValue()); //this fails with 0.0
     }
+
+    @Test public void testSelectedFields() throws Exception {
+        InputStream dbf = this.getClass().getResourceAsStream(
+          "/org/geotools/data/shapefile/test-data/dbase-file-reader/nulls.dbf");
+        DbaseFileReader dbfReader = new DbaseFileReader(Channels.newChannel(dbf), false,
+          StandardCharsets.UTF_8);
+        dbfReader.setSelectedFields(new int[] {1});
+
+        List<Double> values = new ArrayList<>();
+        try {
+            while (dbfReader.hasNext()) {
+                final Object[] fields = dbfReader.readEntry();
+                assertThat(fields[0], nullValue());
+                values.add((Double) fields[1]);
+            }
+            assertThat(values, is(Arrays.asList(null, null, 0.0, 5.21)));
+        } finally {
+            dbfReader.close();
+            dbf.close();
+        }
+    }
+
+    @Test public void testLongField() throws Exception {
+        DbaseFileHeader header = new DbaseFileHeader();
+        header.addColumn("id", 'N', 20, 0);
+        header.setNumRecords(3);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DbaseFileWriter writer = new DbaseFileWriter(header, Channels.newChannel(out),
+                StandardCharsets.UTF_8);
+        Long[] values = {1234567890123456789L, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (Long value : values) {
+            writer.write(new Object[] {value});
+        }
+        writer.close();
+
+        DbaseFileReader reader = new DbaseFileReader(
+                Channels.newChannel(new ByteArrayInputStream(out.toByteArray())), false,
+                StandardCharsets.UTF_8);
+        try {
+            for (Long value : values) {
+                assertThat(reader.readEntry()[0], is((Object) value));
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test public void testParseNumbers() throws Exception {
+        String[] longs = {"  12345", "-42  ", "+7", "0", "123456789012345678",
+                "1234567890123456789", "9223372036854775807", "-9223372036854775807"};
+        for (String value : longs) {
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            assertThat(DbaseFileReader.parseLong(bytes, 0, bytes.length),
+                    is(Long.parseLong(value.trim())));
+        }
+        String[] notLongs = {"   ", "1.5", "-", "9223372036854775808",
+                "-9223372036854775809", "12345678901234567890", "12a"};
+        for (String value : notLongs) {
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            assertThat(DbaseFileReader.parseLong(bytes, 0, bytes.length),
+                    is(DbaseFileReader.NOT_A_LONG));
+        }
+
+        String[] doubles = {" 5.210000000", "0.000000000", "-0.1", "123.", ".5", "3",
+                "-1234567.891", "0.0000000000000000000012"};
+        for (String value : doubles) {
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            assertThat(DbaseFileReader.parseDouble(bytes, 0, bytes.length),
+                    is(Double.parseDouble(value)));
+        }
+        // these need the slow path
+        String[] slow = {"1e10", "1234567890.1234567", "   ", ".", "-"};
+        for (String value : slow) {
+            byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+            assertThat(Double.isNaN(DbaseFileReader.parseDouble(bytes, 0, bytes.length)),
+                    is(true));
+        }
+    }
 }
@@ -18,9 +18,12 @@ package org.geotools.data.shapefile.shp;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 
 import org.geotools.data.shapefile.TestCaseSupport;
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
 import org.junit.Test;
 
 import com.vividsolutions.jts.geom.Coordinate;
@@ -28,6 +31,8 @@ import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LinearRing;
 import com.vividsolutions.jts.geom.PrecisionModel;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequenceFactory;
+import com.vividsolutions.jts.io.WKTReader;
 
 /**
  * 
@@ -52,6 +57,32 @@ public class PolygonHandlerTest extends TestCaseSupport {
         }
     }
 
+    @Test
+    public void testReadPackedCoordinates() throws Exception {
+        GeometryFactory gf = new GeometryFactory();
+        Geometry polygon = new WKTReader(gf).read(
+                "MULTIPOLYGON(((0 0, 0 10, 10 10, 10 0, 0 0), (2 2, 8 2, 8 8, 2 8, 2 2)),"
+                        + "((20 20, 20 30, 30 30, 30 20, 20 20)))");
+        PolygonHandler writer = new PolygonHandler(gf);
+        ByteBuffer buffer = ByteBuffer.allocate(writer.getLength(polygon));
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        writer.write(buffer, polygon);
+
+        // the default and the packed factories should decode the same geometry
+        GeometryFactory[] factories = new GeometryFactory[] { gf,
+                new GeometryFactory(new LiteCoordinateSequenceFactory()),
+                new GeometryFactory(new PackedCoordinateSequenceFactory()) };
+        for (GeometryFactory factory : factories) {
+            PolygonHandler handler = new PolygonHandler(factory);
+            // read twice to make sure the reused buffers do not leak state
+            for (int i = 0; i < 2; i++) {
+                buffer.rewind();
+                Geometry read = (Geometry) handler.read(buffer, ShapeType.POLYGON, false);
+                assertTrue(polygon.equalsExact(read));
+            }
+        }
+    }
+
     @Test
     public void testHoleAssignment() {
         java.awt.Dimension ps = new java.awt.Dimension(500, 500);